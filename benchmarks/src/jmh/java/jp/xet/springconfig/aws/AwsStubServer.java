@@ -0,0 +1,233 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jp.xet.springconfig.aws;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * In-process HTTP stub which emulates a few AWS APIs for the throughput benchmarks.
+ *
+ * <ul>
+ *     <li>DynamoDB {@code GetItem} (JSON protocol) - returns an item with a {@code payload} attribute.</li>
+ *     <li>SQS {@code SendMessage} (query protocol) - returns the MD5 of the message body,
+ *         which is validated by the clients.</li>
+ *     <li>S3 {@code GetObject} (REST-XML protocol, path-style) - returns the payload with its MD5 as ETag.</li>
+ * </ul>
+ *
+ * <p>Each response is delayed by the configured latency to emulate the service time.
+ * The requests are not authenticated.</p>
+ *
+ * @author miyamoto.daisuke
+ */
+public class AwsStubServer implements AutoCloseable {
+	
+	/**
+	 * Bucket name for S3. This is not DNS compatible, so that both v1 and v2 clients use path-style access
+	 * regardless of the client settings.
+	 */
+	public static final String BUCKET = "benchmark_bucket";
+	
+	/** Table name for DynamoDB. */
+	public static final String TABLE = "benchmark";
+	
+	/** Path of the SQS queue URL. */
+	public static final String QUEUE_PATH = "/123456789012/benchmark";
+	
+	private static final String DYNAMODB_TARGET_PREFIX = "DynamoDB_20120810.";
+	
+	
+	private final HttpServer server;
+	
+	private final ExecutorService executor;
+	
+	private final long latencyMillis;
+	
+	private final byte[] payload;
+	
+	private final String payloadMd5;
+	
+	private final byte[] getItemResponse;
+	
+	
+	/**
+	 * Create and start the stub on a loopback ephemeral port.
+	 *
+	 * @param latencyMillis the latency added to each response in milliseconds
+	 * @param payloadSize the size of the payload returned by {@code GetItem} and {@code GetObject} in bytes
+	 * @throws IOException if the server cannot be started
+	 */
+	public AwsStubServer(long latencyMillis, int payloadSize) throws IOException {
+		this.latencyMillis = latencyMillis;
+		char[] chars = new char[payloadSize];
+		Arrays.fill(chars, 'x');
+		payload = new String(chars).getBytes(StandardCharsets.UTF_8);
+		payloadMd5 = md5Hex(payload);
+		getItemResponse = ("{\"Item\":{\"id\":{\"S\":\"1\"},\"payload\":{\"S\":\"" + new String(chars) + "\"}}}")
+			.getBytes(StandardCharsets.UTF_8);
+		
+		executor = Executors.newCachedThreadPool(runnable -> {
+			Thread thread = new Thread(runnable, "aws-stub-server");
+			thread.setDaemon(true);
+			return thread;
+		});
+		server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 1024);
+		server.createContext("/", this::handle);
+		server.setExecutor(executor);
+		server.start();
+	}
+	
+	/**
+	 * Get the endpoint of the stub.
+	 *
+	 * @return the endpoint, e.g. {@code http://127.0.0.1:12345}
+	 */
+	public URI getEndpoint() {
+		InetSocketAddress address = server.getAddress();
+		return URI.create("http://" + address.getAddress().getHostAddress() + ":" + address.getPort());
+	}
+	
+	/**
+	 * Get the SQS queue URL of the stub.
+	 *
+	 * @return the queue URL
+	 */
+	public String getQueueUrl() {
+		return getEndpoint() + QUEUE_PATH;
+	}
+	
+	@Override
+	public void close() {
+		server.stop(0);
+		executor.shutdownNow();
+	}
+	
+	private void handle(HttpExchange exchange) throws IOException {
+		try {
+			byte[] body = readFully(exchange.getRequestBody());
+			sleep();
+			String target = exchange.getRequestHeaders().getFirst("X-Amz-Target");
+			if (target != null && target.startsWith(DYNAMODB_TARGET_PREFIX)) {
+				respond(exchange, 200, "application/x-amz-json-1.0", getItemResponse);
+			} else if ("POST".equals(exchange.getRequestMethod())) {
+				handleQuery(exchange, new String(body, StandardCharsets.UTF_8));
+			} else if ("GET".equals(exchange.getRequestMethod())) {
+				exchange.getResponseHeaders().add("ETag", "\"" + payloadMd5 + "\"");
+				respond(exchange, 200, "application/octet-stream", payload);
+			} else {
+				respond(exchange, 405, "text/plain", new byte[0]);
+			}
+		} finally {
+			exchange.close();
+		}
+	}
+	
+	private void handleQuery(HttpExchange exchange, String body) throws IOException {
+		Map<String, String> parameters = parseForm(body);
+		if ("SendMessage".equals(parameters.get("Action")) == false) {
+			respond(exchange, 400, "text/xml", ("<ErrorResponse><Error><Type>Sender</Type>"
+					+ "<Code>InvalidAction</Code></Error></ErrorResponse>").getBytes(StandardCharsets.UTF_8));
+			return;
+		}
+		String messageBody = parameters.getOrDefault("MessageBody", "");
+		String response = "<SendMessageResponse xmlns=\"http://queue.amazonaws.com/doc/2012-11-05/\">"
+				+ "<SendMessageResult>"
+				+ "<MD5OfMessageBody>" + md5Hex(messageBody.getBytes(StandardCharsets.UTF_8)) + "</MD5OfMessageBody>"
+				+ "<MessageId>" + UUID.randomUUID() + "</MessageId>"
+				+ "</SendMessageResult>"
+				+ "<ResponseMetadata><RequestId>" + UUID.randomUUID() + "</RequestId></ResponseMetadata>"
+				+ "</SendMessageResponse>";
+		respond(exchange, 200, "text/xml", response.getBytes(StandardCharsets.UTF_8));
+	}
+	
+	private void sleep() {
+		if (latencyMillis > 0) {
+			try {
+				TimeUnit.MILLISECONDS.sleep(latencyMillis);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+	
+	private static void respond(HttpExchange exchange, int status, String contentType, byte[] body)
+			throws IOException {
+		exchange.getResponseHeaders().add("Content-Type", contentType);
+		exchange.getResponseHeaders().add("x-amzn-RequestId", UUID.randomUUID().toString());
+		exchange.sendResponseHeaders(status, body.length == 0 ? -1 : body.length);
+		if (body.length > 0) {
+			try (OutputStream out = exchange.getResponseBody()) {
+				out.write(body);
+			}
+		}
+	}
+	
+	private static Map<String, String> parseForm(String body) throws UnsupportedEncodingException {
+		Map<String, String> parameters = new HashMap<>();
+		for (String pair : body.split("&")) {
+			int index = pair.indexOf('=');
+			if (index > 0) {
+				parameters.put(URLDecoder.decode(pair.substring(0, index), "UTF-8"),
+						URLDecoder.decode(pair.substring(index + 1), "UTF-8"));
+			}
+		}
+		return parameters;
+	}
+	
+	private static byte[] readFully(InputStream in) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		byte[] buffer = new byte[8192];
+		int read;
+		while ((read = in.read(buffer)) != -1) {
+			out.write(buffer, 0, read);
+		}
+		return out.toByteArray();
+	}
+	
+	private static String md5Hex(byte[] bytes) {
+		try {
+			byte[] digest = MessageDigest.getInstance("MD5").digest(bytes);
+			StringBuilder sb = new StringBuilder();
+			for (byte b : digest) {
+				sb.append(String.format(Locale.ENGLISH, "%02x", b));
+			}
+			return sb.toString();
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jp.xet.springconfig.aws;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.amazonaws.services.sqs.AmazonSQSClientBuilder;
+
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.sqs.SqsClient;
+import software.amazon.awssdk.services.sqs.SqsClientBuilder;
+
+/**
+ * Benchmark of a single {@link InternalReflectionUtil#invokeMethod(Object, String, Object...)} call
+ * on AWS client builders, compared with the direct call.
+ *
+ * @author miyamoto.daisuke
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class InternalReflectionUtilBenchmark {
+	
+	private AmazonSQSClientBuilder v1Builder;
+	
+	private SqsClientBuilder v2Builder;
+	
+	private String v1Region = "us-east-1";
+	
+	private Region v2Region = Region.US_EAST_1;
+	
+	
+	@Setup
+	public void setUp() {
+		v1Builder = AmazonSQSClientBuilder.standard();
+		v2Builder = SqsClient.builder();
+	}
+	
+	@Benchmark
+	public Object v1Direct() {
+		v1Builder.setRegion(v1Region);
+		return v1Builder;
+	}
+	
+	@Benchmark
+	public Object v1InvokeMethod() {
+		return InternalReflectionUtil.invokeMethod(v1Builder, "setRegion", v1Region);
+	}
+	
+	@Benchmark
+	public Object v2Direct() {
+		return v2Builder.region(v2Region);
+	}
+	
+	@Benchmark
+	public Object v2InvokeMethod() {
+		return InternalReflectionUtil.invokeMethod(v2Builder, "region", v2Region);
+	}
+}
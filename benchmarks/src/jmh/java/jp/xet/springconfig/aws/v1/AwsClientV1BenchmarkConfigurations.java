@@ -0,0 +1,209 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jp.xet.springconfig.aws.v1;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.MapPropertySource;
+
+import com.amazonaws.services.apigateway.AmazonApiGateway;
+import com.amazonaws.services.appsync.AWSAppSync;
+import com.amazonaws.services.athena.AmazonAthena;
+import com.amazonaws.services.autoscaling.AmazonAutoScaling;
+import com.amazonaws.services.batch.AWSBatch;
+import com.amazonaws.services.certificatemanager.AWSCertificateManager;
+import com.amazonaws.services.cloudformation.AmazonCloudFormation;
+import com.amazonaws.services.cloudfront.AmazonCloudFront;
+import com.amazonaws.services.cloudtrail.AWSCloudTrail;
+import com.amazonaws.services.cloudwatch.AmazonCloudWatch;
+import com.amazonaws.services.codebuild.AWSCodeBuild;
+import com.amazonaws.services.codecommit.AWSCodeCommit;
+import com.amazonaws.services.codedeploy.AmazonCodeDeploy;
+import com.amazonaws.services.codepipeline.AWSCodePipeline;
+import com.amazonaws.services.cognitoidentity.AmazonCognitoIdentity;
+import com.amazonaws.services.cognitoidp.AWSCognitoIdentityProvider;
+import com.amazonaws.services.config.AmazonConfig;
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.ec2.AmazonEC2;
+import com.amazonaws.services.ecr.AmazonECR;
+import com.amazonaws.services.ecs.AmazonECS;
+import com.amazonaws.services.eks.AmazonEKS;
+import com.amazonaws.services.elasticache.AmazonElastiCache;
+import com.amazonaws.services.elasticbeanstalk.AWSElasticBeanstalk;
+import com.amazonaws.services.elasticfilesystem.AmazonElasticFileSystem;
+import com.amazonaws.services.elasticloadbalancingv2.AmazonElasticLoadBalancing;
+import com.amazonaws.services.elasticmapreduce.AmazonElasticMapReduce;
+import com.amazonaws.services.glue.AWSGlue;
+import com.amazonaws.services.identitymanagement.AmazonIdentityManagement;
+import com.amazonaws.services.iot.AWSIot;
+import com.amazonaws.services.kinesis.AmazonKinesis;
+import com.amazonaws.services.kinesisfirehose.AmazonKinesisFirehose;
+import com.amazonaws.services.kms.AWSKMS;
+import com.amazonaws.services.lambda.AWSLambda;
+import com.amazonaws.services.logs.AWSLogs;
+import com.amazonaws.services.mq.AmazonMQ;
+import com.amazonaws.services.rds.AmazonRDS;
+import com.amazonaws.services.redshift.AmazonRedshift;
+import com.amazonaws.services.route53.AmazonRoute53;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.sagemaker.AmazonSageMaker;
+import com.amazonaws.services.secretsmanager.AWSSecretsManager;
+import com.amazonaws.services.securitytoken.AWSSecurityTokenService;
+import com.amazonaws.services.simpleemail.AmazonSimpleEmailService;
+import com.amazonaws.services.simplesystemsmanagement.AWSSimpleSystemsManagement;
+import com.amazonaws.services.simpleworkflow.AmazonSimpleWorkflow;
+import com.amazonaws.services.sns.AmazonSNS;
+import com.amazonaws.services.sqs.AmazonSQS;
+import com.amazonaws.services.stepfunctions.AWSStepFunctions;
+import com.amazonaws.services.xray.AWSXRay;
+
+/**
+ * Configurations which register 1, 10 and 50 AWS clients v1 for the benchmarks.
+ *
+ * @author miyamoto.daisuke
+ */
+@SuppressWarnings("javadoc")
+public class AwsClientV1BenchmarkConfigurations {
+	
+	/**
+	 * Create and refresh the application context which registers the specified number of clients.
+	 *
+	 * @param clients the number of clients, {@code 1}, {@code 10} or {@code 50}
+	 * @return the refreshed application context
+	 * @throws IllegalArgumentException if the number is not supported
+	 */
+	public static AnnotationConfigApplicationContext createContext(int clients) {
+		return createContext(clients, false);
+	}
+	
+	/**
+	 * Create and refresh the application context which registers the specified number of clients.
+	 *
+	 * @param clients the number of clients, {@code 1}, {@code 10} or {@code 50}
+	 * @param parallelBuild the value of {@code aws1.startup.parallel-build}
+	 * @return the refreshed application context
+	 * @throws IllegalArgumentException if the number is not supported
+	 */
+	public static AnnotationConfigApplicationContext createContext(int clients, boolean parallelBuild) {
+		Map<String, Object> properties = new HashMap<>();
+		properties.put("aws1.startup.parallel-build", parallelBuild);
+		properties.put("aws1.default.region", "us-east-1");
+		
+		AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+		context.getEnvironment().getPropertySources().addFirst(new MapPropertySource("benchmark", properties));
+		context.register(getConfigurationClass(clients));
+		context.refresh();
+		return context;
+	}
+	
+	private static Class<?> getConfigurationClass(int clients) {
+		switch (clients) {
+			case 1:
+				return Clients1.class;
+			case 10:
+				return Clients10.class;
+			case 50:
+				return Clients50.class;
+			default:
+				throw new IllegalArgumentException("Unsupported number of clients: " + clients);
+		}
+	}
+	
+	
+	@Configuration
+	@EnableAwsClientV1(AmazonSQS.class)
+	@EnableConfigurationProperties
+	public static class Clients1 {
+	}
+	
+	@Configuration
+	@EnableAwsClientV1({
+		AmazonS3.class,
+		AmazonSQS.class,
+		AmazonSNS.class,
+		AmazonDynamoDB.class,
+		AWSKMS.class,
+		AWSSecurityTokenService.class,
+		AWSLambda.class,
+		AmazonKinesis.class,
+		AmazonCloudWatch.class,
+		AWSSecretsManager.class
+	})
+	@EnableConfigurationProperties
+	public static class Clients10 {
+	}
+	
+	@Configuration
+	@EnableAwsClientV1({
+		AmazonS3.class,
+		AmazonSQS.class,
+		AmazonSNS.class,
+		AmazonDynamoDB.class,
+		AWSKMS.class,
+		AWSSecurityTokenService.class,
+		AWSLambda.class,
+		AmazonKinesis.class,
+		AmazonCloudWatch.class,
+		AWSSecretsManager.class,
+		AWSCertificateManager.class,
+		AmazonApiGateway.class,
+		AWSAppSync.class,
+		AmazonAthena.class,
+		AmazonAutoScaling.class,
+		AWSBatch.class,
+		AmazonCloudFormation.class,
+		AmazonCloudFront.class,
+		AWSCloudTrail.class,
+		AWSLogs.class,
+		AWSCodeBuild.class,
+		AWSCodeCommit.class,
+		AmazonCodeDeploy.class,
+		AWSCodePipeline.class,
+		AmazonCognitoIdentity.class,
+		AWSCognitoIdentityProvider.class,
+		AmazonConfig.class,
+		AmazonEC2.class,
+		AmazonECR.class,
+		AmazonECS.class,
+		AmazonElasticFileSystem.class,
+		AmazonEKS.class,
+		AmazonElastiCache.class,
+		AWSElasticBeanstalk.class,
+		AmazonElasticLoadBalancing.class,
+		AmazonElasticMapReduce.class,
+		AmazonKinesisFirehose.class,
+		AWSGlue.class,
+		AmazonIdentityManagement.class,
+		AWSIot.class,
+		AmazonMQ.class,
+		AmazonRDS.class,
+		AmazonRedshift.class,
+		AmazonRoute53.class,
+		AmazonSageMaker.class,
+		AmazonSimpleEmailService.class,
+		AWSStepFunctions.class,
+		AWSSimpleSystemsManagement.class,
+		AmazonSimpleWorkflow.class,
+		AWSXRay.class
+	})
+	@EnableConfigurationProperties
+	public static class Clients50 {
+	}
+}
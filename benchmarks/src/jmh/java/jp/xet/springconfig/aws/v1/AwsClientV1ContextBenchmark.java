@@ -0,0 +1,64 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jp.xet.springconfig.aws.v1;
+
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Benchmark of refreshing the application context which registers AWS clients v1.
+ *
+ * @author miyamoto.daisuke
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class AwsClientV1ContextBenchmark {
+	
+	@Param({
+		"1",
+		"10",
+		"50"
+	})
+	private int clients;
+	
+	@Param({
+		"false",
+		"true"
+	})
+	private boolean parallelBuild;
+	
+	
+	@Benchmark
+	public int refresh() {
+		AnnotationConfigApplicationContext context = AwsClientV1BenchmarkConfigurations.createContext(clients,
+				parallelBuild);
+		try {
+			return context.getBeanDefinitionCount();
+		} finally {
+			context.close();
+		}
+	}
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jp.xet.springconfig.aws.v1;
+
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import com.amazonaws.AmazonWebServiceClient;
+import com.amazonaws.services.sqs.AmazonSQS;
+
+/**
+ * Benchmark of building a single AWS client v1 by {@link AwsClientV1FactoryBean}.
+ * The built client is shut down in each invocation, so that the connection pools are not accumulated.
+ *
+ * @author miyamoto.daisuke
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class AwsClientV1FactoryBeanBenchmark {
+	
+	private AnnotationConfigApplicationContext context;
+	
+	private AwsClientV1FactoryBean<?> factoryBean;
+	
+	
+	@Setup
+	public void setUp() {
+		context = AwsClientV1BenchmarkConfigurations.createContext(1);
+		factoryBean = context.getBean("&" + AmazonSQS.class.getName(), AwsClientV1FactoryBean.class);
+	}
+	
+	@TearDown
+	public void tearDown() {
+		context.close();
+	}
+	
+	@Benchmark
+	public Object createInstance() throws Exception {
+		Object client = factoryBean.createInstance();
+		((AmazonWebServiceClient) client).shutdown();
+		return client;
+	}
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jp.xet.springconfig.aws.v1;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.util.StreamUtils;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.sqs.AmazonSQS;
+
+import jp.xet.springconfig.aws.AwsStubServer;
+
+/**
+ * Benchmark of the request throughput and latency of AWS clients v1 against {@link AwsStubServer}.
+ * The number of threads can be changed by {@code -PjmhThreads}.
+ *
+ * @author miyamoto.daisuke
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({
+	Mode.Throughput,
+	Mode.SampleTime
+})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Threads(16)
+public class AwsClientV1ThroughputBenchmark {
+	
+	@Param({
+		"10",
+		"50"
+	})
+	private int maxConnections;
+	
+	@Param({
+		"0",
+		"20"
+	})
+	private int latencyMillis;
+	
+	@Param("1024")
+	private int payloadSize;
+	
+	private AwsStubServer server;
+	
+	private AnnotationConfigApplicationContext context;
+	
+	private AmazonDynamoDB dynamoDb;
+	
+	private AmazonSQS sqs;
+	
+	private AmazonS3 s3;
+	
+	private String queueUrl;
+	
+	
+	@Setup
+	public void setUp() throws Exception {
+		server = new AwsStubServer(latencyMillis, payloadSize);
+		context = AwsClientV1StubConfigurations.createContext(server, maxConnections);
+		dynamoDb = context.getBean(AmazonDynamoDB.class);
+		sqs = context.getBean(AmazonSQS.class);
+		s3 = context.getBean(AmazonS3.class);
+		queueUrl = server.getQueueUrl();
+	}
+	
+	@TearDown
+	public void tearDown() {
+		context.close();
+		server.close();
+	}
+	
+	@Benchmark
+	public Object dynamoDbGetItem() {
+		return dynamoDb.getItem(AwsStubServer.TABLE, Collections.singletonMap("id", new AttributeValue("1")));
+	}
+	
+	@Benchmark
+	public Object sqsSendMessage() {
+		return sqs.sendMessage(queueUrl, "benchmark");
+	}
+	
+	@Benchmark
+	public Object s3GetObject() throws IOException {
+		try (InputStream in = s3.getObject(AwsStubServer.BUCKET, "benchmark").getObjectContent()) {
+			return StreamUtils.copyToByteArray(in);
+		}
+	}
+}
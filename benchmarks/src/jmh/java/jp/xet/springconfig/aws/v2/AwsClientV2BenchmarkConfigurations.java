@@ -0,0 +1,210 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jp.xet.springconfig.aws.v2;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.MapPropertySource;
+
+import software.amazon.awssdk.services.acm.AcmClient;
+import software.amazon.awssdk.services.apigateway.ApiGatewayClient;
+import software.amazon.awssdk.services.appsync.AppSyncClient;
+import software.amazon.awssdk.services.athena.AthenaClient;
+import software.amazon.awssdk.services.autoscaling.AutoScalingClient;
+import software.amazon.awssdk.services.batch.BatchClient;
+import software.amazon.awssdk.services.cloudformation.CloudFormationClient;
+import software.amazon.awssdk.services.cloudfront.CloudFrontClient;
+import software.amazon.awssdk.services.cloudtrail.CloudTrailClient;
+import software.amazon.awssdk.services.cloudwatch.CloudWatchClient;
+import software.amazon.awssdk.services.cloudwatchlogs.CloudWatchLogsClient;
+import software.amazon.awssdk.services.codebuild.CodeBuildClient;
+import software.amazon.awssdk.services.codecommit.CodeCommitClient;
+import software.amazon.awssdk.services.codedeploy.CodeDeployClient;
+import software.amazon.awssdk.services.codepipeline.CodePipelineClient;
+import software.amazon.awssdk.services.cognitoidentity.CognitoIdentityClient;
+import software.amazon.awssdk.services.cognitoidentityprovider.CognitoIdentityProviderClient;
+import software.amazon.awssdk.services.config.ConfigClient;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.ec2.Ec2Client;
+import software.amazon.awssdk.services.ecr.EcrClient;
+import software.amazon.awssdk.services.ecs.EcsClient;
+import software.amazon.awssdk.services.efs.EfsClient;
+import software.amazon.awssdk.services.eks.EksClient;
+import software.amazon.awssdk.services.elasticache.ElastiCacheClient;
+import software.amazon.awssdk.services.elasticbeanstalk.ElasticBeanstalkClient;
+import software.amazon.awssdk.services.elasticloadbalancingv2.ElasticLoadBalancingV2Client;
+import software.amazon.awssdk.services.emr.EmrClient;
+import software.amazon.awssdk.services.firehose.FirehoseClient;
+import software.amazon.awssdk.services.glue.GlueClient;
+import software.amazon.awssdk.services.iam.IamClient;
+import software.amazon.awssdk.services.iot.IotClient;
+import software.amazon.awssdk.services.kinesis.KinesisClient;
+import software.amazon.awssdk.services.kms.KmsClient;
+import software.amazon.awssdk.services.lambda.LambdaClient;
+import software.amazon.awssdk.services.mq.MqClient;
+import software.amazon.awssdk.services.rds.RdsClient;
+import software.amazon.awssdk.services.redshift.RedshiftClient;
+import software.amazon.awssdk.services.route53.Route53Client;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.sagemaker.SageMakerClient;
+import software.amazon.awssdk.services.secretsmanager.SecretsManagerClient;
+import software.amazon.awssdk.services.ses.SesClient;
+import software.amazon.awssdk.services.sfn.SfnClient;
+import software.amazon.awssdk.services.sns.SnsClient;
+import software.amazon.awssdk.services.sqs.SqsClient;
+import software.amazon.awssdk.services.ssm.SsmClient;
+import software.amazon.awssdk.services.sts.StsClient;
+import software.amazon.awssdk.services.swf.SwfClient;
+import software.amazon.awssdk.services.xray.XRayClient;
+
+/**
+ * Configurations which register 1, 10 and 50 AWS clients v2 for the benchmarks.
+ *
+ * @author miyamoto.daisuke
+ */
+@SuppressWarnings("javadoc")
+public class AwsClientV2BenchmarkConfigurations {
+	
+	/**
+	 * Create and refresh the application context which registers the specified number of clients.
+	 *
+	 * @param clients the number of clients, {@code 1}, {@code 10} or {@code 50}
+	 * @return the refreshed application context
+	 * @throws IllegalArgumentException if the number is not supported
+	 */
+	public static AnnotationConfigApplicationContext createContext(int clients) {
+		return createContext(clients, false);
+	}
+	
+	/**
+	 * Create and refresh the application context which registers the specified number of clients.
+	 *
+	 * @param clients the number of clients, {@code 1}, {@code 10} or {@code 50}
+	 * @param parallelBuild the value of {@code aws2.startup.parallel-build}
+	 * @return the refreshed application context
+	 * @throws IllegalArgumentException if the number is not supported
+	 */
+	public static AnnotationConfigApplicationContext createContext(int clients, boolean parallelBuild) {
+		Map<String, Object> properties = new HashMap<>();
+		properties.put("aws2.startup.parallel-build", parallelBuild);
+		properties.put("aws2.default.region", "us-east-1");
+		properties.put("aws2.default.http-client-type", "APACHE");
+		
+		AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+		context.getEnvironment().getPropertySources().addFirst(new MapPropertySource("benchmark", properties));
+		context.register(getConfigurationClass(clients));
+		context.refresh();
+		return context;
+	}
+	
+	private static Class<?> getConfigurationClass(int clients) {
+		switch (clients) {
+			case 1:
+				return Clients1.class;
+			case 10:
+				return Clients10.class;
+			case 50:
+				return Clients50.class;
+			default:
+				throw new IllegalArgumentException("Unsupported number of clients: " + clients);
+		}
+	}
+	
+	
+	@Configuration
+	@EnableAwsClientV2(SqsClient.class)
+	@EnableConfigurationProperties
+	public static class Clients1 {
+	}
+	
+	@Configuration
+	@EnableAwsClientV2({
+		S3Client.class,
+		SqsClient.class,
+		SnsClient.class,
+		DynamoDbClient.class,
+		KmsClient.class,
+		StsClient.class,
+		LambdaClient.class,
+		KinesisClient.class,
+		CloudWatchClient.class,
+		SecretsManagerClient.class
+	})
+	@EnableConfigurationProperties
+	public static class Clients10 {
+	}
+	
+	@Configuration
+	@EnableAwsClientV2({
+		S3Client.class,
+		SqsClient.class,
+		SnsClient.class,
+		DynamoDbClient.class,
+		KmsClient.class,
+		StsClient.class,
+		LambdaClient.class,
+		KinesisClient.class,
+		CloudWatchClient.class,
+		SecretsManagerClient.class,
+		AcmClient.class,
+		ApiGatewayClient.class,
+		AppSyncClient.class,
+		AthenaClient.class,
+		AutoScalingClient.class,
+		BatchClient.class,
+		CloudFormationClient.class,
+		CloudFrontClient.class,
+		CloudTrailClient.class,
+		CloudWatchLogsClient.class,
+		CodeBuildClient.class,
+		CodeCommitClient.class,
+		CodeDeployClient.class,
+		CodePipelineClient.class,
+		CognitoIdentityClient.class,
+		CognitoIdentityProviderClient.class,
+		ConfigClient.class,
+		Ec2Client.class,
+		EcrClient.class,
+		EcsClient.class,
+		EfsClient.class,
+		EksClient.class,
+		ElastiCacheClient.class,
+		ElasticBeanstalkClient.class,
+		ElasticLoadBalancingV2Client.class,
+		EmrClient.class,
+		FirehoseClient.class,
+		GlueClient.class,
+		IamClient.class,
+		IotClient.class,
+		MqClient.class,
+		RdsClient.class,
+		RedshiftClient.class,
+		Route53Client.class,
+		SageMakerClient.class,
+		SesClient.class,
+		SfnClient.class,
+		SsmClient.class,
+		SwfClient.class,
+		XRayClient.class
+	})
+	@EnableConfigurationProperties
+	public static class Clients50 {
+	}
+}
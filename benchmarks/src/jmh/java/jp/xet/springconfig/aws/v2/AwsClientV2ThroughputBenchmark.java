@@ -0,0 +1,161 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jp.xet.springconfig.aws.v2;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+
+import jp.xet.springconfig.aws.AwsStubServer;
+
+import software.amazon.awssdk.core.async.AsyncResponseTransformer;
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.GetItemRequest;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.sqs.SqsAsyncClient;
+import software.amazon.awssdk.services.sqs.SqsClient;
+import software.amazon.awssdk.services.sqs.model.SendMessageRequest;
+
+/**
+ * Benchmark of the request throughput and latency of AWS clients v2 against {@link AwsStubServer}.
+ * The number of threads can be changed by {@code -PjmhThreads}.
+ *
+ * @author miyamoto.daisuke
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({
+	Mode.Throughput,
+	Mode.SampleTime
+})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Threads(16)
+public class AwsClientV2ThroughputBenchmark {
+	
+	@Param({
+		"APACHE",
+		"URL_CONNECTION",
+		"NETTY"
+	})
+	private String httpClientType;
+	
+	@Param({
+		"10",
+		"50"
+	})
+	private int maxConnections;
+	
+	@Param({
+		"0",
+		"20"
+	})
+	private int latencyMillis;
+	
+	@Param("1024")
+	private int payloadSize;
+	
+	private AwsStubServer server;
+	
+	private AnnotationConfigApplicationContext context;
+	
+	private DynamoDbClient dynamoDb;
+	
+	private DynamoDbAsyncClient dynamoDbAsync;
+	
+	private SqsClient sqs;
+	
+	private SqsAsyncClient sqsAsync;
+	
+	private S3Client s3;
+	
+	private S3AsyncClient s3Async;
+	
+	private GetItemRequest getItemRequest;
+	
+	private SendMessageRequest sendMessageRequest;
+	
+	private GetObjectRequest getObjectRequest;
+	
+	
+	@Setup
+	public void setUp() throws Exception {
+		server = new AwsStubServer(latencyMillis, payloadSize);
+		context = AwsClientV2StubConfigurations.createContext(server, httpClientType, maxConnections);
+		dynamoDb = context.getBeanProvider(DynamoDbClient.class).getIfAvailable();
+		dynamoDbAsync = context.getBeanProvider(DynamoDbAsyncClient.class).getIfAvailable();
+		sqs = context.getBeanProvider(SqsClient.class).getIfAvailable();
+		sqsAsync = context.getBeanProvider(SqsAsyncClient.class).getIfAvailable();
+		s3 = context.getBeanProvider(S3Client.class).getIfAvailable();
+		s3Async = context.getBeanProvider(S3AsyncClient.class).getIfAvailable();
+		getItemRequest = GetItemRequest.builder()
+			.tableName(AwsStubServer.TABLE)
+			.key(Collections.singletonMap("id", AttributeValue.builder().s("1").build()))
+			.build();
+		sendMessageRequest = SendMessageRequest.builder()
+			.queueUrl(server.getQueueUrl())
+			.messageBody("benchmark")
+			.build();
+		getObjectRequest = GetObjectRequest.builder()
+			.bucket(AwsStubServer.BUCKET)
+			.key("benchmark")
+			.build();
+	}
+	
+	@TearDown
+	public void tearDown() {
+		context.close();
+		server.close();
+	}
+	
+	@Benchmark
+	public Object dynamoDbGetItem() {
+		if (dynamoDbAsync != null) {
+			return dynamoDbAsync.getItem(getItemRequest).join();
+		}
+		return dynamoDb.getItem(getItemRequest);
+	}
+	
+	@Benchmark
+	public Object sqsSendMessage() {
+		if (sqsAsync != null) {
+			return sqsAsync.sendMessage(sendMessageRequest).join();
+		}
+		return sqs.sendMessage(sendMessageRequest);
+	}
+	
+	@Benchmark
+	public Object s3GetObject() {
+		if (s3Async != null) {
+			return s3Async.getObject(getObjectRequest, AsyncResponseTransformer.toBytes()).join();
+		}
+		return s3.getObjectAsBytes(getObjectRequest);
+	}
+}
@@ -0,0 +1,287 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jp.xet.springconfig.aws.processor;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic.Kind;
+import javax.tools.JavaFileObject;
+
+/**
+ * Base class of the configurers source generators.
+ *
+ * @author miyamoto.daisuke
+ */
+abstract class AbstractConfigurersGenerator {
+	
+	private final ProcessingEnvironment processingEnv;
+	
+	
+	AbstractConfigurersGenerator(ProcessingEnvironment processingEnv) {
+		this.processingEnv = processingEnv;
+	}
+	
+	/**
+	 * Generate the configurers source for the annotated type.
+	 *
+	 * @param annotatedType the type annotated with {@code @EnableAwsClientVx}
+	 * @param clientTypes AWS client types declared in the annotation
+	 * @throws IOException if the source file cannot be written
+	 */
+	void generate(TypeElement annotatedType, List<TypeElement> clientTypes) throws IOException {
+		Map<String, String> configurerNames = new LinkedHashMap<>();
+		List<String> configurerSources = new ArrayList<>();
+		for (TypeElement clientType : clientTypes) {
+			String clientName = getElements().getBinaryName(clientType).toString();
+			if (configurerNames.containsKey(clientName)) {
+				continue;
+			}
+			String configurerName = "Configurer" + configurerNames.size();
+			SourceWriter configurer = new SourceWriter(1);
+			if (writeConfigurer(configurer, configurerName, clientType, annotatedType)) {
+				configurerNames.put(clientName, configurerName);
+				configurerSources.add(configurer.toString());
+			}
+		}
+		
+		PackageElement packageElement = getElements().getPackageOf(annotatedType);
+		String packageName = packageElement.isUnnamed() ? "" : packageElement.getQualifiedName().toString();
+		String className = getNestedName(annotatedType) + getConfigurersSuffix();
+		String qualifiedName = packageName.isEmpty() ? className : packageName + "." + className;
+		
+		SourceWriter source = new SourceWriter(0);
+		source.line("// Generated by " + AwsClientConfigurerProcessor.class.getName() + " -- do not edit");
+		if (packageName.isEmpty() == false) {
+			source.line("package " + packageName + ";");
+		}
+		source.blank();
+		source.line("import " + getConfigurerInterfaceName() + ";");
+		source.line("import " + getConfigurersInterfaceName() + ";");
+		source.blank();
+		source.line("@SuppressWarnings(\"deprecation\")");
+		source.line("public final class " + className + " implements " + getSimpleName(getConfigurersInterfaceName())
+				+ " {");
+		source.indent();
+		source.blank();
+		String configurerInterface = getSimpleName(getConfigurerInterfaceName());
+		for (String configurerName : configurerNames.values()) {
+			source.line("private static final " + configurerInterface + " " + toConstantName(configurerName)
+					+ " = new " + configurerName + "();");
+			source.blank();
+		}
+		source.blank();
+		source.line("@Override");
+		source.line("public " + configurerInterface + " get(Class<?> clientClass) {");
+		source.indent();
+		source.line("switch (clientClass.getName()) {");
+		source.indent();
+		for (Map.Entry<String, String> entry : configurerNames.entrySet()) {
+			source.line("case \"" + entry.getKey() + "\":");
+			source.line("\treturn " + toConstantName(entry.getValue()) + ";");
+		}
+		source.line("default:");
+		source.line("\treturn null;");
+		source.outdent();
+		source.line("}");
+		source.outdent();
+		source.line("}");
+		for (String configurerSource : configurerSources) {
+			source.blank();
+			source.blank();
+			source.raw(configurerSource);
+		}
+		source.outdent();
+		source.line("}");
+		
+		JavaFileObject file = processingEnv.getFiler().createSourceFile(qualifiedName, annotatedType);
+		try (Writer writer = file.openWriter()) {
+			writer.write(source.toString());
+		}
+	}
+	
+	/**
+	 * Suffix of the generated class name.
+	 *
+	 * @return the suffix
+	 */
+	abstract String getConfigurersSuffix();
+	
+	abstract String getConfigurerInterfaceName();
+	
+	abstract String getConfigurersInterfaceName();
+	
+	/**
+	 * Write the nested configurer class for the client.
+	 *
+	 * <p>Implementations report an error on {@code annotatedType} for the client or the builder methods
+	 * which cannot be handled, so that the misconfiguration is detected at compile time.</p>
+	 *
+	 * @param source the writer
+	 * @param configurerName the simple name of the configurer class
+	 * @param clientType the AWS client type
+	 * @param annotatedType the type annotated with {@code @EnableAwsClientVx}, to report errors on
+	 * @return {@code true} if the configurer is written, {@code false} if the client is not supported
+	 */
+	abstract boolean writeConfigurer(SourceWriter source, String configurerName, TypeElement clientType,
+			Element annotatedType);
+	
+	Elements getElements() {
+		return processingEnv.getElementUtils();
+	}
+	
+	Types getTypes() {
+		return processingEnv.getTypeUtils();
+	}
+	
+	/**
+	 * Report a compile error on the element.
+	 *
+	 * @param element the element to report the error on
+	 * @param format the message format
+	 * @param args the message arguments
+	 */
+	void error(Element element, String format, Object... args) {
+		processingEnv.getMessager().printMessage(Kind.ERROR, String.format(Locale.ENGLISH, format, args), element);
+	}
+	
+	/**
+	 * Find the public method which accepts the argument types, and report an error if it is not found.
+	 *
+	 * @param element the element to report the error on
+	 * @param type the type to find the method in
+	 * @param name method name
+	 * @param argumentTypeNames qualified names of the argument types
+	 * @return the method, or {@code null} if not found
+	 */
+	ExecutableElement findRequiredMethod(Element element, TypeElement type, String name,
+			String... argumentTypeNames) {
+		ExecutableElement method = findMethod(type, name, argumentTypeNames);
+		if (method == null) {
+			error(element, "%s does not have method %s(%s)", type.getQualifiedName(), name,
+					String.join(", ", argumentTypeNames));
+		}
+		return method;
+	}
+	
+	/**
+	 * Find the public method which accepts the argument types.
+	 *
+	 * @param type the type to find the method in
+	 * @param name method name
+	 * @param argumentTypeNames qualified names of the argument types
+	 * @return the method, or {@code null} if not found
+	 */
+	ExecutableElement findMethod(TypeElement type, String name, String... argumentTypeNames) {
+		List<TypeMirror> argumentTypes = new ArrayList<>();
+		for (String argumentTypeName : argumentTypeNames) {
+			TypeElement argumentType = getElements().getTypeElement(argumentTypeName);
+			if (argumentType == null) {
+				return null;
+			}
+			argumentTypes.add(getTypes().erasure(argumentType.asType()));
+		}
+		for (ExecutableElement method : ElementFilter.methodsIn(getElements().getAllMembers(type))) {
+			if (method.getSimpleName().contentEquals(name)
+					&& method.getModifiers().contains(Modifier.PUBLIC)
+					&& isApplicable(method, argumentTypes)) {
+				return method;
+			}
+		}
+		return null;
+	}
+	
+	/**
+	 * Find the public method which has the name and the number of parameters.
+	 *
+	 * @param type the type to find the method in
+	 * @param name method name
+	 * @param parameterCount the number of parameters
+	 * @return the method, or {@code null} if not found
+	 */
+	ExecutableElement findMethod(TypeElement type, String name, int parameterCount) {
+		for (ExecutableElement method : ElementFilter.methodsIn(getElements().getAllMembers(type))) {
+			if (method.getSimpleName().contentEquals(name)
+					&& method.getModifiers().contains(Modifier.PUBLIC)
+					&& method.getParameters().size() == parameterCount) {
+				return method;
+			}
+		}
+		return null;
+	}
+	
+	/**
+	 * Get the qualified name of the type element which the type mirror represents.
+	 *
+	 * @param type the type mirror
+	 * @return the qualified name, or {@code null} if the type is not a declared type
+	 */
+	String getQualifiedName(TypeMirror type) {
+		TypeMirror erasure = getTypes().erasure(type);
+		if (erasure.getKind() != TypeKind.DECLARED) {
+			return null;
+		}
+		return ((TypeElement) getTypes().asElement(erasure)).getQualifiedName().toString();
+	}
+	
+	private boolean isApplicable(ExecutableElement method, List<TypeMirror> argumentTypes) {
+		if (method.getParameters().size() != argumentTypes.size()) {
+			return false;
+		}
+		for (int i = 0; i < argumentTypes.size(); i++) {
+			TypeMirror parameterType = getTypes().erasure(method.getParameters().get(i).asType());
+			if (getTypes().isAssignable(argumentTypes.get(i), parameterType) == false) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	private static String getNestedName(TypeElement type) {
+		StringBuilder sb = new StringBuilder(type.getSimpleName());
+		Element enclosing = type.getEnclosingElement();
+		while (enclosing != null && enclosing.getKind() != ElementKind.PACKAGE) {
+			sb.insert(0, enclosing.getSimpleName() + "_");
+			enclosing = enclosing.getEnclosingElement();
+		}
+		return sb.toString();
+	}
+	
+	private static String getSimpleName(String qualifiedName) {
+		return qualifiedName.substring(qualifiedName.lastIndexOf('.') + 1);
+	}
+	
+	private static String toConstantName(String configurerName) {
+		return configurerName.replaceAll("([a-z])([A-Z0-9])", "$1_$2").toUpperCase(Locale.ENGLISH);
+	}
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jp.xet.springconfig.aws.processor;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.tools.Diagnostic.Kind;
+
+/**
+ * Annotation processor which generates {@code AwsClientV1Configurers} and {@code AwsClientV2Configurers}
+ * for the classes annotated with {@code @EnableAwsClientV1} or {@code @EnableAwsClientV2}.
+ *
+ * <p>The generated configurers call the builder methods of the AWS clients directly,
+ * so that the clients can be created without reflection.</p>
+ *
+ * @author miyamoto.daisuke
+ * @since #version#
+ */
+@SupportedAnnotationTypes({
+	AwsClientConfigurerProcessor.ENABLE_AWS_CLIENT_V1,
+	AwsClientConfigurerProcessor.ENABLE_AWS_CLIENT_V2
+})
+public class AwsClientConfigurerProcessor extends AbstractProcessor {
+	
+	static final String ENABLE_AWS_CLIENT_V1 = "jp.xet.springconfig.aws.v1.EnableAwsClientV1";
+	
+	static final String ENABLE_AWS_CLIENT_V2 = "jp.xet.springconfig.aws.v2.EnableAwsClientV2";
+	
+	
+	@Override
+	public SourceVersion getSupportedSourceVersion() {
+		return SourceVersion.latestSupported();
+	}
+	
+	@Override
+	public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+		for (TypeElement annotation : annotations) {
+			AbstractConfigurersGenerator generator = createGenerator(annotation.getQualifiedName().toString());
+			if (generator == null) {
+				continue;
+			}
+			for (Element element : roundEnv.getElementsAnnotatedWith(annotation)) {
+				if (element instanceof TypeElement == false) {
+					continue;
+				}
+				TypeElement annotatedType = (TypeElement) element;
+				try {
+					generator.generate(annotatedType, getClientTypes(annotatedType, annotation));
+				} catch (IOException e) {
+					processingEnv.getMessager().printMessage(Kind.ERROR,
+							"Failed to generate configurers: " + e.getMessage(), annotatedType);
+				}
+			}
+		}
+		// do not claim the annotations
+		return false;
+	}
+	
+	private AbstractConfigurersGenerator createGenerator(String annotationName) {
+		if (ENABLE_AWS_CLIENT_V1.equals(annotationName)) {
+			return new AwsClientV1ConfigurersGenerator(processingEnv);
+		}
+		if (ENABLE_AWS_CLIENT_V2.equals(annotationName)) {
+			return new AwsClientV2ConfigurersGenerator(processingEnv);
+		}
+		return null;
+	}
+	
+	private List<TypeElement> getClientTypes(TypeElement annotatedType, TypeElement annotation) {
+		List<TypeElement> clientTypes = new ArrayList<>();
+		for (AnnotationMirror annotationMirror : annotatedType.getAnnotationMirrors()) {
+			if (annotationMirror.getAnnotationType().asElement().equals(annotation) == false) {
+				continue;
+			}
+			for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry : annotationMirror
+				.getElementValues().entrySet()) {
+				if (entry.getKey().getSimpleName().contentEquals("value") == false) {
+					continue;
+				}
+				Object value = entry.getValue().getValue();
+				if (value instanceof List == false) {
+					continue;
+				}
+				for (Object item : (List<?>) value) {
+					Object type = ((AnnotationValue) item).getValue();
+					if (type instanceof TypeMirror && ((TypeMirror) type).getKind() == TypeKind.DECLARED) {
+						clientTypes.add((TypeElement) ((DeclaredType) type).asElement());
+					}
+				}
+			}
+		}
+		return clientTypes;
+	}
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jp.xet.springconfig.aws.processor;
+
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.TypeElement;
+
+/**
+ * Generator of {@code AwsClientV1Configurers}.
+ *
+ * @author miyamoto.daisuke
+ */
+class AwsClientV1ConfigurersGenerator extends AbstractConfigurersGenerator {
+	
+	private static final String SERVICES_PACKAGE = "com.amazonaws.services.";
+	
+	private static final String ENDPOINT_CONFIGURATION =
+			"com.amazonaws.client.builder.AwsClientBuilder.EndpointConfiguration";
+	
+	private static final String CLIENT_CONFIGURATION = "com.amazonaws.ClientConfiguration";
+	
+	private static final String CREDENTIALS_PROVIDER = "com.amazonaws.auth.AWSCredentialsProvider";
+	
+	private static final String METRICS_COLLECTOR = "com.amazonaws.metrics.RequestMetricCollector";
+	
+	
+	AwsClientV1ConfigurersGenerator(ProcessingEnvironment processingEnv) {
+		super(processingEnv);
+	}
+	
+	@Override
+	String getConfigurersSuffix() {
+		return "_AwsClientV1Configurers";
+	}
+	
+	@Override
+	String getConfigurerInterfaceName() {
+		return "jp.xet.springconfig.aws.v1.AwsClientV1Configurer";
+	}
+	
+	@Override
+	String getConfigurersInterfaceName() {
+		return "jp.xet.springconfig.aws.v1.AwsClientV1Configurers";
+	}
+	
+	@Override
+	boolean writeConfigurer(SourceWriter source, String configurerName, TypeElement clientType,
+			Element annotatedType) {
+		String clientName = clientType.getQualifiedName().toString();
+		if (clientName.startsWith(SERVICES_PACKAGE) == false) {
+			error(annotatedType, "%s is not an AWS SDK v1 client: it is not in package %s", clientName,
+					SERVICES_PACKAGE);
+			return false;
+		}
+		TypeElement builderType = getElements().getTypeElement(clientName + "ClientBuilder");
+		if (builderType == null || findMethod(builderType, "standard") == null) {
+			error(annotatedType, "%s is not an AWS SDK v1 client: %sClientBuilder.standard() is not found",
+					clientName, clientName);
+			return false;
+		}
+		String builderName = builderType.getQualifiedName().toString();
+		String b = "((" + builderName + ") builder)";
+		
+		source.line("/**");
+		source.line(" * Configurer for {@link " + clientName + "}.");
+		source.line(" */");
+		source.line("private static final class " + configurerName + " implements AwsClientV1Configurer {");
+		source.indent();
+		source.blank();
+		source.line("@Override");
+		source.line("public Object createBuilder() {");
+		source.line("\treturn " + builderName + ".standard();");
+		source.line("}");
+		source.blank();
+		source.nullSafeMethod("void configureRegion(Object builder, String region)", "region",
+				findRequiredMethod(annotatedType, builderType, "setRegion", "java.lang.String") == null
+						? null
+						: b + ".setRegion(region);");
+		source.nullSafeMethod("void configureEndpointConfiguration(Object builder, "
+				+ ENDPOINT_CONFIGURATION + " endpointConfiguration)", "endpointConfiguration",
+				findRequiredMethod(annotatedType, builderType, "setEndpointConfiguration", ENDPOINT_CONFIGURATION) == null
+						? null
+						: b + ".setEndpointConfiguration(endpointConfiguration);");
+		source.nullSafeMethod("void configureClientConfiguration(Object builder, "
+				+ CLIENT_CONFIGURATION + " clientConfiguration)", "clientConfiguration",
+				findRequiredMethod(annotatedType, builderType, "setClientConfiguration", CLIENT_CONFIGURATION) == null
+						? null
+						: b + ".setClientConfiguration(clientConfiguration);");
+		source.nullSafeMethod("void configureCredentialsProvider(Object builder, "
+				+ CREDENTIALS_PROVIDER + " credentialsProvider)", "credentialsProvider",
+				findRequiredMethod(annotatedType, builderType, "setCredentials", CREDENTIALS_PROVIDER) == null
+						? null
+						: b + ".setCredentials(credentialsProvider);");
+		source.nullSafeMethod("void configureMetricsCollector(Object builder, "
+				+ METRICS_COLLECTOR + " metricsCollector)", "metricsCollector",
+				findRequiredMethod(annotatedType, builderType, "setMetricsCollector", METRICS_COLLECTOR) == null
+						? null
+						: b + ".setMetricsCollector(metricsCollector);");
+		writeConfigureS3Options(source, builderType, b);
+		writeConfigureEncryptionMaterials(source, builderType, b);
+		source.line("@Override");
+		source.line("public Object build(Object builder) {");
+		source.line("\treturn " + b + ".build();");
+		source.line("}");
+		source.outdent();
+		source.line("}");
+		return true;
+	}
+	
+	private void writeConfigureS3Options(SourceWriter source, TypeElement builderType, String b) {
+		source.line("@Override");
+		source.line("public void configureS3Options(Object builder, Boolean pathStyleAccessEnabled,");
+		source.line("\t\tBoolean chunkedEncodingDisabled, Boolean accelerateModeEnabled, Boolean payloadSigningEnabled,");
+		source.line("\t\tBoolean dualstackEnabled, Boolean forceGlobalBucketAccessEnabled) {");
+		source.indent();
+		String[] options = {
+			"pathStyleAccessEnabled",
+			"chunkedEncodingDisabled",
+			"accelerateModeEnabled",
+			"payloadSigningEnabled",
+			"dualstackEnabled",
+			"forceGlobalBucketAccessEnabled"
+		};
+		boolean supported = false;
+		for (String option : options) {
+			String setter = "set" + Character.toUpperCase(option.charAt(0)) + option.substring(1);
+			if (findMethod(builderType, setter, "java.lang.Boolean") != null) {
+				source.line(b + "." + setter + "(" + option + ");");
+				supported = true;
+			}
+		}
+		if (supported == false) {
+			source.line("// not supported by the builder");
+		}
+		source.outdent();
+		source.line("}");
+		source.blank();
+	}
+	
+	private void writeConfigureEncryptionMaterials(SourceWriter source, TypeElement builderType, String b) {
+		ExecutableElement setter = findMethod(builderType, "setEncryptionMaterials", 1);
+		String parameterTypeName = setter == null ? null
+				: getQualifiedName(setter.getParameters().get(0).asType());
+		source.nullSafeMethod("void configureEncryptionMaterials(Object builder, Object encryptionMaterialsProvider)",
+				"encryptionMaterialsProvider",
+				parameterTypeName == null ? null
+						: b + ".setEncryptionMaterials((" + parameterTypeName + ") encryptionMaterialsProvider);");
+	}
+}
@@ -0,0 +1,201 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jp.xet.springconfig.aws.processor;
+
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.util.ElementFilter;
+
+/**
+ * Generator of {@code AwsClientV2Configurers}.
+ *
+ * @author miyamoto.daisuke
+ */
+class AwsClientV2ConfigurersGenerator extends AbstractConfigurersGenerator {
+	
+	private static final String SERVICES_PACKAGE = "software.amazon.awssdk.services.";
+	
+	private static final String CREDENTIALS_PROVIDER = "software.amazon.awssdk.auth.credentials.AwsCredentialsProvider";
+	
+	private static final String REGION = "software.amazon.awssdk.regions.Region";
+	
+	private static final String OVERRIDE_CONFIGURATION =
+			"software.amazon.awssdk.core.client.config.ClientOverrideConfiguration";
+	
+	private static final String HTTP_CLIENT = "software.amazon.awssdk.http.SdkHttpClient";
+	
+	private static final String ASYNC_HTTP_CLIENT = "software.amazon.awssdk.http.async.SdkAsyncHttpClient";
+	
+	private static final String HTTP_CLIENT_BUILDER = "software.amazon.awssdk.http.SdkHttpClient.Builder";
+	
+	private static final String ASYNC_HTTP_CLIENT_BUILDER = "software.amazon.awssdk.http.async.SdkAsyncHttpClient.Builder";
+	
+	private static final String S3_CONFIGURATION = "software.amazon.awssdk.services.s3.S3Configuration";
+	
+	private static final String S3_CONFIGURATION_BUILDER = S3_CONFIGURATION + ".Builder";
+	
+	
+	AwsClientV2ConfigurersGenerator(ProcessingEnvironment processingEnv) {
+		super(processingEnv);
+	}
+	
+	@Override
+	String getConfigurersSuffix() {
+		return "_AwsClientV2Configurers";
+	}
+	
+	@Override
+	String getConfigurerInterfaceName() {
+		return "jp.xet.springconfig.aws.v2.AwsClientV2Configurer";
+	}
+	
+	@Override
+	String getConfigurersInterfaceName() {
+		return "jp.xet.springconfig.aws.v2.AwsClientV2Configurers";
+	}
+	
+	@Override
+	boolean writeConfigurer(SourceWriter source, String configurerName, TypeElement clientType,
+			Element annotatedType) {
+		String clientName = clientType.getQualifiedName().toString();
+		if (clientName.startsWith(SERVICES_PACKAGE) == false) {
+			error(annotatedType, "%s is not an AWS SDK v2 client: it is not in package %s", clientName,
+					SERVICES_PACKAGE);
+			return false;
+		}
+		ExecutableElement builderMethod = findStaticBuilderMethod(clientType);
+		String builderName = builderMethod == null ? null : getQualifiedName(builderMethod.getReturnType());
+		if (builderName == null) {
+			error(annotatedType, "%s is not an AWS SDK v2 client: it does not have static method builder()",
+					clientName);
+			return false;
+		}
+		TypeElement builderType = getElements().getTypeElement(builderName);
+		String b = "((" + builderName + ") builder)";
+		
+		ExecutableElement syncHttpClientBuilder = findMethod(builderType, "httpClientBuilder", HTTP_CLIENT_BUILDER);
+		ExecutableElement asyncHttpClientBuilder =
+				findMethod(builderType, "httpClientBuilder", ASYNC_HTTP_CLIENT_BUILDER);
+		ExecutableElement syncHttpClient = findMethod(builderType, "httpClient", HTTP_CLIENT);
+		ExecutableElement asyncHttpClient = findMethod(builderType, "httpClient", ASYNC_HTTP_CLIENT);
+		if (syncHttpClientBuilder == null && asyncHttpClientBuilder == null) {
+			error(annotatedType, "%s does not have method httpClientBuilder(%s) nor httpClientBuilder(%s)",
+					builderName, HTTP_CLIENT_BUILDER, ASYNC_HTTP_CLIENT_BUILDER);
+		}
+		if (syncHttpClient == null && asyncHttpClient == null) {
+			error(annotatedType, "%s does not have method httpClient(%s) nor httpClient(%s)",
+					builderName, HTTP_CLIENT, ASYNC_HTTP_CLIENT);
+		}
+		
+		source.line("/**");
+		source.line(" * Configurer for {@link " + clientName + "}.");
+		source.line(" */");
+		source.line("private static final class " + configurerName + " implements AwsClientV2Configurer {");
+		source.indent();
+		source.blank();
+		source.line("@Override");
+		source.line("public Object createBuilder() {");
+		source.line("\treturn " + clientName + ".builder();");
+		source.line("}");
+		source.blank();
+		source.nullSafeMethod(
+				"void configureCredentialsProvider(Object builder, " + CREDENTIALS_PROVIDER + " credentialsProvider)",
+				"credentialsProvider",
+				findRequiredMethod(annotatedType, builderType, "credentialsProvider", CREDENTIALS_PROVIDER) == null
+						? null
+						: b + ".credentialsProvider(credentialsProvider);");
+		source.nullSafeMethod("void configureRegion(Object builder, String region)", "region",
+				findRequiredMethod(annotatedType, builderType, "region", REGION) == null ? null
+						: b + ".region(" + REGION + ".of(region));");
+		source.nullSafeMethod("void configureEndpoint(Object builder, java.net.URI endpoint)", "endpoint",
+				findRequiredMethod(annotatedType, builderType, "endpointOverride", "java.net.URI") == null ? null
+						: b + ".endpointOverride(endpoint);");
+		source.nullSafeMethod("void configureClientOverrideConfiguration(Object builder, "
+				+ OVERRIDE_CONFIGURATION + " overrideConfiguration)", "overrideConfiguration",
+				findRequiredMethod(annotatedType, builderType, "overrideConfiguration", OVERRIDE_CONFIGURATION) == null
+						? null
+						: b + ".overrideConfiguration(overrideConfiguration);");
+		writeConfigureS3Configuration(source, builderType, b);
+		source.nullSafeMethod("void configureHttpSyncClientBuilder(Object builder, "
+				+ HTTP_CLIENT_BUILDER + "<?> httpClientBuilder)", "httpClientBuilder",
+				syncHttpClientBuilder == null ? null
+						: b + ".httpClientBuilder(httpClientBuilder);");
+		source.nullSafeMethod("void configureHttpAsyncClientBuilder(Object builder, "
+				+ ASYNC_HTTP_CLIENT_BUILDER + "<?> httpAsyncClientBuilder)", "httpAsyncClientBuilder",
+				asyncHttpClientBuilder == null ? null
+						: b + ".httpClientBuilder(httpAsyncClientBuilder);");
+		source.nullSafeMethod("void configureHttpClient(Object builder, " + HTTP_CLIENT + " httpClient)", "httpClient",
+				syncHttpClient == null ? null
+						: b + ".httpClient(httpClient);");
+		source.nullSafeMethod("void configureHttpAsyncClient(Object builder, " + ASYNC_HTTP_CLIENT + " httpAsyncClient)",
+				"httpAsyncClient",
+				asyncHttpClient == null ? null
+						: b + ".httpClient(httpAsyncClient);");
+		source.line("@Override");
+		source.line("public Object build(Object builder) {");
+		source.line("\treturn " + b + ".build();");
+		source.line("}");
+		source.outdent();
+		source.line("}");
+		return true;
+	}
+	
+	private ExecutableElement findStaticBuilderMethod(TypeElement clientType) {
+		for (ExecutableElement method : ElementFilter.methodsIn(clientType.getEnclosedElements())) {
+			if (method.getSimpleName().contentEquals("builder")
+					&& method.getModifiers().contains(Modifier.STATIC)
+					&& method.getModifiers().contains(Modifier.PUBLIC)
+					&& method.getParameters().isEmpty()) {
+				return method;
+			}
+		}
+		return null;
+	}
+	
+	private void writeConfigureS3Configuration(SourceWriter source, TypeElement builderType, String b) {
+		source.line("@Override");
+		source.line("public void configureS3Configuration(Object builder, Boolean pathStyleAccessEnabled,");
+		source.line("\t\tBoolean chunkedEncodingEnabled, Boolean accelerateModeEnabled, Boolean dualstackEnabled,");
+		source.line("\t\tBoolean checksumValidationEnabled) {");
+		source.indent();
+		TypeElement configBuilderType = getElements().getTypeElement(S3_CONFIGURATION_BUILDER);
+		if (configBuilderType == null
+				|| findMethod(builderType, "serviceConfiguration", S3_CONFIGURATION) == null) {
+			source.line("// not supported by the builder");
+		} else {
+			source.line(S3_CONFIGURATION_BUILDER + " configBuilder = " + S3_CONFIGURATION + ".builder();");
+			String[] options = {
+				"pathStyleAccessEnabled",
+				"chunkedEncodingEnabled",
+				"accelerateModeEnabled",
+				"dualstackEnabled",
+				"checksumValidationEnabled"
+			};
+			for (String option : options) {
+				if (findMethod(configBuilderType, option, "java.lang.Boolean") != null) {
+					source.line("configBuilder." + option + "(" + option + ");");
+				}
+			}
+			source.line(b + ".serviceConfiguration(configBuilder.build());");
+		}
+		source.outdent();
+		source.line("}");
+		source.blank();
+	}
+}
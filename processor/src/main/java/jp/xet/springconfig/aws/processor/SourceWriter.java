@@ -0,0 +1,84 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jp.xet.springconfig.aws.processor;
+
+/**
+ * Tiny helper to write indented java source code.
+ *
+ * @author miyamoto.daisuke
+ */
+class SourceWriter {
+	
+	private final StringBuilder sb = new StringBuilder();
+	
+	private int depth;
+	
+	
+	SourceWriter(int depth) {
+		this.depth = depth;
+	}
+	
+	void indent() {
+		depth++;
+	}
+	
+	void outdent() {
+		depth--;
+	}
+	
+	void line(String line) {
+		for (int i = 0; i < depth; i++) {
+			sb.append('\t');
+		}
+		sb.append(line).append('\n');
+	}
+	
+	void blank() {
+		sb.append('\n');
+	}
+	
+	void raw(String source) {
+		sb.append(source);
+	}
+	
+	/**
+	 * Write a method which calls the builder method if the argument is not {@code null}.
+	 *
+	 * @param signature the method signature
+	 * @param argument the argument name to check
+	 * @param statement the statement to call the builder method, or {@code null} if not supported
+	 */
+	void nullSafeMethod(String signature, String argument, String statement) {
+		line("@Override");
+		line("public " + signature + " {");
+		indent();
+		if (statement == null) {
+			line("// not supported by the builder");
+		} else {
+			line("if (" + argument + " != null) {");
+			line("\t" + statement);
+			line("}");
+		}
+		outdent();
+		line("}");
+		blank();
+	}
+	
+	@Override
+	public String toString() {
+		return sb.toString();
+	}
+}
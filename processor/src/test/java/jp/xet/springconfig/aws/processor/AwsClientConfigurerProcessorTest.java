@@ -0,0 +1,266 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jp.xet.springconfig.aws.processor;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.stream.Collectors;
+
+import javax.tools.Diagnostic.Kind;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.AmazonS3ClientBuilder;
+import com.amazonaws.services.sqs.AmazonSQS;
+
+import jp.xet.springconfig.aws.v1.AwsClientV1Configurer;
+import jp.xet.springconfig.aws.v1.AwsClientV1Configurers;
+import jp.xet.springconfig.aws.v2.AwsClientV2Configurer;
+import jp.xet.springconfig.aws.v2.AwsClientV2Configurers;
+
+import software.amazon.awssdk.awscore.client.config.AwsClientOption;
+import software.amazon.awssdk.core.client.config.SdkClientConfiguration;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.S3ClientBuilder;
+import software.amazon.awssdk.services.sqs.SqsAsyncClient;
+import software.amazon.awssdk.services.sqs.SqsClient;
+
+/**
+ * Test for {@link AwsClientConfigurerProcessor}.
+ *
+ * @author miyamoto.daisuke
+ * @since #version#
+ */
+public class AwsClientConfigurerProcessorTest {
+	
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+	
+	private File sourceDir;
+	
+	private File classesDir;
+	
+	
+	@Before
+	public void setUp() throws Exception {
+		sourceDir = temporaryFolder.newFolder("src");
+		classesDir = temporaryFolder.newFolder("classes");
+	}
+	
+	@Test
+	public void testGenerateV2() throws Exception {
+		// setup
+		writeSource("sample/SampleV2Config.java",
+				"package sample;",
+				"@org.springframework.context.annotation.Configuration",
+				"@jp.xet.springconfig.aws.v2.EnableAwsClientV2({",
+				"	software.amazon.awssdk.services.s3.S3Client.class,",
+				"	software.amazon.awssdk.services.sqs.SqsClient.class,",
+				"	software.amazon.awssdk.services.sqs.SqsAsyncClient.class",
+				"})",
+				"@org.springframework.boot.context.properties.EnableConfigurationProperties",
+				"public class SampleV2Config {}");
+		// exercise
+		compile();
+		// verify
+		try (URLClassLoader classLoader = createClassLoader()) {
+			AwsClientV2Configurers configurers = (AwsClientV2Configurers) classLoader
+				.loadClass("sample.SampleV2Config_AwsClientV2Configurers").getDeclaredConstructor().newInstance();
+			assertThat(configurers.get(S3Client.class)).isNotNull();
+			assertThat(configurers.get(SqsClient.class)).isNotNull();
+			assertThat(configurers.get(SqsAsyncClient.class)).isNotNull();
+			assertThat(configurers.get(Object.class)).isNull();
+			
+			AwsClientV2Configurer configurer = configurers.get(S3Client.class);
+			Object builder = configurer.createBuilder();
+			assertThat(builder).isInstanceOf(S3ClientBuilder.class);
+			configurer.configureRegion(builder, "ap-northeast-1");
+			configurer.configureS3Configuration(builder, true, null, null, null, null);
+			configurer.configureHttpAsyncClientBuilder(builder, null);
+			try (S3Client client = (S3Client) configurer.build(builder)) {
+				SdkClientConfiguration clientConfig =
+						(SdkClientConfiguration) ReflectionTestUtils.getField(client, "clientConfiguration");
+				assertThat(clientConfig.option(AwsClientOption.AWS_REGION)).isEqualTo(Region.AP_NORTHEAST_1);
+			}
+		}
+	}
+	
+	@Test
+	public void testGenerateV2_UsedByRegistrar() throws Exception {
+		// setup
+		writeSource("sample/Outer.java",
+				"package sample;",
+				"public class Outer {",
+				"	@org.springframework.context.annotation.Configuration",
+				"	@jp.xet.springconfig.aws.v2.EnableAwsClientV2(software.amazon.awssdk.services.sqs.SqsClient.class)",
+				"	@org.springframework.boot.context.properties.EnableConfigurationProperties",
+				"	public static class Inner {}",
+				"}");
+		compile();
+		try (URLClassLoader classLoader = createClassLoader();
+				AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext()) {
+			context.setClassLoader(classLoader);
+			context.getEnvironment().getPropertySources().addFirst(new MapPropertySource("test",
+					Collections.singletonMap("aws2.sqs.region", "eu-west-1")));
+			context.register(classLoader.loadClass("sample.Outer$Inner"));
+			// exercise
+			context.refresh();
+			// verify
+			SqsClient client = context.getBean(SqsClient.class);
+			SdkClientConfiguration clientConfig =
+					(SdkClientConfiguration) ReflectionTestUtils.getField(client, "clientConfiguration");
+			assertThat(clientConfig.option(AwsClientOption.AWS_REGION)).isEqualTo(Region.EU_WEST_1);
+			Object factoryBean = context.getBean("&" + SqsClient.class.getName());
+			assertThat(ReflectionTestUtils.getField(factoryBean, "configurer").getClass().getName())
+				.startsWith("sample.Outer_Inner_AwsClientV2Configurers$");
+		}
+	}
+	
+	@Test
+	public void testGenerateV1() throws Exception {
+		// setup
+		writeSource("sample/SampleV1Config.java",
+				"package sample;",
+				"@org.springframework.context.annotation.Configuration",
+				"@jp.xet.springconfig.aws.v1.EnableAwsClientV1({",
+				"	com.amazonaws.services.s3.AmazonS3.class,",
+				"	com.amazonaws.services.sqs.AmazonSQS.class",
+				"})",
+				"@org.springframework.boot.context.properties.EnableConfigurationProperties",
+				"public class SampleV1Config {}");
+		// exercise
+		compile();
+		// verify
+		try (URLClassLoader classLoader = createClassLoader()) {
+			AwsClientV1Configurers configurers = (AwsClientV1Configurers) classLoader
+				.loadClass("sample.SampleV1Config_AwsClientV1Configurers").getDeclaredConstructor().newInstance();
+			assertThat(configurers.get(AmazonSQS.class)).isNotNull();
+			assertThat(configurers.get(Object.class)).isNull();
+			
+			AwsClientV1Configurer configurer = configurers.get(AmazonS3.class);
+			Object builder = configurer.createBuilder();
+			assertThat(builder).isInstanceOf(AmazonS3ClientBuilder.class);
+			configurer.configureRegion(builder, "ap-northeast-1");
+			configurer.configureS3Options(builder, true, null, null, null, null, null);
+			AmazonS3 client = (AmazonS3) configurer.build(builder);
+			assertThat(((AmazonS3ClientBuilder) builder).isPathStyleAccessEnabled()).isTrue();
+			assertThat(client.getRegionName()).isEqualTo("ap-northeast-1");
+			client.shutdown();
+		}
+	}
+	
+	@Test
+	public void testGenerateV2_NotClient() throws Exception {
+		// setup
+		writeSource("sample/InvalidV2Config.java",
+				"package sample;",
+				"@jp.xet.springconfig.aws.v2.EnableAwsClientV2({",
+				"	software.amazon.awssdk.services.sqs.SqsClient.class,",
+				"	software.amazon.awssdk.services.sqs.SqsClientBuilder.class",
+				"})",
+				"public class InvalidV2Config {}");
+		DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+		// exercise
+		boolean actual = compile(diagnostics);
+		// verify
+		assertThat(actual).isFalse();
+		assertThat(diagnostics.getDiagnostics())
+			.filteredOn(d -> d.getKind() == Kind.ERROR)
+			.extracting(d -> d.getMessage(Locale.ENGLISH))
+			.containsExactly("software.amazon.awssdk.services.sqs.SqsClientBuilder is not an AWS SDK v2 client: "
+					+ "it does not have static method builder()");
+	}
+	
+	@Test
+	public void testGenerateV1_NotClient() throws Exception {
+		// setup
+		writeSource("sample/InvalidV1Config.java",
+				"package sample;",
+				"@jp.xet.springconfig.aws.v1.EnableAwsClientV1({",
+				"	com.amazonaws.services.s3.AmazonS3.class,",
+				"	java.lang.Runnable.class",
+				"})",
+				"public class InvalidV1Config {}");
+		DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+		// exercise
+		boolean actual = compile(diagnostics);
+		// verify
+		assertThat(actual).isFalse();
+		assertThat(diagnostics.getDiagnostics())
+			.filteredOn(d -> d.getKind() == Kind.ERROR)
+			.extracting(d -> d.getMessage(Locale.ENGLISH))
+			.containsExactly("java.lang.Runnable is not an AWS SDK v1 client: it is not in package com.amazonaws.services.");
+	}
+	
+	private void writeSource(String path, String... lines) throws IOException {
+		File file = new File(sourceDir, path);
+		Files.createDirectories(file.getParentFile().toPath());
+		Files.write(file.toPath(), Arrays.asList(lines), StandardCharsets.UTF_8);
+	}
+	
+	private void compile() throws IOException {
+		DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+		assertThat(compile(diagnostics)).as(diagnostics.getDiagnostics().toString()).isTrue();
+	}
+	
+	private boolean compile(DiagnosticCollector<JavaFileObject> diagnostics) throws IOException {
+		JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+		try (StandardJavaFileManager fileManager = compiler.getStandardFileManager(diagnostics, null, null)) {
+			Iterable<? extends JavaFileObject> sources = fileManager.getJavaFileObjectsFromFiles(
+					Files.walk(sourceDir.toPath())
+						.filter(p -> p.toString().endsWith(".java"))
+						.map(p -> p.toFile())
+						.collect(Collectors.toList()));
+			JavaCompiler.CompilationTask task = compiler.getTask(null, fileManager, diagnostics, Arrays.asList(
+					"-classpath", System.getProperty("java.class.path"),
+					"-d", classesDir.getPath(),
+					"-s", classesDir.getPath(),
+					"-Xlint:all", "-Xlint:-processing", "-Werror",
+					"-processor", AwsClientConfigurerProcessor.class.getName()),
+					null, sources);
+			return task.call();
+		}
+	}
+	
+	private URLClassLoader createClassLoader() throws IOException {
+		return new URLClassLoader(new URL[] {
+			classesDir.toURI().toURL()
+		}, getClass().getClassLoader());
+	}
+}
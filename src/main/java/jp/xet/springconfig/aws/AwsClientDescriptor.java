@@ -0,0 +1,85 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jp.xet.springconfig.aws;
+
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * Effective configuration of an AWS client registered by this library, which is reported by
+ * {@link AwsClientsEndpoint}.
+ *
+ * <p>The values are read from the built client if possible, so that the defaults applied by the SDK
+ * are reported as well. Each value is {@code null} if it is not known, e.g. the client is not built yet.</p>
+ *
+ * @author miyamoto.daisuke
+ */
+@Value
+@Builder(toBuilder = true)
+public class AwsClientDescriptor {
+	
+	/**
+	 * The bean name of the client, which is the name of the client interface.
+	 */
+	private String beanName;
+	
+	/**
+	 * The name of the client interface.
+	 */
+	private String clientClass;
+	
+	/**
+	 * The properties applied to the client (e.g. {@code aws2.sns} or {@code aws2.default}),
+	 * or {@code null} if no properties are applied.
+	 */
+	private String propertyKey;
+	
+	/**
+	 * The region used by the client.
+	 */
+	private String region;
+	
+	/**
+	 * The endpoint used by the client.
+	 */
+	private String endpoint;
+	
+	/**
+	 * The type of the HTTP client (e.g. {@code APACHE} or {@code NETTY}),
+	 * or its class name if the type is unknown.
+	 */
+	private String httpClientType;
+	
+	/**
+	 * The maximum number of connections of the HTTP client.
+	 */
+	private Integer maxConnections;
+	
+	/**
+	 * The bean name of the credentials provider, or {@code null} if the default provider chain is used.
+	 */
+	private String credentialsProviderBeanName;
+	
+	/**
+	 * Whether the client is built. Lazy clients are not built until the first invocation.
+	 */
+	private boolean built;
+	
+	/**
+	 * The time taken to create the client in milliseconds.
+	 */
+	private Long buildTimeMillis;
+}
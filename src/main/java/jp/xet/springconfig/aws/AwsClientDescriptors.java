@@ -0,0 +1,163 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jp.xet.springconfig.aws;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.ConstructorArgumentValues;
+import org.springframework.beans.factory.config.RuntimeBeanReference;
+import org.springframework.beans.factory.support.BeanDefinitionRegistry;
+import org.springframework.beans.factory.support.RootBeanDefinition;
+import org.springframework.util.ClassUtils;
+
+/**
+ * Internal use only.
+ *
+ * <p>Holder of {@link AwsClientDescriptor}s of all the AWS clients registered by this library.
+ * The clients and the configured property keys are collected by the bean definition registrars,
+ * and each descriptor is replaced by the factory bean when the client is built.</p>
+ *
+ * @author miyamoto.daisuke
+ */
+@Slf4j
+@RequiredArgsConstructor
+public class AwsClientDescriptors {
+	
+	/**
+	 * The bean name of this holder.
+	 */
+	public static final String BEAN_NAME = "awsClientDescriptors";
+	
+	private static final String ENDPOINT_BEAN_NAME = "awsClientsEndpoint";
+	
+	private static final String ENDPOINT = "org.springframework.boot.actuate.endpoint.annotation.Endpoint";
+	
+	
+	/**
+	 * Register the client which is not built yet. The holder is registered if absent.
+	 *
+	 * @param registry the bean definition registry
+	 * @param descriptor the descriptor of the client
+	 */
+	public static void registerClient(BeanDefinitionRegistry registry, AwsClientDescriptor descriptor) {
+		Map<String, AwsClientDescriptor> descriptors = getConstructorArgument(registry, 0);
+		descriptors.put(descriptor.getBeanName(), descriptor);
+	}
+	
+	/**
+	 * Register the keys of the configured client properties (e.g. {@code aws2.sns}).
+	 * The holder is registered if absent.
+	 *
+	 * @param registry the bean definition registry
+	 * @param propertyKeys the property keys
+	 */
+	public static void registerPropertyKeys(BeanDefinitionRegistry registry, Collection<String> propertyKeys) {
+		Set<String> keys = getConstructorArgument(registry, 1);
+		keys.addAll(propertyKeys);
+	}
+	
+	@SuppressWarnings("unchecked")
+	private static <T> T getConstructorArgument(BeanDefinitionRegistry registry, int index) {
+		if (registry.containsBeanDefinition(BEAN_NAME) == false) {
+			ConstructorArgumentValues ctorArgs = new ConstructorArgumentValues();
+			ctorArgs.addIndexedArgumentValue(0, new LinkedHashMap<String, AwsClientDescriptor>());
+			ctorArgs.addIndexedArgumentValue(1, new LinkedHashSet<String>());
+			
+			RootBeanDefinition descriptorsBeanDef = new RootBeanDefinition(AwsClientDescriptors.class);
+			descriptorsBeanDef.setConstructorArgumentValues(ctorArgs);
+			descriptorsBeanDef.setAutowireCandidate(false);
+			descriptorsBeanDef.setRole(BeanDefinition.ROLE_INFRASTRUCTURE);
+			registry.registerBeanDefinition(BEAN_NAME, descriptorsBeanDef);
+			registerEndpoint(registry);
+		}
+		return (T) registry.getBeanDefinition(BEAN_NAME).getConstructorArgumentValues()
+			.getIndexedArgumentValue(index, null).getValue();
+	}
+	
+	/**
+	 * Register {@link AwsClientsEndpoint} if Spring Boot Actuator is present and absent.
+	 */
+	private static void registerEndpoint(BeanDefinitionRegistry registry) {
+		if (registry.containsBeanDefinition(ENDPOINT_BEAN_NAME)
+				|| ClassUtils.isPresent(ENDPOINT, AwsClientDescriptors.class.getClassLoader()) == false) {
+			return;
+		}
+		ConstructorArgumentValues ctorArgs = new ConstructorArgumentValues();
+		ctorArgs.addIndexedArgumentValue(0, new RuntimeBeanReference(BEAN_NAME));
+		
+		RootBeanDefinition endpointBeanDef = new RootBeanDefinition(AwsClientsEndpoint.class);
+		endpointBeanDef.setConstructorArgumentValues(ctorArgs);
+		endpointBeanDef.setRole(BeanDefinition.ROLE_INFRASTRUCTURE);
+		registry.registerBeanDefinition(ENDPOINT_BEAN_NAME, endpointBeanDef);
+		log.trace("AWS clients endpoint is registered");
+	}
+	
+	
+	private final Map<String, AwsClientDescriptor> descriptors;
+	
+	private final Set<String> propertyKeys;
+	
+	
+	/**
+	 * Record the descriptor of the built client.
+	 *
+	 * @param descriptor the descriptor
+	 */
+	public synchronized void record(AwsClientDescriptor descriptor) {
+		descriptors.put(descriptor.getBeanName(), descriptor);
+	}
+	
+	/**
+	 * Get the descriptors of all the registered clients.
+	 *
+	 * @return the descriptors in the registration order
+	 */
+	public synchronized List<AwsClientDescriptor> getDescriptors() {
+		return new ArrayList<>(descriptors.values());
+	}
+	
+	/**
+	 * Get the descriptor of the client.
+	 *
+	 * @param beanName the bean name of the client
+	 * @return the descriptor, or {@code null} if the client is not registered
+	 */
+	public synchronized AwsClientDescriptor getDescriptor(String beanName) {
+		return descriptors.get(beanName);
+	}
+	
+	/**
+	 * Get the configured property keys which are not applied to any registered client,
+	 * e.g. {@code aws2.snss} which is a misspelling of {@code aws2.sns}.
+	 *
+	 * @return the unmatched property keys
+	 */
+	public synchronized Set<String> getUnmatchedPropertyKeys() {
+		Set<String> unmatched = new LinkedHashSet<>(propertyKeys);
+		descriptors.values().forEach(descriptor -> unmatched.remove(descriptor.getPropertyKey()));
+		return unmatched;
+	}
+}
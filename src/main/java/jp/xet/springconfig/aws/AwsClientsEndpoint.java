@@ -0,0 +1,81 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jp.xet.springconfig.aws;
+
+import java.util.List;
+import java.util.Set;
+
+import lombok.RequiredArgsConstructor;
+import lombok.Value;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+
+/**
+ * Actuator endpoint which reports the AWS clients registered by this library.
+ *
+ * <p>This endpoint is registered automatically if Spring Boot Actuator is present,
+ * and exposed as {@code /actuator/awsclients} by {@code management.endpoints.web.exposure.include}.</p>
+ *
+ * @author miyamoto.daisuke
+ */
+@Endpoint(id = "awsclients")
+@RequiredArgsConstructor
+public class AwsClientsEndpoint {
+	
+	private final AwsClientDescriptors descriptors;
+	
+	
+	/**
+	 * Report all the registered clients.
+	 *
+	 * @return the report
+	 */
+	@ReadOperation
+	public AwsClientsReport clients() {
+		return new AwsClientsReport(descriptors.getDescriptors(), descriptors.getUnmatchedPropertyKeys());
+	}
+	
+	/**
+	 * Report the client.
+	 *
+	 * @param name the bean name of the client
+	 * @return the descriptor, or {@code null} if the client is not registered
+	 */
+	@ReadOperation
+	public AwsClientDescriptor client(@Selector String name) {
+		return descriptors.getDescriptor(name);
+	}
+	
+	
+	/**
+	 * Report of all the registered clients.
+	 */
+	@Value
+	public static class AwsClientsReport {
+		
+		/**
+		 * The descriptors of the registered clients.
+		 */
+		private List<AwsClientDescriptor> clients;
+		
+		/**
+		 * The configured property keys which are not applied to any registered client.
+		 */
+		private Set<String> unmatchedPropertyKeys;
+	}
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jp.xet.springconfig.aws;
+
+import java.time.Duration;
+
+import lombok.Data;
+
+/**
+ * Internal use only.
+ *
+ * <p>Retry budget properties of an AWS client, which are bound to {@code aws1.*.retry-budget.*}
+ * and {@code aws2.*.retry-budget.*}. See {@link RetryBudget} for the meaning of each property.</p>
+ *
+ * @author miyamoto.daisuke
+ */
+@Data
+public class AwsRetryBudgetProperties {
+	
+	/**
+	 * Whether the retries are limited by the budget.
+	 */
+	private Boolean enabled;
+	
+	/**
+	 * Whether the budget is shared by the clients of the same service and region.
+	 */
+	private Boolean shared;
+	
+	/**
+	 * The ratio of the retries to the successful calls in the window.
+	 */
+	private Double ratio;
+	
+	/**
+	 * The retries per second which are always allowed regardless of the successful calls.
+	 */
+	private Double minRetriesPerSecond;
+	
+	/**
+	 * The sliding window in which the successful calls and the retries are counted.
+	 */
+	private Duration window;
+}
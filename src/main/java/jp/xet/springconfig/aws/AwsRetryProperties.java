@@ -0,0 +1,121 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jp.xet.springconfig.aws;
+
+import java.time.Duration;
+
+import lombok.Data;
+
+/**
+ * Internal use only.
+ *
+ * <p>Retry properties of an AWS client, which are bound to {@code aws1.*.retry.*} and {@code aws2.*.retry.*}.
+ * The unspecified delays fall back to the defaults of the SDK.</p>
+ *
+ * @author miyamoto.daisuke
+ */
+@Data
+public class AwsRetryProperties {
+	
+	private static final Duration DEFAULT_BASE_DELAY = Duration.ofMillis(100);
+	
+	private static final Duration DEFAULT_THROTTLING_BASE_DELAY = Duration.ofMillis(500);
+	
+	private static final Duration DEFAULT_MAX_BACKOFF = Duration.ofSeconds(20);
+	
+	
+	/**
+	 * The maximum number of retries.
+	 */
+	private Integer maxRetries;
+	
+	/**
+	 * The base delay of the exponential backoff.
+	 */
+	private Duration baseDelay;
+	
+	/**
+	 * The upper bound of the backoff.
+	 */
+	private Duration maxBackoff;
+	
+	/**
+	 * The jitter applied to the backoff.
+	 */
+	private Jitter jitter;
+	
+	/**
+	 * The base delay of the backoff for throttling errors, which is always applied with equal jitter.
+	 */
+	private Duration throttlingBaseDelay;
+	
+	/**
+	 * The upper bound of the backoff for throttling errors.
+	 */
+	private Duration throttlingMaxBackoff;
+	
+	
+	/**
+	 * Create the backoff for the errors except throttling.
+	 *
+	 * @return the backoff, or {@code null} if none of the backoff properties are specified
+	 */
+	public RetryBackoff toBackoff() {
+		if (baseDelay == null && maxBackoff == null && jitter == null) {
+			return null;
+		}
+		return new RetryBackoff(jitter != null ? jitter : Jitter.FULL,
+				baseDelay != null ? baseDelay : DEFAULT_BASE_DELAY,
+				maxBackoff != null ? maxBackoff : DEFAULT_MAX_BACKOFF);
+	}
+	
+	/**
+	 * Create the backoff for throttling errors.
+	 *
+	 * @return the backoff, or {@code null} if none of the throttling backoff properties are specified
+	 */
+	public RetryBackoff toThrottlingBackoff() {
+		if (throttlingBaseDelay == null && throttlingMaxBackoff == null) {
+			return null;
+		}
+		return new RetryBackoff(Jitter.EQUAL,
+				throttlingBaseDelay != null ? throttlingBaseDelay : DEFAULT_THROTTLING_BASE_DELAY,
+				throttlingMaxBackoff != null ? throttlingMaxBackoff : DEFAULT_MAX_BACKOFF);
+	}
+	
+	
+	/**
+	 * Jitter of the exponential backoff.
+	 */
+	public enum Jitter {
+		
+		/**
+		 * Random delay between 0 and the exponential backoff.
+		 */
+		FULL,
+		
+		/**
+		 * Half of the exponential backoff plus random delay up to the other half.
+		 */
+		EQUAL,
+		
+		/**
+		 * Random delay between the base delay and three times the previous upper bound,
+		 * which spreads the retries of the concurrent callers wider than {@link #FULL}.
+		 */
+		DECORRELATED
+	}
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jp.xet.springconfig.aws;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR event of a startup step of this library. This class must be loaded only if JFR is available.
+ *
+ * @author miyamoto.daisuke
+ */
+@Name("jp.xet.springconfig.aws.Startup")
+@Label("AWS Client Startup Step")
+@Category({
+	"AWS",
+	"Startup"
+})
+@StackTrace(false)
+class AwsStartupEvent extends Event implements StartupSteps.Step {
+	
+	static StartupSteps.Step start(String name) {
+		AwsStartupEvent event = new AwsStartupEvent(name);
+		event.begin();
+		return event;
+	}
+	
+	
+	@Label("Step")
+	private String step;
+	
+	@Label("Client")
+	private String client;
+	
+	@Label("Tags")
+	private String tags;
+	
+	
+	AwsStartupEvent(String step) {
+		this.step = step;
+	}
+	
+	@Override
+	public StartupSteps.Step tag(String key, String value) {
+		if ("client".equals(key)) {
+			client = value;
+		} else {
+			tags = (tags == null ? "" : tags + ", ") + key + "=" + value;
+		}
+		return this;
+	}
+	
+	@Override
+	public void close() {
+		end();
+		if (shouldCommit()) {
+			commit();
+		}
+	}
+}
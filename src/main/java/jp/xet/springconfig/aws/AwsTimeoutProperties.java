@@ -0,0 +1,43 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jp.xet.springconfig.aws;
+
+import java.time.Duration;
+
+import lombok.Data;
+
+/**
+ * Internal use only.
+ *
+ * <p>Timeout properties of an AWS client, which are bound to {@code aws1.*.timeouts.*}
+ * and {@code aws2.*.timeouts.*}.</p>
+ *
+ * @author miyamoto.daisuke
+ */
+@Data
+public class AwsTimeoutProperties {
+	
+	/**
+	 * The timeout of the whole API call including the retries.
+	 */
+	private Duration apiCall;
+	
+	/**
+	 * The timeout of each attempt of the API call, which releases the caller
+	 * from a stuck connection before the socket timeout.
+	 */
+	private Duration apiCallAttempt;
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jp.xet.springconfig.aws;
+
+/**
+ * Management interface of the connection pool of an HTTP client built by this library.
+ *
+ * <p>Each value is negative if the HTTP client does not expose it.</p>
+ *
+ * @author miyamoto.daisuke
+ */
+public interface ConnectionPoolMXBean {
+	
+	/**
+	 * Get the type of the HTTP client.
+	 *
+	 * @return {@code apache} or {@code netty}
+	 */
+	String getType();
+	
+	/**
+	 * Get the number of connections which are leased by requests.
+	 *
+	 * @return the number of leased connections
+	 */
+	int getLeased();
+	
+	/**
+	 * Get the number of idle connections in the pool.
+	 *
+	 * @return the number of idle connections
+	 */
+	int getAvailable();
+	
+	/**
+	 * Get the number of requests which are waiting for a connection.
+	 *
+	 * @return the number of pending acquires
+	 */
+	int getPending();
+	
+	/**
+	 * Get the maximum number of connections.
+	 *
+	 * @return the maximum number of connections
+	 */
+	int getMax();
+}
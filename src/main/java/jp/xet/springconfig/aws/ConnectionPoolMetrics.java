@@ -0,0 +1,188 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jp.xet.springconfig.aws;
+
+import java.lang.management.ManagementFactory;
+import java.util.function.IntSupplier;
+import java.util.function.ToDoubleFunction;
+
+import javax.management.InstanceNotFoundException;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import org.apache.http.pool.ConnPoolControl;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+
+/**
+ * Internal use only.
+ *
+ * <p>Connection pool statistics of an HTTP client built by this library, which are published as
+ * Micrometer gauges and a JMX MBean. The statistics are read on demand, so that nothing is done
+ * on the request path. The gauges refer to this object weakly, and report {@code NaN} after
+ * the HTTP client is closed.</p>
+ *
+ * @author miyamoto.daisuke
+ */
+@Slf4j
+@RequiredArgsConstructor
+public class ConnectionPoolMetrics implements ConnectionPoolMXBean {
+	
+	private static final String JMX_DOMAIN = "jp.xet.springconfig.aws";
+	
+	private static final IntSupplier NOT_AVAILABLE = () -> -1;
+	
+	
+	/**
+	 * Create the metrics of the Apache HttpComponents connection pool.
+	 *
+	 * @param name the name of the HTTP client
+	 * @param connectionManager the connection manager of the HTTP client
+	 * @return the metrics, or {@code null} if the connection manager does not expose the pool
+	 */
+	public static ConnectionPoolMetrics ofConnectionManager(String name, Object connectionManager) {
+		if (connectionManager instanceof ConnPoolControl == false) {
+			return null;
+		}
+		ConnPoolControl<?> pool = (ConnPoolControl<?>) connectionManager;
+		return new ConnectionPoolMetrics(name, "apache",
+				() -> pool.getTotalStats().getLeased(),
+				() -> pool.getTotalStats().getAvailable(),
+				() -> pool.getTotalStats().getPending(),
+				pool::getMaxTotal);
+	}
+	
+	/**
+	 * Create the metrics which only knows the number of in-flight requests.
+	 * The requests exceeding the maximum number of connections are regarded as pending.
+	 *
+	 * @param name the name of the HTTP client
+	 * @param type the type of the HTTP client
+	 * @param inFlight the number of in-flight requests
+	 * @param max the maximum number of connections
+	 * @return the metrics
+	 */
+	public static ConnectionPoolMetrics ofInFlight(String name, String type, IntSupplier inFlight, int max) {
+		return new ConnectionPoolMetrics(name, type,
+				() -> Math.min(inFlight.getAsInt(), max),
+				NOT_AVAILABLE,
+				() -> Math.max(inFlight.getAsInt() - max, 0),
+				() -> max);
+	}
+	
+	
+	private final String name;
+	
+	private final String type;
+	
+	private final IntSupplier leased;
+	
+	private final IntSupplier available;
+	
+	private final IntSupplier pending;
+	
+	private final IntSupplier max;
+	
+	private ObjectName objectName;
+	
+	
+	@Override
+	public String getType() {
+		return type;
+	}
+	
+	@Override
+	public int getLeased() {
+		return leased.getAsInt();
+	}
+	
+	@Override
+	public int getAvailable() {
+		return available.getAsInt();
+	}
+	
+	@Override
+	public int getPending() {
+		return pending.getAsInt();
+	}
+	
+	@Override
+	public int getMax() {
+		return max.getAsInt();
+	}
+	
+	/**
+	 * Register the gauges of the statistics which are exposed by the HTTP client.
+	 *
+	 * @param meterRegistry the registry
+	 */
+	public void bindTo(MeterRegistry meterRegistry) {
+		Tags tags = Tags.of("client", name, "type", type);
+		registerGauge(meterRegistry, tags, "aws.client.connections.leased", leased, ConnectionPoolMetrics::getLeased);
+		registerGauge(meterRegistry, tags, "aws.client.connections.available", available,
+				ConnectionPoolMetrics::getAvailable);
+		registerGauge(meterRegistry, tags, "aws.client.connections.pending", pending,
+				ConnectionPoolMetrics::getPending);
+		registerGauge(meterRegistry, tags, "aws.client.connections.max", max, ConnectionPoolMetrics::getMax);
+	}
+	
+	private void registerGauge(MeterRegistry meterRegistry, Tags tags, String meterName, IntSupplier supplier,
+			ToDoubleFunction<ConnectionPoolMetrics> f) {
+		if (supplier != NOT_AVAILABLE) {
+			Gauge.builder(meterName, this, f).tags(tags).register(meterRegistry);
+		}
+	}
+	
+	/**
+	 * Register this object to the platform MBean server.
+	 * A failure is logged and ignored, because the MBean is not essential for the HTTP client.
+	 */
+	public synchronized void registerMBean() {
+		if (objectName != null) {
+			return;
+		}
+		try {
+			ObjectName newObjectName =
+					new ObjectName(JMX_DOMAIN + ":type=ConnectionPool,name=" + ObjectName.quote(name));
+			ManagementFactory.getPlatformMBeanServer().registerMBean(this, newObjectName);
+			objectName = newObjectName;
+		} catch (JMException e) {
+			log.warn("Failed to register MBean of connection pool {}", name, e);
+		}
+	}
+	
+	/**
+	 * Unregister this object from the platform MBean server if registered.
+	 */
+	public synchronized void unregisterMBean() {
+		if (objectName == null) {
+			return;
+		}
+		try {
+			ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+		} catch (InstanceNotFoundException e) {
+			log.trace("MBean is already unregistered: {}", objectName);
+		} catch (JMException e) {
+			log.warn("Failed to unregister MBean of connection pool {}", name, e);
+		}
+		objectName = null;
+	}
+}
@@ -15,43 +15,59 @@
  */
 package jp.xet.springconfig.aws;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
 import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
+import lombok.Value;
 import lombok.extern.slf4j.Slf4j;
 
 import org.springframework.util.Assert;
+import org.springframework.util.ClassUtils;
 import org.springframework.util.MethodInvoker;
 import org.springframework.util.ObjectUtils;
 import org.springframework.util.ReflectionUtils;
 
 /**
  * Internal use only.
+ *
+ * <p>Methods are resolved by {@link MethodInvoker} only once for each target class, method name
+ * and argument types, and cached as {@link MethodHandle}s. The cache is held by {@link ClassValue}
+ * so that it does not prevent class loaders from being unloaded.</p>
  */
 @Slf4j
 @SuppressWarnings("javadoc")
 public class InternalReflectionUtil {
 	
+	private static final ClassValue<Map<MethodKey, MethodHandle>> INSTANCE_METHODS = new MethodHandleCache();
+	
+	private static final ClassValue<Map<MethodKey, MethodHandle>> STATIC_METHODS = new MethodHandleCache();
+	
+	
 	@SuppressWarnings("unchecked")
 	public static <T> T invokeMethod(Object target, String name, Object... args) {
 		Assert.notNull(target, "Target object must not be null");
 		Assert.hasText(name, "Method name must not be empty");
 		
+		MethodHandle methodHandle = getMethodHandle(INSTANCE_METHODS, target.getClass(), name, args, false);
+		
+		if (log.isTraceEnabled()) {
+			log.trace(String.format(Locale.ENGLISH, "Invoking method '%s' on %s with arguments %s",
+					name, safeToString(target), ObjectUtils.nullSafeToString(args)));
+		}
+		
 		try {
-			MethodInvoker methodInvoker = new MethodInvoker();
-			methodInvoker.setTargetObject(target);
-			methodInvoker.setTargetMethod(name);
-			methodInvoker.setArguments(args);
-			methodInvoker.prepare();
-			
-			if (log.isTraceEnabled()) {
-				log.trace(String.format(Locale.ENGLISH, "Invoking method '%s' on %s with arguments %s",
-						name, safeToString(target), ObjectUtils.nullSafeToString(args)));
-			}
-			
-			return (T) methodInvoker.invoke();
-		} catch (Exception e) { // NOPMD catching generic exceptions
-			ReflectionUtils.handleReflectionException(e);
-			throw new AssertionError("Should never get here", e);
+			Object result = methodHandle.invokeExact(target, args);
+			return (T) result;
+		} catch (Throwable t) { // NOPMD catching generic exceptions
+			ReflectionUtils.rethrowRuntimeException(t);
+			throw new AssertionError("Should never get here", t);
 		}
 	}
 	
@@ -60,25 +76,100 @@ public class InternalReflectionUtil {
 		Assert.notNull(target, "Target object must not be null");
 		Assert.hasText(name, "Method name must not be empty");
 		
+		MethodHandle methodHandle = getMethodHandle(STATIC_METHODS, target, name, args, true);
+		
+		if (log.isTraceEnabled()) {
+			log.trace(String.format(Locale.ENGLISH, "Invoking static method '%s' on %s with arguments %s",
+					name, safeToString(target), ObjectUtils.nullSafeToString(args)));
+		}
+		
+		try {
+			Object result = methodHandle.invokeExact(args);
+			return (T) result;
+		} catch (Throwable t) { // NOPMD catching generic exceptions
+			ReflectionUtils.rethrowRuntimeException(t);
+			throw new AssertionError("Should never get here", t);
+		}
+	}
+	
+	@SuppressWarnings("unchecked")
+	public static <T> T getField(Object target, String name) {
+		Assert.notNull(target, "Target object must not be null");
+		Assert.hasText(name, "Field name must not be empty");
+		
+		Field field = ReflectionUtils.findField(target.getClass(), name);
+		if (field == null) {
+			throw new IllegalStateException(String.format(Locale.ENGLISH,
+					"Field '%s' is not found on %s", name, safeToString(target)));
+		}
+		ReflectionUtils.makeAccessible(field);
+		return (T) ReflectionUtils.getField(field, target);
+	}
+	
+	private static MethodHandle getMethodHandle(ClassValue<Map<MethodKey, MethodHandle>> cache,
+			Class<?> targetClass, String name, Object[] args, boolean isStatic) {
+		Map<MethodKey, MethodHandle> methodHandles = cache.get(targetClass);
+		MethodKey key = MethodKey.of(name, args);
+		MethodHandle methodHandle = methodHandles.get(key);
+		if (methodHandle == null) {
+			methodHandle = resolveMethodHandle(targetClass, name, args, isStatic);
+			methodHandles.putIfAbsent(key, methodHandle);
+		}
+		return methodHandle;
+	}
+	
+	/**
+	 * Resolve the method in the same manner as {@link MethodInvoker}, and adapt it to the spreader
+	 * whose type is {@code (Object,Object[])Object} for instance methods,
+	 * or {@code (Object[])Object} for static methods.
+	 *
+	 * <p>Varargs methods are adapted with fixed arity, so the variable arity argument is passed as an array
+	 * like {@link Method#invoke(Object, Object...)}. Arguments which cannot be passed to the method are
+	 * rejected by {@link IllegalArgumentException} here, instead of the adapted handle.</p>
+	 */
+	private static MethodHandle resolveMethodHandle(Class<?> targetClass, String name, Object[] args,
+			boolean isStatic) {
 		try {
 			MethodInvoker methodInvoker = new MethodInvoker();
-			methodInvoker.setTargetClass(target);
+			methodInvoker.setTargetClass(targetClass);
 			methodInvoker.setTargetMethod(name);
 			methodInvoker.setArguments(args);
 			methodInvoker.prepare();
 			
-			if (log.isTraceEnabled()) {
-				log.trace(String.format(Locale.ENGLISH, "Invoking static method '%s' on %s with arguments %s",
-						name, safeToString(target), ObjectUtils.nullSafeToString(args)));
+			Method method = methodInvoker.getPreparedMethod();
+			if (isStatic && Modifier.isStatic(method.getModifiers()) == false) {
+				throw new IllegalArgumentException("Target method must not be non-static without a target");
 			}
+			ReflectionUtils.makeAccessible(method);
+			checkArgumentTypes(method, args);
 			
-			return (T) methodInvoker.invoke();
+			int parameterCount = method.getParameterCount();
+			MethodHandle methodHandle = MethodHandles.lookup().unreflect(method).asFixedArity();
+			if (isStatic == false && Modifier.isStatic(method.getModifiers())) {
+				methodHandle = MethodHandles.dropArguments(methodHandle, 0, Object.class);
+			}
+			return methodHandle
+				.asType(MethodType.genericMethodType(isStatic ? parameterCount : parameterCount + 1))
+				.asSpreader(Object[].class, parameterCount);
 		} catch (Exception e) { // NOPMD catching generic exceptions
 			ReflectionUtils.handleReflectionException(e);
 			throw new AssertionError("Should never get here", e);
 		}
 	}
 	
+	private static void checkArgumentTypes(Method method, Object[] args) {
+		Class<?>[] parameterTypes = method.getParameterTypes();
+		for (int i = 0; i < parameterTypes.length; i++) {
+			boolean assignable = args[i] == null
+					? parameterTypes[i].isPrimitive() == false
+					: ClassUtils.isAssignableValue(parameterTypes[i], args[i]);
+			if (assignable == false) {
+				throw new IllegalArgumentException(String.format(Locale.ENGLISH,
+						"Argument type mismatch at index %d of %s", i, method));
+			}
+		}
+	}
+	
 	private static String safeToString(Object target) {
 		try {
 			return String.format(Locale.ENGLISH, "target object [%s]", target);
@@ -88,4 +179,34 @@ public class InternalReflectionUtil {
 					targetClassName, e);
 		}
 	}
+	
+	
+	private static class MethodHandleCache extends ClassValue<Map<MethodKey, MethodHandle>> {
+		
+		@Override
+		protected Map<MethodKey, MethodHandle> computeValue(Class<?> type) {
+			return new ConcurrentHashMap<>();
+		}
+	}
+	
+	/**
+	 * Cache key of resolved methods. The type of {@code null} argument is kept as {@code null},
+	 * because {@link MethodInvoker} may resolve another overloaded method for {@code null}.
+	 */
+	@Value
+	private static class MethodKey {
+		
+		static MethodKey of(String name, Object[] args) {
+			Class<?>[] argumentTypes = new Class<?>[args.length];
+			for (int i = 0; i < args.length; i++) {
+				argumentTypes[i] = args[i] == null ? null : args[i].getClass();
+			}
+			return new MethodKey(name, argumentTypes);
+		}
+		
+		
+		private String name;
+		
+		private Class<?>[] argumentTypes;
+	}
 }
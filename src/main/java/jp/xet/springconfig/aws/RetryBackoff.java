@@ -0,0 +1,77 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jp.xet.springconfig.aws;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
+
+import jp.xet.springconfig.aws.AwsRetryProperties.Jitter;
+
+/**
+ * Internal use only.
+ *
+ * <p>Exponential backoff with jitter, which is shared by the retry policies of AWS clients v1 and v2.</p>
+ *
+ * @author miyamoto.daisuke
+ */
+@Getter
+@ToString
+@RequiredArgsConstructor
+public class RetryBackoff {
+	
+	// 2^30 of the base delay exceeds any sensible max backoff
+	private static final int MAX_EXPONENT = 30;
+	
+	private final Jitter jitter;
+	
+	private final Duration baseDelay;
+	
+	private final Duration maxBackoff;
+	
+	
+	/**
+	 * Compute the delay before the next retry.
+	 *
+	 * @param retriesAttempted the number of retries already attempted
+	 * @return the delay
+	 */
+	public Duration computeDelay(int retriesAttempted) {
+		long base = baseDelay.toMillis();
+		long max = maxBackoff.toMillis();
+		int exponent = Math.min(Math.max(retriesAttempted, 0), MAX_EXPONENT);
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		switch (jitter) {
+			case EQUAL: {
+				long ceiling = Math.min(max, base << exponent);
+				return Duration.ofMillis(ceiling / 2 + random.nextLong(ceiling / 2 + 1));
+			}
+			case DECORRELATED: {
+				// stateless form of "sleep = random(base, previous sleep * 3)", bounded by the max backoff
+				long ceiling = Math.min(max, (long) (base * Math.pow(3, exponent + 1)));
+				return Duration.ofMillis(ceiling <= base ? ceiling : random.nextLong(base, ceiling + 1));
+			}
+			case FULL:
+			default: {
+				long ceiling = Math.min(max, base << exponent);
+				return Duration.ofMillis(random.nextLong(ceiling + 1));
+			}
+		}
+	}
+}
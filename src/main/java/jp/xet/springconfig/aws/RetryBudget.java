@@ -0,0 +1,176 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jp.xet.springconfig.aws;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+
+/**
+ * Internal use only.
+ *
+ * <p>Budget which limits the retries to a ratio of the successful calls in a sliding window,
+ * so that the retries do not multiply the load on a struggling service. The retries allowed in the window are
+ * {@code max(ratio * successes, min-retries-per-second * window)}, and a retry beyond them is not attempted.</p>
+ *
+ * <p>The window is divided into {@value #BUCKETS} buckets of {@link LongAdder}, which are reused in a ring,
+ * so that recording a call neither allocates nor contends. A bucket is reset by the first caller which
+ * finds it expired, and the calls recorded by the other callers during the reset may be lost.
+ * The budget is approximate by design.</p>
+ *
+ * @author miyamoto.daisuke
+ */
+public class RetryBudget {
+	
+	private static final int BUCKETS = 10;
+	
+	private static final double DEFAULT_RATIO = 0.1;
+	
+	private static final double DEFAULT_MIN_RETRIES_PER_SECOND = 1;
+	
+	private static final Duration DEFAULT_WINDOW = Duration.ofSeconds(10);
+	
+	
+	private final String name;
+	
+	private final Clock clock;
+	
+	private final double ratio;
+	
+	private final long minRetries;
+	
+	private final long bucketMillis;
+	
+	private final AtomicLongArray epochs = new AtomicLongArray(BUCKETS);
+	
+	private final LongAdder[] successes = new LongAdder[BUCKETS];
+	
+	private final LongAdder[] retries = new LongAdder[BUCKETS];
+	
+	private final LongAdder exhausted = new LongAdder();
+	
+	
+	/**
+	 * Create the budget.
+	 *
+	 * @param name the name of the budget, which is used to tag the meters
+	 * @param properties the retry budget properties
+	 * @param clock the clock to slide the window
+	 */
+	public RetryBudget(String name, AwsRetryBudgetProperties properties, Clock clock) {
+		Duration window = properties.getWindow() != null ? properties.getWindow() : DEFAULT_WINDOW;
+		double minRetriesPerSecond = properties.getMinRetriesPerSecond() != null
+				? properties.getMinRetriesPerSecond() : DEFAULT_MIN_RETRIES_PER_SECOND;
+		this.name = name;
+		this.clock = clock;
+		ratio = properties.getRatio() != null ? properties.getRatio() : DEFAULT_RATIO;
+		minRetries = (long) (minRetriesPerSecond * window.toMillis() / 1000);
+		bucketMillis = Math.max(window.toMillis() / BUCKETS, 1);
+		for (int i = 0; i < BUCKETS; i++) {
+			successes[i] = new LongAdder();
+			retries[i] = new LongAdder();
+		}
+	}
+	
+	/**
+	 * Record a successful call, which earns the budget.
+	 */
+	public void recordSuccess() {
+		successes[getCurrentBucket()].increment();
+	}
+	
+	/**
+	 * Withdraw a retry from the budget.
+	 *
+	 * @return {@code true} if the retry is allowed, {@code false} if the budget is exhausted
+	 */
+	public boolean tryAcquire() {
+		int bucket = getCurrentBucket();
+		if (getAvailable() <= 0) {
+			exhausted.increment();
+			return false;
+		}
+		retries[bucket].increment();
+		return true;
+	}
+	
+	/**
+	 * Returns the number of the retries which are allowed in the current window.
+	 *
+	 * @return the number of the available retries
+	 */
+	public long getAvailable() {
+		long epoch = getEpoch();
+		long allowed = Math.max((long) (ratio * sum(successes, epoch)), minRetries);
+		return Math.max(allowed - sum(retries, epoch), 0);
+	}
+	
+	/**
+	 * Returns the number of the retries which are not attempted because the budget is exhausted.
+	 *
+	 * @return the cumulative number of the denied retries
+	 */
+	public long getExhausted() {
+		return exhausted.sum();
+	}
+	
+	/**
+	 * Register the meters of this budget.
+	 *
+	 * @param meterRegistry the registry
+	 */
+	public void bindTo(MeterRegistry meterRegistry) {
+		Tags tags = Tags.of("client", name);
+		FunctionCounter.builder("aws.client.retry.budget.exhausted", this, RetryBudget::getExhausted)
+			.tags(tags)
+			.register(meterRegistry);
+		Gauge.builder("aws.client.retry.budget.available", this, RetryBudget::getAvailable)
+			.tags(tags)
+			.register(meterRegistry);
+	}
+	
+	private long getEpoch() {
+		return clock.millis() / bucketMillis;
+	}
+	
+	private int getCurrentBucket() {
+		long epoch = getEpoch();
+		int bucket = (int) (epoch % BUCKETS);
+		long bucketEpoch = epochs.get(bucket);
+		if (bucketEpoch != epoch && epochs.compareAndSet(bucket, bucketEpoch, epoch)) {
+			successes[bucket].reset();
+			retries[bucket].reset();
+		}
+		return bucket;
+	}
+	
+	private long sum(LongAdder[] adders, long epoch) {
+		long sum = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			long bucketEpoch = epochs.get(i);
+			if (bucketEpoch <= epoch && bucketEpoch > epoch - BUCKETS) {
+				sum += adders[i].sum();
+			}
+		}
+		return sum;
+	}
+}
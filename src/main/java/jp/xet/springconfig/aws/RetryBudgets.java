@@ -0,0 +1,88 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jp.xet.springconfig.aws;
+
+import java.time.Clock;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.support.BeanDefinitionRegistry;
+import org.springframework.beans.factory.support.RootBeanDefinition;
+
+/**
+ * Internal use only.
+ *
+ * <p>Registry of the retry budgets shared by the clients of the same service and region,
+ * which is registered if any client sets {@code aws1.*.retry-budget.shared=true}
+ * or {@code aws2.*.retry-budget.shared=true}.</p>
+ *
+ * @author miyamoto.daisuke
+ */
+@Slf4j
+public class RetryBudgets {
+	
+	/**
+	 * The bean name of this registry.
+	 */
+	public static final String BEAN_NAME = "awsRetryBudgets";
+	
+	
+	/**
+	 * Register the registry if absent.
+	 *
+	 * @param registry the bean definition registry
+	 */
+	public static void register(BeanDefinitionRegistry registry) {
+		if (registry.containsBeanDefinition(BEAN_NAME)) {
+			return;
+		}
+		RootBeanDefinition budgetsBeanDef = new RootBeanDefinition(RetryBudgets.class);
+		budgetsBeanDef.setAutowireCandidate(false);
+		budgetsBeanDef.setRole(BeanDefinition.ROLE_INFRASTRUCTURE);
+		registry.registerBeanDefinition(BEAN_NAME, budgetsBeanDef);
+		log.trace("Shared retry budgets are registered");
+	}
+	
+	/**
+	 * Create the budget owned by a client.
+	 *
+	 * @param name the name of the budget
+	 * @param properties the retry budget properties
+	 * @return the budget
+	 */
+	public static RetryBudget create(String name, AwsRetryBudgetProperties properties) {
+		return new RetryBudget(name, properties, Clock.systemUTC());
+	}
+	
+	
+	private final Map<String, RetryBudget> budgets = new ConcurrentHashMap<>();
+	
+	
+	/**
+	 * Get the budget shared by the clients of the key.
+	 * The properties of the first client are used to create the budget.
+	 *
+	 * @param key the key of the budget, e.g. {@code aws2.sqs@us-east-1}
+	 * @param properties the retry budget properties
+	 * @return the budget
+	 */
+	public RetryBudget getBudget(String key, AwsRetryBudgetProperties properties) {
+		return budgets.computeIfAbsent(key, k -> create(k, properties));
+	}
+}
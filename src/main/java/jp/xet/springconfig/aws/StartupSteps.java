@@ -0,0 +1,125 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jp.xet.springconfig.aws;
+
+import static jp.xet.springconfig.aws.InternalReflectionUtil.invokeMethod;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.util.ClassUtils;
+
+/**
+ * Internal use only.
+ *
+ * <p>Records the startup steps of this library. On Spring Framework 5.3+, the steps are recorded to
+ * {@code ApplicationStartup} of the bean factory, which is looked up by reflection because this library
+ * is built against older versions. Otherwise the steps are committed as JFR events if JFR is available
+ * (JDK 8u262+), so that the cost of building the clients can be seen next to class loading and GC
+ * in a single recording.</p>
+ *
+ * @author miyamoto.daisuke
+ */
+@Slf4j
+public class StartupSteps {
+	
+	private static final boolean JFR_PRESENT = ClassUtils.isPresent("jdk.jfr.Event", StartupSteps.class.getClassLoader());
+	
+	private static final Step NOOP = new Step() {
+		
+		@Override
+		public Step tag(String key, String value) {
+			return this;
+		}
+		
+		@Override
+		public void close() {
+			// nothing to do
+		}
+	};
+	
+	private static final ClassValue<Boolean> HAS_APPLICATION_STARTUP = new ClassValue<Boolean>() {
+		
+		@Override
+		protected Boolean computeValue(Class<?> type) {
+			return ClassUtils.hasMethod(type, "getApplicationStartup");
+		}
+	};
+	
+	
+	/**
+	 * Start the step.
+	 *
+	 * @param beanFactory the bean factory or the registry which may provide {@code ApplicationStartup},
+	 *     or {@code null}
+	 * @param name the name of the step, e.g. {@code aws.client.v2.create}
+	 * @return the started step, which must be closed
+	 */
+	public static Step start(Object beanFactory, String name) {
+		if (beanFactory != null && HAS_APPLICATION_STARTUP.get(beanFactory.getClass())) {
+			try {
+				Object applicationStartup = invokeMethod(beanFactory, "getApplicationStartup");
+				return new SpringStep(invokeMethod(applicationStartup, "start", name));
+			} catch (IllegalStateException e) {
+				log.trace("ApplicationStartup is not available", e);
+			}
+		}
+		if (JFR_PRESENT) {
+			return AwsStartupEvent.start(name);
+		}
+		return NOOP;
+	}
+	
+	
+	/**
+	 * Startup step which is closed at the end of the step.
+	 */
+	public interface Step extends AutoCloseable {
+		
+		/**
+		 * Add the tag to the step.
+		 *
+		 * @param key the key of the tag
+		 * @param value the value of the tag
+		 * @return this step
+		 */
+		Step tag(String key, String value);
+		
+		@Override
+		void close();
+	}
+	
+	/**
+	 * {@link Step} which delegates to {@code org.springframework.core.metrics.StartupStep}.
+	 */
+	@RequiredArgsConstructor
+	private static class SpringStep implements Step {
+		
+		private final Object startupStep;
+		
+		
+		@Override
+		public Step tag(String key, String value) {
+			invokeMethod(startupStep, "tag", key, value);
+			return this;
+		}
+		
+		@Override
+		public void close() {
+			invokeMethod(startupStep, "end");
+		}
+	}
+}
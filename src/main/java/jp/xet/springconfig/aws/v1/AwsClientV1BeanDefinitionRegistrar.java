@@ -17,46 +17,259 @@ package jp.xet.springconfig.aws.v1;
 
 import java.lang.reflect.UndeclaredThrowableException;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 import lombok.extern.slf4j.Slf4j;
 
+import org.springframework.aop.framework.ProxyFactoryBean;
+import org.springframework.aop.target.LazyInitTargetSource;
+import org.springframework.beans.factory.BeanClassLoaderAware;
 import org.springframework.beans.factory.BeanCreationException;
+import org.springframework.beans.factory.config.BeanDefinition;
 import org.springframework.beans.factory.config.BeanDefinitionHolder;
 import org.springframework.beans.factory.config.ConstructorArgumentValues;
 import org.springframework.beans.factory.config.RuntimeBeanReference;
+import org.springframework.beans.factory.support.AbstractBeanDefinition;
 import org.springframework.beans.factory.support.BeanDefinitionReaderUtils;
 import org.springframework.beans.factory.support.BeanDefinitionRegistry;
 import org.springframework.beans.factory.support.RootBeanDefinition;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.context.properties.bind.handler.IgnoreErrorsBindHandler;
+import org.springframework.context.EnvironmentAware;
 import org.springframework.context.annotation.ImportBeanDefinitionRegistrar;
 import org.springframework.core.annotation.AnnotationAttributes;
+import org.springframework.core.env.Environment;
 import org.springframework.core.type.AnnotationMetadata;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.ReflectionUtils;
+
+import jp.xet.springconfig.aws.AwsClientDescriptor;
+import jp.xet.springconfig.aws.AwsClientDescriptors;
+import jp.xet.springconfig.aws.RetryBudgets;
+import jp.xet.springconfig.aws.StartupSteps;
+import jp.xet.springconfig.aws.v1.AwsClientV1BuildCoordinator.BuildTarget;
+import jp.xet.springconfig.aws.v1.AwsClientV1Configuration.AwsClientV1Properties;
 
 @Slf4j
-class AwsClientV1BeanDefinitionRegistrar implements ImportBeanDefinitionRegistrar {
+class AwsClientV1BeanDefinitionRegistrar
+		implements ImportBeanDefinitionRegistrar, BeanClassLoaderAware, EnvironmentAware {
 	
 	private static final String ENCRYPTION_CLIENT = "com.amazonaws.services.s3.AmazonS3Encryption";
 	
+	private static final String CONFIGURERS_SUFFIX = "_AwsClientV1Configurers";
+	
+	private static final String METER_REGISTRY = "io.micrometer.core.instrument.MeterRegistry";
+	
+	/**
+	 * Bean name prefix of the real clients behind the lazy proxies.
+	 */
+	static final String LAZY_TARGET_PREFIX = "lazyTarget.";
+	
+	
+	/**
+	 * Get the class name of {@link AwsClientV1Configurers} generated for the annotated class.
+	 * 
+	 * @param annotatedClassName the class name annotated with {@link EnableAwsClientV1}
+	 * @return the generated class name
+	 */
+	static String getConfigurersClassName(String annotatedClassName) {
+		String packageName = ClassUtils.getPackageName(annotatedClassName);
+		String simpleName = ClassUtils.getShortName(annotatedClassName).replace('.', '_');
+		return (packageName.isEmpty() ? "" : packageName + ".") + simpleName + CONFIGURERS_SUFFIX;
+	}
+	
+	
+	private ClassLoader beanClassLoader = ClassUtils.getDefaultClassLoader();
+	
+	private Environment environment;
+	
+	
+	@Override
+	public void setBeanClassLoader(ClassLoader classLoader) {
+		beanClassLoader = classLoader;
+	}
+	
+	@Override
+	public void setEnvironment(Environment environment) {
+		this.environment = environment;
+	}
 	
 	@Override
 	public void registerBeanDefinitions(AnnotationMetadata importingClassMetadata, BeanDefinitionRegistry registry) {
 		log.trace("registerBeanDefinitions: {}", registry);
 		
-		AnnotationAttributes attributes = AnnotationAttributes.fromMap(
-				importingClassMetadata.getAnnotationAttributes(EnableAwsClientV1.class.getName(), false));
-		if (attributes == null) {
-			log.warn("Attributes of EnableAwsClientV1 is null.");
+		StartupSteps.Step step = StartupSteps.start(registry, "aws.client.v1.register-bean-definitions")
+			.tag("annotated-class", importingClassMetadata.getClassName());
+		try {
+			AnnotationAttributes attributes = AnnotationAttributes.fromMap(
+					importingClassMetadata.getAnnotationAttributes(EnableAwsClientV1.class.getName(), false));
+			if (attributes == null) {
+				log.warn("Attributes of EnableAwsClientV1 is null.");
+				return;
+			}
+			Class<?>[] clientClasses = attributes.getClassArray("value");
+			AwsClientV1Configurers configurers = loadConfigurers(importingClassMetadata.getClassName());
+			Map<Class<?>, BuildTarget> coordinated = isParallelBuild() ? new LinkedHashMap<>() : null;
+			String coordinatorBeanName =
+					AwsClientV1BuildCoordinator.getBeanName(importingClassMetadata.getClassName());
+			boolean lazy = attributes.getBoolean("lazy");
+			
+			registerMetricsCollector(registry);
+			registerConnectionPoolMetrics(registry);
+			if (Arrays.stream(clientClasses).anyMatch(this::isSharedRetryBudget)) {
+				RetryBudgets.register(registry);
+			}
+			Set<String> propertyNames = getPropertyNames();
+			AwsClientDescriptors.registerPropertyKeys(registry, propertyNames.stream()
+				.filter(propertyName -> propertyName.equals(AwsClientV1Configuration.DEFAULT_KEY) == false)
+				.map(propertyName -> "aws1." + propertyName)
+				.collect(Collectors.toList()));
+			Arrays.stream(clientClasses)
+				.forEach(c -> registerAwsClient(registry, c, configurers, coordinated, coordinatorBeanName, lazy,
+						propertyNames));
+			if (coordinated != null && coordinated.isEmpty() == false) {
+				registerBuildCoordinator(registry, coordinatorBeanName, coordinated);
+			}
+		} finally {
+			step.close();
+		}
+	}
+	
+	/**
+	 * Get the names of the configured client properties, e.g. {@code sns} for {@code aws1.sns.region}.
+	 */
+	private Set<String> getPropertyNames() {
+		if (environment == null) {
+			return Collections.emptySet();
+		}
+		return Binder.get(environment)
+			.bind("aws1", Bindable.mapOf(String.class, AwsClientV1Properties.class), new IgnoreErrorsBindHandler())
+			.map(Map::keySet)
+			.orElseGet(Collections::emptySet);
+	}
+	
+	private boolean isLazy(Class<?> clientClass, boolean defaultLazy) {
+		return bindClientProperty(clientClass, "lazy", Boolean.class, defaultLazy);
+	}
+	
+	private boolean isSharedRetryBudget(Class<?> clientClass) {
+		return bindClientProperty(clientClass, "retry-budget.shared", Boolean.class, false);
+	}
+	
+	/**
+	 * Bind the property of the client, which inherits {@code aws1.default.<name>}.
+	 */
+	private <T> T bindClientProperty(Class<?> clientClass, String name, Class<T> type, T defaultValue) {
+		if (environment == null) {
+			return defaultValue;
+		}
+		Binder binder = Binder.get(environment);
+		String propertyName = AwsClientV1FactoryBean.getPropertyName(clientClass);
+		return binder.bind("aws1." + propertyName + "." + name, type)
+			.orElseGet(() -> binder.bind("aws1." + AwsClientV1Configuration.DEFAULT_KEY + "." + name, type)
+				.orElse(defaultValue));
+	}
+	
+	/**
+	 * Register {@link AwsClientV1MetricsCollector} if Micrometer is present and absent.
+	 * The collector is installed only to the clients with {@code aws1.<service>.metrics-enabled=true}.
+	 */
+	private void registerMetricsCollector(BeanDefinitionRegistry registry) {
+		if (registry.containsBeanDefinition(AwsClientV1MetricsCollector.BEAN_NAME)
+				|| ClassUtils.isPresent(METER_REGISTRY, beanClassLoader) == false) {
+			return;
+		}
+		RootBeanDefinition collectorBeanDef = new RootBeanDefinition(AwsClientV1MetricsCollector.class);
+		collectorBeanDef.setAutowireMode(AbstractBeanDefinition.AUTOWIRE_CONSTRUCTOR);
+		collectorBeanDef.setAutowireCandidate(false);
+		collectorBeanDef.setRole(BeanDefinition.ROLE_INFRASTRUCTURE);
+		registry.registerBeanDefinition(AwsClientV1MetricsCollector.BEAN_NAME, collectorBeanDef);
+		log.trace("Metrics collector is registered");
+	}
+	
+	/**
+	 * Register {@link AwsConnectionPoolV1Metrics} if the metrics collector is registered
+	 * or JMX is enabled, and absent.
+	 */
+	private void registerConnectionPoolMetrics(BeanDefinitionRegistry registry) {
+		if (registry.containsBeanDefinition(AwsConnectionPoolV1Metrics.BEAN_NAME)) {
 			return;
 		}
-		Class<?>[] clientClasses = attributes.getClassArray("value");
+		boolean jmxEnabled = environment != null && Binder.get(environment)
+			.bind("aws1.metrics.jmx-enabled", Boolean.class)
+			.orElse(false);
+		if (jmxEnabled == false && registry.containsBeanDefinition(AwsClientV1MetricsCollector.BEAN_NAME) == false) {
+			return;
+		}
+		ConstructorArgumentValues ctorArgs = new ConstructorArgumentValues();
+		ctorArgs.addIndexedArgumentValue(0, jmxEnabled);
+		
+		RootBeanDefinition metricsBeanDef = new RootBeanDefinition(AwsConnectionPoolV1Metrics.class);
+		metricsBeanDef.setConstructorArgumentValues(ctorArgs);
+		metricsBeanDef.setAutowireCandidate(false);
+		metricsBeanDef.setRole(BeanDefinition.ROLE_INFRASTRUCTURE);
+		registry.registerBeanDefinition(AwsConnectionPoolV1Metrics.BEAN_NAME, metricsBeanDef);
+		log.trace("Connection pool metrics is registered");
+	}
+	
+	private boolean isParallelBuild() {
+		return environment != null && Binder.get(environment)
+			.bind("aws1.startup.parallel-build", Boolean.class)
+			.orElse(false);
+	}
+	
+	/**
+	 * Register {@link AwsClientV1BuildCoordinator} which builds the coordinated clients of the annotated class.
+	 */
+	private void registerBuildCoordinator(BeanDefinitionRegistry registry, String coordinatorBeanName,
+			Map<Class<?>, BuildTarget> coordinated) {
+		int parallelism = Binder.get(environment)
+			.bind("aws1.startup.parallelism", Integer.class)
+			.orElse(Runtime.getRuntime().availableProcessors());
+		
+		ConstructorArgumentValues ctorArgs = new ConstructorArgumentValues();
+		ctorArgs.addIndexedArgumentValue(0, new RuntimeBeanReference("awsClientV1PropertiesMap"));
+		ctorArgs.addIndexedArgumentValue(1, new RuntimeBeanReference("awsS3ClientV1Properties"));
+		ctorArgs.addIndexedArgumentValue(2, coordinated);
+		ctorArgs.addIndexedArgumentValue(3, parallelism);
 		
-		Arrays.stream(clientClasses)
-			.forEach(c -> registerAwsClient(registry, c));
+		RootBeanDefinition coordinatorBeanDef = new RootBeanDefinition(AwsClientV1BuildCoordinator.class);
+		coordinatorBeanDef.setConstructorArgumentValues(ctorArgs);
+		coordinatorBeanDef.setRole(BeanDefinition.ROLE_INFRASTRUCTURE);
+		registry.registerBeanDefinition(coordinatorBeanName, coordinatorBeanDef);
+		log.trace("Build coordinator {} is registered for {} clients", coordinatorBeanName, coordinated.size());
+	}
+	
+	private AwsClientV1Configurers loadConfigurers(String annotatedClassName) {
+		String configurersClassName = getConfigurersClassName(annotatedClassName);
+		if (ClassUtils.isPresent(configurersClassName, beanClassLoader) == false) {
+			log.trace("Generated configurers {} is not found -- fall back to reflection", configurersClassName);
+			return null;
+		}
+		try {
+			Class<?> configurersClass = ClassUtils.forName(configurersClassName, beanClassLoader);
+			return (AwsClientV1Configurers) ReflectionUtils.accessibleConstructor(configurersClass).newInstance();
+		} catch (ReflectiveOperationException | ClassCastException e) {
+			log.warn("Failed to instantiate generated configurers {} -- fall back to reflection",
+					configurersClassName, e);
+			return null;
+		}
 	}
 	
-	private void registerAwsClient(BeanDefinitionRegistry registry, Class<?> clientClass) {
+	private void registerAwsClient(BeanDefinitionRegistry registry, Class<?> clientClass,
+			AwsClientV1Configurers configurers, Map<Class<?>, BuildTarget> coordinated,
+			String coordinatorBeanName, boolean defaultLazy, Set<String> propertyNames) {
 		if (clientClass.getName().startsWith("com.amazonaws.services.") == false) {
 			throw new BeanCreationException("Class " + clientClass + " is not in AWS SDK for Java v1 package.");
 		}
+		StartupSteps.Step step = StartupSteps.start(registry, "aws.client.v1.register")
+			.tag("client", clientClass.getName());
 		try {
 			log.trace("Attempt to configure AWS client: {}", clientClass);
 			if (clientClass.getName().equals(ENCRYPTION_CLIENT)
@@ -72,9 +285,31 @@ class AwsClientV1BeanDefinitionRegistrar implements ImportBeanDefinitionRegistra
 				return;
 			}
 			
-			RootBeanDefinition clientBeanDef = createAwsClientBeanDefinition(builderClass, clientClass);
-			BeanDefinitionHolder clientBDHolder = new BeanDefinitionHolder(clientBeanDef, clientClass.getName());
-			BeanDefinitionReaderUtils.registerBeanDefinition(clientBDHolder, registry);
+			AwsClientV1Configurer configurer = Optional.ofNullable(configurers)
+				.map(c -> c.get(clientClass))
+				.orElseGet(() -> new ReflectiveAwsClientV1Configurer(builderClass));
+			log.trace("Configurer for {} is {}", clientClass, configurer);
+			
+			RootBeanDefinition clientBeanDef = createAwsClientBeanDefinition(builderClass, clientClass, configurer);
+			boolean lazy = isLazy(clientClass, defaultLazy);
+			if (coordinated != null && lazy == false) {
+				coordinated.put(clientClass, new BuildTarget(builderClass, configurer));
+				clientBeanDef.getPropertyValues()
+					.add("coordinator", new RuntimeBeanReference(coordinatorBeanName));
+			}
+			if (lazy) {
+				registerLazyAwsClient(registry, clientClass, clientBeanDef);
+			} else {
+				BeanDefinitionHolder clientBDHolder = new BeanDefinitionHolder(clientBeanDef, clientClass.getName());
+				BeanDefinitionReaderUtils.registerBeanDefinition(clientBDHolder, registry);
+			}
+			AwsClientDescriptors.registerClient(registry, AwsClientDescriptor.builder()
+				.beanName(clientClass.getName())
+				.clientClass(clientClass.getName())
+				.propertyKey(AwsClientV1FactoryBean.getPropertyKey(propertyNames, clientClass))
+				.credentialsProviderBeanName(
+						bindClientProperty(clientClass, "credentials-provider-bean-name", String.class, null))
+				.build());
 			
 			log.trace("AWS client {} is configured", clientClass.getName());
 		} catch (ClassNotFoundException e) {
@@ -83,19 +318,51 @@ class AwsClientV1BeanDefinitionRegistrar implements ImportBeanDefinitionRegistra
 		} catch (IllegalStateException | UndeclaredThrowableException e) {
 			log.error("Illegal builder for the client {}", clientClass, e);
 			throw e;
+		} finally {
+			step.close();
 		}
 	}
 	
-	private RootBeanDefinition createAwsClientBeanDefinition(Class<?> builderClass, Class<?> clientClass) {
+	private RootBeanDefinition createAwsClientBeanDefinition(Class<?> builderClass, Class<?> clientClass,
+			AwsClientV1Configurer configurer) {
 		ConstructorArgumentValues ctorArgs = new ConstructorArgumentValues();
 		ctorArgs.addIndexedArgumentValue(0, builderClass);
 		ctorArgs.addIndexedArgumentValue(1, clientClass);
 		ctorArgs.addIndexedArgumentValue(2, new RuntimeBeanReference("awsClientV1PropertiesMap"));
 		ctorArgs.addIndexedArgumentValue(3, new RuntimeBeanReference("awsS3ClientV1Properties"));
+		ctorArgs.addIndexedArgumentValue(4, configurer);
 		
 		RootBeanDefinition clientBeanDef = new RootBeanDefinition(AwsClientV1FactoryBean.class);
 		clientBeanDef.setTargetType(clientClass);
 		clientBeanDef.setConstructorArgumentValues(ctorArgs);
 		return clientBeanDef;
 	}
+	
+	/**
+	 * Register the client bean as a proxy which builds the real client on the first invocation.
+	 * The real client is registered as a lazy-init bean which is not an autowire candidate.
+	 */
+	private void registerLazyAwsClient(BeanDefinitionRegistry registry, Class<?> clientClass,
+			RootBeanDefinition clientBeanDef) {
+		String targetBeanName = LAZY_TARGET_PREFIX + clientClass.getName();
+		clientBeanDef.setLazyInit(true);
+		clientBeanDef.setAutowireCandidate(false);
+		clientBeanDef.setRole(BeanDefinition.ROLE_INFRASTRUCTURE);
+		registry.registerBeanDefinition(targetBeanName, clientBeanDef);
+		
+		RootBeanDefinition targetSourceBeanDef = new RootBeanDefinition(LazyInitTargetSource.class);
+		targetSourceBeanDef.getPropertyValues()
+			.add("targetBeanName", targetBeanName)
+			.add("targetClass", clientClass);
+		
+		RootBeanDefinition proxyBeanDef = new RootBeanDefinition(ProxyFactoryBean.class);
+		proxyBeanDef.setTargetType(clientClass);
+		proxyBeanDef.getPropertyValues()
+			.add("proxyInterfaces", new Class<?>[] {
+				clientClass
+			})
+			.add("targetSource", targetSourceBeanDef);
+		registry.registerBeanDefinition(clientClass.getName(), proxyBeanDef);
+		log.trace("AWS client {} is registered as lazy proxy", clientClass.getName());
+	}
 }
@@ -0,0 +1,174 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jp.xet.springconfig.aws.v1;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.Future;
+
+import lombok.RequiredArgsConstructor;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.BeanFactoryAware;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+
+import com.amazonaws.AmazonWebServiceClient;
+
+import jp.xet.springconfig.aws.v1.AwsClientV1Configuration.AwsClientV1Properties;
+import jp.xet.springconfig.aws.v1.AwsClientV1Configuration.AwsS3ClientV1Properties;
+
+/**
+ * Coordinator which builds the AWS clients v1 registered by an annotated class concurrently at context startup.
+ *
+ * <p>The builders are configured on the calling thread, because the configuration may look up
+ * other beans. Only {@code build()} of each builder runs on a bounded {@link ForkJoinPool},
+ * and {@link AwsClientV1FactoryBean} hands out the pre-built instance.
+ * The clients which fail to be prepared are built by the factory bean as usual.</p>
+ *
+ * @author miyamoto.daisuke
+ */
+@Slf4j
+@RequiredArgsConstructor
+class AwsClientV1BuildCoordinator implements BeanFactoryAware, InitializingBean, DisposableBean {
+	
+	private static final String BEAN_NAME_PREFIX = "awsClientV1BuildCoordinator.";
+	
+	
+	/**
+	 * Get the bean name of the coordinator for the annotated class.
+	 * 
+	 * @param annotatedClassName the class name annotated with {@link EnableAwsClientV1}
+	 * @return the bean name
+	 */
+	static String getBeanName(String annotatedClassName) {
+		return BEAN_NAME_PREFIX + annotatedClassName;
+	}
+	
+	
+	private final Map<String, AwsClientV1Properties> awsClientV1PropertiesMap;
+	
+	private final AwsS3ClientV1Properties awsS3ClientV1Properties;
+	
+	private final Map<Class<?>, BuildTarget> buildTargets;
+	
+	private final int parallelism;
+	
+	private final Map<Class<?>, Future<Object>> futures = new ConcurrentHashMap<>();
+	
+	private BeanFactory beanFactory;
+	
+	
+	@Override
+	public void setBeanFactory(BeanFactory beanFactory) {
+		this.beanFactory = beanFactory;
+	}
+	
+	@Override
+	public void afterPropertiesSet() {
+		if (buildTargets.isEmpty()) {
+			return;
+		}
+		ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+		ForkJoinPool pool = new ForkJoinPool(Math.max(1, Math.min(parallelism, buildTargets.size())), p -> {
+			ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(p);
+			thread.setContextClassLoader(classLoader);
+			return thread;
+		}, null, false);
+		try {
+			buildTargets.forEach((clientClass, buildTarget) -> {
+				Object builder = prepareBuilder(clientClass, buildTarget);
+				if (builder != null) {
+					futures.put(clientClass, pool.submit(() -> buildTarget.getConfigurer().build(builder)));
+				}
+			});
+		} finally {
+			pool.shutdown();
+		}
+		log.debug("Building {} AWS clients v1 in parallel", futures.size());
+	}
+	
+	private Object prepareBuilder(Class<?> clientClass, BuildTarget buildTarget) {
+		try {
+			AwsClientV1FactoryBean<?> factoryBean = new AwsClientV1FactoryBean<>(buildTarget.getBuilderClass(),
+					clientClass, awsClientV1PropertiesMap, awsS3ClientV1Properties, buildTarget.getConfigurer());
+			factoryBean.setBeanFactory(beanFactory);
+			return factoryBean.createConfiguredBuilder();
+		} catch (BeansException | IllegalStateException e) {
+			log.debug("Failed to prepare AWS client {} -- it will be built serially", clientClass, e);
+			return null;
+		}
+	}
+	
+	/**
+	 * Get the pre-built AWS client. The client is handed out only once.
+	 *
+	 * @param clientClass AWS client class
+	 * @return AWS client, or {@code null} if the client is not built by this coordinator
+	 * @throws Exception if the build is failed
+	 */
+	Object getClient(Class<?> clientClass) throws Exception {
+		Future<Object> future = futures.remove(clientClass);
+		if (future == null) {
+			return null;
+		}
+		try {
+			return future.get();
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof Exception) {
+				throw (Exception) cause;
+			}
+			throw e;
+		}
+	}
+	
+	@Override
+	public void destroy() {
+		// close the clients which are not handed out
+		futures.values().forEach(future -> {
+			try {
+				Object client = future.get();
+				if (client instanceof AmazonWebServiceClient) {
+					((AmazonWebServiceClient) client).shutdown();
+				}
+			} catch (ExecutionException e) {
+				log.trace("Ignored build failure", e);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		});
+		futures.clear();
+	}
+	
+	
+	/**
+	 * The builder class and the configurer of AWS client to be built by the coordinator.
+	 */
+	@Value
+	static class BuildTarget {
+		
+		private Class<?> builderClass;
+		
+		private AwsClientV1Configurer configurer;
+	}
+}
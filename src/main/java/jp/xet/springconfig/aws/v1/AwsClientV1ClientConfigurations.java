@@ -0,0 +1,127 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jp.xet.springconfig.aws.v1;
+
+import java.time.Duration;
+
+import lombok.RequiredArgsConstructor;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.AmazonWebServiceRequest;
+import com.amazonaws.ClientConfiguration;
+import com.amazonaws.retry.RetryPolicy;
+import com.amazonaws.retry.RetryPolicy.BackoffStrategy;
+import com.amazonaws.retry.RetryUtils;
+
+import jp.xet.springconfig.aws.AwsRetryProperties;
+import jp.xet.springconfig.aws.AwsTimeoutProperties;
+import jp.xet.springconfig.aws.RetryBackoff;
+
+/**
+ * Merges the retry, timeout and retry budget properties into {@link ClientConfiguration} of AWS clients v1.
+ *
+ * @author miyamoto.daisuke
+ */
+class AwsClientV1ClientConfigurations {
+	
+	/**
+	 * Merge the properties into the copy of the client configuration.
+	 * 
+	 * @param clientConfiguration the client configuration, or {@code null}
+	 * @param retry the retry properties, or {@code null}
+	 * @param timeouts the timeout properties, or {@code null}
+	 * @return the merged client configuration, or {@code clientConfiguration} if nothing is merged
+	 */
+	static ClientConfiguration merge(ClientConfiguration clientConfiguration,
+			AwsRetryProperties retry, AwsTimeoutProperties timeouts) {
+		if (retry == null && timeouts == null) {
+			return clientConfiguration;
+		}
+		ClientConfiguration merged = clientConfiguration == null
+				? new ClientConfiguration()
+				: new ClientConfiguration(clientConfiguration);
+		if (retry != null) {
+			if (retry.getMaxRetries() != null) {
+				merged.setMaxErrorRetry(retry.getMaxRetries());
+			}
+			RetryBackoff backoff = retry.toBackoff();
+			RetryBackoff throttlingBackoff = retry.toThrottlingBackoff();
+			if (backoff != null || throttlingBackoff != null) {
+				RetryPolicy retryPolicy = merged.getRetryPolicy();
+				merged.setRetryPolicy(new RetryPolicy(retryPolicy.getRetryCondition(),
+						new PropertiesBackoffStrategy(retryPolicy.getBackoffStrategy(), backoff, throttlingBackoff),
+						retryPolicy.getMaxErrorRetry(), true));
+			}
+		}
+		if (timeouts != null) {
+			if (timeouts.getApiCall() != null) {
+				merged.setClientExecutionTimeout(toMillis(timeouts.getApiCall()));
+			}
+			if (timeouts.getApiCallAttempt() != null) {
+				merged.setRequestTimeout(toMillis(timeouts.getApiCallAttempt()));
+			}
+		}
+		return merged;
+	}
+	
+	/**
+	 * Apply the retry budget to the retry policy of the copy of the client configuration.
+	 *
+	 * @param clientConfiguration the client configuration, or {@code null}
+	 * @param retryBudgetHandler the retry budget handler
+	 * @return the client configuration
+	 */
+	static ClientConfiguration addRetryBudget(ClientConfiguration clientConfiguration,
+			AwsClientV1RetryBudgetHandler retryBudgetHandler) {
+		ClientConfiguration merged = clientConfiguration == null
+				? new ClientConfiguration()
+				: new ClientConfiguration(clientConfiguration);
+		merged.setRetryPolicy(retryBudgetHandler.apply(merged.getRetryPolicy()));
+		return merged;
+	}
+	
+	private static int toMillis(Duration duration) {
+		return (int) Math.min(duration.toMillis(), Integer.MAX_VALUE);
+	}
+	
+	
+	/**
+	 * {@link BackoffStrategy} which chooses the backoff by whether the error is throttling,
+	 * and falls back to the original strategy of the retry policy.
+	 */
+	@RequiredArgsConstructor
+	private static class PropertiesBackoffStrategy implements BackoffStrategy {
+		
+		private final BackoffStrategy original;
+		
+		private final RetryBackoff backoff;
+		
+		private final RetryBackoff throttlingBackoff;
+		
+		
+		@Override
+		public long delayBeforeNextRetry(AmazonWebServiceRequest originalRequest,
+				AmazonClientException exception, int retriesAttempted) {
+			RetryBackoff selected = exception != null && RetryUtils.isThrottlingException(exception)
+					? throttlingBackoff
+					: backoff;
+			if (selected == null) {
+				return original.delayBeforeNextRetry(originalRequest, exception, retriesAttempted);
+			}
+			return selected.computeDelay(retriesAttempted).toMillis();
+		}
+	}
+}
@@ -19,13 +19,24 @@ import java.util.HashMap;
 
 import lombok.Data;
 
+import org.springframework.beans.factory.InitializingBean;
 import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.BindHandler;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.context.properties.bind.handler.IgnoreErrorsBindHandler;
+import org.springframework.context.EnvironmentAware;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
 
 import com.amazonaws.ClientConfiguration;
 import com.amazonaws.client.builder.AwsClientBuilder.EndpointConfiguration;
 
+import jp.xet.springconfig.aws.AwsRetryBudgetProperties;
+import jp.xet.springconfig.aws.AwsRetryProperties;
+import jp.xet.springconfig.aws.AwsTimeoutProperties;
+
 /**
  * Spring configuration for AWS Clients.
  * 
@@ -40,8 +51,25 @@ import com.amazonaws.client.builder.AwsClientBuilder.EndpointConfiguration;
  *         This will be used to determine both the service endpoint (eg: https://sns.us-west-1.amazonaws.com)
  *         and signing region (eg: us-west-1) for requests.
  *         This value is used only if any endpoint configuration is not set. (string)</li>
+ *     <li>{@code aws1.<service-package-name>[-async].retry.<property>} - The retry policy merged into
+ *         the {@link ClientConfiguration}: {@code max-retries}, {@code base-delay}, {@code max-backoff},
+ *         {@code jitter} ({@code full}, {@code equal} or {@code decorrelated}), {@code throttling-base-delay}
+ *         and {@code throttling-max-backoff}.</li>
+ *     <li>{@code aws1.<service-package-name>[-async].retry-budget.<property>} - The budget which limits
+ *         the retries to a ratio of the recent successful calls: {@code enabled}, {@code shared}, {@code ratio},
+ *         {@code min-retries-per-second} and {@code window}.</li>
+ *     <li>{@code aws1.<service-package-name>[-async].timeouts.api-call} and {@code timeouts.api-call-attempt} -
+ *         The client execution timeout and the request timeout. (duration)</li>
+ *     <li>{@code aws1.<service-package-name>[-async].lazy} - Defer building the client until its first invocation.
+ *         Overrides {@link EnableAwsClientV1#lazy()}. (boolean)</li>
+ *     <li>{@code aws1.<service-package-name>[-async].metrics-enabled} - Publish the request metrics of the client
+ *         to Micrometer if a unique {@code MeterRegistry} bean exists. (boolean)</li>
+ *     <li>{@code aws1.metrics.jmx-enabled} - Register the connection pool of the clients whose metrics are enabled
+ *         as an MBean. (boolean)</li>
  * </ul>
  * 
+ * <p>The properties under {@code aws1.default} are inherited by the properties of each service.</p>
+ * 
  * <h3>S3 client specific configurations.</h3>
  * 
  * <ul>
@@ -75,9 +103,48 @@ class AwsClientV1Configuration {
 	}
 	
 	
+	/**
+	 * The key of the default properties which are inherited by the properties of each service.
+	 */
+	static final String DEFAULT_KEY = "default";
+	
+	
+	/**
+	 * Properties map keyed by the service name.
+	 * 
+	 * <p>After binding, each entry is rebound on top of {@code aws1.default.*},
+	 * so that the nested properties are deep-merged once at startup.</p>
+	 */
 	@SuppressWarnings("serial")
 	@ConfigurationProperties(value = "aws1", ignoreInvalidFields = true)
-	private static class AwsClientV1PropertiesMap extends HashMap<String, AwsClientV1Properties> {
+	private static class AwsClientV1PropertiesMap extends HashMap<String, AwsClientV1Properties>
+			implements EnvironmentAware, InitializingBean {
+		
+		private transient Environment environment;
+		
+		
+		@Override
+		public void setEnvironment(Environment environment) {
+			this.environment = environment;
+		}
+		
+		@Override
+		public void afterPropertiesSet() {
+			if (environment == null || containsKey(DEFAULT_KEY) == false) {
+				return;
+			}
+			Binder binder = Binder.get(environment);
+			BindHandler bindHandler = new IgnoreErrorsBindHandler();
+			replaceAll((key, properties) -> {
+				if (key.equals(DEFAULT_KEY)) {
+					return properties;
+				}
+				AwsClientV1Properties merged = new AwsClientV1Properties();
+				binder.bind("aws1." + DEFAULT_KEY, Bindable.ofInstance(merged), bindHandler);
+				binder.bind("aws1." + key, Bindable.ofInstance(merged), bindHandler);
+				return merged;
+			});
+		}
 	}
 	
 	@Data
@@ -91,6 +158,16 @@ class AwsClientV1Configuration {
 		
 		private String credentialsProviderBeanName;
 		
+		private AwsRetryProperties retry;
+		
+		private AwsRetryBudgetProperties retryBudget;
+		
+		private AwsTimeoutProperties timeouts;
+		
+		private Boolean lazy;
+		
+		private Boolean metricsEnabled;
+		
 		
 		EndpointConfiguration getEndpoint() {
 			return endpoint == null ? null : endpoint.toEndpointConfiguration();
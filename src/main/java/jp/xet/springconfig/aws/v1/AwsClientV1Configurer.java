@@ -0,0 +1,72 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jp.xet.springconfig.aws.v1;
+
+import com.amazonaws.ClientConfiguration;
+import com.amazonaws.auth.AWSCredentialsProvider;
+import com.amazonaws.client.builder.AwsClientBuilder.EndpointConfiguration;
+import com.amazonaws.metrics.RequestMetricCollector;
+
+/**
+ * Configurer of the builder for a specific AWS client v1 class.
+ * 
+ * <p>Internal use only. The implementations are generated by aws-client-spring-boot-configuration-processor
+ * to call the builder methods directly. If the generated configurer is not found,
+ * the builder is configured by reflection.</p>
+ *
+ * @author miyamoto.daisuke
+ * @since #version#
+ */
+@SuppressWarnings("javadoc")
+public interface AwsClientV1Configurer {
+	
+	/**
+	 * Create AWS client builder.
+	 * 
+	 * @return AWS client builder
+	 */
+	Object createBuilder();
+	
+	void configureRegion(Object builder, String region);
+	
+	void configureEndpointConfiguration(Object builder, EndpointConfiguration endpointConfiguration);
+	
+	void configureClientConfiguration(Object builder, ClientConfiguration clientConfiguration);
+	
+	void configureCredentialsProvider(Object builder, AWSCredentialsProvider credentialsProvider);
+	
+	void configureMetricsCollector(Object builder, RequestMetricCollector metricsCollector);
+	
+	/**
+	 * Configure {@code AmazonS3Builder} specific options. This method is called only for S3 client builders.
+	 */
+	void configureS3Options(Object builder, Boolean pathStyleAccessEnabled, Boolean chunkedEncodingDisabled,
+			Boolean accelerateModeEnabled, Boolean payloadSigningEnabled, Boolean dualstackEnabled,
+			Boolean forceGlobalBucketAccessEnabled);
+	
+	/**
+	 * Configure {@code EncryptionMaterialsProvider}. This method is called only for S3 encryption client builder.
+	 */
+	void configureEncryptionMaterials(Object builder, Object encryptionMaterialsProvider);
+	
+	/**
+	 * Build AWS client.
+	 * 
+	 * @param builder AWS client builder
+	 * @return AWS client
+	 */
+	Object build(Object builder);
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jp.xet.springconfig.aws.v1;
+
+import static jp.xet.springconfig.aws.InternalReflectionUtil.getField;
+import static jp.xet.springconfig.aws.InternalReflectionUtil.invokeMethod;
+
+import java.util.Objects;
+
+import lombok.extern.slf4j.Slf4j;
+
+import com.amazonaws.ClientConfiguration;
+
+import jp.xet.springconfig.aws.AwsClientDescriptor;
+
+/**
+ * Reads the effective configuration of the built AWS client v1 for {@link AwsClientDescriptor}.
+ *
+ * <p>The values are read from {@code AmazonWebServiceClient}, whose fields are not exposed.
+ * The values which can not be read are left unset.</p>
+ *
+ * @author miyamoto.daisuke
+ */
+@Slf4j
+class AwsClientV1Descriptions {
+	
+	/**
+	 * Describe the effective configuration of the client.
+	 *
+	 * @param builder the descriptor builder to be filled
+	 * @param client the built client
+	 * @return the descriptor builder
+	 */
+	static AwsClientDescriptor.AwsClientDescriptorBuilder describe(
+			AwsClientDescriptor.AwsClientDescriptorBuilder builder, Object client) {
+		// AWS SDK for Java v1 always uses Apache HttpComponents
+		builder.httpClientType("APACHE");
+		try {
+			builder.region(invokeMethod(client, "getSigningRegion"))
+				.endpoint(Objects.toString(getField(client, "endpoint"), null));
+			ClientConfiguration clientConfiguration = getField(client, "clientConfiguration");
+			builder.maxConnections(clientConfiguration.getMaxConnections());
+		} catch (IllegalStateException | ClassCastException e) {
+			log.debug("Failed to read the configuration of {}", client.getClass(), e);
+		}
+		return builder;
+	}
+}
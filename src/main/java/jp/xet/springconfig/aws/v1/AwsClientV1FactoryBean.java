@@ -15,25 +15,29 @@
  */
 package jp.xet.springconfig.aws.v1;
 
-import static jp.xet.springconfig.aws.InternalReflectionUtil.invokeMethod;
-import static jp.xet.springconfig.aws.v1.AwsClientV1Util.build;
-import static jp.xet.springconfig.aws.v1.AwsClientV1Util.configureClientConfiguration;
-import static jp.xet.springconfig.aws.v1.AwsClientV1Util.configureCredentialsProvider;
-import static jp.xet.springconfig.aws.v1.AwsClientV1Util.configureEndpointConfiguration;
-import static jp.xet.springconfig.aws.v1.AwsClientV1Util.configureRegion;
-import static jp.xet.springconfig.aws.v1.AwsClientV1Util.createBuilder;
-
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Supplier;
 
 import lombok.RequiredArgsConstructor;
+import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 
 import org.springframework.beans.factory.BeanFactory;
 import org.springframework.beans.factory.config.AbstractFactoryBean;
+import org.springframework.util.StopWatch;
 
+import com.amazonaws.ClientConfiguration;
 import com.amazonaws.auth.AWSCredentialsProvider;
+import com.amazonaws.metrics.RequestMetricCollector;
 
+import jp.xet.springconfig.aws.AwsClientDescriptor;
+import jp.xet.springconfig.aws.AwsClientDescriptors;
+import jp.xet.springconfig.aws.AwsRetryBudgetProperties;
+import jp.xet.springconfig.aws.RetryBudget;
+import jp.xet.springconfig.aws.RetryBudgets;
+import jp.xet.springconfig.aws.StartupSteps;
 import jp.xet.springconfig.aws.v1.AwsClientV1Configuration.AwsClientV1Properties;
 import jp.xet.springconfig.aws.v1.AwsClientV1Configuration.AwsS3ClientV1Properties;
 
@@ -47,29 +51,55 @@ import jp.xet.springconfig.aws.v1.AwsClientV1Configuration.AwsS3ClientV1Properti
 @RequiredArgsConstructor
 class AwsClientV1FactoryBean<T>extends AbstractFactoryBean<T> {
 	
-	private static final String S3_BUILDER = "com.amazonaws.services.s3.AmazonS3Builder";
-	
 	private static final String ENCRYPTION_CLIENT_BUILDER = "com.amazonaws.services.s3.AmazonS3EncryptionClientBuilder";
 	
 	static final String ENCRYPTION_MATERIALS_PROVIDER =
 			"com.amazonaws.services.s3.model.EncryptionMaterialsProvider";
 	
 	
-	private static AwsClientV1Properties getAwsClientProperties(
-			Map<String, AwsClientV1Properties> map, Class<?> clientClass) {
+	/**
+	 * Get the property name of the client, which is {@code <service-package-name>[-async]}.
+	 * 
+	 * @param clientClass AWS client class
+	 * @return the property name
+	 */
+	static String getPropertyName(Class<?> clientClass) {
 		try {
 			String servicePackageName = clientClass.getPackage().getName()
 				.substring("com.amazonaws.services.".length())
 				.replace('.', '-');
 			String serviceNameSuffix = clientClass.getName().endsWith("Async") ? "-async" : "";
 			
-			return map.get(servicePackageName + serviceNameSuffix);
+			return servicePackageName + serviceNameSuffix;
 		} catch (IndexOutOfBoundsException e) {
 			log.error("Failed to get property name: {}", clientClass);
 			throw e;
 		}
 	}
 	
+	/**
+	 * Get the key of the properties applied to the client.
+	 * 
+	 * @param propertyNames the names of the configured properties
+	 * @param clientClass AWS client class
+	 * @return {@code aws1.<service-package-name>[-async]} or {@code aws1.default},
+	 *     or {@code null} if no properties are applied
+	 */
+	static String getPropertyKey(Set<String> propertyNames, Class<?> clientClass) {
+		String propertyName = getPropertyName(clientClass);
+		if (propertyNames.contains(propertyName)) {
+			return "aws1." + propertyName;
+		}
+		return propertyNames.contains(AwsClientV1Configuration.DEFAULT_KEY)
+				? "aws1." + AwsClientV1Configuration.DEFAULT_KEY : null;
+	}
+	
+	private static AwsClientV1Properties getAwsClientProperties(
+			Map<String, AwsClientV1Properties> map, Class<?> clientClass) {
+		AwsClientV1Properties properties = map.get(getPropertyName(clientClass));
+		return properties != null ? properties : map.get(AwsClientV1Configuration.DEFAULT_KEY);
+	}
+	
 	
 	private final Class<?> builderClass;
 	
@@ -79,6 +109,11 @@ class AwsClientV1FactoryBean<T>extends AbstractFactoryBean<T> {
 	
 	private final AwsS3ClientV1Properties awsS3ClientV1Properties;
 	
+	private final AwsClientV1Configurer configurer;
+	
+	@Setter
+	private AwsClientV1BuildCoordinator coordinator;
+	
 	
 	@Override
 	public Class<?> getObjectType() {
@@ -86,10 +121,80 @@ class AwsClientV1FactoryBean<T>extends AbstractFactoryBean<T> {
 	}
 	
 	@Override
+	@SuppressWarnings("unchecked")
 	protected T createInstance() throws Exception {
-		Object builder = createBuilder(builderClass);
+		StartupSteps.Step step = StartupSteps.start(getBeanFactory(), "aws.client.v1.create")
+			.tag("client", clientClass.getName());
+		try {
+			StopWatch stopWatch = new StopWatch();
+			stopWatch.start();
+			Object client = coordinator == null ? null : coordinator.getClient(clientClass);
+			if (client == null) {
+				Object builder = createConfiguredBuilder();
+				client = callStep("build", () -> configurer.build(builder));
+			}
+			stopWatch.stop();
+			recordDescriptor(client, stopWatch.getTotalTimeMillis());
+			return (T) registerConnectionPoolMetrics(client);
+		} finally {
+			step.close();
+		}
+	}
+	
+	private <R> R callStep(String phase, Supplier<R> action) {
+		StartupSteps.Step step = StartupSteps.start(getBeanFactory(), "aws.client.v1.create." + phase)
+			.tag("client", clientClass.getName());
+		try {
+			return action.get();
+		} finally {
+			step.close();
+		}
+	}
+	
+	private void runStep(String phase, Runnable action) {
+		callStep(phase, () -> {
+			action.run();
+			return null;
+		});
+	}
+	
+	private void recordDescriptor(Object client, long buildTimeMillis) {
+		BeanFactory beanFactory = getBeanFactory();
+		if (beanFactory == null || beanFactory.containsBean(AwsClientDescriptors.BEAN_NAME) == false) {
+			return;
+		}
+		AwsClientV1Properties config = getAwsClientProperties(awsClientV1PropertiesMap, clientClass);
+		AwsClientDescriptor.AwsClientDescriptorBuilder builder = AwsClientDescriptor.builder()
+			.beanName(clientClass.getName())
+			.clientClass(clientClass.getName())
+			.propertyKey(getPropertyKey(awsClientV1PropertiesMap.keySet(), clientClass))
+			.credentialsProviderBeanName(config == null ? null : config.getCredentialsProviderBeanName())
+			.built(true)
+			.buildTimeMillis(buildTimeMillis);
+		beanFactory.getBean(AwsClientDescriptors.BEAN_NAME, AwsClientDescriptors.class)
+			.record(AwsClientV1Descriptions.describe(builder, client).build());
+	}
+	
+	private Object registerConnectionPoolMetrics(Object client) {
+		BeanFactory beanFactory = getBeanFactory();
+		AwsClientV1Properties config = getAwsClientProperties(awsClientV1PropertiesMap, clientClass);
+		if (beanFactory != null && config != null && Boolean.TRUE.equals(config.getMetricsEnabled())
+				&& beanFactory.containsBean(AwsConnectionPoolV1Metrics.BEAN_NAME)) {
+			beanFactory.getBean(AwsConnectionPoolV1Metrics.BEAN_NAME, AwsConnectionPoolV1Metrics.class)
+				.register(clientClass.getName(), client);
+		}
+		return client;
+	}
+	
+	/**
+	 * Create AWS client builder which is configured by the properties.
+	 * 
+	 * @return AWS client builder
+	 */
+	Object createConfiguredBuilder() {
+		Object builder = callStep("builder", configurer::createBuilder);
 		configureBuilder(builder);
-		return build(builder);
+		return builder;
 	}
 	
 	private void configureBuilder(Object builder) {
@@ -99,7 +204,7 @@ class AwsClientV1FactoryBean<T>extends AbstractFactoryBean<T> {
 		}
 		
 		if (builderClass.getName().startsWith("com.amazonaws.services.s3.")) {
-			configureAmazonS3ClientBuilder(builder);
+			runStep("s3-options", () -> configureAmazonS3ClientBuilder(builder));
 		}
 		
 		AwsClientV1Properties config = getAwsClientProperties(awsClientV1PropertiesMap, clientClass);
@@ -107,45 +212,82 @@ class AwsClientV1FactoryBean<T>extends AbstractFactoryBean<T> {
 			return;
 		}
 		
-		Optional.ofNullable(config.getCredentialsProviderBeanName())
+		runStep("credentials", () -> Optional.ofNullable(config.getCredentialsProviderBeanName())
 			.ifPresent(credentialsProviderBeanName -> {
-				AWSCredentialsProvider credentialsProvider =
-						beanFactory.getBean(credentialsProviderBeanName, AWSCredentialsProvider.class);
-				configureCredentialsProvider(builder, credentialsProvider);
-			});
+				Object bean = beanFactory.getBean(credentialsProviderBeanName);
+				// a v2 provider, e.g. defined by aws2.credentials.<name>.*, is adapted to v1
+				AWSCredentialsProvider credentialsProvider = bean instanceof AWSCredentialsProvider
+						? (AWSCredentialsProvider) bean
+						: AwsCredentialsV1Adapter.adapt(bean);
+				configurer.configureCredentialsProvider(builder, credentialsProvider);
+			}));
 		
-		configureClientConfiguration(builder, config.getClient());
-		configureEndpointConfiguration(builder, config.getEndpoint());
+		if (Boolean.TRUE.equals(config.getMetricsEnabled())) {
+			configureMetricsCollector(builder, beanFactory);
+		}
+		
+		runStep("client-configuration", () -> {
+			ClientConfiguration clientConfiguration =
+					AwsClientV1ClientConfigurations.merge(config.getClient(), config.getRetry(), config.getTimeouts());
+			AwsRetryBudgetProperties retryBudget = config.getRetryBudget();
+			if (retryBudget != null && Boolean.TRUE.equals(retryBudget.getEnabled())) {
+				AwsClientV1RetryBudgetHandler retryBudgetHandler =
+						new AwsClientV1RetryBudgetHandler(getRetryBudget(retryBudget, config.getRegion(), beanFactory));
+				clientConfiguration = AwsClientV1ClientConfigurations.addRetryBudget(clientConfiguration,
+						retryBudgetHandler);
+				AwsClientV1Util.addRequestHandler(builder, retryBudgetHandler);
+			}
+			configurer.configureClientConfiguration(builder, clientConfiguration);
+		});
+		configurer.configureEndpointConfiguration(builder, config.getEndpoint());
 		if (config.getEndpoint() == null) {
-			configureRegion(builder, config.getRegion());
+			configurer.configureRegion(builder, config.getRegion());
 		}
 	}
 	
-	private void configureAmazonS3ClientBuilder(Object builder) {
-		try {
-			if (Class.forName(S3_BUILDER).isAssignableFrom(builder.getClass())) {
-				invokeMethod(builder, "setPathStyleAccessEnabled", awsS3ClientV1Properties.getPathStyleAccessEnabled());
-				invokeMethod(builder, "setChunkedEncodingDisabled",
-						awsS3ClientV1Properties.getChunkedEncodingDisabled());
-				invokeMethod(builder, "setAccelerateModeEnabled", awsS3ClientV1Properties.getAccelerateModeEnabled());
-				invokeMethod(builder, "setPayloadSigningEnabled", awsS3ClientV1Properties.getPayloadSigningEnabled());
-				invokeMethod(builder, "setDualstackEnabled", awsS3ClientV1Properties.getDualstackEnabled());
-				invokeMethod(builder, "setForceGlobalBucketAccessEnabled",
-						awsS3ClientV1Properties.getForceGlobalBucketAccessEnabled());
-			}
-		} catch (ClassNotFoundException e) {
-			log.debug(S3_BUILDER + " is not found in classpath -- ignored", e);
+	private RetryBudget getRetryBudget(AwsRetryBudgetProperties retryBudget, String region, BeanFactory beanFactory) {
+		RetryBudget budget;
+		if (Boolean.TRUE.equals(retryBudget.getShared()) == false
+				|| beanFactory.containsBean(RetryBudgets.BEAN_NAME) == false) {
+			budget = RetryBudgets.create(clientClass.getName(), retryBudget);
+		} else {
+			String serviceName = getPropertyName(clientClass).replaceFirst("-async$", "");
+			budget = beanFactory.getBean(RetryBudgets.BEAN_NAME, RetryBudgets.class)
+				.getBudget("aws1." + serviceName + "@" + region, retryBudget);
+		}
+		if (beanFactory.containsBean(AwsClientV1MetricsCollector.BEAN_NAME)) {
+			beanFactory.getBean(AwsClientV1MetricsCollector.BEAN_NAME, AwsClientV1MetricsCollector.class)
+				.bindRetryBudget(budget);
+		}
+		return budget;
+	}
+	
+	private void configureMetricsCollector(Object builder, BeanFactory beanFactory) {
+		if (beanFactory.containsBean(AwsClientV1MetricsCollector.BEAN_NAME) == false) {
+			log.warn("Metrics of {} are not collected -- Micrometer is not found in classpath", clientClass);
+			return;
+		}
+		RequestMetricCollector metricsCollector =
+				beanFactory.getBean(AwsClientV1MetricsCollector.BEAN_NAME, RequestMetricCollector.class);
+		if (metricsCollector.isEnabled()) {
+			configurer.configureMetricsCollector(builder, metricsCollector);
 		}
+	}
+	
+	private void configureAmazonS3ClientBuilder(Object builder) {
+		configurer.configureS3Options(builder,
+				awsS3ClientV1Properties.getPathStyleAccessEnabled(),
+				awsS3ClientV1Properties.getChunkedEncodingDisabled(),
+				awsS3ClientV1Properties.getAccelerateModeEnabled(),
+				awsS3ClientV1Properties.getPayloadSigningEnabled(),
+				awsS3ClientV1Properties.getDualstackEnabled(),
+				awsS3ClientV1Properties.getForceGlobalBucketAccessEnabled());
 		
 		if (builderClass.getName().equals(ENCRYPTION_CLIENT_BUILDER)) {
 			BeanFactory beanFactory = getBeanFactory();
 			if (beanFactory != null && beanFactory.containsBean(ENCRYPTION_MATERIALS_PROVIDER)) {
-				try {
-					Object encryptionMaterial = beanFactory.getBean(ENCRYPTION_MATERIALS_PROVIDER);
-					invokeMethod(builder, "setEncryptionMaterials", encryptionMaterial);
-				} catch (IllegalStateException e) {
-					log.warn(ENCRYPTION_MATERIALS_PROVIDER + " is not found in classpath -- ignored", e);
-				}
+				Object encryptionMaterial = beanFactory.getBean(ENCRYPTION_MATERIALS_PROVIDER);
+				configurer.configureEncryptionMaterials(builder, encryptionMaterial);
 			}
 		}
 	}
@@ -0,0 +1,272 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jp.xet.springconfig.aws.v1;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.ObjectProvider;
+
+import com.amazonaws.Request;
+import com.amazonaws.Response;
+import com.amazonaws.metrics.RequestMetricCollector;
+import com.amazonaws.util.AWSRequestMetrics;
+import com.amazonaws.util.AWSRequestMetrics.Field;
+import com.amazonaws.util.TimingInfo;
+
+import jp.xet.springconfig.aws.ConnectionPoolMetrics;
+import jp.xet.springconfig.aws.RetryBudget;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * {@link RequestMetricCollector} which publishes {@link AWSRequestMetrics} of each request to Micrometer.
+ *
+ * <ul>
+ *     <li>{@code aws.client.call} - Timer of {@code ClientExecuteTime}, tagged by {@code outcome}.</li>
+ *     <li>{@code aws.client.call.marshalling} - Timer of {@code RequestMarshallTime}.</li>
+ *     <li>{@code aws.client.call.signing} - Timer of {@code RequestSigningTime}.</li>
+ *     <li>{@code aws.client.call.attempt} - Timer of {@code HttpRequestTime} of each attempt.</li>
+ *     <li>{@code aws.client.call.send} - Timer of {@code HttpClientSendRequestTime}.</li>
+ *     <li>{@code aws.client.call.response.processing} - Timer of {@code ResponseProcessingTime}.</li>
+ *     <li>{@code aws.client.call.retry.pause} - Timer of {@code RetryPauseTime}.</li>
+ *     <li>{@code aws.client.call.retries} - Counter of {@code HttpClientRetryCount}.</li>
+ *     <li>{@code aws.client.call.throttles} - Counter of {@code ThrottleException}.</li>
+ *     <li>{@code aws.client.connection.pool.leased} - Distribution of {@code HttpClientPoolLeasedCount}.</li>
+ *     <li>{@code aws.client.connection.pool.pending} - Distribution of {@code HttpClientPoolPendingCount}.</li>
+ *     <li>{@code aws.client.call.errors} - Counter of the failed calls, tagged by {@code error.code}.</li>
+ * </ul>
+ *
+ * <p>All the meters are tagged by {@code service} and {@code operation}, and resolved only once
+ * for each request class. The number of {@code error.code} tags is bounded for each operation.</p>
+ *
+ * @author miyamoto.daisuke
+ */
+@Slf4j
+@RequiredArgsConstructor
+class AwsClientV1MetricsCollector extends RequestMetricCollector implements InitializingBean {
+	
+	static final String BEAN_NAME = "awsClientV1MetricsCollector";
+	
+	private static final int MAX_ERROR_CODES = 32;
+	
+	private static final String OTHER = "OTHER";
+	
+	
+	private final ObjectProvider<MeterRegistry> meterRegistryProvider;
+	
+	private final Map<Class<?>, OperationMeters> meters = new ConcurrentHashMap<>();
+	
+	private MeterRegistry meterRegistry;
+	
+	
+	@Override
+	public void afterPropertiesSet() {
+		meterRegistry = meterRegistryProvider.getIfUnique();
+		if (meterRegistry == null) {
+			log.debug("Unique MeterRegistry is not found -- AWS client metrics are disabled");
+		}
+	}
+	
+	@Override
+	public boolean isEnabled() {
+		return meterRegistry != null;
+	}
+	
+	/**
+	 * Bind the gauges of the connection pool to the registry if enabled.
+	 *
+	 * @param connectionPoolMetrics the connection pool metrics
+	 */
+	void bindConnectionPool(ConnectionPoolMetrics connectionPoolMetrics) {
+		if (isEnabled()) {
+			connectionPoolMetrics.bindTo(meterRegistry);
+		}
+	}
+	
+	/**
+	 * Bind the meters of the retry budget to the registry if enabled.
+	 *
+	 * @param retryBudget the retry budget
+	 */
+	void bindRetryBudget(RetryBudget retryBudget) {
+		if (isEnabled()) {
+			retryBudget.bindTo(meterRegistry);
+		}
+	}
+	
+	@Override
+	public void collectMetrics(Request<?> request, Response<?> response) {
+		if (isEnabled() == false || request.getOriginalRequest() == null) {
+			return;
+		}
+		AWSRequestMetrics requestMetrics = request.getAWSRequestMetrics();
+		TimingInfo timingInfo = requestMetrics == null ? null : requestMetrics.getTimingInfo();
+		if (timingInfo == null) {
+			return;
+		}
+		OperationMeters operationMeters = getOperationMeters(request);
+		
+		if (timingInfo.isEndTimeKnown()) {
+			Timer timer = response != null ? operationMeters.success : operationMeters.failure;
+			timer.record(timingInfo.getEndTimeNano() - timingInfo.getStartTimeNano(), TimeUnit.NANOSECONDS);
+		}
+		record(operationMeters.marshalling, timingInfo, Field.RequestMarshallTime);
+		record(operationMeters.signing, timingInfo, Field.RequestSigningTime);
+		record(operationMeters.attempt, timingInfo, Field.HttpRequestTime);
+		record(operationMeters.send, timingInfo, Field.HttpClientSendRequestTime);
+		record(operationMeters.responseProcessing, timingInfo, Field.ResponseProcessingTime);
+		record(operationMeters.retryPause, timingInfo, Field.RetryPauseTime);
+		increment(operationMeters.retries, timingInfo, Field.HttpClientRetryCount);
+		increment(operationMeters.throttles, timingInfo, Field.ThrottleException);
+		record(operationMeters.poolLeased, timingInfo, Field.HttpClientPoolLeasedCount);
+		record(operationMeters.poolPending, timingInfo, Field.HttpClientPoolPendingCount);
+		
+		if (response == null) {
+			operationMeters.getErrorCounter(getErrorCode(requestMetrics)).increment();
+		}
+	}
+	
+	private OperationMeters getOperationMeters(Request<?> request) {
+		Class<?> requestClass = request.getOriginalRequest().getClass();
+		OperationMeters operationMeters = meters.get(requestClass);
+		if (operationMeters != null) {
+			return operationMeters;
+		}
+		String operationName = requestClass.getSimpleName().replaceFirst("Request$", "");
+		return meters.computeIfAbsent(requestClass, k -> new OperationMeters(meterRegistry, Tags.of(
+				"service", String.valueOf(request.getServiceName()),
+				"operation", operationName)));
+	}
+	
+	private static void record(Timer timer, TimingInfo timingInfo, Field field) {
+		List<TimingInfo> subMeasurements = timingInfo.getAllSubMeasurements(field.name());
+		if (subMeasurements == null) {
+			return;
+		}
+		for (int i = 0; i < subMeasurements.size(); i++) {
+			TimingInfo subMeasurement = subMeasurements.get(i);
+			if (subMeasurement.isEndTimeKnown()) {
+				timer.record(subMeasurement.getEndTimeNano() - subMeasurement.getStartTimeNano(),
+						TimeUnit.NANOSECONDS);
+			}
+		}
+	}
+	
+	private static void record(DistributionSummary summary, TimingInfo timingInfo, Field field) {
+		Number value = timingInfo.getCounter(field.name());
+		if (value != null) {
+			summary.record(value.doubleValue());
+		}
+	}
+	
+	private static void increment(Counter counter, TimingInfo timingInfo, Field field) {
+		Number value = timingInfo.getCounter(field.name());
+		if (value != null && value.longValue() > 0) {
+			counter.increment(value.doubleValue());
+		}
+	}
+	
+	private static String getErrorCode(AWSRequestMetrics requestMetrics) {
+		List<Object> errorCodes = requestMetrics.getProperty(Field.AWSErrorCode);
+		if (errorCodes != null && errorCodes.isEmpty() == false) {
+			return String.valueOf(errorCodes.get(errorCodes.size() - 1));
+		}
+		List<Object> exceptions = requestMetrics.getProperty(Field.Exception);
+		if (exceptions != null && exceptions.isEmpty() == false) {
+			return exceptions.get(exceptions.size() - 1).getClass().getSimpleName();
+		}
+		return OTHER;
+	}
+	
+	
+	/**
+	 * Pre-resolved meters of an operation.
+	 */
+	private static class OperationMeters {
+		
+		private final MeterRegistry meterRegistry;
+		
+		private final Tags tags;
+		
+		private final Timer success;
+		
+		private final Timer failure;
+		
+		private final Timer marshalling;
+		
+		private final Timer signing;
+		
+		private final Timer attempt;
+		
+		private final Timer send;
+		
+		private final Timer responseProcessing;
+		
+		private final Timer retryPause;
+		
+		private final Counter retries;
+		
+		private final Counter throttles;
+		
+		private final DistributionSummary poolLeased;
+		
+		private final DistributionSummary poolPending;
+		
+		private final Map<String, Counter> errors = new ConcurrentHashMap<>();
+		
+		
+		OperationMeters(MeterRegistry meterRegistry, Tags tags) {
+			this.meterRegistry = meterRegistry;
+			this.tags = tags;
+			success = Timer.builder("aws.client.call").tags(tags).tag("outcome", "SUCCESS").register(meterRegistry);
+			failure = Timer.builder("aws.client.call").tags(tags).tag("outcome", "FAILURE").register(meterRegistry);
+			marshalling = Timer.builder("aws.client.call.marshalling").tags(tags).register(meterRegistry);
+			signing = Timer.builder("aws.client.call.signing").tags(tags).register(meterRegistry);
+			attempt = Timer.builder("aws.client.call.attempt").tags(tags).register(meterRegistry);
+			send = Timer.builder("aws.client.call.send").tags(tags).register(meterRegistry);
+			responseProcessing = Timer.builder("aws.client.call.response.processing").tags(tags).register(meterRegistry);
+			retryPause = Timer.builder("aws.client.call.retry.pause").tags(tags).register(meterRegistry);
+			retries = Counter.builder("aws.client.call.retries").tags(tags).register(meterRegistry);
+			throttles = Counter.builder("aws.client.call.throttles").tags(tags).register(meterRegistry);
+			poolLeased = DistributionSummary.builder("aws.client.connection.pool.leased").tags(tags)
+				.register(meterRegistry);
+			poolPending = DistributionSummary.builder("aws.client.connection.pool.pending").tags(tags)
+				.register(meterRegistry);
+		}
+		
+		Counter getErrorCounter(String errorCode) {
+			Counter counter = errors.get(errorCode);
+			if (counter != null) {
+				return counter;
+			}
+			String tag = errors.size() < MAX_ERROR_CODES ? errorCode : OTHER;
+			return errors.computeIfAbsent(tag, k -> Counter.builder("aws.client.call.errors").tags(tags)
+				.tag("error.code", k)
+				.register(meterRegistry));
+		}
+	}
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jp.xet.springconfig.aws.v1;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import com.amazonaws.Request;
+import com.amazonaws.Response;
+import com.amazonaws.handlers.RequestHandler2;
+import com.amazonaws.retry.RetryPolicy;
+import com.amazonaws.retry.RetryPolicy.RetryCondition;
+
+import jp.xet.springconfig.aws.RetryBudget;
+
+/**
+ * {@link RequestHandler2} which limits the retries by {@link RetryBudget}.
+ *
+ * <p>The successful requests are recorded by {@link #afterResponse}, and each retry is withdrawn by
+ * the retry condition of {@link #apply(RetryPolicy)} only after the original condition allows it.</p>
+ *
+ * @author miyamoto.daisuke
+ */
+@RequiredArgsConstructor
+class AwsClientV1RetryBudgetHandler extends RequestHandler2 {
+	
+	@Getter
+	private final RetryBudget retryBudget;
+	
+	
+	/**
+	 * Create the retry policy which withdraws the retries from the budget.
+	 *
+	 * @param retryPolicy the original retry policy
+	 * @return the retry policy
+	 */
+	RetryPolicy apply(RetryPolicy retryPolicy) {
+		RetryCondition retryCondition = retryPolicy.getRetryCondition();
+		return new RetryPolicy(
+				(originalRequest, exception, retriesAttempted) ->
+						retryCondition.shouldRetry(originalRequest, exception, retriesAttempted)
+								&& retryBudget.tryAcquire(),
+				retryPolicy.getBackoffStrategy(), retryPolicy.getMaxErrorRetry(),
+				retryPolicy.isMaxErrorRetryInClientConfigHonored());
+	}
+	
+	@Override
+	public void afterResponse(Request<?> request, Response<?> response) {
+		retryBudget.recordSuccess();
+	}
+}
@@ -18,11 +18,17 @@ package jp.xet.springconfig.aws.v1;
 import static jp.xet.springconfig.aws.InternalReflectionUtil.invokeMethod;
 import static jp.xet.springconfig.aws.InternalReflectionUtil.invokeStaticMethod;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import lombok.extern.slf4j.Slf4j;
 
 import com.amazonaws.ClientConfiguration;
 import com.amazonaws.auth.AWSCredentialsProvider;
+import com.amazonaws.client.builder.AwsClientBuilder;
 import com.amazonaws.client.builder.AwsClientBuilder.EndpointConfiguration;
+import com.amazonaws.handlers.RequestHandler2;
+import com.amazonaws.metrics.RequestMetricCollector;
 
 @Slf4j
 class AwsClientV1Util {
@@ -81,6 +87,37 @@ class AwsClientV1Util {
 		}
 	}
 	
+	static void configureMetricsCollector(Object builder, RequestMetricCollector metricsCollector) {
+		if (metricsCollector == null) {
+			return;
+		}
+		try {
+			invokeMethod(builder, "setMetricsCollector", metricsCollector);
+		} catch (IllegalStateException e) {
+			log.warn(e.getMessage());
+		}
+	}
+	
+	/**
+	 * Append the request handler to the handlers of the builder.
+	 * 
+	 * @param builder AWS client builder
+	 * @param requestHandler the request handler
+	 */
+	static void addRequestHandler(Object builder, RequestHandler2 requestHandler) {
+		if (builder instanceof AwsClientBuilder == false) {
+			log.warn("Request handler is not supported by {}", builder.getClass());
+			return;
+		}
+		AwsClientBuilder<?, ?> awsClientBuilder = (AwsClientBuilder<?, ?>) builder;
+		List<RequestHandler2> requestHandlers = new ArrayList<>();
+		if (awsClientBuilder.getRequestHandlers() != null) {
+			requestHandlers.addAll(awsClientBuilder.getRequestHandlers());
+		}
+		requestHandlers.add(requestHandler);
+		awsClientBuilder.setRequestHandlers(requestHandlers.toArray(new RequestHandler2[0]));
+	}
+	
 	/**
 	 * Build AWS client.
 	 * 
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jp.xet.springconfig.aws.v1;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.BeanFactoryAware;
+import org.springframework.beans.factory.DisposableBean;
+
+import jp.xet.springconfig.aws.ConnectionPoolMetrics;
+import jp.xet.springconfig.aws.InternalReflectionUtil;
+
+/**
+ * Publisher of the connection pool statistics of AWS clients v1.
+ *
+ * <p>The pool is read from the Apache HTTP client held by {@code AmazonHttpClient} of each client.
+ * The gauges are bound only if {@link AwsClientV1MetricsCollector} is enabled, and the MBeans are
+ * unregistered when the context is closed.</p>
+ *
+ * @author miyamoto.daisuke
+ */
+@Slf4j
+@RequiredArgsConstructor
+class AwsConnectionPoolV1Metrics implements BeanFactoryAware, DisposableBean {
+	
+	static final String BEAN_NAME = "awsConnectionPoolV1Metrics";
+	
+	
+	private final boolean jmxEnabled;
+	
+	private final Map<String, ConnectionPoolMetrics> metricsMap = new ConcurrentHashMap<>();
+	
+	private BeanFactory beanFactory;
+	
+	
+	@Override
+	public void setBeanFactory(BeanFactory beanFactory) {
+		this.beanFactory = beanFactory;
+	}
+	
+	/**
+	 * Publish the pool statistics of the client.
+	 *
+	 * @param name the name of the client
+	 * @param client AWS client
+	 */
+	void register(String name, Object client) {
+		AwsClientV1MetricsCollector metricsCollector = getMetricsCollector();
+		if (jmxEnabled == false && metricsCollector == null) {
+			return;
+		}
+		ConnectionPoolMetrics metrics;
+		try {
+			Object amazonHttpClient = InternalReflectionUtil.getField(client, "client");
+			Object httpClient = InternalReflectionUtil.getField(amazonHttpClient, "httpClient");
+			metrics = ConnectionPoolMetrics.ofConnectionManager(name,
+					InternalReflectionUtil.invokeMethod(httpClient, "getHttpClientConnectionManager"));
+		} catch (IllegalStateException e) {
+			log.debug("Connection pool of {} is not exposed", name, e);
+			return;
+		}
+		if (metrics == null) {
+			return;
+		}
+		ConnectionPoolMetrics old = metricsMap.put(name, metrics);
+		if (old != null) {
+			old.unregisterMBean();
+		}
+		if (metricsCollector != null) {
+			metricsCollector.bindConnectionPool(metrics);
+		}
+		if (jmxEnabled) {
+			metrics.registerMBean();
+		}
+	}
+	
+	private AwsClientV1MetricsCollector getMetricsCollector() {
+		if (beanFactory == null || beanFactory.containsBean(AwsClientV1MetricsCollector.BEAN_NAME) == false) {
+			return null;
+		}
+		AwsClientV1MetricsCollector metricsCollector =
+				beanFactory.getBean(AwsClientV1MetricsCollector.BEAN_NAME, AwsClientV1MetricsCollector.class);
+		return metricsCollector.isEnabled() ? metricsCollector : null;
+	}
+	
+	@Override
+	public void destroy() {
+		metricsMap.values().forEach(ConnectionPoolMetrics::unregisterMBean);
+		metricsMap.clear();
+	}
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jp.xet.springconfig.aws.v1;
+
+import lombok.RequiredArgsConstructor;
+
+import com.amazonaws.auth.AWSCredentials;
+import com.amazonaws.auth.AWSCredentialsProvider;
+import com.amazonaws.auth.BasicAWSCredentials;
+import com.amazonaws.auth.BasicSessionCredentials;
+
+import software.amazon.awssdk.auth.credentials.AwsCredentials;
+import software.amazon.awssdk.auth.credentials.AwsCredentialsProvider;
+import software.amazon.awssdk.auth.credentials.AwsSessionCredentials;
+
+/**
+ * {@link AWSCredentialsProvider} which delegates to a credentials provider of AWS SDK v2,
+ * so that a provider defined by {@code aws2.credentials.<name>.*} is shared by v1 clients.
+ *
+ * <p>The credentials are resolved by the delegate on each call, which refreshes them by itself,
+ * so {@link #refresh()} does nothing.</p>
+ *
+ * @author miyamoto.daisuke
+ */
+@RequiredArgsConstructor
+class AwsCredentialsV1Adapter implements AWSCredentialsProvider {
+	
+	/**
+	 * Adapt the bean of a v2 credentials provider to v1. This class is loaded only if the bean is not
+	 * {@link AWSCredentialsProvider}, as AWS SDK v2 may be absent.
+	 *
+	 * @param bean the bean of a v2 credentials provider
+	 * @return the credentials provider
+	 * @throws IllegalArgumentException if the bean is not a credentials provider
+	 */
+	static AWSCredentialsProvider adapt(Object bean) {
+		if (bean instanceof AwsCredentialsProvider) {
+			return new AwsCredentialsV1Adapter((AwsCredentialsProvider) bean);
+		}
+		throw new IllegalArgumentException("Not a credentials provider: " + bean.getClass().getName());
+	}
+	
+	
+	private final AwsCredentialsProvider delegate;
+	
+	
+	@Override
+	public AWSCredentials getCredentials() {
+		AwsCredentials credentials = delegate.resolveCredentials();
+		if (credentials instanceof AwsSessionCredentials) {
+			AwsSessionCredentials sessionCredentials = (AwsSessionCredentials) credentials;
+			return new BasicSessionCredentials(sessionCredentials.accessKeyId(), sessionCredentials.secretAccessKey(),
+					sessionCredentials.sessionToken());
+		}
+		return new BasicAWSCredentials(credentials.accessKeyId(), credentials.secretAccessKey());
+	}
+	
+	@Override
+	public void refresh() {
+		// refreshed by the delegate
+	}
+}
@@ -53,4 +53,13 @@ public @interface EnableAwsClientV1 {
 	 * @return array of AWS client classes
 	 */
 	Class<?>[] value() default {};
+	
+	/**
+	 * Whether the clients are built lazily. If {@code true}, the registered beans are proxies
+	 * which build the real clients on the first invocation.
+	 * This can be overridden by {@code aws1.<service-package-name>[-async].lazy} property for each client.
+	 * 
+	 * @return {@code true} if the clients are built lazily
+	 */
+	boolean lazy() default false;
 }
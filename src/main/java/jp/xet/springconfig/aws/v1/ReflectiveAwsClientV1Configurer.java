@@ -0,0 +1,104 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jp.xet.springconfig.aws.v1;
+
+import static jp.xet.springconfig.aws.InternalReflectionUtil.invokeMethod;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import com.amazonaws.ClientConfiguration;
+import com.amazonaws.auth.AWSCredentialsProvider;
+import com.amazonaws.client.builder.AwsClientBuilder.EndpointConfiguration;
+import com.amazonaws.metrics.RequestMetricCollector;
+
+/**
+ * {@link AwsClientV1Configurer} implementation which configures the builder by reflection.
+ *
+ * @author miyamoto.daisuke
+ */
+@Slf4j
+@RequiredArgsConstructor
+class ReflectiveAwsClientV1Configurer implements AwsClientV1Configurer {
+	
+	private static final String S3_BUILDER = "com.amazonaws.services.s3.AmazonS3Builder";
+	
+	
+	private final Class<?> builderClass;
+	
+	
+	@Override
+	public Object createBuilder() {
+		return AwsClientV1Util.createBuilder(builderClass);
+	}
+	
+	@Override
+	public void configureRegion(Object builder, String region) {
+		AwsClientV1Util.configureRegion(builder, region);
+	}
+	
+	@Override
+	public void configureEndpointConfiguration(Object builder, EndpointConfiguration endpointConfiguration) {
+		AwsClientV1Util.configureEndpointConfiguration(builder, endpointConfiguration);
+	}
+	
+	@Override
+	public void configureClientConfiguration(Object builder, ClientConfiguration clientConfiguration) {
+		AwsClientV1Util.configureClientConfiguration(builder, clientConfiguration);
+	}
+	
+	@Override
+	public void configureCredentialsProvider(Object builder, AWSCredentialsProvider credentialsProvider) {
+		AwsClientV1Util.configureCredentialsProvider(builder, credentialsProvider);
+	}
+	
+	@Override
+	public void configureMetricsCollector(Object builder, RequestMetricCollector metricsCollector) {
+		AwsClientV1Util.configureMetricsCollector(builder, metricsCollector);
+	}
+	
+	@Override
+	public void configureS3Options(Object builder, Boolean pathStyleAccessEnabled, Boolean chunkedEncodingDisabled,
+			Boolean accelerateModeEnabled, Boolean payloadSigningEnabled, Boolean dualstackEnabled,
+			Boolean forceGlobalBucketAccessEnabled) {
+		try {
+			if (Class.forName(S3_BUILDER).isAssignableFrom(builder.getClass())) {
+				invokeMethod(builder, "setPathStyleAccessEnabled", pathStyleAccessEnabled);
+				invokeMethod(builder, "setChunkedEncodingDisabled", chunkedEncodingDisabled);
+				invokeMethod(builder, "setAccelerateModeEnabled", accelerateModeEnabled);
+				invokeMethod(builder, "setPayloadSigningEnabled", payloadSigningEnabled);
+				invokeMethod(builder, "setDualstackEnabled", dualstackEnabled);
+				invokeMethod(builder, "setForceGlobalBucketAccessEnabled", forceGlobalBucketAccessEnabled);
+			}
+		} catch (ClassNotFoundException e) {
+			log.debug(S3_BUILDER + " is not found in classpath -- ignored", e);
+		}
+	}
+	
+	@Override
+	public void configureEncryptionMaterials(Object builder, Object encryptionMaterialsProvider) {
+		try {
+			invokeMethod(builder, "setEncryptionMaterials", encryptionMaterialsProvider);
+		} catch (IllegalStateException e) {
+			log.warn(AwsClientV1FactoryBean.ENCRYPTION_MATERIALS_PROVIDER + " is not found in classpath -- ignored", e);
+		}
+	}
+	
+	@Override
+	public Object build(Object builder) {
+		return AwsClientV1Util.build(builder);
+	}
+}
@@ -0,0 +1,223 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jp.xet.springconfig.aws.v2;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+import lombok.RequiredArgsConstructor;
+
+import jp.xet.springconfig.aws.v2.AwsClientV2Configuration.AwsRateLimiterV2Properties;
+
+/**
+ * Adaptive client-side rate limiter, which is inactive until the first throttling error.
+ *
+ * <p>On a throttling error, the rate is decreased to {@code backoff-factor} of the current rate and grows back
+ * along the CUBIC curve of the time since the error. As the rate is a function of the time, successful requests
+ * do not update any state. The requests are spaced by the generic cell rate algorithm (GCRA), which takes
+ * a single CAS on the acquire path and allows a burst of {@code burst} requests.</p>
+ *
+ * @author miyamoto.daisuke
+ */
+class AdaptiveRateLimiter {
+	
+	private static final double NANOS_PER_SECOND = 1e9;
+	
+	// the throttling errors of the requests in flight are counted as a single decrease
+	private static final long DECREASE_INTERVAL_NANOS = Duration.ofMillis(100).toNanos();
+	
+	private static final long MEASUREMENT_INTERVAL_NANOS = Duration.ofSeconds(1).toNanos();
+	
+	private static final long MIN_MEASUREMENT_NANOS = Duration.ofMillis(1).toNanos();
+	
+	private static final double DEFAULT_MIN_RATE = 0.5;
+	
+	private static final double DEFAULT_BACKOFF_FACTOR = 0.7;
+	
+	private static final double DEFAULT_SCALE_CONSTANT = 0.4;
+	
+	private static final int DEFAULT_BURST = 10;
+	
+	private static final Duration DEFAULT_MAX_WAIT = Duration.ofSeconds(5);
+	
+	
+	private final LongSupplier ticker;
+	
+	private final double minRate;
+	
+	private final double maxRate;
+	
+	private final double backoffFactor;
+	
+	private final double scaleConstant;
+	
+	private final int burst;
+	
+	private final long maxWaitNanos;
+	
+	private final AtomicReference<Cubic> cubic = new AtomicReference<>();
+	
+	private final AtomicLong theoreticalArrival = new AtomicLong(Long.MIN_VALUE);
+	
+	private final LongAdder measuredRequests = new LongAdder();
+	
+	private final AtomicLong measurementStart;
+	
+	private volatile double measuredRate;
+	
+	
+	AdaptiveRateLimiter(AwsRateLimiterV2Properties properties) {
+		this(properties, System::nanoTime);
+	}
+	
+	AdaptiveRateLimiter(AwsRateLimiterV2Properties properties, LongSupplier ticker) {
+		this.ticker = ticker;
+		minRate = properties.getMinRate() != null ? properties.getMinRate() : DEFAULT_MIN_RATE;
+		maxRate = properties.getMaxRate() != null ? properties.getMaxRate() : Double.POSITIVE_INFINITY;
+		backoffFactor = properties.getBackoffFactor() != null ? properties.getBackoffFactor() : DEFAULT_BACKOFF_FACTOR;
+		scaleConstant = properties.getScaleConstant() != null ? properties.getScaleConstant() : DEFAULT_SCALE_CONSTANT;
+		burst = properties.getBurst() != null ? Math.max(properties.getBurst(), 1) : DEFAULT_BURST;
+		maxWaitNanos = (properties.getMaxWait() != null ? properties.getMaxWait() : DEFAULT_MAX_WAIT).toNanos();
+		measurementStart = new AtomicLong(now());
+	}
+	
+	/**
+	 * Returns whether the requests are limited, that is, a throttling error has occurred.
+	 *
+	 * @return {@code true} if active
+	 */
+	boolean isActive() {
+		return cubic.get() != null;
+	}
+	
+	/**
+	 * Get the current rate.
+	 *
+	 * @return the requests per second, or {@link Double#POSITIVE_INFINITY} if inactive
+	 */
+	double getRate() {
+		Cubic current = cubic.get();
+		return current == null ? Double.POSITIVE_INFINITY : current.rate(now());
+	}
+	
+	/**
+	 * Acquire a permit to send a request.
+	 *
+	 * @return the nanoseconds to wait before sending the request, or {@code -1} if it exceeds {@code max-wait}
+	 */
+	long acquire() {
+		return acquire(maxWaitNanos);
+	}
+	
+	/**
+	 * Acquire a permit to send a request only if it is available without waiting.
+	 *
+	 * @return {@code true} if acquired, {@code false} if the request must wait
+	 */
+	boolean tryAcquire() {
+		return acquire(0) == 0;
+	}
+	
+	private long acquire(long maxWaitNanos) {
+		long now = now();
+		measure(now);
+		Cubic current = cubic.get();
+		if (current == null) {
+			return 0;
+		}
+		double rate = current.rate(now);
+		long interval = (long) (NANOS_PER_SECOND / rate);
+		long tolerance = interval * (burst - 1);
+		while (true) {
+			long tat = theoreticalArrival.get();
+			long base = Math.max(tat, now);
+			long wait = base - tolerance - now;
+			if (wait > maxWaitNanos) {
+				return -1;
+			}
+			if (theoreticalArrival.compareAndSet(tat, base + interval)) {
+				return Math.max(wait, 0);
+			}
+		}
+	}
+	
+	/**
+	 * Decrease the rate on a throttling error.
+	 */
+	void onThrottle() {
+		long now = now();
+		while (true) {
+			Cubic current = cubic.get();
+			if (current != null && now - current.throttledAt < DECREASE_INTERVAL_NANOS) {
+				return;
+			}
+			double measured = getMeasuredRate(now);
+			double rate = current == null ? measured : Math.min(current.rate(now), measured);
+			double lastMaxRate = Math.max(Math.min(rate, maxRate), minRate / backoffFactor);
+			double k = Math.cbrt(lastMaxRate * (1 - backoffFactor) / scaleConstant);
+			if (cubic.compareAndSet(current, new Cubic(lastMaxRate, k, now))) {
+				return;
+			}
+		}
+	}
+	
+	private void measure(long now) {
+		measuredRequests.increment();
+		long start = measurementStart.get();
+		long elapsed = now - start;
+		if (elapsed >= MEASUREMENT_INTERVAL_NANOS && measurementStart.compareAndSet(start, now)) {
+			measuredRate = measuredRequests.sumThenReset() * NANOS_PER_SECOND / elapsed;
+		}
+	}
+	
+	private double getMeasuredRate(long now) {
+		double rate = measuredRate;
+		if (rate > 0) {
+			return rate;
+		}
+		// in the first measurement interval
+		long elapsed = Math.max(now - measurementStart.get(), MIN_MEASUREMENT_NANOS);
+		return measuredRequests.sum() * NANOS_PER_SECOND / elapsed;
+	}
+	
+	private long now() {
+		return ticker.getAsLong();
+	}
+	
+	
+	/**
+	 * CUBIC curve since the last throttling error.
+	 */
+	@RequiredArgsConstructor
+	private class Cubic {
+		
+		private final double lastMaxRate;
+		
+		private final double k;
+		
+		private final long throttledAt;
+		
+		
+		double rate(long now) {
+			double t = (now - throttledAt) / NANOS_PER_SECOND - k;
+			double rate = scaleConstant * t * t * t + lastMaxRate;
+			return Math.max(minRate, Math.min(maxRate, rate));
+		}
+	}
+}
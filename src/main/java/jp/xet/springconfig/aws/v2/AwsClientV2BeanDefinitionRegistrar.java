@@ -16,44 +16,507 @@
 package jp.xet.springconfig.aws.v2;
 
 import java.lang.reflect.UndeclaredThrowableException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 import lombok.extern.slf4j.Slf4j;
 
+import org.springframework.aop.framework.ProxyFactoryBean;
+import org.springframework.aop.target.LazyInitTargetSource;
+import org.springframework.beans.factory.BeanClassLoaderAware;
 import org.springframework.beans.factory.BeanCreationException;
+import org.springframework.beans.factory.config.BeanDefinition;
 import org.springframework.beans.factory.config.BeanDefinitionHolder;
 import org.springframework.beans.factory.config.ConstructorArgumentValues;
 import org.springframework.beans.factory.config.RuntimeBeanReference;
+import org.springframework.beans.factory.support.AbstractBeanDefinition;
 import org.springframework.beans.factory.support.BeanDefinitionReaderUtils;
 import org.springframework.beans.factory.support.BeanDefinitionRegistry;
 import org.springframework.beans.factory.support.RootBeanDefinition;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.context.properties.bind.handler.IgnoreErrorsBindHandler;
+import org.springframework.context.EnvironmentAware;
 import org.springframework.context.annotation.ImportBeanDefinitionRegistrar;
 import org.springframework.core.annotation.AnnotationAttributes;
+import org.springframework.core.env.Environment;
 import org.springframework.core.type.AnnotationMetadata;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.ReflectionUtils;
+
+import jp.xet.springconfig.aws.AwsClientDescriptor;
+import jp.xet.springconfig.aws.AwsClientDescriptors;
+import jp.xet.springconfig.aws.RetryBudgets;
+import jp.xet.springconfig.aws.StartupSteps;
+import jp.xet.springconfig.aws.v2.AwsClientV2Configuration.AwsClientV2Properties;
+import jp.xet.springconfig.aws.v2.AwsClientV2Configuration.AwsCredentialsV2Properties;
+import jp.xet.springconfig.aws.v2.AwsClientV2Configuration.AwsEventLoopGroupV2Properties;
+import jp.xet.springconfig.aws.v2.AwsClientV2Configuration.AwsHttpClientV2Properties;
+import jp.xet.springconfig.aws.v2.AwsClientV2Configuration.HttpClientType;
+
+import software.amazon.awssdk.auth.credentials.AwsCredentialsProvider;
+import software.amazon.awssdk.http.SdkHttpClient;
+import software.amazon.awssdk.http.async.SdkAsyncHttpClient;
+import software.amazon.awssdk.http.nio.netty.SdkEventLoopGroup;
 
 @Slf4j
-class AwsClientV2BeanDefinitionRegistrar implements ImportBeanDefinitionRegistrar {
+class AwsClientV2BeanDefinitionRegistrar
+		implements ImportBeanDefinitionRegistrar, BeanClassLoaderAware, EnvironmentAware {
+	
+	private static final String CONFIGURERS_SUFFIX = "_AwsClientV2Configurers";
+	
+	private static final String METER_REGISTRY = "io.micrometer.core.instrument.MeterRegistry";
+	
+	private static final String CAFFEINE = "com.github.benmanes.caffeine.cache.Caffeine";
+	
+	/**
+	 * Bean name prefix of the real clients behind the lazy proxies.
+	 */
+	static final String LAZY_TARGET_PREFIX = "lazyTarget.";
+	
+	
+	/**
+	 * Get the class name of {@link AwsClientV2Configurers} generated for the annotated class.
+	 * 
+	 * @param annotatedClassName the class name annotated with {@link EnableAwsClientV2}
+	 * @return the generated class name
+	 */
+	static String getConfigurersClassName(String annotatedClassName) {
+		String packageName = ClassUtils.getPackageName(annotatedClassName);
+		String simpleName = ClassUtils.getShortName(annotatedClassName).replace('.', '_');
+		return (packageName.isEmpty() ? "" : packageName + ".") + simpleName + CONFIGURERS_SUFFIX;
+	}
+	
+	
+	private ClassLoader beanClassLoader = ClassUtils.getDefaultClassLoader();
+	
+	private Environment environment;
+	
+	
+	@Override
+	public void setBeanClassLoader(ClassLoader classLoader) {
+		beanClassLoader = classLoader;
+	}
+	
+	@Override
+	public void setEnvironment(Environment environment) {
+		this.environment = environment;
+	}
 	
 	@Override
 	public void registerBeanDefinitions(AnnotationMetadata importingClassMetadata, BeanDefinitionRegistry registry) {
 		log.trace("registerBeanDefinitions: {}", registry);
 		
-		AnnotationAttributes attributes = AnnotationAttributes.fromMap(
-				importingClassMetadata.getAnnotationAttributes(EnableAwsClientV2.class.getName(), false));
-		if (attributes == null) {
-			log.warn("Attributes of EnableAwsClientV2 is null.");
+		StartupSteps.Step step = StartupSteps.start(registry, "aws.client.v2.register-bean-definitions")
+			.tag("annotated-class", importingClassMetadata.getClassName());
+		try {
+			AnnotationAttributes attributes = AnnotationAttributes.fromMap(
+					importingClassMetadata.getAnnotationAttributes(EnableAwsClientV2.class.getName(), false));
+			if (attributes == null) {
+				log.warn("Attributes of EnableAwsClientV2 is null.");
+				return;
+			}
+			Class<?>[] clientClasses = attributes.getClassArray("value");
+			AwsClientV2Configurers configurers = loadConfigurers(importingClassMetadata.getClassName());
+			Map<Class<?>, AwsClientV2Configurer> coordinated = isParallelBuild() ? new LinkedHashMap<>() : null;
+			String coordinatorBeanName =
+					AwsClientV2BuildCoordinator.getBeanName(importingClassMetadata.getClassName());
+			boolean lazy = attributes.getBoolean("lazy");
+			
+			registerCredentialsProviders(registry);
+			registerSharedHttpClients(registry);
+			registerMetricsInterceptor(registry);
+			registerConnectionPoolMetrics(registry);
+			registerRateLimiters(registry, clientClasses);
+			registerHedgingScheduler(registry, clientClasses);
+			registerResponseCache(registry, clientClasses);
+			if (Arrays.stream(clientClasses).anyMatch(this::isSharedRetryBudget)) {
+				RetryBudgets.register(registry);
+			}
+			Set<String> propertyNames = getPropertyNames();
+			AwsClientDescriptors.registerPropertyKeys(registry, propertyNames.stream()
+				.filter(propertyName -> propertyName.equals(AwsClientV2Configuration.DEFAULT_KEY) == false)
+				.map(propertyName -> "aws2." + propertyName)
+				.collect(Collectors.toList()));
+			Arrays.stream(clientClasses)
+				.forEach(c -> registerAwsClient(registry, c, configurers, coordinated, coordinatorBeanName, lazy,
+						propertyNames));
+			if (coordinated != null && coordinated.isEmpty() == false) {
+				registerBuildCoordinator(registry, coordinatorBeanName, coordinated);
+			}
+		} finally {
+			step.close();
+		}
+	}
+	
+	/**
+	 * Get the names of the configured client properties, e.g. {@code sns} for {@code aws2.sns.region}.
+	 */
+	private Set<String> getPropertyNames() {
+		if (environment == null) {
+			return Collections.emptySet();
+		}
+		return Binder.get(environment)
+			.bind("aws2", Bindable.mapOf(String.class, AwsClientV2Properties.class), new IgnoreErrorsBindHandler())
+			.map(Map::keySet)
+			.orElseGet(Collections::emptySet);
+	}
+	
+	private boolean isLazy(Class<?> clientClass, boolean defaultLazy) {
+		return bindClientProperty(clientClass, "lazy", Boolean.class, defaultLazy);
+	}
+	
+	/**
+	 * Bind the property of the client, which inherits {@code aws2.default.<name>}.
+	 */
+	private <T> T bindClientProperty(Class<?> clientClass, String name, Class<T> type, T defaultValue) {
+		if (environment == null) {
+			return defaultValue;
+		}
+		Binder binder = Binder.get(environment);
+		String propertyName = AwsClientV2FactoryBean.getPropertyName(clientClass);
+		return binder.bind("aws2." + propertyName + "." + name, type)
+			.orElseGet(() -> binder.bind("aws2." + AwsClientV2Configuration.DEFAULT_KEY + "." + name, type)
+				.orElse(defaultValue));
+	}
+	
+	private String[] getSharedResourceBeanNames(BeanDefinitionRegistry registry, Class<?> clientClass) {
+		boolean async = clientClass.getName().endsWith("AsyncClient");
+		List<String> beanNames = new ArrayList<>();
+		String sharedHttpClientName = getSharedHttpClientName(clientClass);
+		if (sharedHttpClientName != null) {
+			beanNames.add(async ? AwsSharedAsyncHttpClientV2FactoryBean.getBeanName(sharedHttpClientName)
+					: AwsSharedHttpClientV2FactoryBean.getBeanName(sharedHttpClientName));
+		}
+		if (async && isSharedEventLoopGroup(clientClass)) {
+			Optional.ofNullable(registerEventLoopGroup(registry)).ifPresent(beanNames::add);
+		}
+		return beanNames.toArray(new String[0]);
+	}
+	
+	private boolean isSharedEventLoopGroup(Class<?> clientClass) {
+		return bindClientProperty(clientClass, "shared-event-loop-group", Boolean.class, true);
+	}
+	
+	private String getSharedHttpClientName(Class<?> clientClass) {
+		return bindClientProperty(clientClass, "shared-http-client-name", String.class, null);
+	}
+	
+	/**
+	 * Register {@link AwsSharedHttpClientV2FactoryBean} for each {@code aws2.http-clients.<name>} if absent.
+	 */
+	private void registerSharedHttpClients(BeanDefinitionRegistry registry) {
+		if (environment == null) {
+			return;
+		}
+		Binder.get(environment)
+			.bind("aws2.http-clients", Bindable.mapOf(String.class, AwsHttpClientV2Properties.class))
+			.orElseGet(Collections::emptyMap)
+			.forEach((name, properties) -> {
+				if (properties.getApache() != null || properties.getNetty() == null) {
+					registerSharedHttpClient(registry, name, properties);
+				}
+				if (properties.getNetty() != null) {
+					registerSharedAsyncHttpClient(registry, name, properties);
+				}
+			});
+	}
+	
+	private void registerSharedHttpClient(BeanDefinitionRegistry registry, String name,
+			AwsHttpClientV2Properties properties) {
+		String beanName = AwsSharedHttpClientV2FactoryBean.getBeanName(name);
+		if (registry.containsBeanDefinition(beanName)) {
+			return;
+		}
+		ConstructorArgumentValues ctorArgs = new ConstructorArgumentValues();
+		ctorArgs.addIndexedArgumentValue(0, name);
+		ctorArgs.addIndexedArgumentValue(1, properties);
+		
+		RootBeanDefinition httpClientBeanDef = new RootBeanDefinition(AwsSharedHttpClientV2FactoryBean.class);
+		httpClientBeanDef.setTargetType(SdkHttpClient.class);
+		httpClientBeanDef.setConstructorArgumentValues(ctorArgs);
+		httpClientBeanDef.setAutowireCandidate(false);
+		httpClientBeanDef.setRole(BeanDefinition.ROLE_INFRASTRUCTURE);
+		registry.registerBeanDefinition(beanName, httpClientBeanDef);
+		log.trace("Shared HTTP client {} is registered", name);
+	}
+	
+	private void registerSharedAsyncHttpClient(BeanDefinitionRegistry registry, String name,
+			AwsHttpClientV2Properties properties) {
+		String beanName = AwsSharedAsyncHttpClientV2FactoryBean.getBeanName(name);
+		if (registry.containsBeanDefinition(beanName)) {
 			return;
 		}
-		Class<?>[] clientClasses = attributes.getClassArray("value");
+		String eventLoopGroupBeanName = registerEventLoopGroup(registry);
+		ConstructorArgumentValues ctorArgs = new ConstructorArgumentValues();
+		ctorArgs.addIndexedArgumentValue(0, name);
+		ctorArgs.addIndexedArgumentValue(1, properties);
+		ctorArgs.addIndexedArgumentValue(2,
+				eventLoopGroupBeanName == null ? null : new RuntimeBeanReference(eventLoopGroupBeanName));
+		
+		RootBeanDefinition httpClientBeanDef = new RootBeanDefinition(AwsSharedAsyncHttpClientV2FactoryBean.class);
+		httpClientBeanDef.setTargetType(SdkAsyncHttpClient.class);
+		httpClientBeanDef.setConstructorArgumentValues(ctorArgs);
+		httpClientBeanDef.setAutowireCandidate(false);
+		httpClientBeanDef.setRole(BeanDefinition.ROLE_INFRASTRUCTURE);
+		registry.registerBeanDefinition(beanName, httpClientBeanDef);
+		log.trace("Shared async HTTP client {} is registered", name);
+	}
+	
+	/**
+	 * Register {@link AwsEventLoopGroupV2FactoryBean} if enabled and absent.
+	 * 
+	 * @return the bean name of the shared event loop group, or {@code null} if disabled
+	 */
+	private String registerEventLoopGroup(BeanDefinitionRegistry registry) {
+		if (registry.containsBeanDefinition(AwsEventLoopGroupV2FactoryBean.BEAN_NAME)) {
+			return AwsEventLoopGroupV2FactoryBean.BEAN_NAME;
+		}
+		if (HttpClientType.NETTY.isPresent(getClass().getClassLoader()) == false) {
+			// e.g. only aws-crt-client is used for async clients
+			return null;
+		}
+		AwsEventLoopGroupV2Properties properties = environment == null ? new AwsEventLoopGroupV2Properties()
+				: Binder.get(environment)
+					.bind("aws2.event-loop-group", AwsEventLoopGroupV2Properties.class)
+					.orElseGet(AwsEventLoopGroupV2Properties::new);
+		if (properties.isEnabled() == false) {
+			return null;
+		}
+		ConstructorArgumentValues ctorArgs = new ConstructorArgumentValues();
+		ctorArgs.addIndexedArgumentValue(0, properties);
 		
-		Arrays.stream(clientClasses)
-			.forEach(c -> registerAwsClient(registry, c));
+		RootBeanDefinition eventLoopGroupBeanDef = new RootBeanDefinition(AwsEventLoopGroupV2FactoryBean.class);
+		eventLoopGroupBeanDef.setTargetType(SdkEventLoopGroup.class);
+		eventLoopGroupBeanDef.setConstructorArgumentValues(ctorArgs);
+		eventLoopGroupBeanDef.setAutowireCandidate(false);
+		eventLoopGroupBeanDef.setRole(BeanDefinition.ROLE_INFRASTRUCTURE);
+		registry.registerBeanDefinition(AwsEventLoopGroupV2FactoryBean.BEAN_NAME, eventLoopGroupBeanDef);
+		log.trace("Shared event loop group is registered");
+		return AwsEventLoopGroupV2FactoryBean.BEAN_NAME;
 	}
 	
-	private void registerAwsClient(BeanDefinitionRegistry registry, Class<?> clientClass) {
+	/**
+	 * Register {@link AwsCredentialsV2Providers} and the credentials provider beans
+	 * defined by {@code aws2.credentials.<name>.*}, if absent.
+	 */
+	private void registerCredentialsProviders(BeanDefinitionRegistry registry) {
+		if (environment == null || registry.containsBeanDefinition(AwsCredentialsV2Providers.BEAN_NAME)) {
+			return;
+		}
+		Map<String, AwsCredentialsV2Properties> definitions = Binder.get(environment)
+			.bind("aws2.credentials", Bindable.mapOf(String.class, AwsCredentialsV2Properties.class))
+			.orElseGet(Collections::emptyMap);
+		if (definitions.isEmpty()) {
+			return;
+		}
+		ConstructorArgumentValues ctorArgs = new ConstructorArgumentValues();
+		ctorArgs.addIndexedArgumentValue(0, definitions);
+		
+		RootBeanDefinition providersBeanDef = new RootBeanDefinition(AwsCredentialsV2Providers.class);
+		providersBeanDef.setConstructorArgumentValues(ctorArgs);
+		providersBeanDef.setAutowireCandidate(false);
+		providersBeanDef.setRole(BeanDefinition.ROLE_INFRASTRUCTURE);
+		registry.registerBeanDefinition(AwsCredentialsV2Providers.BEAN_NAME, providersBeanDef);
+		
+		definitions.keySet().forEach(name -> {
+			if (registry.containsBeanDefinition(name)) {
+				log.warn("Bean {} already exists -- aws2.credentials.{} is ignored", name, name);
+				return;
+			}
+			ConstructorArgumentValues factoryArgs = new ConstructorArgumentValues();
+			factoryArgs.addIndexedArgumentValue(0, name);
+			
+			RootBeanDefinition providerBeanDef = new RootBeanDefinition();
+			providerBeanDef.setTargetType(AwsCredentialsProvider.class);
+			providerBeanDef.setFactoryBeanName(AwsCredentialsV2Providers.BEAN_NAME);
+			providerBeanDef.setFactoryMethodName("getProvider");
+			providerBeanDef.setConstructorArgumentValues(factoryArgs);
+			providerBeanDef.setAutowireCandidate(false);
+			registry.registerBeanDefinition(name, providerBeanDef);
+			log.trace("Credentials provider {} is registered", name);
+		});
+	}
+	
+	/**
+	 * Register {@link AwsClientV2MetricsInterceptor} if Micrometer is present, enabled and absent.
+	 */
+	private void registerMetricsInterceptor(BeanDefinitionRegistry registry) {
+		if (registry.containsBeanDefinition(AwsClientV2MetricsInterceptor.BEAN_NAME)
+				|| ClassUtils.isPresent(METER_REGISTRY, beanClassLoader) == false) {
+			return;
+		}
+		boolean enabled = environment == null || Binder.get(environment)
+			.bind("aws2.metrics.enabled", Boolean.class)
+			.orElse(true);
+		if (enabled == false) {
+			return;
+		}
+		RootBeanDefinition interceptorBeanDef = new RootBeanDefinition(AwsClientV2MetricsInterceptor.class);
+		interceptorBeanDef.setAutowireMode(AbstractBeanDefinition.AUTOWIRE_CONSTRUCTOR);
+		interceptorBeanDef.setAutowireCandidate(false);
+		interceptorBeanDef.setRole(BeanDefinition.ROLE_INFRASTRUCTURE);
+		registry.registerBeanDefinition(AwsClientV2MetricsInterceptor.BEAN_NAME, interceptorBeanDef);
+		log.trace("Metrics interceptor is registered");
+	}
+	
+	/**
+	 * Register {@link AwsConnectionPoolV2Metrics} if the metrics interceptor is registered
+	 * or JMX is enabled, and absent.
+	 */
+	private void registerConnectionPoolMetrics(BeanDefinitionRegistry registry) {
+		if (registry.containsBeanDefinition(AwsConnectionPoolV2Metrics.BEAN_NAME)) {
+			return;
+		}
+		boolean jmxEnabled = environment != null && Binder.get(environment)
+			.bind("aws2.metrics.jmx-enabled", Boolean.class)
+			.orElse(false);
+		if (jmxEnabled == false && registry.containsBeanDefinition(AwsClientV2MetricsInterceptor.BEAN_NAME) == false) {
+			return;
+		}
+		ConstructorArgumentValues ctorArgs = new ConstructorArgumentValues();
+		ctorArgs.addIndexedArgumentValue(0, jmxEnabled);
+		
+		RootBeanDefinition metricsBeanDef = new RootBeanDefinition(AwsConnectionPoolV2Metrics.class);
+		metricsBeanDef.setConstructorArgumentValues(ctorArgs);
+		metricsBeanDef.setAutowireCandidate(false);
+		metricsBeanDef.setRole(BeanDefinition.ROLE_INFRASTRUCTURE);
+		registry.registerBeanDefinition(AwsConnectionPoolV2Metrics.BEAN_NAME, metricsBeanDef);
+		log.trace("Connection pool metrics is registered");
+	}
+	
+	/**
+	 * Register {@link AwsClientV2RateLimiters} if any client shares the rate limiter, and absent.
+	 */
+	private void registerRateLimiters(BeanDefinitionRegistry registry, Class<?>[] clientClasses) {
+		if (registry.containsBeanDefinition(AwsClientV2RateLimiters.BEAN_NAME)
+				|| Arrays.stream(clientClasses).noneMatch(this::isSharedRateLimiter)) {
+			return;
+		}
+		RootBeanDefinition rateLimitersBeanDef = new RootBeanDefinition(AwsClientV2RateLimiters.class);
+		rateLimitersBeanDef.setAutowireCandidate(false);
+		rateLimitersBeanDef.setRole(BeanDefinition.ROLE_INFRASTRUCTURE);
+		registry.registerBeanDefinition(AwsClientV2RateLimiters.BEAN_NAME, rateLimitersBeanDef);
+		log.trace("Shared rate limiters are registered");
+	}
+	
+	/**
+	 * Register {@link AwsClientV2HedgingScheduler} if any async client enables hedging, and absent.
+	 */
+	private void registerHedgingScheduler(BeanDefinitionRegistry registry, Class<?>[] clientClasses) {
+		if (registry.containsBeanDefinition(AwsClientV2HedgingScheduler.BEAN_NAME)
+				|| Arrays.stream(clientClasses).noneMatch(this::isHedgingEnabled)) {
+			return;
+		}
+		RootBeanDefinition schedulerBeanDef = new RootBeanDefinition(AwsClientV2HedgingScheduler.class);
+		schedulerBeanDef.setAutowireCandidate(false);
+		schedulerBeanDef.setRole(BeanDefinition.ROLE_INFRASTRUCTURE);
+		registry.registerBeanDefinition(AwsClientV2HedgingScheduler.BEAN_NAME, schedulerBeanDef);
+		log.trace("Hedging scheduler is registered");
+	}
+	
+	/**
+	 * Register {@link AwsClientV2ResponseCache} if any client enables the cache, Caffeine is present, and absent.
+	 */
+	private void registerResponseCache(BeanDefinitionRegistry registry, Class<?>[] clientClasses) {
+		if (registry.containsBeanDefinition(AwsClientV2ResponseCache.BEAN_NAME)
+				|| Arrays.stream(clientClasses).noneMatch(this::isCacheEnabled)) {
+			return;
+		}
+		if (ClassUtils.isPresent(CAFFEINE, beanClassLoader) == false) {
+			log.warn("Caffeine is not found on the classpath -- AWS client response cache is disabled");
+			return;
+		}
+		long maxSize = environment == null ? AwsClientV2ResponseCache.DEFAULT_MAX_SIZE : Binder.get(environment)
+			.bind("aws2.cache.max-size", Long.class)
+			.orElse(AwsClientV2ResponseCache.DEFAULT_MAX_SIZE);
+		ConstructorArgumentValues ctorArgs = new ConstructorArgumentValues();
+		ctorArgs.addIndexedArgumentValue(0, maxSize);
+		
+		RootBeanDefinition cacheBeanDef = new RootBeanDefinition(AwsClientV2ResponseCache.class);
+		cacheBeanDef.setConstructorArgumentValues(ctorArgs);
+		cacheBeanDef.setAutowireCandidate(false);
+		cacheBeanDef.setRole(BeanDefinition.ROLE_INFRASTRUCTURE);
+		registry.registerBeanDefinition(AwsClientV2ResponseCache.BEAN_NAME, cacheBeanDef);
+		log.trace("Response cache is registered");
+	}
+	
+	private boolean isSharedRateLimiter(Class<?> clientClass) {
+		return bindClientProperty(clientClass, "rate-limiter.shared", Boolean.class, false);
+	}
+	
+	private boolean isHedgingEnabled(Class<?> clientClass) {
+		return clientClass.getName().endsWith("AsyncClient")
+				&& bindClientProperty(clientClass, "hedging.enabled", Boolean.class, false);
+	}
+	
+	private boolean isCacheEnabled(Class<?> clientClass) {
+		return bindClientProperty(clientClass, "cache.enabled", Boolean.class, false);
+	}
+	
+	private boolean isSharedRetryBudget(Class<?> clientClass) {
+		return bindClientProperty(clientClass, "retry-budget.shared", Boolean.class, false);
+	}
+	
+	private boolean isParallelBuild() {
+		return environment != null && Binder.get(environment)
+			.bind("aws2.startup.parallel-build", Boolean.class)
+			.orElse(false);
+	}
+	
+	/**
+	 * Register {@link AwsClientV2BuildCoordinator} which builds the coordinated clients of the annotated class.
+	 */
+	private void registerBuildCoordinator(BeanDefinitionRegistry registry, String coordinatorBeanName,
+			Map<Class<?>, AwsClientV2Configurer> coordinated) {
+		int parallelism = Binder.get(environment)
+			.bind("aws2.startup.parallelism", Integer.class)
+			.orElse(Runtime.getRuntime().availableProcessors());
+		
+		ConstructorArgumentValues ctorArgs = new ConstructorArgumentValues();
+		ctorArgs.addIndexedArgumentValue(0, new RuntimeBeanReference("awsClientV2PropertiesMap"));
+		ctorArgs.addIndexedArgumentValue(1, new RuntimeBeanReference("awsS3ClientV2Properties"));
+		ctorArgs.addIndexedArgumentValue(2, coordinated);
+		ctorArgs.addIndexedArgumentValue(3, parallelism);
+		
+		RootBeanDefinition coordinatorBeanDef = new RootBeanDefinition(AwsClientV2BuildCoordinator.class);
+		coordinatorBeanDef.setConstructorArgumentValues(ctorArgs);
+		coordinatorBeanDef.setRole(BeanDefinition.ROLE_INFRASTRUCTURE);
+		registry.registerBeanDefinition(coordinatorBeanName, coordinatorBeanDef);
+		log.trace("Build coordinator {} is registered for {} clients", coordinatorBeanName, coordinated.size());
+	}
+	
+	private AwsClientV2Configurers loadConfigurers(String annotatedClassName) {
+		String configurersClassName = getConfigurersClassName(annotatedClassName);
+		if (ClassUtils.isPresent(configurersClassName, beanClassLoader) == false) {
+			log.trace("Generated configurers {} is not found -- fall back to reflection", configurersClassName);
+			return null;
+		}
+		try {
+			Class<?> configurersClass = ClassUtils.forName(configurersClassName, beanClassLoader);
+			return (AwsClientV2Configurers) ReflectionUtils.accessibleConstructor(configurersClass).newInstance();
+		} catch (ReflectiveOperationException | ClassCastException e) {
+			log.warn("Failed to instantiate generated configurers {} -- fall back to reflection",
+					configurersClassName, e);
+			return null;
+		}
+	}
+	
+	private void registerAwsClient(BeanDefinitionRegistry registry, Class<?> clientClass,
+			AwsClientV2Configurers configurers, Map<Class<?>, AwsClientV2Configurer> coordinated,
+			String coordinatorBeanName, boolean defaultLazy, Set<String> propertyNames) {
 		if (clientClass.getName().startsWith("software.amazon.awssdk.services.") == false) {
 			throw new BeanCreationException("Class " + clientClass + " is not in AWS SDK for Java v2 package.");
 		}
+		StartupSteps.Step step = StartupSteps.start(registry, "aws.client.v2.register")
+			.tag("client", clientClass.getName());
 		try {
 			log.trace("Attempt to configure AWS client: {}", clientClass);
 			if (registry.containsBeanDefinition(clientClass.getName())) {
@@ -61,26 +524,81 @@ class AwsClientV2BeanDefinitionRegistrar implements ImportBeanDefinitionRegistra
 				return;
 			}
 			
-			RootBeanDefinition clientBeanDef = createAwsClientBeanDefinition(clientClass);
-			BeanDefinitionHolder clientBDHolder = new BeanDefinitionHolder(clientBeanDef, clientClass.getName());
-			BeanDefinitionReaderUtils.registerBeanDefinition(clientBDHolder, registry);
+			AwsClientV2Configurer configurer = Optional.ofNullable(configurers)
+				.map(c -> c.get(clientClass))
+				.orElseGet(() -> new ReflectiveAwsClientV2Configurer(clientClass));
+			log.trace("Configurer for {} is {}", clientClass, configurer);
+			
+			RootBeanDefinition clientBeanDef = createAwsClientBeanDefinition(clientClass, configurer);
+			// to close the shared resources after the client is destroyed
+			clientBeanDef.setDependsOn(getSharedResourceBeanNames(registry, clientClass));
+			boolean lazy = isLazy(clientClass, defaultLazy);
+			if (coordinated != null && lazy == false) {
+				coordinated.put(clientClass, configurer);
+				clientBeanDef.getPropertyValues()
+					.add("coordinator", new RuntimeBeanReference(coordinatorBeanName));
+			}
+			if (lazy) {
+				registerLazyAwsClient(registry, clientClass, clientBeanDef);
+			} else {
+				BeanDefinitionHolder clientBDHolder = new BeanDefinitionHolder(clientBeanDef, clientClass.getName());
+				BeanDefinitionReaderUtils.registerBeanDefinition(clientBDHolder, registry);
+			}
+			AwsClientDescriptors.registerClient(registry, AwsClientDescriptor.builder()
+				.beanName(clientClass.getName())
+				.clientClass(clientClass.getName())
+				.propertyKey(AwsClientV2FactoryBean.getPropertyKey(propertyNames, clientClass))
+				.credentialsProviderBeanName(
+						bindClientProperty(clientClass, "credentials-provider-bean-name", String.class, null))
+				.build());
 			
 			log.trace("AWS client {} is configured", clientClass.getName());
 		} catch (IllegalStateException | UndeclaredThrowableException e) {
 			log.error("Illegal builder for the client {}", clientClass, e);
 			throw e;
+		} finally {
+			step.close();
 		}
 	}
 	
-	private RootBeanDefinition createAwsClientBeanDefinition(Class<?> clientClass) {
+	private RootBeanDefinition createAwsClientBeanDefinition(Class<?> clientClass, AwsClientV2Configurer configurer) {
 		ConstructorArgumentValues ctorArgs = new ConstructorArgumentValues();
 		ctorArgs.addIndexedArgumentValue(0, clientClass);
 		ctorArgs.addIndexedArgumentValue(1, new RuntimeBeanReference("awsClientV2PropertiesMap"));
 		ctorArgs.addIndexedArgumentValue(2, new RuntimeBeanReference("awsS3ClientV2Properties"));
+		ctorArgs.addIndexedArgumentValue(3, configurer);
 		
 		RootBeanDefinition clientBeanDef = new RootBeanDefinition(AwsClientV2FactoryBean.class);
 		clientBeanDef.setTargetType(clientClass);
 		clientBeanDef.setConstructorArgumentValues(ctorArgs);
 		return clientBeanDef;
 	}
+	
+	/**
+	 * Register the client bean as a proxy which builds the real client on the first invocation.
+	 * The real client is registered as a lazy-init bean which is not an autowire candidate.
+	 */
+	private void registerLazyAwsClient(BeanDefinitionRegistry registry, Class<?> clientClass,
+			RootBeanDefinition clientBeanDef) {
+		String targetBeanName = LAZY_TARGET_PREFIX + clientClass.getName();
+		clientBeanDef.setLazyInit(true);
+		clientBeanDef.setAutowireCandidate(false);
+		clientBeanDef.setRole(BeanDefinition.ROLE_INFRASTRUCTURE);
+		registry.registerBeanDefinition(targetBeanName, clientBeanDef);
+		
+		RootBeanDefinition targetSourceBeanDef = new RootBeanDefinition(LazyInitTargetSource.class);
+		targetSourceBeanDef.getPropertyValues()
+			.add("targetBeanName", targetBeanName)
+			.add("targetClass", clientClass);
+		
+		RootBeanDefinition proxyBeanDef = new RootBeanDefinition(ProxyFactoryBean.class);
+		proxyBeanDef.setTargetType(clientClass);
+		proxyBeanDef.getPropertyValues()
+			.add("proxyInterfaces", new Class<?>[] {
+				clientClass
+			})
+			.add("targetSource", targetSourceBeanDef);
+		registry.registerBeanDefinition(clientClass.getName(), proxyBeanDef);
+		log.trace("AWS client {} is registered as lazy proxy", clientClass.getName());
+	}
 }
@@ -0,0 +1,129 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jp.xet.springconfig.aws.v2;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+
+import software.amazon.awssdk.core.interceptor.Context;
+import software.amazon.awssdk.core.interceptor.ExecutionAttribute;
+import software.amazon.awssdk.core.interceptor.ExecutionAttributes;
+import software.amazon.awssdk.core.interceptor.ExecutionInterceptor;
+
+/**
+ * Interceptor which limits the in-flight calls by {@link ConcurrencyLimiter}.
+ *
+ * <p>A permit is held until the end of the call including the retries, so the calls waiting for a retry
+ * or for a connection are counted as in-flight. When the limit is reached, the call fails fast
+ * with {@link BulkheadFullException}.</p>
+ *
+ * <p>A sync client uses it as an {@link ExecutionInterceptor}, which acquires the permit before the first
+ * transmission and releases it by either {@link #afterExecution} or {@link #onExecutionFailure}.
+ * An async client uses it as a {@link MethodInterceptor} of the client proxy, which acquires the permit
+ * on the call and releases it when the returned future completes, so that a cancelled call, which does not
+ * reach the execution interceptors, releases the permit as well. A permit is released at most once.</p>
+ *
+ * @author miyamoto.daisuke
+ */
+@RequiredArgsConstructor
+class AwsClientV2BulkheadInterceptor implements ExecutionInterceptor, MethodInterceptor {
+	
+	private static final ExecutionAttribute<Permit> PERMIT =
+			new ExecutionAttribute<>(AwsClientV2BulkheadInterceptor.class.getName() + ".Permit");
+	
+	
+	@Getter
+	private final ConcurrencyLimiter concurrencyLimiter;
+	
+	
+	@Override
+	public Object invoke(MethodInvocation invocation) throws Throwable {
+		if (CompletableFuture.class.equals(invocation.getMethod().getReturnType()) == false) {
+			return invocation.proceed();
+		}
+		Permit permit;
+		try {
+			permit = acquire();
+		} catch (BulkheadFullException e) {
+			CompletableFuture<Object> failed = new CompletableFuture<>();
+			failed.completeExceptionally(e);
+			return failed;
+		}
+		CompletableFuture<?> future;
+		try {
+			future = (CompletableFuture<?>) invocation.proceed();
+		} catch (Throwable e) { // NOPMD catching generic exceptions
+			release(permit);
+			throw e;
+		}
+		future.whenComplete((response, error) -> release(permit));
+		return future;
+	}
+	
+	@Override
+	public void beforeTransmission(Context.BeforeTransmission context, ExecutionAttributes executionAttributes) {
+		if (executionAttributes.getAttribute(PERMIT) != null) {
+			// retried attempt
+			return;
+		}
+		executionAttributes.putAttribute(PERMIT, acquire());
+	}
+	
+	@Override
+	public void afterExecution(Context.AfterExecution context, ExecutionAttributes executionAttributes) {
+		release(executionAttributes.getAttribute(PERMIT));
+	}
+	
+	@Override
+	public void onExecutionFailure(Context.FailedExecution context, ExecutionAttributes executionAttributes) {
+		release(executionAttributes.getAttribute(PERMIT));
+	}
+	
+	private Permit acquire() {
+		int inFlight = concurrencyLimiter.tryAcquire();
+		if (inFlight < 0) {
+			throw new BulkheadFullException("Bulkhead is full -- " + concurrencyLimiter.getLimit()
+					+ " calls are in-flight");
+		}
+		return new Permit(concurrencyLimiter.now(), inFlight);
+	}
+	
+	private void release(Permit permit) {
+		if (permit != null && permit.released.compareAndSet(false, true)) {
+			concurrencyLimiter.release(permit.start, permit.inFlight);
+		}
+	}
+	
+	
+	/**
+	 * Permit of a call.
+	 */
+	@RequiredArgsConstructor
+	private static class Permit {
+		
+		private final long start;
+		
+		private final int inFlight;
+		
+		private final AtomicBoolean released = new AtomicBoolean();
+	}
+}
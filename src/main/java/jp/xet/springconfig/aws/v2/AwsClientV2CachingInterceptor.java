@@ -0,0 +1,168 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jp.xet.springconfig.aws.v2;
+
+import java.lang.reflect.Method;
+import java.time.Clock;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.aop.ProxyMethodInvocation;
+import org.springframework.aop.support.AopUtils;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+
+import jp.xet.springconfig.aws.v2.AwsClientV2Configuration.AwsCacheOperationV2Properties;
+import jp.xet.springconfig.aws.v2.AwsClientV2ResponseCache.Entry;
+import jp.xet.springconfig.aws.v2.AwsClientV2ResponseCache.Key;
+
+import software.amazon.awssdk.core.SdkRequest;
+
+/**
+ * {@link MethodInterceptor} of a client which reads the responses of the configured operations
+ * through {@link AwsClientV2ResponseCache}.
+ *
+ * <p>A cached response is returned while its TTL, and a completed future of it for async clients.
+ * If the {@code refresh} of the operation is configured, the first caller after it sends the request again
+ * in background, through the rest of the interceptors of the proxy, and the stale response is still returned
+ * until the new response is cached (stale-while-revalidate). The failures are not cached.</p>
+ *
+ * <p>Only the operations which take the request object or its builder consumer and return the response
+ * are cached, and the requests with an override configuration are not cached.</p>
+ *
+ * @author miyamoto.daisuke
+ */
+@Slf4j
+class AwsClientV2CachingInterceptor implements MethodInterceptor {
+	
+	private final String clientName;
+	
+	private final Map<String, AwsCacheOperationV2Properties> operations = new ConcurrentHashMap<>();
+	
+	private final AwsClientV2ResponseCache responseCache;
+	
+	private final Executor refreshExecutor;
+	
+	private final Clock clock;
+	
+	private final Map<Method, AwsClientV2OperationMethod> resolved = new ConcurrentHashMap<>();
+	
+	
+	AwsClientV2CachingInterceptor(String clientName, Map<String, AwsCacheOperationV2Properties> operations,
+			AwsClientV2ResponseCache responseCache, Executor refreshExecutor, Clock clock) {
+		this.clientName = clientName;
+		operations.forEach((operationName, properties) -> {
+			if (properties != null && properties.getTtl() != null) {
+				this.operations.put(AwsClientV2OperationInterceptor.normalize(operationName), properties);
+			}
+		});
+		this.responseCache = responseCache;
+		this.refreshExecutor = refreshExecutor;
+		this.clock = clock;
+	}
+	
+	@Override
+	public Object invoke(MethodInvocation invocation) throws Throwable {
+		AwsClientV2OperationMethod operation = resolved.get(invocation.getMethod());
+		if (operation == null) {
+			operation = resolved.computeIfAbsent(invocation.getMethod(), AwsClientV2OperationMethod::resolve);
+		}
+		AwsCacheOperationV2Properties properties = operation.isSupported()
+				? operations.get(operation.getOperationName()) : null;
+		if (properties == null) {
+			return invocation.proceed();
+		}
+		if (operation.isConsumer()) {
+			// cached by the overload of the request object
+			return operation.invokeRequestMethod(invocation);
+		}
+		SdkRequest request = (SdkRequest) invocation.getArguments()[0];
+		if (request.overrideConfiguration().isPresent()) {
+			return invocation.proceed();
+		}
+		Key key = new Key(clientName, request);
+		Entry entry = responseCache.get(key);
+		if (entry != null) {
+			if (entry.tryRefresh(now())) {
+				refresh(invocation, key, properties, entry);
+			}
+			return operation.isAsync() ? CompletableFuture.completedFuture(entry.getResponse()) : entry.getResponse();
+		}
+		Object result = invocation.proceed();
+		if (operation.isAsync()) {
+			((CompletableFuture<?>) result).thenAccept(response -> put(key, response, properties));
+		} else {
+			put(key, result, properties);
+		}
+		return result;
+	}
+	
+	private void refresh(MethodInvocation invocation, Key key, AwsCacheOperationV2Properties properties,
+			Entry entry) {
+		// proceed through the rest of the interceptors of the proxy, as the first request does
+		MethodInvocation refreshInvocation = invocation instanceof ProxyMethodInvocation
+				? ((ProxyMethodInvocation) invocation).invocableClone()
+				: null;
+		try {
+			refreshExecutor.execute(() -> {
+				try {
+					Object result = refreshInvocation != null
+							? refreshInvocation.proceed()
+							: AopUtils.invokeJoinpointUsingReflection(
+									invocation.getThis(), invocation.getMethod(), invocation.getArguments());
+					if (result instanceof CompletableFuture) {
+						((CompletableFuture<?>) result).whenComplete((response, error) -> {
+							if (error == null) {
+								put(key, response, properties);
+							} else {
+								onRefreshFailure(entry, error);
+							}
+						});
+					} else {
+						put(key, result, properties);
+					}
+				} catch (Throwable e) { // NOPMD catching generic exceptions
+					onRefreshFailure(entry, e);
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			onRefreshFailure(entry, e);
+		}
+	}
+	
+	private void onRefreshFailure(Entry entry, Throwable error) {
+		log.debug("Failed to refresh the cached response of {}", clientName, error);
+		entry.refreshFailed();
+	}
+	
+	private void put(Key key, Object response, AwsCacheOperationV2Properties properties) {
+		long refreshAt = properties.getRefresh() == null ? Long.MAX_VALUE : now() + properties.getRefresh().toNanos();
+		responseCache.put(key, response, properties.getTtl(), refreshAt);
+	}
+	
+	private long now() {
+		Instant instant = clock.instant();
+		return instant.getEpochSecond() * TimeUnit.SECONDS.toNanos(1) + instant.getNano();
+	}
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jp.xet.springconfig.aws.v2;
+
+import java.lang.reflect.Method;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+
+import software.amazon.awssdk.core.SdkRequest;
+
+/**
+ * {@link MethodInterceptor} of a client which coalesces the concurrent calls of the allowed operations
+ * with an equal request into a single in-flight call, and shares its result.
+ *
+ * <p>The in-flight calls are held by a {@link ConcurrentHashMap} of futures keyed by the immutable request,
+ * and removed as soon as they complete, so the results are never cached. The first caller executes the call,
+ * and the other callers wait for it: a sync client blocks them until the result is available, and an async
+ * client returns a dependent future to each caller, so that cancelling it does not affect the others.</p>
+ *
+ * <p>Only the operations which take the request object or its builder consumer and return the response
+ * are coalesced, so a streaming response is never shared. The requests with an override configuration,
+ * which is not a part of {@code equals}, are not coalesced.</p>
+ *
+ * @author miyamoto.daisuke
+ */
+class AwsClientV2CoalescingInterceptor implements MethodInterceptor {
+	
+	private final Set<String> operations;
+	
+	private final Map<Method, AwsClientV2OperationMethod> resolved = new ConcurrentHashMap<>();
+	
+	private final Map<SdkRequest, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+	
+	
+	AwsClientV2CoalescingInterceptor(Collection<String> operations) {
+		this.operations = operations.stream().map(AwsClientV2OperationInterceptor::normalize).collect(Collectors.toSet());
+	}
+	
+	@Override
+	public Object invoke(MethodInvocation invocation) throws Throwable {
+		AwsClientV2OperationMethod operation = resolved.get(invocation.getMethod());
+		if (operation == null) {
+			operation = resolved.computeIfAbsent(invocation.getMethod(), AwsClientV2OperationMethod::resolve);
+		}
+		if (operation.isSupported() == false || operations.contains(operation.getOperationName()) == false) {
+			return invocation.proceed();
+		}
+		if (operation.isConsumer()) {
+			// coalesced by the overload of the request object
+			return operation.invokeRequestMethod(invocation);
+		}
+		SdkRequest request = (SdkRequest) invocation.getArguments()[0];
+		if (request.overrideConfiguration().isPresent()) {
+			return invocation.proceed();
+		}
+		CompletableFuture<Object> future = new CompletableFuture<>();
+		CompletableFuture<Object> existing = inFlight.putIfAbsent(request, future);
+		if (existing != null) {
+			return operation.isAsync() ? copy(existing) : join(existing);
+		}
+		future.whenComplete((response, error) -> inFlight.remove(request, future));
+		Object result;
+		try {
+			result = invocation.proceed();
+		} catch (Throwable e) { // NOPMD catching generic exceptions
+			future.completeExceptionally(e);
+			throw e;
+		}
+		if (operation.isAsync() == false) {
+			future.complete(result);
+			return result;
+		}
+		((CompletableFuture<?>) result).whenComplete((response, error) -> {
+			if (error == null) {
+				future.complete(response);
+			} else {
+				future.completeExceptionally(error);
+			}
+		});
+		return copy(future);
+	}
+	
+	private static CompletableFuture<Object> copy(CompletableFuture<Object> future) {
+		CompletableFuture<Object> copy = new CompletableFuture<>();
+		future.whenComplete((response, error) -> {
+			if (error == null) {
+				copy.complete(response);
+			} else {
+				copy.completeExceptionally(error);
+			}
+		});
+		return copy;
+	}
+	
+	private static Object join(CompletableFuture<Object> future) throws Throwable {
+		try {
+			return future.join();
+		} catch (CompletionException e) {
+			throw e.getCause() != null ? e.getCause() : e;
+		}
+	}
+}
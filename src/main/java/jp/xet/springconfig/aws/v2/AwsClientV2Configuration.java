@@ -19,13 +19,29 @@ import java.net.InetAddress;
 import java.net.URI;
 import java.time.Duration;
 import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import lombok.Data;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
 
+import org.springframework.beans.factory.InitializingBean;
 import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.BindHandler;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.context.properties.bind.handler.IgnoreErrorsBindHandler;
+import org.springframework.context.EnvironmentAware;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.util.ClassUtils;
+
+import jp.xet.springconfig.aws.AwsRetryBudgetProperties;
+import jp.xet.springconfig.aws.AwsRetryProperties;
+import jp.xet.springconfig.aws.AwsTimeoutProperties;
 
 import software.amazon.awssdk.http.Protocol;
 
@@ -46,8 +62,70 @@ import software.amazon.awssdk.http.Protocol;
  *     <li>{@code aws2.<service-package-name>[-async].http-client-builder-bean-name} - The spring bean name of
  *         {@link software.amazon.awssdk.http.SdkHttpClient.Builder}
  *         or {@link software.amazon.awssdk.http.async.SdkAsyncHttpClient.Builder} (string)</li>
+ *     <li>{@code aws2.<service-package-name>[-async].http-client-type} - The implementation of the HTTP client,
+ *         one of {@code apache} or {@code url-connection} for sync clients,
+ *         and {@code netty} or {@code crt} for async clients. (string)</li>
+ *     <li>{@code aws2.<service-package-name>[-async].url-connection-http-client-builder.<property>} - The properties of
+ *         {@link software.amazon.awssdk.http.urlconnection.UrlConnectionHttpClient.Builder}</li>
+ *     <li>{@code aws2.<service-package-name>-async.crt-async-http-client-builder.<property>} - The properties of
+ *         {@code software.amazon.awssdk.http.crt.AwsCrtAsyncHttpClient.Builder}</li>
+ *     <li>{@code aws2.<service-package-name>[-async].lazy} - Defer building the client until its first invocation.
+ *         Overrides {@link EnableAwsClientV2#lazy()}. (boolean)</li>
+ *     <li>{@code aws2.<service-package-name>[-async].shared-http-client-name} - The name of the shared HTTP client
+ *         defined by {@code aws2.http-clients.<name>.*} to be used by the client. (string)</li>
+ *     <li>{@code aws2.<service-package-name>-async.shared-event-loop-group} - Whether the shared event loop group
+ *         is used by the async client. (boolean)</li>
+ *     <li>{@code aws2.<service-package-name>[-async].retry.<property>} - The retry policy merged into
+ *         the {@link software.amazon.awssdk.core.client.config.ClientOverrideConfiguration}:
+ *         {@code max-retries}, {@code base-delay}, {@code max-backoff}, {@code jitter} ({@code full}, {@code equal}
+ *         or {@code decorrelated}), {@code throttling-base-delay} and {@code throttling-max-backoff}.</li>
+ *     <li>{@code aws2.<service-package-name>[-async].timeouts.api-call} and {@code timeouts.api-call-attempt} -
+ *         The timeouts of the whole API call and of each attempt. (duration)</li>
+ *     <li>{@code aws2.<service-package-name>[-async].operations.<OperationName>.<property>} - The overrides for
+ *         each operation applied by an execution interceptor: {@code api-call-timeout}, {@code attempt-timeout}
+ *         and {@code max-retries}.</li>
+ *     <li>{@code aws2.<service-package-name>[-async].retry-budget.<property>} - The budget which limits
+ *         the retries to a ratio of the recent successful calls: {@code enabled}, {@code shared}, {@code ratio},
+ *         {@code min-retries-per-second} and {@code window}.</li>
+ *     <li>{@code aws2.<service-package-name>[-async].rate-limiter.<property>} - The adaptive client-side rate limiter
+ *         which backs off on throttling errors: {@code enabled}, {@code shared}, {@code min-rate}, {@code max-rate},
+ *         {@code burst}, {@code backoff-factor}, {@code scale-constant} and {@code max-wait}.</li>
+ *     <li>{@code aws2.<service-package-name>[-async].bulkhead.<property>} - The bulkhead which bounds
+ *         the in-flight calls of the client by a fixed or an adaptive limit: {@code enabled}, {@code limit},
+ *         {@code adaptive}, {@code min-limit}, {@code max-limit}, {@code tolerance} and {@code smoothing}.</li>
+ *     <li>{@code aws2.<service-package-name>-async.hedging.<property>} - The hedged requests of the idempotent
+ *         operations of async clients: {@code enabled}, {@code operations}, {@code delay}, {@code percentile}
+ *         and {@code budget}.</li>
+ *     <li>{@code aws2.<service-package-name>[-async].coalescing.<property>} - The coalescing of the concurrent
+ *         calls of the allowed operations with an equal request into a single call: {@code enabled}
+ *         and {@code operations}.</li>
+ *     <li>{@code aws2.<service-package-name>[-async].cache.<property>} - The read-through cache of the responses
+ *         of the configured operations: {@code enabled}, {@code operations.<OperationName>.ttl}
+ *         and {@code operations.<OperationName>.refresh}.</li>
+ * </ul>
+ * 
+ * <h3>Shared HTTP client configurations.</h3>
+ * 
+ * <ul>
+ *     <li>{@code aws2.http-clients.<name>.apache.<property>} - The properties of
+ *         {@link software.amazon.awssdk.http.apache.ApacheHttpClient.Builder} for the shared HTTP client,
+ *         which is built once and used by all the sync clients referring the name.</li>
+ *     <li>{@code aws2.http-clients.<name>.netty.<property>} - The properties of
+ *         {@link software.amazon.awssdk.http.nio.netty.NettyNioAsyncHttpClient.Builder} for the shared async HTTP
+ *         client, which is built once and used by all the async clients referring the name.</li>
  * </ul>
  * 
+ * <h3>Shared event loop group configurations.</h3>
+ * 
+ * <ul>
+ *     <li>{@code aws2.event-loop-group.enabled} - Share a single event loop group among all the async clients.
+ *         (boolean)</li>
+ *     <li>{@code aws2.event-loop-group.number-of-threads} - The number of threads of the event loop group. (number)</li>
+ *     <li>{@code aws2.event-loop-group.native-transport} - Use the native epoll transport if available. (boolean)</li>
+ * </ul>
+ * 
+ * <p>The properties under {@code aws2.default} are inherited by the properties of each service.</p>
+ * 
  * <h3>S3 client specific configurations.</h3>
  * 
  * <ul>
@@ -61,6 +139,55 @@ import software.amazon.awssdk.http.Protocol;
  *     <li>{@code aws2.s3.dualstack-enabled} - Configures the client to use Amazon S3 dualstack mode
  *         for all requests. (boolean)</li>
  * </ul>
+ * 
+ * <h3>Metrics configurations.</h3>
+ * 
+ * <ul>
+ *     <li>{@code aws2.metrics.enabled} - Record the metrics of API calls to Micrometer
+ *         if a unique {@code MeterRegistry} bean exists. (boolean)</li>
+ *     <li>{@code aws2.metrics.jmx-enabled} - Register the connection pools of the HTTP clients built by this library
+ *         as MBeans. (boolean)</li>
+ * </ul>
+ * 
+ * <h3>Credentials provider configurations.</h3>
+ * 
+ * <ul>
+ *     <li>{@code aws2.credentials.<name>.type} - The type of the credentials provider registered as the bean
+ *         named {@code <name>}: {@code static}, {@code instance-profile}, {@code container}, {@code web-identity}
+ *         or {@code assume-role}. (string)</li>
+ *     <li>{@code aws2.credentials.<name>.<property>} - The properties of the type: {@code access-key-id},
+ *         {@code secret-access-key}, {@code session-token}, {@code role-arn}, {@code role-session-name},
+ *         {@code external-id}, {@code duration}, {@code web-identity-token-file}, {@code region},
+ *         {@code async-refresh}, {@code prefetch-time} and {@code stale-time}.</li>
+ * </ul>
+ * 
+ * <h3>Response cache configurations.</h3>
+ * 
+ * <ul>
+ *     <li>{@code aws2.cache.max-size} - The maximum number of the cached responses of all the clients.
+ *         (number)</li>
+ * </ul>
+ * 
+ * <h3>Property source configurations.</h3>
+ * 
+ * <ul>
+ *     <li>{@code aws2.property-source.parameter-paths} - The paths of SSM Parameter Store to be loaded
+ *         into the environment. (list of strings)</li>
+ *     <li>{@code aws2.property-source.secret-ids} - The IDs of Secrets Manager secrets to be loaded
+ *         into the environment. (list of strings)</li>
+ *     <li>{@code aws2.property-source.refresh-interval} - The interval to refresh the loaded properties
+ *         in background. (duration)</li>
+ *     <li>{@code aws2.property-source.parallelism} - The maximum number of concurrent load calls. (number)</li>
+ *     <li>{@code aws2.property-source.fail-fast} - Fail the startup if the initial load fails. (boolean)</li>
+ * </ul>
+ * 
+ * <h3>Startup configurations.</h3>
+ * 
+ * <ul>
+ *     <li>{@code aws2.startup.parallel-build} - Build all registered clients concurrently
+ *         at context startup. (boolean)</li>
+ *     <li>{@code aws2.startup.parallelism} - The maximum number of threads to build the clients. (number)</li>
+ * </ul>
  *
  * @author miyamoto.daisuke
  * @since #version#
@@ -79,9 +206,48 @@ class AwsClientV2Configuration {
 	}
 	
 	
+	/**
+	 * The key of the default properties which are inherited by the properties of each service.
+	 */
+	static final String DEFAULT_KEY = "default";
+	
+	
+	/**
+	 * Properties map keyed by the service name.
+	 * 
+	 * <p>After binding, each entry is rebound on top of {@code aws2.default.*},
+	 * so that the nested properties are deep-merged once at startup.</p>
+	 */
 	@SuppressWarnings("serial")
 	@ConfigurationProperties(value = "aws2", ignoreInvalidFields = true)
-	private static class AwsClientV2PropertiesMap extends LinkedHashMap<String, AwsClientV2Properties> {
+	private static class AwsClientV2PropertiesMap extends LinkedHashMap<String, AwsClientV2Properties>
+			implements EnvironmentAware, InitializingBean {
+		
+		private transient Environment environment;
+		
+		
+		@Override
+		public void setEnvironment(Environment environment) {
+			this.environment = environment;
+		}
+		
+		@Override
+		public void afterPropertiesSet() {
+			if (environment == null || containsKey(DEFAULT_KEY) == false) {
+				return;
+			}
+			Binder binder = Binder.get(environment);
+			BindHandler bindHandler = new IgnoreErrorsBindHandler();
+			replaceAll((key, properties) -> {
+				if (key.equals(DEFAULT_KEY)) {
+					return properties;
+				}
+				AwsClientV2Properties merged = new AwsClientV2Properties();
+				binder.bind("aws2." + DEFAULT_KEY, Bindable.ofInstance(merged), bindHandler);
+				binder.bind("aws2." + key, Bindable.ofInstance(merged), bindHandler);
+				return merged;
+			});
+		}
 	}
 	
 	@Data
@@ -99,9 +265,243 @@ class AwsClientV2Configuration {
 		
 		private String httpClientBuilderBeanName;
 		
+		private HttpClientType httpClientType;
+		
 		private ApacheHttpClientBuilder apacheHttpClientBuilder;
 		
+		private UrlConnectionHttpClientBuilder urlConnectionHttpClientBuilder;
+		
 		private NettyNioAsyncHttpClientBuilder nettyNioAsyncHttpClientBuilder;
+		
+		private CrtAsyncHttpClientBuilder crtAsyncHttpClientBuilder;
+		
+		private AwsRetryProperties retry;
+		
+		private AwsTimeoutProperties timeouts;
+		
+		private Map<String, AwsOperationV2Properties> operations;
+		
+		private AwsRetryBudgetProperties retryBudget;
+		
+		private AwsRateLimiterV2Properties rateLimiter;
+		
+		private AwsBulkheadV2Properties bulkhead;
+		
+		private AwsHedgingV2Properties hedging;
+		
+		private AwsCoalescingV2Properties coalescing;
+		
+		private AwsCacheV2Properties cache;
+		
+		private Boolean lazy;
+		
+		private String sharedHttpClientName;
+		
+		private Boolean sharedEventLoopGroup;
+	}
+	
+	/**
+	 * Implementation of the HTTP client.
+	 */
+	@Getter
+	@RequiredArgsConstructor
+	enum HttpClientType {
+		
+		/** {@code software.amazon.awssdk:apache-client} for sync clients. */
+		APACHE("software.amazon.awssdk.http.apache.ApacheHttpClient", false),
+		
+		/** {@code software.amazon.awssdk:url-connection-client} for sync clients. */
+		URL_CONNECTION("software.amazon.awssdk.http.urlconnection.UrlConnectionHttpClient", false),
+		
+		/** {@code software.amazon.awssdk:netty-nio-client} for async clients. */
+		NETTY("software.amazon.awssdk.http.nio.netty.NettyNioAsyncHttpClient", true),
+		
+		/** {@code software.amazon.awssdk:aws-crt-client} for async clients. */
+		CRT("software.amazon.awssdk.http.crt.AwsCrtAsyncHttpClient", true);
+		
+		private final String className;
+		
+		private final boolean async;
+		
+		
+		/**
+		 * Returns whether the implementation is found on the classpath.
+		 * 
+		 * @param classLoader the class loader to use
+		 * @return {@code true} if the implementation is present
+		 */
+		boolean isPresent(ClassLoader classLoader) {
+			return ClassUtils.isPresent(className, classLoader);
+		}
+	}
+	
+	@Data
+	static class AwsOperationV2Properties {
+		
+		private Duration apiCallTimeout;
+		
+		private Duration attemptTimeout;
+		
+		private Integer maxRetries;
+	}
+	
+	@Data
+	static class AwsRateLimiterV2Properties {
+		
+		private Boolean enabled;
+		
+		private Boolean shared;
+		
+		private Double minRate;
+		
+		private Double maxRate;
+		
+		private Integer burst;
+		
+		private Double backoffFactor;
+		
+		private Double scaleConstant;
+		
+		private Duration maxWait;
+	}
+	
+	@Data
+	static class AwsBulkheadV2Properties {
+		
+		private Boolean enabled;
+		
+		private Integer limit;
+		
+		private Boolean adaptive;
+		
+		private Integer minLimit;
+		
+		private Integer maxLimit;
+		
+		private Double tolerance;
+		
+		private Double smoothing;
+	}
+	
+	@Data
+	static class AwsHedgingV2Properties {
+		
+		private Boolean enabled;
+		
+		private List<String> operations;
+		
+		private Duration delay;
+		
+		private Double percentile;
+		
+		private Double budget;
+	}
+	
+	@Data
+	static class AwsCoalescingV2Properties {
+		
+		private Boolean enabled;
+		
+		private List<String> operations;
+	}
+	
+	@Data
+	static class AwsCacheV2Properties {
+		
+		private Boolean enabled;
+		
+		private Map<String, AwsCacheOperationV2Properties> operations;
+	}
+	
+	@Data
+	static class AwsCacheOperationV2Properties {
+		
+		private Duration ttl;
+		
+		private Duration refresh;
+	}
+	
+	@Data
+	static class AwsCredentialsV2Properties {
+		
+		private CredentialsProviderType type;
+		
+		private String accessKeyId;
+		
+		private String secretAccessKey;
+		
+		private String sessionToken;
+		
+		private String roleArn;
+		
+		private String roleSessionName;
+		
+		private String externalId;
+		
+		private Duration duration;
+		
+		private String webIdentityTokenFile;
+		
+		private String region;
+		
+		private Boolean asyncRefresh;
+		
+		private Duration prefetchTime;
+		
+		private Duration staleTime;
+	}
+	
+	/**
+	 * Type of the credentials provider defined by {@code aws2.credentials.<name>.type}.
+	 */
+	enum CredentialsProviderType {
+		
+		/** {@code StaticCredentialsProvider} of the access key. */
+		STATIC,
+		
+		/** {@code InstanceProfileCredentialsProvider} of EC2 instance metadata. */
+		INSTANCE_PROFILE,
+		
+		/** {@code ContainerCredentialsProvider} of ECS container metadata. */
+		CONTAINER,
+		
+		/** {@code WebIdentityTokenFileCredentialsProvider}, which requires {@code software.amazon.awssdk:sts}. */
+		WEB_IDENTITY,
+		
+		/** {@code StsAssumeRoleCredentialsProvider}, which requires {@code software.amazon.awssdk:sts}. */
+		ASSUME_ROLE
+	}
+	
+	@Data
+	static class AwsPropertySourceV2Properties {
+		
+		private List<String> parameterPaths;
+		
+		private List<String> secretIds;
+		
+		private Duration refreshInterval;
+		
+		private Integer parallelism;
+		
+		private Boolean failFast;
+	}
+	
+	@Data
+	static class AwsHttpClientV2Properties {
+		
+		private ApacheHttpClientBuilder apache;
+		
+		private NettyNioAsyncHttpClientBuilder netty;
+	}
+	
+	@Data
+	static class AwsEventLoopGroupV2Properties {
+		
+		private boolean enabled = true;
+		
+		private Integer numberOfThreads;
+		
+		private boolean nativeTransport = true;
 	}
 	
 	@Data
@@ -128,6 +528,14 @@ class AwsClientV2Configuration {
 		private Boolean useIdleConnectionReaper;
 	}
 	
+	@Data
+	static class UrlConnectionHttpClientBuilder {
+		
+		private Duration socketTimeout;
+		
+		private Duration connectionTimeout;
+	}
+	
 	@Data
 	static class ProxyConfiguration {
 		
@@ -173,6 +581,18 @@ class AwsClientV2Configuration {
 		private Integer maxHttp2Streams;
 	}
 	
+	@Data
+	static class CrtAsyncHttpClientBuilder {
+		
+		private Integer maxConcurrency;
+		
+		private Long readBufferSizeInBytes;
+		
+		private Duration connectionTimeout;
+		
+		private Duration connectionMaxIdleTime;
+	}
+	
 	@Data
 	@ConfigurationProperties(value = "aws2.s3", ignoreInvalidFields = true)
 	static class AwsS3ClientV2Properties {
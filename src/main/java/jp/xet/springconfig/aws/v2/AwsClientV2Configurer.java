@@ -0,0 +1,74 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jp.xet.springconfig.aws.v2;
+
+import java.net.URI;
+
+import software.amazon.awssdk.auth.credentials.AwsCredentialsProvider;
+import software.amazon.awssdk.core.client.config.ClientOverrideConfiguration;
+import software.amazon.awssdk.http.SdkHttpClient;
+import software.amazon.awssdk.http.async.SdkAsyncHttpClient;
+
+/**
+ * Configurer of the builder for a specific AWS client v2 class.
+ * 
+ * <p>Internal use only. The implementations are generated by aws-client-spring-boot-configuration-processor
+ * to call the builder methods directly. If the generated configurer is not found,
+ * the builder is configured by reflection.</p>
+ *
+ * @author miyamoto.daisuke
+ * @since #version#
+ */
+@SuppressWarnings("javadoc")
+public interface AwsClientV2Configurer {
+	
+	/**
+	 * Create AWS client builder.
+	 * 
+	 * @return AWS client builder
+	 */
+	Object createBuilder();
+	
+	void configureCredentialsProvider(Object builder, AwsCredentialsProvider credentialsProvider);
+	
+	void configureRegion(Object builder, String region);
+	
+	void configureEndpoint(Object builder, URI endpoint);
+	
+	void configureClientOverrideConfiguration(Object builder, ClientOverrideConfiguration overrideConfiguration);
+	
+	/**
+	 * Configure {@code S3Configuration}. This method is called only for S3 client.
+	 */
+	void configureS3Configuration(Object builder, Boolean pathStyleAccessEnabled, Boolean chunkedEncodingEnabled,
+			Boolean accelerateModeEnabled, Boolean dualstackEnabled, Boolean checksumValidationEnabled);
+	
+	void configureHttpSyncClientBuilder(Object builder, SdkHttpClient.Builder<?> httpClientBuilder);
+	
+	void configureHttpAsyncClientBuilder(Object builder, SdkAsyncHttpClient.Builder<?> httpAsyncClientBuilder);
+	
+	void configureHttpClient(Object builder, SdkHttpClient httpClient);
+	
+	void configureHttpAsyncClient(Object builder, SdkAsyncHttpClient httpAsyncClient);
+	
+	/**
+	 * Build AWS client.
+	 * 
+	 * @param builder AWS client builder
+	 * @return AWS client
+	 */
+	Object build(Object builder);
+}
@@ -0,0 +1,37 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jp.xet.springconfig.aws.v2;
+
+/**
+ * Set of {@link AwsClientV2Configurer}s for the clients declared in a {@link EnableAwsClientV2} annotation.
+ * 
+ * <p>Internal use only. The implementation is generated by aws-client-spring-boot-configuration-processor
+ * as {@code <package>.<Outer>_<Inner>_AwsClientV2Configurers} for the annotated class
+ * {@code <package>.<Outer>.<Inner>}.</p>
+ *
+ * @author miyamoto.daisuke
+ * @since #version#
+ */
+public interface AwsClientV2Configurers {
+	
+	/**
+	 * Get the configurer for the AWS client class.
+	 * 
+	 * @param clientClass AWS client class
+	 * @return the configurer, or {@code null} if the configurer is not generated for the class
+	 */
+	AwsClientV2Configurer get(Class<?> clientClass);
+}
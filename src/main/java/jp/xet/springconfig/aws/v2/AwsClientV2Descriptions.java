@@ -0,0 +1,106 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jp.xet.springconfig.aws.v2;
+
+import static jp.xet.springconfig.aws.InternalReflectionUtil.getField;
+import static jp.xet.springconfig.aws.InternalReflectionUtil.invokeMethod;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.util.ReflectionUtils;
+
+import jp.xet.springconfig.aws.AwsClientDescriptor;
+import jp.xet.springconfig.aws.v2.AwsClientV2Configuration.HttpClientType;
+
+import software.amazon.awssdk.awscore.client.config.AwsClientOption;
+import software.amazon.awssdk.core.client.config.SdkClientConfiguration;
+import software.amazon.awssdk.core.client.config.SdkClientOption;
+
+/**
+ * Reads the effective configuration of the built AWS client v2 for {@link AwsClientDescriptor}.
+ *
+ * <p>The SDK does not expose the configuration of the client, so it is read from the private
+ * {@code clientConfiguration} field of the client. The values which can not be read are left unset.</p>
+ *
+ * @author miyamoto.daisuke
+ */
+@Slf4j
+class AwsClientV2Descriptions {
+	
+	private static final int MAX_UNWRAP_DEPTH = 4;
+	
+	
+	/**
+	 * Describe the effective configuration of the client.
+	 *
+	 * @param builder the descriptor builder to be filled
+	 * @param client the built client
+	 * @return the descriptor builder
+	 */
+	static AwsClientDescriptor.AwsClientDescriptorBuilder describe(
+			AwsClientDescriptor.AwsClientDescriptorBuilder builder, Object client) {
+		try {
+			SdkClientConfiguration configuration = getField(client, "clientConfiguration");
+			builder.region(Objects.toString(configuration.option(AwsClientOption.AWS_REGION), null))
+				.endpoint(Objects.toString(configuration.option(SdkClientOption.ENDPOINT), null));
+			Object httpClient = configuration.option(SdkClientOption.SYNC_HTTP_CLIENT);
+			if (httpClient == null) {
+				httpClient = configuration.option(SdkClientOption.ASYNC_HTTP_CLIENT);
+			}
+			describeHttpClient(builder, unwrap(httpClient));
+		} catch (IllegalStateException | ClassCastException e) {
+			log.debug("Failed to read the configuration of {}", client.getClass(), e);
+		}
+		return builder;
+	}
+	
+	private static void describeHttpClient(AwsClientDescriptor.AwsClientDescriptorBuilder builder, Object httpClient) {
+		if (httpClient == null) {
+			return;
+		}
+		HttpClientType httpClientType = Arrays.stream(HttpClientType.values())
+			.filter(type -> type.getClassName().equals(httpClient.getClass().getName()))
+			.findFirst()
+			.orElse(null);
+		builder.httpClientType(httpClientType == null ? httpClient.getClass().getName() : httpClientType.name());
+		try {
+			if (httpClientType == HttpClientType.APACHE) {
+				Object connectionManager =
+						invokeMethod(getField(httpClient, "httpClient"), "getHttpClientConnectionManager");
+				builder.maxConnections(invokeMethod(connectionManager, "getMaxTotal"));
+			} else if (httpClientType == HttpClientType.NETTY) {
+				builder.maxConnections(invokeMethod(getField(httpClient, "configuration"), "maxConnections"));
+			}
+		} catch (IllegalStateException | ClassCastException e) {
+			log.debug("Failed to read the maximum connections of {}", httpClient.getClass(), e);
+		}
+	}
+	
+	/**
+	 * Unwrap the HTTP client which is wrapped by the SDK or this library to delegate the requests.
+	 */
+	private static Object unwrap(Object httpClient) {
+		Object current = httpClient;
+		for (int i = 0; i < MAX_UNWRAP_DEPTH && current != null
+				&& ReflectionUtils.findField(current.getClass(), "delegate") != null; i++) {
+			current = getField(current, "delegate");
+		}
+		return current;
+	}
+}
@@ -15,39 +15,48 @@
  */
 package jp.xet.springconfig.aws.v2;
 
-import static jp.xet.springconfig.aws.InternalReflectionUtil.invokeMethod;
-import static jp.xet.springconfig.aws.v2.AwsClientV2Util.build;
-import static jp.xet.springconfig.aws.v2.AwsClientV2Util.configureClientOverrideConfiguration;
-import static jp.xet.springconfig.aws.v2.AwsClientV2Util.configureCredentialsProvider;
-import static jp.xet.springconfig.aws.v2.AwsClientV2Util.configureEndpoint;
-import static jp.xet.springconfig.aws.v2.AwsClientV2Util.configureHttpAsyncClientBuilder;
-import static jp.xet.springconfig.aws.v2.AwsClientV2Util.configureHttpClient;
-import static jp.xet.springconfig.aws.v2.AwsClientV2Util.configureHttpSyncClientBuilder;
-import static jp.xet.springconfig.aws.v2.AwsClientV2Util.configureRegion;
-import static jp.xet.springconfig.aws.v2.AwsClientV2Util.configureServiceConfiguration;
-import static jp.xet.springconfig.aws.v2.AwsClientV2Util.createBuilder;
-
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Supplier;
 
 import lombok.RequiredArgsConstructor;
+import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 
+import org.springframework.aop.framework.ProxyFactory;
 import org.springframework.beans.factory.BeanFactory;
 import org.springframework.beans.factory.config.AbstractFactoryBean;
+import org.springframework.util.StopWatch;
+
+import org.aopalliance.intercept.MethodInterceptor;
 
+import jp.xet.springconfig.aws.AwsClientDescriptor;
+import jp.xet.springconfig.aws.AwsClientDescriptors;
+import jp.xet.springconfig.aws.AwsRetryBudgetProperties;
+import jp.xet.springconfig.aws.RetryBudget;
+import jp.xet.springconfig.aws.RetryBudgets;
+import jp.xet.springconfig.aws.StartupSteps;
 import jp.xet.springconfig.aws.v2.AwsClientV2Configuration.AwsClientV2Properties;
+import jp.xet.springconfig.aws.v2.AwsClientV2Configuration.AwsBulkheadV2Properties;
+import jp.xet.springconfig.aws.v2.AwsClientV2Configuration.AwsCacheV2Properties;
+import jp.xet.springconfig.aws.v2.AwsClientV2Configuration.AwsCoalescingV2Properties;
+import jp.xet.springconfig.aws.v2.AwsClientV2Configuration.AwsHedgingV2Properties;
+import jp.xet.springconfig.aws.v2.AwsClientV2Configuration.AwsRateLimiterV2Properties;
 import jp.xet.springconfig.aws.v2.AwsClientV2Configuration.AwsS3ClientV2Properties;
+import jp.xet.springconfig.aws.v2.AwsClientV2Configuration.CrtAsyncHttpClientBuilder;
+import jp.xet.springconfig.aws.v2.AwsClientV2Configuration.HttpClientType;
 
 import software.amazon.awssdk.auth.credentials.AwsCredentialsProvider;
 import software.amazon.awssdk.core.SdkClient;
-import software.amazon.awssdk.core.ServiceConfiguration;
 import software.amazon.awssdk.core.client.builder.SdkAsyncClientBuilder;
 import software.amazon.awssdk.core.client.builder.SdkSyncClientBuilder;
 import software.amazon.awssdk.core.client.config.ClientOverrideConfiguration;
 import software.amazon.awssdk.http.SdkHttpClient;
-import software.amazon.awssdk.http.apache.ApacheHttpClient;
-import software.amazon.awssdk.http.apache.ProxyConfiguration;
 import software.amazon.awssdk.http.async.SdkAsyncHttpClient;
 import software.amazon.awssdk.http.nio.netty.NettyNioAsyncHttpClient;
 import software.amazon.awssdk.http.nio.netty.SdkEventLoopGroup;
@@ -64,24 +73,50 @@ class AwsClientV2FactoryBean<T>extends AbstractFactoryBean<T> {
 	
 	private static final String S3_CLIENT = "software.amazon.awssdk.services.s3.S3Client";
 	
-	private static final String S3_CONFIG = "software.amazon.awssdk.services.s3.S3Configuration";
 	
-	
-	private static AwsClientV2Properties getAwsClientProperties(
-			Map<String, AwsClientV2Properties> map, Class<?> clientClass) {
+	/**
+	 * Get the property name of the client, which is {@code <service-package-name>[-async]}.
+	 * 
+	 * @param clientClass AWS client class
+	 * @return the property name
+	 */
+	static String getPropertyName(Class<?> clientClass) {
 		try {
 			String servicePackageName = clientClass.getPackage().getName()
 				.substring("software.amazon.awssdk.services.".length())
 				.replace('.', '-');
 			String serviceNameSuffix = clientClass.getName().endsWith("AsyncClient") ? "-async" : "";
 			
-			return map.get(servicePackageName + serviceNameSuffix);
+			return servicePackageName + serviceNameSuffix;
 		} catch (IndexOutOfBoundsException e) {
 			log.error("Failed to get property name: {}", clientClass);
 			throw e;
 		}
 	}
 	
+	/**
+	 * Get the key of the properties applied to the client.
+	 * 
+	 * @param propertyNames the names of the configured properties
+	 * @param clientClass AWS client class
+	 * @return {@code aws2.<service-package-name>[-async]} or {@code aws2.default},
+	 *     or {@code null} if no properties are applied
+	 */
+	static String getPropertyKey(Set<String> propertyNames, Class<?> clientClass) {
+		String propertyName = getPropertyName(clientClass);
+		if (propertyNames.contains(propertyName)) {
+			return "aws2." + propertyName;
+		}
+		return propertyNames.contains(AwsClientV2Configuration.DEFAULT_KEY)
+				? "aws2." + AwsClientV2Configuration.DEFAULT_KEY : null;
+	}
+	
+	private static AwsClientV2Properties getAwsClientProperties(
+			Map<String, AwsClientV2Properties> map, Class<?> clientClass) {
+		AwsClientV2Properties properties = map.get(getPropertyName(clientClass));
+		return properties != null ? properties : map.get(AwsClientV2Configuration.DEFAULT_KEY);
+	}
+	
 	
 	private final Class<T> clientClass;
 	
@@ -89,6 +124,11 @@ class AwsClientV2FactoryBean<T>extends AbstractFactoryBean<T> {
 	
 	private final AwsS3ClientV2Properties awsS3ClientV2Properties;
 	
+	private final AwsClientV2Configurer configurer;
+	
+	@Setter
+	private AwsClientV2BuildCoordinator coordinator;
+	
 	
 	@Override
 	public Class<?> getObjectType() {
@@ -96,10 +136,154 @@ class AwsClientV2FactoryBean<T>extends AbstractFactoryBean<T> {
 	}
 	
 	@Override
+	@SuppressWarnings("unchecked")
 	protected T createInstance() throws Exception {
-		Object builder = createBuilder(clientClass);
+		StartupSteps.Step step = StartupSteps.start(getBeanFactory(), "aws.client.v2.create")
+			.tag("client", clientClass.getName());
+		try {
+			StopWatch stopWatch = new StopWatch();
+			stopWatch.start();
+			Object client = coordinator == null ? null : coordinator.getClient(clientClass);
+			if (client == null) {
+				Object builder = createConfiguredBuilder();
+				client = callStep("build", () -> configurer.build(builder));
+			}
+			stopWatch.stop();
+			recordDescriptor(client, stopWatch.getTotalTimeMillis());
+			return (T) decorate(client);
+		} finally {
+			step.close();
+		}
+	}
+	
+	private <R> R callStep(String phase, Supplier<R> action) {
+		StartupSteps.Step step = StartupSteps.start(getBeanFactory(), "aws.client.v2.create." + phase)
+			.tag("client", clientClass.getName());
+		try {
+			return action.get();
+		} finally {
+			step.close();
+		}
+	}
+	
+	private void runStep(String phase, Runnable action) {
+		callStep(phase, () -> {
+			action.run();
+			return null;
+		});
+	}
+	
+	/**
+	 * Decorate the client by a proxy with the caching, coalescing, hedging and async bulkhead interceptors,
+	 * if enabled. The cached responses are returned first, and the concurrent equal calls are coalesced before
+	 * hedging. Each of the first and the hedged requests acquires a permit of the bulkhead.
+	 */
+	private Object decorate(Object client) {
+		BeanFactory beanFactory = getBeanFactory();
+		AwsClientV2Properties config = getAwsClientProperties(awsClientV2PropertiesMap, clientClass);
+		if (beanFactory == null || config == null) {
+			return client;
+		}
+		List<MethodInterceptor> interceptors = new ArrayList<>();
+		Optional.ofNullable(getCachingInterceptor(config.getCache(), beanFactory))
+			.ifPresent(interceptors::add);
+		Optional.ofNullable(getCoalescingInterceptor(config.getCoalescing()))
+			.ifPresent(interceptors::add);
+		Optional.ofNullable(getHedgingInterceptor(config.getHedging(), beanFactory))
+			.ifPresent(interceptors::add);
+		Optional.ofNullable(getBulkheadInterceptor(config.getBulkhead(), beanFactory))
+			.ifPresent(interceptors::add);
+		if (interceptors.isEmpty()) {
+			return client;
+		}
+		ProxyFactory proxyFactory = new ProxyFactory(client);
+		proxyFactory.setInterfaces(clientClass);
+		interceptors.forEach(proxyFactory::addAdvice);
+		return proxyFactory.getProxy(clientClass.getClassLoader());
+	}
+	
+	private AwsClientV2BulkheadInterceptor getBulkheadInterceptor(AwsBulkheadV2Properties bulkhead,
+			BeanFactory beanFactory) {
+		// the bulkhead of a sync client is an execution interceptor
+		if (bulkhead == null || Boolean.TRUE.equals(bulkhead.getEnabled()) == false
+				|| clientClass.getName().endsWith("AsyncClient") == false) {
+			return null;
+		}
+		return new AwsClientV2BulkheadInterceptor(getConcurrencyLimiter(bulkhead, beanFactory));
+	}
+	
+	private AwsClientV2CachingInterceptor getCachingInterceptor(AwsCacheV2Properties cache, BeanFactory beanFactory) {
+		if (cache == null || Boolean.TRUE.equals(cache.getEnabled()) == false
+				|| cache.getOperations() == null || cache.getOperations().isEmpty()
+				|| beanFactory.containsBean(AwsClientV2ResponseCache.BEAN_NAME) == false) {
+			return null;
+		}
+		AwsClientV2ResponseCache responseCache =
+				beanFactory.getBean(AwsClientV2ResponseCache.BEAN_NAME, AwsClientV2ResponseCache.class);
+		if (beanFactory.containsBean(AwsClientV2MetricsInterceptor.BEAN_NAME)) {
+			beanFactory.getBean(AwsClientV2MetricsInterceptor.BEAN_NAME, AwsClientV2MetricsInterceptor.class)
+				.bindResponseCache(responseCache);
+		}
+		return new AwsClientV2CachingInterceptor(clientClass.getName(), cache.getOperations(), responseCache,
+				responseCache.getRefreshExecutor(), Clock.systemUTC());
+	}
+	
+	private AwsClientV2CoalescingInterceptor getCoalescingInterceptor(AwsCoalescingV2Properties coalescing) {
+		if (coalescing == null || Boolean.TRUE.equals(coalescing.getEnabled()) == false
+				|| coalescing.getOperations() == null || coalescing.getOperations().isEmpty()) {
+			return null;
+		}
+		return new AwsClientV2CoalescingInterceptor(coalescing.getOperations());
+	}
+	
+	private AwsClientV2HedgingInterceptor getHedgingInterceptor(AwsHedgingV2Properties hedging,
+			BeanFactory beanFactory) {
+		if (hedging == null || Boolean.TRUE.equals(hedging.getEnabled()) == false
+				|| hedging.getOperations() == null || hedging.getOperations().isEmpty()) {
+			return null;
+		}
+		if (clientClass.getName().endsWith("AsyncClient") == false) {
+			log.warn("Hedging is supported only by async clients -- ignored: {}", clientClass.getName());
+			return null;
+		}
+		if (beanFactory.containsBean(AwsClientV2HedgingScheduler.BEAN_NAME) == false) {
+			return null;
+		}
+		AwsRetryBudgetProperties budget = new AwsRetryBudgetProperties();
+		budget.setRatio(hedging.getBudget());
+		budget.setMinRetriesPerSecond(0.0);
+		return new AwsClientV2HedgingInterceptor(hedging.getOperations(),
+				hedging.getDelay(), hedging.getPercentile(), RetryBudgets.create(clientClass.getName(), budget),
+				beanFactory.getBean(AwsClientV2HedgingScheduler.BEAN_NAME, AwsClientV2HedgingScheduler.class)
+					.getExecutor());
+	}
+	
+	private void recordDescriptor(Object client, long buildTimeMillis) {
+		BeanFactory beanFactory = getBeanFactory();
+		if (beanFactory == null || beanFactory.containsBean(AwsClientDescriptors.BEAN_NAME) == false) {
+			return;
+		}
+		AwsClientV2Properties config = getAwsClientProperties(awsClientV2PropertiesMap, clientClass);
+		AwsClientDescriptor.AwsClientDescriptorBuilder builder = AwsClientDescriptor.builder()
+			.beanName(clientClass.getName())
+			.clientClass(clientClass.getName())
+			.propertyKey(getPropertyKey(awsClientV2PropertiesMap.keySet(), clientClass))
+			.credentialsProviderBeanName(config == null ? null : config.getCredentialsProviderBeanName())
+			.built(true)
+			.buildTimeMillis(buildTimeMillis);
+		beanFactory.getBean(AwsClientDescriptors.BEAN_NAME, AwsClientDescriptors.class)
+			.record(AwsClientV2Descriptions.describe(builder, client).build());
+	}
+	
+	/**
+	 * Create AWS client builder which is configured by the properties.
+	 * 
+	 * @return AWS client builder
+	 */
+	Object createConfiguredBuilder() {
+		Object builder = callStep("builder", configurer::createBuilder);
 		configureBuilder(builder);
-		return build(builder);
+		return builder;
 	}
 	
 	private void configureBuilder(Object builder) {
@@ -109,104 +293,170 @@ class AwsClientV2FactoryBean<T>extends AbstractFactoryBean<T> {
 		}
 		
 		if (clientClass.getName().equals(S3_CLIENT)) {
-			configureAmazonS3ClientBuilder(builder);
+			runStep("s3-configuration", () -> configureAmazonS3ClientBuilder(builder));
 		}
 		
-		AwsClientV2Properties config = getAwsClientProperties(awsClientV2PropertiesMap, clientClass);
-		if (config == null) {
-			return;
-		}
+		// shared event loop group is applied even if no properties are configured
+		AwsClientV2Properties config = Optional.ofNullable(getAwsClientProperties(awsClientV2PropertiesMap, clientClass))
+			.orElseGet(AwsClientV2Properties::new);
 		
 		Optional.ofNullable(config.getEndpoint())
-			.ifPresent(endpoint -> configureEndpoint(builder, endpoint));
+			.ifPresent(endpoint -> configurer.configureEndpoint(builder, endpoint));
 		
 		Optional.ofNullable(config.getRegion())
-			.ifPresent(region -> configureRegion(builder, region));
+			.ifPresent(region -> configurer.configureRegion(builder, region));
 		
-		configureSdkHttpClientBuilder(builder, config, beanFactory);
-		
-		Optional.ofNullable(config.getCredentialsProviderBeanName())
+		runStep("credentials", () -> Optional.ofNullable(config.getCredentialsProviderBeanName())
 			.ifPresent(credentialsProviderBeanName -> {
 				AwsCredentialsProvider credentialsProvider =
 						beanFactory.getBean(credentialsProviderBeanName, AwsCredentialsProvider.class);
-				configureCredentialsProvider(builder, credentialsProvider);
-			});
+				configurer.configureCredentialsProvider(builder, credentialsProvider);
+			}));
+		
+		Optional.ofNullable(getClientOverrideConfiguration(config, beanFactory))
+			.ifPresent(clientOverrideConfiguration ->
+					configurer.configureClientOverrideConfiguration(builder, clientOverrideConfiguration));
 		
-		Optional.ofNullable(config.getClientOverrideConfigurationBeanName())
-			.ifPresent(clientOverrideConfigurationBeanName -> {
-				ClientOverrideConfiguration clientOverrideConfiguration =
-						beanFactory.getBean(clientOverrideConfigurationBeanName, ClientOverrideConfiguration.class);
-				configureClientOverrideConfiguration(builder, clientOverrideConfiguration);
+		runStep("http-client", () -> configureHttpClient(builder, config, beanFactory));
+	}
+	
+	private void configureHttpClient(Object builder, AwsClientV2Properties config, BeanFactory beanFactory) {
+		configureSdkHttpClientBuilder(builder, config, beanFactory);
+		
+		Optional.ofNullable(config.getSharedHttpClientName())
+			.ifPresent(sharedHttpClientName -> {
+				if (builder instanceof SdkSyncClientBuilder) {
+					SdkHttpClient sdkHttpClient = beanFactory.getBean(
+							AwsSharedHttpClientV2FactoryBean.getBeanName(sharedHttpClientName), SdkHttpClient.class);
+					configurer.configureHttpClient(builder, sdkHttpClient);
+				}
+				if (builder instanceof SdkAsyncClientBuilder) {
+					SdkAsyncHttpClient sdkAsyncHttpClient = beanFactory.getBean(
+							AwsSharedAsyncHttpClientV2FactoryBean.getBeanName(sharedHttpClientName),
+							SdkAsyncHttpClient.class);
+					configurer.configureHttpAsyncClient(builder, sdkAsyncHttpClient);
+				}
 			});
 		
 		Optional.ofNullable(config.getHttpClientBeanName())
 			.ifPresent(httpClientBeanName -> {
 				SdkHttpClient sdkHttpClient = beanFactory.getBean(httpClientBeanName, SdkHttpClient.class);
-				configureHttpClient(builder, sdkHttpClient);
+				configurer.configureHttpClient(builder, sdkHttpClient);
 			});
 	}
 	
+	private ClientOverrideConfiguration getClientOverrideConfiguration(AwsClientV2Properties config,
+			BeanFactory beanFactory) {
+		ClientOverrideConfiguration clientOverrideConfiguration = config.getClientOverrideConfigurationBeanName() == null
+				? null
+				: beanFactory.getBean(config.getClientOverrideConfigurationBeanName(), ClientOverrideConfiguration.class);
+		clientOverrideConfiguration = AwsClientV2OverrideConfigurations.merge(clientOverrideConfiguration,
+				config.getRetry(), config.getTimeouts(), config.getOperations());
+		AwsRetryBudgetProperties retryBudget = config.getRetryBudget();
+		if (retryBudget != null && Boolean.TRUE.equals(retryBudget.getEnabled())) {
+			clientOverrideConfiguration = AwsClientV2OverrideConfigurations.addRetryBudget(clientOverrideConfiguration,
+					new AwsClientV2RetryBudgetInterceptor(getRetryBudget(retryBudget, config.getRegion(), beanFactory)));
+		}
+		AwsRateLimiterV2Properties rateLimiter = config.getRateLimiter();
+		if (rateLimiter != null && Boolean.TRUE.equals(rateLimiter.getEnabled())) {
+			clientOverrideConfiguration = AwsClientV2OverrideConfigurations.addRateLimiter(clientOverrideConfiguration,
+					getRateLimitingInterceptor(rateLimiter, config.getRegion(), beanFactory));
+		}
+		AwsBulkheadV2Properties bulkhead = config.getBulkhead();
+		if (bulkhead != null && Boolean.TRUE.equals(bulkhead.getEnabled())
+				&& clientClass.getName().endsWith("AsyncClient") == false) {
+			// the permit is acquired after waiting for the rate limiter, not to count the wait as the latency
+			clientOverrideConfiguration = AwsClientV2OverrideConfigurations.addBulkhead(clientOverrideConfiguration,
+					new AwsClientV2BulkheadInterceptor(getConcurrencyLimiter(bulkhead, beanFactory)));
+		}
+		if (beanFactory.containsBean(AwsClientV2MetricsInterceptor.BEAN_NAME) == false) {
+			return clientOverrideConfiguration;
+		}
+		AwsClientV2MetricsInterceptor metricsInterceptor =
+				beanFactory.getBean(AwsClientV2MetricsInterceptor.BEAN_NAME, AwsClientV2MetricsInterceptor.class);
+		if (metricsInterceptor.isEnabled() == false) {
+			return clientOverrideConfiguration;
+		}
+		ClientOverrideConfiguration.Builder clientOverrideConfigurationBuilder = clientOverrideConfiguration == null
+				? ClientOverrideConfiguration.builder()
+				: clientOverrideConfiguration.toBuilder();
+		return clientOverrideConfigurationBuilder.addExecutionInterceptor(metricsInterceptor).build();
+	}
+	
+	private RetryBudget getRetryBudget(AwsRetryBudgetProperties retryBudget, String region, BeanFactory beanFactory) {
+		RetryBudget budget;
+		if (Boolean.TRUE.equals(retryBudget.getShared()) == false
+				|| beanFactory.containsBean(RetryBudgets.BEAN_NAME) == false) {
+			budget = RetryBudgets.create(clientClass.getName(), retryBudget);
+		} else {
+			String serviceName = getPropertyName(clientClass).replaceFirst("-async$", "");
+			budget = beanFactory.getBean(RetryBudgets.BEAN_NAME, RetryBudgets.class)
+				.getBudget("aws2." + serviceName + "@" + region, retryBudget);
+		}
+		if (beanFactory.containsBean(AwsClientV2MetricsInterceptor.BEAN_NAME)) {
+			beanFactory.getBean(AwsClientV2MetricsInterceptor.BEAN_NAME, AwsClientV2MetricsInterceptor.class)
+				.bindRetryBudget(budget);
+		}
+		return budget;
+	}
+	
+	private ConcurrencyLimiter getConcurrencyLimiter(AwsBulkheadV2Properties bulkhead, BeanFactory beanFactory) {
+		ConcurrencyLimiter concurrencyLimiter = new ConcurrencyLimiter(bulkhead);
+		if (beanFactory.containsBean(AwsClientV2MetricsInterceptor.BEAN_NAME)) {
+			beanFactory.getBean(AwsClientV2MetricsInterceptor.BEAN_NAME, AwsClientV2MetricsInterceptor.class)
+				.bindBulkhead(concurrencyLimiter, clientClass.getName());
+		}
+		return concurrencyLimiter;
+	}
+	
+	private AwsClientV2RateLimitingInterceptor getRateLimitingInterceptor(AwsRateLimiterV2Properties rateLimiter,
+			String region, BeanFactory beanFactory) {
+		if (Boolean.TRUE.equals(rateLimiter.getShared()) == false
+				|| beanFactory.containsBean(AwsClientV2RateLimiters.BEAN_NAME) == false) {
+			return AwsClientV2RateLimiters.createInterceptor(rateLimiter);
+		}
+		String serviceName = getPropertyName(clientClass).replaceFirst("-async$", "");
+		return beanFactory.getBean(AwsClientV2RateLimiters.BEAN_NAME, AwsClientV2RateLimiters.class)
+			.getInterceptor(serviceName, region, rateLimiter);
+	}
+	
 	private void configureSdkHttpClientBuilder(Object builder, AwsClientV2Properties config, BeanFactory beanFactory) {
+		if (config.getSharedHttpClientName() != null || config.getHttpClientBeanName() != null) {
+			// the client can not be configured with both HTTP client and HTTP client builder,
+			// and the builder properties may be inherited from the default properties
+			return;
+		}
+		
+		HttpClientType httpClientType = getHttpClientType(builder, config);
+		
 		if (builder instanceof SdkSyncClientBuilder) {
-			Optional.ofNullable(config.getApacheHttpClientBuilder())
-				.map(sdkClientConfig -> {
-					ApacheHttpClient.Builder apacheHttpClientBuilder = ApacheHttpClient.builder()
-						.socketTimeout(sdkClientConfig.getSocketTimeout())
-						.connectionTimeout(sdkClientConfig.getConnectionTimeout())
-						.maxConnections(sdkClientConfig.getMaxConnections())
-						.expectContinueEnabled(sdkClientConfig.getExpectContinueEnabled())
-						.connectionTimeToLive(sdkClientConfig.getConnectionTimeToLive())
-						.connectionMaxIdleTime(sdkClientConfig.getConnectionMaxIdleTime())
-						.useIdleConnectionReaper(sdkClientConfig.getUseIdleConnectionReaper());
-					Optional.ofNullable(sdkClientConfig.getConnectionAcquisitionTimeout())
-						.ifPresent(apacheHttpClientBuilder::connectionAcquisitionTimeout);
-					if (sdkClientConfig.getProxyConfiguration() != null) {
-						apacheHttpClientBuilder.proxyConfiguration(ProxyConfiguration.builder()
-							.endpoint(sdkClientConfig.getProxyConfiguration().getEndpoint())
-							.username(sdkClientConfig.getProxyConfiguration().getUsername())
-							.password(sdkClientConfig.getProxyConfiguration().getPassword())
-							.ntlmDomain(sdkClientConfig.getProxyConfiguration().getNtlmDomain())
-							.ntlmWorkstation(sdkClientConfig.getProxyConfiguration().getNtlmWorkstation())
-							.preemptiveBasicAuthenticationEnabled(
-									sdkClientConfig.getProxyConfiguration().getPreemptiveBasicAuthenticationEnabled())
-							.useSystemPropertyValues(
-									sdkClientConfig.getProxyConfiguration().getUseSystemPropertyValues())
-							.build());
-					}
-					return apacheHttpClientBuilder;
-				})
-				.ifPresent(sdkHttpClientBuilder -> configureHttpSyncClientBuilder(builder, sdkHttpClientBuilder));
+			Optional.ofNullable(AwsHttpClientV2Builders.createSdkHttpClientBuilder(httpClientType, config))
+				.map(sdkHttpClientBuilder -> instrument(sdkHttpClientBuilder, beanFactory))
+				.ifPresent(sdkHttpClientBuilder ->
+						configurer.configureHttpSyncClientBuilder(builder, sdkHttpClientBuilder));
 		}
 		
-		if (builder instanceof SdkAsyncClientBuilder) {
-			Optional.ofNullable(config.getNettyNioAsyncHttpClientBuilder())
-				.map(sdkClientConfig -> {
-					NettyNioAsyncHttpClient.Builder nettyNioAsyncHttpClientBuilder = NettyNioAsyncHttpClient.builder()
-						.maxConcurrency(sdkClientConfig.getMaxConcurrency())
-						.maxPendingConnectionAcquires(sdkClientConfig.getMaxPendingConnectionAcquires())
-						.protocol(sdkClientConfig.getProtocol())
-						.maxHttp2Streams(sdkClientConfig.getMaxHttp2Streams());
-					Optional.ofNullable(sdkClientConfig.getReadTimeout())
-						.ifPresent(nettyNioAsyncHttpClientBuilder::readTimeout);
-					Optional.ofNullable(sdkClientConfig.getWriteTimeout())
-						.ifPresent(nettyNioAsyncHttpClientBuilder::writeTimeout);
-					Optional.ofNullable(sdkClientConfig.getConnectionAcquisitionTimeout())
-						.ifPresent(nettyNioAsyncHttpClientBuilder::connectionAcquisitionTimeout);
-					Optional.ofNullable(sdkClientConfig.getConnectionTimeout())
-						.ifPresent(nettyNioAsyncHttpClientBuilder::connectionTimeout);
-					if (sdkClientConfig.getEventLoopGroupBeanName() != null) {
-						SdkEventLoopGroup eventLoopGroup = beanFactory.getBean(
-								sdkClientConfig.getEventLoopGroupBeanName(), SdkEventLoopGroup.class);
-						nettyNioAsyncHttpClientBuilder.eventLoopGroup(eventLoopGroup);
-					}
-					if (sdkClientConfig.getEventLoopGroupBuilderBeanName() != null) {
-						SdkEventLoopGroup.Builder eventLoopGroupBuilder = beanFactory.getBean(
-								sdkClientConfig.getEventLoopGroupBeanName(), SdkEventLoopGroup.Builder.class);
-						nettyNioAsyncHttpClientBuilder.eventLoopGroupBuilder(eventLoopGroupBuilder);
-					}
-					return nettyNioAsyncHttpClientBuilder;
-				})
-				.ifPresent(sdkHttpClientBuilder -> configureHttpAsyncClientBuilder(builder, sdkHttpClientBuilder));
+		if (builder instanceof SdkAsyncClientBuilder && httpClientType == HttpClientType.CRT) {
+			configurer.configureHttpAsyncClientBuilder(builder,
+					AwsHttpClientV2Builders.createCrtAsyncHttpClientBuilder(Optional.ofNullable(
+							config.getCrtAsyncHttpClientBuilder()).orElseGet(CrtAsyncHttpClientBuilder::new)));
+		} else if (builder instanceof SdkAsyncClientBuilder) {
+			SdkEventLoopGroup eventLoopGroup = AwsHttpClientV2Builders.getSharedEventLoopGroup(config, beanFactory);
+			SdkAsyncHttpClient.Builder<?> sdkAsyncHttpClientBuilder = null;
+			Integer maxConcurrency = null;
+			if (config.getNettyNioAsyncHttpClientBuilder() != null) {
+				sdkAsyncHttpClientBuilder = AwsHttpClientV2Builders.createNettyNioAsyncHttpClientBuilder(
+						config.getNettyNioAsyncHttpClientBuilder(), beanFactory, eventLoopGroup);
+				maxConcurrency = config.getNettyNioAsyncHttpClientBuilder().getMaxConcurrency();
+			} else if (eventLoopGroup != null) {
+				sdkAsyncHttpClientBuilder = NettyNioAsyncHttpClient.builder().eventLoopGroup(eventLoopGroup);
+			} else if (httpClientType == HttpClientType.NETTY) {
+				sdkAsyncHttpClientBuilder = NettyNioAsyncHttpClient.builder();
+			}
+			if (sdkAsyncHttpClientBuilder != null) {
+				configurer.configureHttpAsyncClientBuilder(builder,
+						instrument(sdkAsyncHttpClientBuilder, maxConcurrency, beanFactory));
+			}
 		}
 		
 		Optional.ofNullable(config.getHttpClientBuilderBeanName())
@@ -214,16 +464,51 @@ class AwsClientV2FactoryBean<T>extends AbstractFactoryBean<T> {
 				if (builder instanceof SdkSyncClientBuilder) {
 					SdkHttpClient.Builder<?> sdkHttpClientBuilder =
 							beanFactory.getBean(httpClientBuilderBeanName, SdkHttpClient.Builder.class);
-					configureHttpSyncClientBuilder(builder, sdkHttpClientBuilder);
+					configurer.configureHttpSyncClientBuilder(builder, sdkHttpClientBuilder);
 				}
 				if (builder instanceof SdkAsyncClientBuilder) {
 					SdkAsyncHttpClient.Builder<?> sdkHttpClientBuilder =
 							beanFactory.getBean(httpClientBuilderBeanName, SdkAsyncHttpClient.Builder.class);
-					configureHttpAsyncClientBuilder(builder, sdkHttpClientBuilder);
+					configurer.configureHttpAsyncClientBuilder(builder, sdkHttpClientBuilder);
 				}
 			});
 	}
 	
+	private SdkHttpClient.Builder<?> instrument(SdkHttpClient.Builder<?> sdkHttpClientBuilder, BeanFactory beanFactory) {
+		if (beanFactory.containsBean(AwsConnectionPoolV2Metrics.BEAN_NAME) == false) {
+			return sdkHttpClientBuilder;
+		}
+		return beanFactory.getBean(AwsConnectionPoolV2Metrics.BEAN_NAME, AwsConnectionPoolV2Metrics.class)
+			.instrument(clientClass.getName(), sdkHttpClientBuilder);
+	}
+	
+	private SdkAsyncHttpClient.Builder<?> instrument(SdkAsyncHttpClient.Builder<?> sdkAsyncHttpClientBuilder,
+			Integer maxConcurrency, BeanFactory beanFactory) {
+		if (beanFactory.containsBean(AwsConnectionPoolV2Metrics.BEAN_NAME) == false) {
+			return sdkAsyncHttpClientBuilder;
+		}
+		return beanFactory.getBean(AwsConnectionPoolV2Metrics.BEAN_NAME, AwsConnectionPoolV2Metrics.class)
+			.instrument(clientClass.getName(), sdkAsyncHttpClientBuilder, maxConcurrency);
+	}
+	
+	private HttpClientType getHttpClientType(Object builder, AwsClientV2Properties config) {
+		HttpClientType httpClientType = config.getHttpClientType();
+		if (httpClientType == null) {
+			return null;
+		}
+		if (httpClientType.isAsync() != builder instanceof SdkAsyncClientBuilder) {
+			// the type may be inherited from the default properties
+			log.debug("HTTP client type {} is ignored for {}", httpClientType, clientClass);
+			return null;
+		}
+		if (httpClientType.isPresent(clientClass.getClassLoader()) == false) {
+			throw new IllegalStateException(String.format(Locale.ENGLISH,
+					"HTTP client type %s is configured for %s, but %s is not found on the classpath",
+					httpClientType, clientClass.getName(), httpClientType.getClassName()));
+		}
+		return httpClientType;
+	}
+	
 	@Override
 	protected void destroyInstance(T instance) throws Exception {
 		if (instance instanceof SdkClient) {
@@ -232,19 +517,11 @@ class AwsClientV2FactoryBean<T>extends AbstractFactoryBean<T> {
 	}
 	
 	private void configureAmazonS3ClientBuilder(Object builder) {
-		try {
-			Object configBuilder = createBuilder(Class.forName(S3_CONFIG));
-			invokeMethod(configBuilder, "pathStyleAccessEnabled", awsS3ClientV2Properties.getPathStyleAccessEnabled());
-			invokeMethod(configBuilder, "chunkedEncodingEnabled", awsS3ClientV2Properties.getChunkedEncodingEnabled());
-			invokeMethod(configBuilder, "accelerateModeEnabled", awsS3ClientV2Properties.getAccelerateModeEnabled());
-			invokeMethod(configBuilder, "dualstackEnabled", awsS3ClientV2Properties.getDualstackEnabled());
-			invokeMethod(configBuilder, "checksumValidationEnabled",
-					awsS3ClientV2Properties.getChecksumValidationEnabled());
-			
-			ServiceConfiguration serviceConfiguration = build(configBuilder);
-			configureServiceConfiguration(builder, serviceConfiguration);
-		} catch (ClassNotFoundException e) {
-			log.debug(S3_CONFIG + " is not found in classpath -- ignored", e);
-		}
+		configurer.configureS3Configuration(builder,
+				awsS3ClientV2Properties.getPathStyleAccessEnabled(),
+				awsS3ClientV2Properties.getChunkedEncodingEnabled(),
+				awsS3ClientV2Properties.getAccelerateModeEnabled(),
+				awsS3ClientV2Properties.getDualstackEnabled(),
+				awsS3ClientV2Properties.getChecksumValidationEnabled());
 	}
 }
@@ -0,0 +1,243 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jp.xet.springconfig.aws.v2;
+
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+import java.util.stream.Collectors;
+
+import org.springframework.aop.ProxyMethodInvocation;
+import org.springframework.aop.support.AopUtils;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+
+import jp.xet.springconfig.aws.RetryBudget;
+
+import software.amazon.awssdk.core.SdkRequest;
+
+/**
+ * {@link MethodInterceptor} of an async client which sends a hedged request of the allowed operations,
+ * if the first request is not completed in the delay.
+ *
+ * <p>The response which completes first is returned, and the other request is cancelled.
+ * If a request fails, the other request is still awaited, and the call fails only if both requests fail.
+ * The delay is fixed, or the percentile of the recent latencies of the operation when the samples are enough.
+ * The hedged requests are limited by {@link RetryBudget} to a ratio of the calls, and proceed through
+ * the rest of the interceptors of the proxy as the first requests do.</p>
+ *
+ * <p>Only the operations which take the request object or its builder consumer are hedged,
+ * because a streaming request body or response transformer can not be shared by two requests.</p>
+ *
+ * @author miyamoto.daisuke
+ */
+class AwsClientV2HedgingInterceptor implements MethodInterceptor {
+	
+	private static final Duration DEFAULT_DELAY = Duration.ofMillis(50);
+	
+	private static final Duration LATENCY_WINDOW = Duration.ofSeconds(30);
+	
+	private static final long MIN_SAMPLES = 100;
+	
+	
+	private final Set<String> operations;
+	
+	private final long delayNanos;
+	
+	private final Double percentile;
+	
+	private final RetryBudget budget;
+	
+	private final ScheduledExecutorService scheduler;
+	
+	private final LongSupplier ticker;
+	
+	private final Map<Method, OperationState> states = new ConcurrentHashMap<>();
+	
+	
+	AwsClientV2HedgingInterceptor(Collection<String> operations, Duration delay, Double percentile, RetryBudget budget,
+			ScheduledExecutorService scheduler) {
+		this(operations, delay, percentile, budget, scheduler, System::nanoTime);
+	}
+	
+	AwsClientV2HedgingInterceptor(Collection<String> operations, Duration delay, Double percentile, RetryBudget budget,
+			ScheduledExecutorService scheduler, LongSupplier ticker) {
+		this.operations = operations.stream().map(AwsClientV2OperationInterceptor::normalize).collect(Collectors.toSet());
+		this.delayNanos = (delay != null ? delay : DEFAULT_DELAY).toNanos();
+		this.percentile = percentile;
+		this.budget = budget;
+		this.scheduler = scheduler;
+		this.ticker = ticker;
+	}
+	
+	@Override
+	public Object invoke(MethodInvocation invocation) throws Throwable {
+		OperationState state = states.get(invocation.getMethod());
+		if (state == null) {
+			state = states.computeIfAbsent(invocation.getMethod(), this::createState);
+		}
+		if (state.histogram == null) {
+			return invocation.proceed();
+		}
+		// every call earns the budget of the hedged requests
+		budget.recordSuccess();
+		HedgedCall call = new HedgedCall(invocation, state);
+		long start = now();
+		call.start(start, (CompletableFuture<?>) invocation.proceed());
+		return call.result;
+	}
+	
+	private OperationState createState(Method method) {
+		boolean hedged = CompletableFuture.class.equals(method.getReturnType())
+				&& method.getParameterCount() == 1
+				&& (SdkRequest.class.isAssignableFrom(method.getParameterTypes()[0])
+						|| Consumer.class.equals(method.getParameterTypes()[0]))
+				&& operations.contains(AwsClientV2OperationInterceptor.normalize(method.getName()));
+		return new OperationState(hedged ? new LatencyHistogram(LATENCY_WINDOW, MIN_SAMPLES, ticker) : null);
+	}
+	
+	private long now() {
+		return ticker.getAsLong();
+	}
+	
+	
+	/**
+	 * State of an operation.
+	 */
+	private class OperationState {
+		
+		private final LatencyHistogram histogram;
+		
+		private volatile long delay;
+		
+		private volatile long delayUpdatedAt;
+		
+		
+		OperationState(LatencyHistogram histogram) {
+			this.histogram = histogram;
+			delay = delayNanos;
+		}
+		
+		long getDelay(long now) {
+			if (percentile == null) {
+				return delayNanos;
+			}
+			// the percentile is estimated at most once per second
+			if (now - delayUpdatedAt >= TimeUnit.SECONDS.toNanos(1)) {
+				long estimated = histogram.getPercentile(percentile);
+				delay = estimated < 0 ? delayNanos : estimated;
+				delayUpdatedAt = now;
+			}
+			return delay;
+		}
+	}
+	
+	/**
+	 * A call which consists of the first request and the hedged request.
+	 */
+	private class HedgedCall {
+		
+		private final MethodInvocation invocation;
+		
+		// the clone which proceeds through the rest of the interceptors for the hedged request
+		private final MethodInvocation hedgedInvocation;
+		
+		private final OperationState state;
+		
+		private final CompletableFuture<Object> result = new CompletableFuture<>();
+		
+		// the number of the requests in flight, which is not increased once it reaches 0
+		private final AtomicInteger pending = new AtomicInteger(1);
+		
+		private volatile CompletableFuture<?> first;
+		
+		private volatile CompletableFuture<?> hedged;
+		
+		private volatile ScheduledFuture<?> trigger;
+		
+		
+		HedgedCall(MethodInvocation invocation, OperationState state) {
+			this.invocation = invocation;
+			hedgedInvocation = invocation instanceof ProxyMethodInvocation
+					? ((ProxyMethodInvocation) invocation).invocableClone()
+					: null;
+			this.state = state;
+		}
+		
+		void start(long start, CompletableFuture<?> future) {
+			first = future;
+			first.whenComplete((response, error) -> onComplete(start, response, error));
+			if (result.isDone() == false) {
+				trigger = scheduler.schedule(this::hedge, state.getDelay(start), TimeUnit.NANOSECONDS);
+			}
+			result.whenComplete((response, error) -> cancel());
+		}
+		
+		private void hedge() {
+			if (result.isDone() || budget.tryAcquire() == false
+					|| pending.getAndUpdate(n -> n == 0 ? 0 : n + 1) == 0) {
+				return;
+			}
+			long start = now();
+			try {
+				CompletableFuture<?> future = (CompletableFuture<?>) (hedgedInvocation != null
+						? hedgedInvocation.proceed()
+						: AopUtils.invokeJoinpointUsingReflection(
+								invocation.getThis(), invocation.getMethod(), invocation.getArguments()));
+				hedged = future;
+				future.whenComplete((response, error) -> onComplete(start, response, error));
+				if (result.isDone()) {
+					future.cancel(true);
+				}
+			} catch (Throwable e) { // NOPMD catching generic exceptions
+				onComplete(start, null, e);
+			}
+		}
+		
+		private void onComplete(long start, Object response, Throwable error) {
+			if (error == null) {
+				state.histogram.record(now() - start);
+				result.complete(response);
+			} else if (pending.decrementAndGet() == 0) {
+				result.completeExceptionally(error);
+			}
+		}
+		
+		private void cancel() {
+			cancel(trigger);
+			cancel(first);
+			cancel(hedged);
+		}
+		
+		private void cancel(Future<?> future) {
+			if (future != null && future.isDone() == false) {
+				future.cancel(true);
+			}
+		}
+	}
+}
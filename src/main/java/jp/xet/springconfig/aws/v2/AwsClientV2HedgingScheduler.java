@@ -0,0 +1,58 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jp.xet.springconfig.aws.v2;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+
+import lombok.Getter;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+/**
+ * Scheduler of the hedged requests shared by the async clients,
+ * which is registered if any client sets {@code aws2.*.hedging.enabled=true}.
+ *
+ * <p>A single daemon thread only triggers the hedged requests, which are sent asynchronously,
+ * and the cancelled triggers are removed immediately.</p>
+ *
+ * @author miyamoto.daisuke
+ */
+class AwsClientV2HedgingScheduler implements DisposableBean {
+	
+	static final String BEAN_NAME = "awsClientV2HedgingScheduler";
+	
+	private static final String THREAD_NAME_PREFIX = "aws-hedging-";
+	
+	
+	@Getter
+	private final ScheduledExecutorService executor;
+	
+	
+	AwsClientV2HedgingScheduler() {
+		CustomizableThreadFactory threadFactory = new CustomizableThreadFactory(THREAD_NAME_PREFIX);
+		threadFactory.setDaemon(true);
+		ScheduledThreadPoolExecutor scheduledThreadPoolExecutor = new ScheduledThreadPoolExecutor(1, threadFactory);
+		scheduledThreadPoolExecutor.setRemoveOnCancelPolicy(true);
+		executor = scheduledThreadPoolExecutor;
+	}
+	
+	@Override
+	public void destroy() {
+		executor.shutdownNow();
+	}
+}
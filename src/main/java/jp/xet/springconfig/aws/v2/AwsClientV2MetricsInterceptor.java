@@ -0,0 +1,332 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jp.xet.springconfig.aws.v2;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.ObjectProvider;
+
+import jp.xet.springconfig.aws.ConnectionPoolMetrics;
+import jp.xet.springconfig.aws.RetryBudget;
+
+import io.micrometer.core.instrument.Clock;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import software.amazon.awssdk.awscore.exception.AwsServiceException;
+import software.amazon.awssdk.core.exception.SdkServiceException;
+import software.amazon.awssdk.core.interceptor.Context;
+import software.amazon.awssdk.core.interceptor.ExecutionAttribute;
+import software.amazon.awssdk.core.interceptor.ExecutionAttributes;
+import software.amazon.awssdk.core.interceptor.ExecutionInterceptor;
+import software.amazon.awssdk.core.interceptor.SdkExecutionAttribute;
+
+/**
+ * {@link ExecutionInterceptor} which records the metrics of each API call to Micrometer.
+ *
+ * <ul>
+ *     <li>{@code aws.client.call} - Timer of the whole API call, tagged by {@code outcome}.</li>
+ *     <li>{@code aws.client.call.marshalling} - Timer of marshalling the request.</li>
+ *     <li>{@code aws.client.call.signing} - Timer from the end of marshalling to the first transmission,
+ *         which is mostly spent for signing the request.</li>
+ *     <li>{@code aws.client.call.attempt} - Timer of the transmission of each attempt.</li>
+ *     <li>{@code aws.client.call.retries} - Counter of the retried attempts.</li>
+ *     <li>{@code aws.client.call.responses} - Counter of the HTTP responses, tagged by {@code status}.</li>
+ *     <li>{@code aws.client.call.errors} - Counter of the failed calls, tagged by {@code error.code}.</li>
+ * </ul>
+ *
+ * <p>All the meters are tagged by {@code service} and {@code operation}, and resolved only once
+ * for each operation. The number of {@code error.code} tags is bounded for each operation.</p>
+ *
+ * @author miyamoto.daisuke
+ */
+@Slf4j
+@RequiredArgsConstructor
+class AwsClientV2MetricsInterceptor implements ExecutionInterceptor, InitializingBean {
+	
+	static final String BEAN_NAME = "awsClientV2MetricsInterceptor";
+	
+	private static final ExecutionAttribute<CallState> CALL_STATE =
+			new ExecutionAttribute<>(AwsClientV2MetricsInterceptor.class.getName() + ".CallState");
+	
+	private static final int MAX_ERROR_CODES = 32;
+	
+	private static final int MAX_STATUS_CODE = 600;
+	
+	private static final String OTHER = "OTHER";
+	
+	
+	private final ObjectProvider<MeterRegistry> meterRegistryProvider;
+	
+	private final Map<String, Map<String, OperationMeters>> meters = new ConcurrentHashMap<>();
+	
+	private MeterRegistry meterRegistry;
+	
+	private Clock clock;
+	
+	
+	@Override
+	public void afterPropertiesSet() {
+		meterRegistry = meterRegistryProvider.getIfUnique();
+		if (meterRegistry == null) {
+			log.debug("Unique MeterRegistry is not found -- AWS client metrics are disabled");
+			return;
+		}
+		clock = meterRegistry.config().clock();
+	}
+	
+	/**
+	 * Returns whether the metrics are recorded.
+	 *
+	 * @return {@code true} if {@link MeterRegistry} is available
+	 */
+	boolean isEnabled() {
+		return meterRegistry != null;
+	}
+	
+	/**
+	 * Bind the gauges of the connection pool to the registry if enabled.
+	 *
+	 * @param connectionPoolMetrics the connection pool metrics
+	 */
+	void bindConnectionPool(ConnectionPoolMetrics connectionPoolMetrics) {
+		if (isEnabled()) {
+			connectionPoolMetrics.bindTo(meterRegistry);
+		}
+	}
+	
+	/**
+	 * Bind the meters of the retry budget to the registry if enabled.
+	 *
+	 * @param retryBudget the retry budget
+	 */
+	void bindRetryBudget(RetryBudget retryBudget) {
+		if (isEnabled()) {
+			retryBudget.bindTo(meterRegistry);
+		}
+	}
+	
+	/**
+	 * Bind the meters of the bulkhead to the registry if enabled.
+	 *
+	 * @param concurrencyLimiter the concurrency limiter of the bulkhead
+	 * @param name the name of the client
+	 */
+	void bindBulkhead(ConcurrencyLimiter concurrencyLimiter, String name) {
+		if (isEnabled()) {
+			concurrencyLimiter.bindTo(meterRegistry, name);
+		}
+	}
+	
+	/**
+	 * Bind the meters of the response cache to the registry if enabled.
+	 * The meters are registered once even if called by each client.
+	 *
+	 * @param responseCache the response cache
+	 */
+	void bindResponseCache(AwsClientV2ResponseCache responseCache) {
+		if (isEnabled()) {
+			CaffeineCacheMetrics.monitor(meterRegistry, responseCache.getCache(), AwsClientV2ResponseCache.BEAN_NAME);
+		}
+	}
+	
+	@Override
+	public void beforeExecution(Context.BeforeExecution context, ExecutionAttributes executionAttributes) {
+		if (isEnabled()) {
+			executionAttributes.putAttribute(CALL_STATE, new CallState(getOperationMeters(executionAttributes),
+					clock.monotonicTime()));
+		}
+	}
+	
+	@Override
+	public void beforeMarshalling(Context.BeforeMarshalling context, ExecutionAttributes executionAttributes) {
+		CallState state = executionAttributes.getAttribute(CALL_STATE);
+		if (state != null) {
+			state.phaseStart = clock.monotonicTime();
+		}
+	}
+	
+	@Override
+	public void afterMarshalling(Context.AfterMarshalling context, ExecutionAttributes executionAttributes) {
+		CallState state = executionAttributes.getAttribute(CALL_STATE);
+		if (state != null) {
+			long now = clock.monotonicTime();
+			state.meters.marshalling.record(now - state.phaseStart, TimeUnit.NANOSECONDS);
+			state.phaseStart = now;
+		}
+	}
+	
+	@Override
+	public void beforeTransmission(Context.BeforeTransmission context, ExecutionAttributes executionAttributes) {
+		CallState state = executionAttributes.getAttribute(CALL_STATE);
+		if (state != null) {
+			long now = clock.monotonicTime();
+			if (state.attempts == 0) {
+				state.meters.signing.record(now - state.phaseStart, TimeUnit.NANOSECONDS);
+			}
+			state.attempts++;
+			state.phaseStart = now;
+		}
+	}
+	
+	@Override
+	public void afterTransmission(Context.AfterTransmission context, ExecutionAttributes executionAttributes) {
+		CallState state = executionAttributes.getAttribute(CALL_STATE);
+		if (state != null) {
+			state.meters.attempt.record(clock.monotonicTime() - state.phaseStart, TimeUnit.NANOSECONDS);
+			state.meters.getResponseCounter(context.httpResponse().statusCode()).increment();
+		}
+	}
+	
+	@Override
+	public void afterExecution(Context.AfterExecution context, ExecutionAttributes executionAttributes) {
+		CallState state = executionAttributes.getAttribute(CALL_STATE);
+		if (state != null) {
+			state.meters.success.record(clock.monotonicTime() - state.start, TimeUnit.NANOSECONDS);
+			recordRetries(state);
+		}
+	}
+	
+	@Override
+	public void onExecutionFailure(Context.FailedExecution context, ExecutionAttributes executionAttributes) {
+		CallState state = executionAttributes.getAttribute(CALL_STATE);
+		if (state != null) {
+			state.meters.failure.record(clock.monotonicTime() - state.start, TimeUnit.NANOSECONDS);
+			state.meters.getErrorCounter(getErrorCode(context.exception())).increment();
+			recordRetries(state);
+		}
+	}
+	
+	private void recordRetries(CallState state) {
+		if (state.attempts > 1) {
+			state.meters.retries.increment(state.attempts - 1);
+		}
+	}
+	
+	private OperationMeters getOperationMeters(ExecutionAttributes executionAttributes) {
+		String serviceName = String.valueOf(executionAttributes.getAttribute(SdkExecutionAttribute.SERVICE_NAME));
+		String operationName = String.valueOf(executionAttributes.getAttribute(SdkExecutionAttribute.OPERATION_NAME));
+		Map<String, OperationMeters> serviceMeters = meters.get(serviceName);
+		if (serviceMeters == null) {
+			serviceMeters = meters.computeIfAbsent(serviceName, k -> new ConcurrentHashMap<>());
+		}
+		OperationMeters operationMeters = serviceMeters.get(operationName);
+		if (operationMeters != null) {
+			return operationMeters;
+		}
+		return serviceMeters.computeIfAbsent(operationName, k -> new OperationMeters(meterRegistry, Tags.of(
+				"service", serviceName,
+				"operation", operationName)));
+	}
+	
+	private static String getErrorCode(Throwable exception) {
+		if (exception instanceof AwsServiceException
+				&& ((AwsServiceException) exception).awsErrorDetails() != null
+				&& ((AwsServiceException) exception).awsErrorDetails().errorCode() != null) {
+			return ((AwsServiceException) exception).awsErrorDetails().errorCode();
+		}
+		if (exception instanceof SdkServiceException) {
+			return String.valueOf(((SdkServiceException) exception).statusCode());
+		}
+		return exception == null ? OTHER : exception.getClass().getSimpleName();
+	}
+	
+	
+	/**
+	 * Mutable state of an API call, which is held by {@link ExecutionAttributes}.
+	 */
+	@RequiredArgsConstructor
+	private static class CallState {
+		
+		private final OperationMeters meters;
+		
+		private final long start;
+		
+		private long phaseStart;
+		
+		private int attempts;
+	}
+	
+	/**
+	 * Pre-resolved meters of an operation.
+	 */
+	private static class OperationMeters {
+		
+		private final MeterRegistry meterRegistry;
+		
+		private final Tags tags;
+		
+		private final Timer success;
+		
+		private final Timer failure;
+		
+		private final Timer marshalling;
+		
+		private final Timer signing;
+		
+		private final Timer attempt;
+		
+		private final Counter retries;
+		
+		private final AtomicReferenceArray<Counter> responses = new AtomicReferenceArray<>(MAX_STATUS_CODE);
+		
+		private final Map<String, Counter> errors = new ConcurrentHashMap<>();
+		
+		
+		OperationMeters(MeterRegistry meterRegistry, Tags tags) {
+			this.meterRegistry = meterRegistry;
+			this.tags = tags;
+			success = Timer.builder("aws.client.call").tags(tags).tag("outcome", "SUCCESS").register(meterRegistry);
+			failure = Timer.builder("aws.client.call").tags(tags).tag("outcome", "FAILURE").register(meterRegistry);
+			marshalling = Timer.builder("aws.client.call.marshalling").tags(tags).register(meterRegistry);
+			signing = Timer.builder("aws.client.call.signing").tags(tags).register(meterRegistry);
+			attempt = Timer.builder("aws.client.call.attempt").tags(tags).register(meterRegistry);
+			retries = Counter.builder("aws.client.call.retries").tags(tags).register(meterRegistry);
+		}
+		
+		Counter getResponseCounter(int statusCode) {
+			int index = statusCode > 0 && statusCode < MAX_STATUS_CODE ? statusCode : 0;
+			Counter counter = responses.get(index);
+			if (counter == null) {
+				counter = Counter.builder("aws.client.call.responses").tags(tags)
+					.tag("status", index == 0 ? OTHER : Integer.toString(index))
+					.register(meterRegistry);
+				responses.set(index, counter);
+			}
+			return counter;
+		}
+		
+		Counter getErrorCounter(String errorCode) {
+			Counter counter = errors.get(errorCode);
+			if (counter != null) {
+				return counter;
+			}
+			String tag = errors.size() < MAX_ERROR_CODES ? errorCode : OTHER;
+			return errors.computeIfAbsent(tag, k -> Counter.builder("aws.client.call.errors").tags(tags)
+				.tag("error.code", k)
+				.register(meterRegistry));
+		}
+	}
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jp.xet.springconfig.aws.v2;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+import jp.xet.springconfig.aws.v2.AwsClientV2Configuration.AwsOperationV2Properties;
+
+import software.amazon.awssdk.awscore.AwsRequest;
+import software.amazon.awssdk.awscore.AwsRequestOverrideConfiguration;
+import software.amazon.awssdk.core.SdkRequest;
+import software.amazon.awssdk.core.interceptor.Context;
+import software.amazon.awssdk.core.interceptor.ExecutionAttribute;
+import software.amazon.awssdk.core.interceptor.ExecutionAttributes;
+import software.amazon.awssdk.core.interceptor.ExecutionInterceptor;
+import software.amazon.awssdk.core.interceptor.SdkExecutionAttribute;
+import software.amazon.awssdk.core.retry.RetryPolicy;
+import software.amazon.awssdk.core.retry.RetryPolicyContext;
+
+/**
+ * {@link ExecutionInterceptor} which applies the per-operation overrides of {@code aws2.*.operations.*}.
+ *
+ * <p>The overrides are resolved once for each request in {@link #beforeExecution}, and held by
+ * {@link ExecutionAttributes}. The timeouts are set to the request override configuration unless the request
+ * specifies its own, and the max retries are applied by the retry condition of {@link #apply(RetryPolicy)}.</p>
+ *
+ * @author miyamoto.daisuke
+ */
+class AwsClientV2OperationInterceptor implements ExecutionInterceptor {
+	
+	private static final ExecutionAttribute<AwsOperationV2Properties> OPERATION =
+			new ExecutionAttribute<>(AwsClientV2OperationInterceptor.class.getName() + ".Operation");
+	
+	private static final AwsOperationV2Properties NONE = new AwsOperationV2Properties();
+	
+	
+	/**
+	 * Normalize the operation name, so that {@code ListQueues}, {@code listQueues} and {@code list-queues}
+	 * are the same operation.
+	 *
+	 * @param operationName the operation name
+	 * @return the normalized name
+	 */
+	static String normalize(String operationName) {
+		return operationName.replace("-", "").toLowerCase(Locale.ENGLISH);
+	}
+	
+	
+	private final Map<String, AwsOperationV2Properties> operations = new HashMap<>();
+	
+	private final Map<String, AwsOperationV2Properties> resolved = new ConcurrentHashMap<>();
+	
+	
+	/**
+	 * Create the interceptor.
+	 *
+	 * @param operations the overrides keyed by the operation name, which is matched ignoring case and hyphens
+	 */
+	AwsClientV2OperationInterceptor(Map<String, AwsOperationV2Properties> operations) {
+		operations.forEach((operationName, properties) -> {
+			if (properties != null) {
+				this.operations.put(normalize(operationName), properties);
+			}
+		});
+	}
+	
+	/**
+	 * Returns whether any operation overrides the max retries.
+	 *
+	 * @return {@code true} if {@link #apply(RetryPolicy)} is required
+	 */
+	boolean hasMaxRetries() {
+		return operations.values().stream().anyMatch(properties -> properties.getMaxRetries() != null);
+	}
+	
+	/**
+	 * Create the retry policy which limits the retries by the operation of each request.
+	 * The number of retries of the policy is raised to the largest max retries of the operations,
+	 * and the operations without max retries are limited by that of the original policy.
+	 *
+	 * @param retryPolicy the original retry policy
+	 * @return the retry policy
+	 */
+	RetryPolicy apply(RetryPolicy retryPolicy) {
+		int defaultMaxRetries = retryPolicy.numRetries();
+		int maxRetries = operations.values().stream()
+			.filter(properties -> properties.getMaxRetries() != null)
+			.mapToInt(AwsOperationV2Properties::getMaxRetries)
+			.reduce(defaultMaxRetries, Math::max);
+		return AwsClientV2OverrideConfigurations.wrapRetryCondition(retryPolicy, maxRetries,
+				retryCondition -> context -> context.retriesAttempted() < getMaxRetries(context, defaultMaxRetries)
+						&& retryCondition.shouldRetry(context));
+	}
+	
+	private static int getMaxRetries(RetryPolicyContext context, int defaultMaxRetries) {
+		AwsOperationV2Properties operation = context.executionAttributes().getAttribute(OPERATION);
+		return operation == null || operation.getMaxRetries() == null ? defaultMaxRetries : operation.getMaxRetries();
+	}
+	
+	@Override
+	public void beforeExecution(Context.BeforeExecution context, ExecutionAttributes executionAttributes) {
+		String operationName = executionAttributes.getAttribute(SdkExecutionAttribute.OPERATION_NAME);
+		if (operationName == null) {
+			return;
+		}
+		AwsOperationV2Properties operation = resolved.get(operationName);
+		if (operation == null) {
+			operation = resolved.computeIfAbsent(operationName,
+					k -> operations.getOrDefault(normalize(k), NONE));
+		}
+		if (operation != NONE) {
+			executionAttributes.putAttribute(OPERATION, operation);
+		}
+	}
+	
+	@Override
+	public SdkRequest modifyRequest(Context.ModifyRequest context, ExecutionAttributes executionAttributes) {
+		AwsOperationV2Properties operation = executionAttributes.getAttribute(OPERATION);
+		if (operation == null || context.request() instanceof AwsRequest == false
+				|| operation.getApiCallTimeout() == null && operation.getAttemptTimeout() == null) {
+			return context.request();
+		}
+		AwsRequest request = (AwsRequest) context.request();
+		AwsRequestOverrideConfiguration.Builder builder = request.overrideConfiguration()
+			.map(AwsRequestOverrideConfiguration::toBuilder)
+			.orElseGet(AwsRequestOverrideConfiguration::builder);
+		// toBuilder() of SDK 2.10 does not copy the timeouts and the signer
+		Optional<AwsRequestOverrideConfiguration> original = request.overrideConfiguration();
+		original.flatMap(AwsRequestOverrideConfiguration::signer).ifPresent(builder::signer);
+		builder.apiCallTimeout(original.flatMap(AwsRequestOverrideConfiguration::apiCallTimeout)
+			.orElse(operation.getApiCallTimeout()));
+		builder.apiCallAttemptTimeout(original.flatMap(AwsRequestOverrideConfiguration::apiCallAttemptTimeout)
+			.orElse(operation.getAttemptTimeout()));
+		return request.toBuilder().overrideConfiguration(builder.build()).build();
+	}
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jp.xet.springconfig.aws.v2;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import org.springframework.aop.ProxyMethodInvocation;
+import org.springframework.aop.support.AopUtils;
+
+import org.aopalliance.intercept.MethodInvocation;
+
+import jp.xet.springconfig.aws.InternalReflectionUtil;
+
+import software.amazon.awssdk.core.SdkRequest;
+import software.amazon.awssdk.core.SdkResponse;
+import software.amazon.awssdk.utils.builder.SdkBuilder;
+
+/**
+ * Operation method of a client interface, which takes the request object or its builder consumer
+ * and returns the whole response, or the future of it for async clients.
+ *
+ * <p>The methods with a streaming request body or response are not supported,
+ * because the stream can not be shared or replayed.</p>
+ *
+ * @author miyamoto.daisuke
+ */
+@RequiredArgsConstructor(access = AccessLevel.PRIVATE)
+class AwsClientV2OperationMethod {
+	
+	private static final AwsClientV2OperationMethod UNSUPPORTED = new AwsClientV2OperationMethod(null, false, null);
+	
+	
+	/**
+	 * Resolve the operation method.
+	 *
+	 * @param method the method of the client interface
+	 * @return the operation method, which is not {@link #isSupported() supported} if not applicable
+	 */
+	static AwsClientV2OperationMethod resolve(Method method) {
+		if (method.getParameterCount() != 1) {
+			return UNSUPPORTED;
+		}
+		boolean async = CompletableFuture.class.equals(method.getReturnType());
+		if (async == false && SdkResponse.class.isAssignableFrom(method.getReturnType()) == false) {
+			return UNSUPPORTED;
+		}
+		String operationName = AwsClientV2OperationInterceptor.normalize(method.getName());
+		if (SdkRequest.class.isAssignableFrom(method.getParameterTypes()[0])) {
+			return new AwsClientV2OperationMethod(operationName, async, null);
+		}
+		Class<?> requestClass = getRequestClass(method);
+		if (requestClass == null) {
+			return UNSUPPORTED;
+		}
+		try {
+			Method requestMethod = method.getDeclaringClass().getMethod(method.getName(), requestClass);
+			return new AwsClientV2OperationMethod(operationName, async, requestMethod);
+		} catch (NoSuchMethodException e) {
+			return UNSUPPORTED;
+		}
+	}
+	
+	private static Class<?> getRequestClass(Method method) {
+		if (Consumer.class.equals(method.getParameterTypes()[0]) == false
+				|| method.getGenericParameterTypes()[0] instanceof ParameterizedType == false) {
+			return null;
+		}
+		Type builderType = ((ParameterizedType) method.getGenericParameterTypes()[0]).getActualTypeArguments()[0];
+		if (builderType instanceof Class == false) {
+			return null;
+		}
+		Class<?> requestClass = ((Class<?>) builderType).getDeclaringClass();
+		return requestClass != null && SdkRequest.class.isAssignableFrom(requestClass) ? requestClass : null;
+	}
+	
+	
+	/**
+	 * The normalized operation name, or {@code null} if not supported.
+	 */
+	@Getter
+	private final String operationName;
+	
+	/**
+	 * Whether the method returns the future of the response.
+	 */
+	@Getter
+	private final boolean async;
+	
+	// the overload of the request object, if the method takes the builder consumer
+	private final Method requestMethod;
+	
+	
+	boolean isSupported() {
+		return operationName != null;
+	}
+	
+	/**
+	 * Returns whether the method takes the builder consumer instead of the request object.
+	 *
+	 * @return {@code true} if the method takes the builder consumer
+	 */
+	boolean isConsumer() {
+		return requestMethod != null;
+	}
+	
+	/**
+	 * Build the request by the builder consumer, and invoke the overload of the request object
+	 * through the proxy, so that the interceptors see the request object.
+	 *
+	 * @param invocation the invocation of the builder consumer overload
+	 * @return the result of the overload
+	 * @throws Throwable if the invocation fails
+	 */
+	@SuppressWarnings("unchecked")
+	Object invokeRequestMethod(MethodInvocation invocation) throws Throwable {
+		SdkBuilder<?, ?> builder = InternalReflectionUtil.invokeStaticMethod(requestMethod.getParameterTypes()[0],
+				"builder");
+		((Consumer<Object>) invocation.getArguments()[0]).accept(builder);
+		return AopUtils.invokeJoinpointUsingReflection(((ProxyMethodInvocation) invocation).getProxy(),
+				requestMethod, new Object[] {
+					builder.build()
+				});
+	}
+}
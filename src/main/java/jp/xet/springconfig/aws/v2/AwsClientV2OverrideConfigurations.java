@@ -0,0 +1,168 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jp.xet.springconfig.aws.v2;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.UnaryOperator;
+
+import jp.xet.springconfig.aws.AwsRetryProperties;
+import jp.xet.springconfig.aws.AwsTimeoutProperties;
+import jp.xet.springconfig.aws.RetryBackoff;
+import jp.xet.springconfig.aws.v2.AwsClientV2Configuration.AwsOperationV2Properties;
+
+import software.amazon.awssdk.awscore.retry.AwsRetryPolicy;
+import software.amazon.awssdk.core.client.config.ClientOverrideConfiguration;
+import software.amazon.awssdk.core.retry.RetryPolicy;
+import software.amazon.awssdk.core.retry.backoff.BackoffStrategy;
+import software.amazon.awssdk.core.retry.conditions.RetryCondition;
+
+/**
+ * Merges the retry, timeout, per-operation, retry budget, rate limiter and bulkhead properties
+ * into {@link ClientOverrideConfiguration} of AWS clients v2.
+ *
+ * @author miyamoto.daisuke
+ */
+class AwsClientV2OverrideConfigurations {
+	
+	/**
+	 * Merge the properties into the override configuration. The retry properties are applied on top of
+	 * the retry policy of the configuration if exists, otherwise {@link AwsRetryPolicy#defaultRetryPolicy()}.
+	 * 
+	 * @param clientOverrideConfiguration the override configuration, or {@code null}
+	 * @param retry the retry properties, or {@code null}
+	 * @param timeouts the timeout properties, or {@code null}
+	 * @param operations the per-operation overrides, or {@code null}
+	 * @return the merged override configuration, or {@code clientOverrideConfiguration} if nothing is merged
+	 */
+	static ClientOverrideConfiguration merge(ClientOverrideConfiguration clientOverrideConfiguration,
+			AwsRetryProperties retry, AwsTimeoutProperties timeouts, Map<String, AwsOperationV2Properties> operations) {
+		if (retry == null && timeouts == null && (operations == null || operations.isEmpty())) {
+			return clientOverrideConfiguration;
+		}
+		ClientOverrideConfiguration.Builder builder = clientOverrideConfiguration == null
+				? ClientOverrideConfiguration.builder()
+				: clientOverrideConfiguration.toBuilder();
+		if (retry != null) {
+			RetryPolicy retryPolicy = Optional.ofNullable(clientOverrideConfiguration)
+				.flatMap(ClientOverrideConfiguration::retryPolicy)
+				.orElseGet(AwsRetryPolicy::defaultRetryPolicy);
+			builder.retryPolicy(createRetryPolicy(retryPolicy, retry));
+		}
+		if (timeouts != null) {
+			Optional.ofNullable(timeouts.getApiCall()).ifPresent(builder::apiCallTimeout);
+			Optional.ofNullable(timeouts.getApiCallAttempt()).ifPresent(builder::apiCallAttemptTimeout);
+		}
+		if (operations != null && operations.isEmpty() == false) {
+			AwsClientV2OperationInterceptor operationInterceptor = new AwsClientV2OperationInterceptor(operations);
+			builder.addExecutionInterceptor(operationInterceptor);
+			if (operationInterceptor.hasMaxRetries()) {
+				RetryPolicy retryPolicy = Optional.ofNullable(builder.retryPolicy())
+					.orElseGet(AwsRetryPolicy::defaultRetryPolicy);
+				builder.retryPolicy(operationInterceptor.apply(retryPolicy));
+			}
+		}
+		return builder.build();
+	}
+	
+	/**
+	 * Add the retry budget interceptor to the override configuration.
+	 *
+	 * @param clientOverrideConfiguration the override configuration, or {@code null}
+	 * @param retryBudgetInterceptor the retry budget interceptor
+	 * @return the override configuration
+	 */
+	static ClientOverrideConfiguration addRetryBudget(ClientOverrideConfiguration clientOverrideConfiguration,
+			AwsClientV2RetryBudgetInterceptor retryBudgetInterceptor) {
+		ClientOverrideConfiguration.Builder builder = clientOverrideConfiguration == null
+				? ClientOverrideConfiguration.builder()
+				: clientOverrideConfiguration.toBuilder();
+		RetryPolicy retryPolicy = Optional.ofNullable(builder.retryPolicy())
+			.orElseGet(AwsRetryPolicy::defaultRetryPolicy);
+		return builder.addExecutionInterceptor(retryBudgetInterceptor)
+			.retryPolicy(retryBudgetInterceptor.apply(retryPolicy))
+			.build();
+	}
+	
+	/**
+	 * Add the rate limiting interceptor to the override configuration.
+	 *
+	 * @param clientOverrideConfiguration the override configuration, or {@code null}
+	 * @param rateLimitingInterceptor the rate limiting interceptor
+	 * @return the override configuration
+	 */
+	static ClientOverrideConfiguration addRateLimiter(ClientOverrideConfiguration clientOverrideConfiguration,
+			AwsClientV2RateLimitingInterceptor rateLimitingInterceptor) {
+		ClientOverrideConfiguration.Builder builder = clientOverrideConfiguration == null
+				? ClientOverrideConfiguration.builder()
+				: clientOverrideConfiguration.toBuilder();
+		RetryPolicy retryPolicy = Optional.ofNullable(builder.retryPolicy())
+			.orElseGet(AwsRetryPolicy::defaultRetryPolicy);
+		return builder.addExecutionInterceptor(rateLimitingInterceptor)
+			.retryPolicy(rateLimitingInterceptor.apply(retryPolicy))
+			.build();
+	}
+	
+	/**
+	 * Add the bulkhead interceptor to the override configuration.
+	 *
+	 * @param clientOverrideConfiguration the override configuration, or {@code null}
+	 * @param bulkheadInterceptor the bulkhead interceptor
+	 * @return the override configuration
+	 */
+	static ClientOverrideConfiguration addBulkhead(ClientOverrideConfiguration clientOverrideConfiguration,
+			AwsClientV2BulkheadInterceptor bulkheadInterceptor) {
+		ClientOverrideConfiguration.Builder builder = clientOverrideConfiguration == null
+				? ClientOverrideConfiguration.builder()
+				: clientOverrideConfiguration.toBuilder();
+		return builder.addExecutionInterceptor(bulkheadInterceptor).build();
+	}
+	
+	/**
+	 * Rebuild the retry policy with the retry condition wrapped by the function.
+	 *
+	 * <p>The function receives the condition given to the builder of the original policy, which does not
+	 * check the max retries. {@link RetryPolicy} checks the max retries by its {@code numRetries} before
+	 * the wrapped condition, so {@code numRetries} is set explicitly to keep the bound of the rebuilt policy.</p>
+	 *
+	 * @param retryPolicy the original retry policy
+	 * @param numRetries the max retries of the rebuilt policy
+	 * @param wrapper the function which wraps the original retry condition
+	 * @return the rebuilt retry policy
+	 */
+	static RetryPolicy wrapRetryCondition(RetryPolicy retryPolicy, int numRetries,
+			UnaryOperator<RetryCondition> wrapper) {
+		RetryPolicy.Builder builder = retryPolicy.toBuilder();
+		return builder
+			.numRetries(numRetries)
+			.retryCondition(wrapper.apply(builder.retryCondition()))
+			.build();
+	}
+	
+	private static RetryPolicy createRetryPolicy(RetryPolicy retryPolicy, AwsRetryProperties retry) {
+		RetryPolicy.Builder builder = retryPolicy.toBuilder();
+		Optional.ofNullable(retry.getMaxRetries()).ifPresent(builder::numRetries);
+		Optional.ofNullable(retry.toBackoff())
+			.ifPresent(backoff -> builder.backoffStrategy(toBackoffStrategy(backoff)));
+		Optional.ofNullable(retry.toThrottlingBackoff())
+			.ifPresent(backoff -> builder.throttlingBackoffStrategy(toBackoffStrategy(backoff)));
+		return builder.build();
+	}
+	
+	private static BackoffStrategy toBackoffStrategy(RetryBackoff backoff) {
+		return context -> backoff.computeDelay(context.retriesAttempted());
+	}
+}
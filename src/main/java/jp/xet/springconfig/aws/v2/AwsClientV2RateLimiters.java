@@ -0,0 +1,61 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jp.xet.springconfig.aws.v2;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import jp.xet.springconfig.aws.v2.AwsClientV2Configuration.AwsRateLimiterV2Properties;
+
+/**
+ * Registry of the rate limiters shared by the clients of the same service and region,
+ * which is registered if any client sets {@code aws2.*.rate-limiter.shared=true}.
+ *
+ * @author miyamoto.daisuke
+ */
+class AwsClientV2RateLimiters {
+	
+	static final String BEAN_NAME = "awsClientV2RateLimiters";
+	
+	
+	/**
+	 * Create the interceptor with a rate limiter owned by the client.
+	 *
+	 * @param properties the rate limiter properties
+	 * @return the interceptor
+	 */
+	static AwsClientV2RateLimitingInterceptor createInterceptor(AwsRateLimiterV2Properties properties) {
+		return new AwsClientV2RateLimitingInterceptor(new AdaptiveRateLimiter(properties));
+	}
+	
+	
+	private final Map<String, AwsClientV2RateLimitingInterceptor> interceptors = new ConcurrentHashMap<>();
+	
+	
+	/**
+	 * Get the interceptor shared by the clients of the service and region.
+	 * The properties of the first client are used to create the rate limiter.
+	 *
+	 * @param serviceName the service name
+	 * @param region the region, or {@code null}
+	 * @param properties the rate limiter properties
+	 * @return the interceptor
+	 */
+	AwsClientV2RateLimitingInterceptor getInterceptor(String serviceName, String region,
+			AwsRateLimiterV2Properties properties) {
+		return interceptors.computeIfAbsent(serviceName + "@" + region, k -> createInterceptor(properties));
+	}
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jp.xet.springconfig.aws.v2;
+
+import java.util.concurrent.TimeUnit;
+
+import lombok.RequiredArgsConstructor;
+
+import software.amazon.awssdk.core.ClientType;
+import software.amazon.awssdk.core.exception.SdkClientException;
+import software.amazon.awssdk.core.exception.SdkException;
+import software.amazon.awssdk.core.interceptor.Context;
+import software.amazon.awssdk.core.interceptor.ExecutionAttribute;
+import software.amazon.awssdk.core.interceptor.ExecutionAttributes;
+import software.amazon.awssdk.core.interceptor.ExecutionInterceptor;
+import software.amazon.awssdk.core.interceptor.SdkExecutionAttribute;
+import software.amazon.awssdk.core.retry.RetryPolicy;
+import software.amazon.awssdk.core.retry.RetryUtils;
+
+/**
+ * {@link ExecutionInterceptor} which limits the rate of the attempts by {@link AdaptiveRateLimiter}.
+ *
+ * <p>A permit is acquired before each transmission, so the retries are limited as well as the first attempts.
+ * The throttling errors are observed by the retry condition of {@link #apply(RetryPolicy)}, which sees
+ * the error of each attempt, and by {@link #onExecutionFailure} for the last attempt.</p>
+ *
+ * <p>The synchronous clients wait for a permit on the calling thread. The asynchronous clients never wait,
+ * as the interceptor runs on the threads of the SDK or the event loop, and fail the attempt immediately
+ * if no permit is available.</p>
+ *
+ * @author miyamoto.daisuke
+ */
+@RequiredArgsConstructor
+class AwsClientV2RateLimitingInterceptor implements ExecutionInterceptor {
+	
+	private static final ExecutionAttribute<SdkException> RECORDED_THROTTLE =
+			new ExecutionAttribute<>(AwsClientV2RateLimitingInterceptor.class.getName() + ".RecordedThrottle");
+	
+	
+	private final AdaptiveRateLimiter rateLimiter;
+	
+	
+	/**
+	 * Create the retry policy which notifies the throttling errors to the rate limiter.
+	 *
+	 * @param retryPolicy the original retry policy
+	 * @return the retry policy
+	 */
+	RetryPolicy apply(RetryPolicy retryPolicy) {
+		return AwsClientV2OverrideConfigurations.wrapRetryCondition(retryPolicy, retryPolicy.numRetries(),
+				retryCondition -> context -> {
+					recordThrottle(context.exception(), context.executionAttributes());
+					return retryCondition.shouldRetry(context);
+				});
+	}
+	
+	@Override
+	public void beforeTransmission(Context.BeforeTransmission context, ExecutionAttributes executionAttributes) {
+		if (executionAttributes.getAttribute(SdkExecutionAttribute.CLIENT_TYPE) == ClientType.ASYNC) {
+			if (rateLimiter.tryAcquire() == false) {
+				throw SdkClientException.create("Client-side rate limit is exceeded");
+			}
+			return;
+		}
+		long wait = rateLimiter.acquire();
+		if (wait < 0) {
+			throw SdkClientException.create("Client-side rate limit is exceeded");
+		}
+		if (wait > 0) {
+			try {
+				TimeUnit.NANOSECONDS.sleep(wait);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw SdkClientException.create("Interrupted while waiting for the client-side rate limit", e);
+			}
+		}
+	}
+	
+	@Override
+	public void onExecutionFailure(Context.FailedExecution context, ExecutionAttributes executionAttributes) {
+		recordThrottle(context.exception(), executionAttributes);
+	}
+	
+	private void recordThrottle(Throwable exception, ExecutionAttributes executionAttributes) {
+		if (exception instanceof SdkException == false
+				|| RetryUtils.isThrottlingException((SdkException) exception) == false
+				|| executionAttributes.getAttribute(RECORDED_THROTTLE) == exception) {
+			return;
+		}
+		executionAttributes.putAttribute(RECORDED_THROTTLE, (SdkException) exception);
+		rateLimiter.onThrottle();
+	}
+}
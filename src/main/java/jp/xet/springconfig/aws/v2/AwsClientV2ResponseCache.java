@@ -0,0 +1,177 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jp.xet.springconfig.aws.v2;
+
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.Value;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+
+import software.amazon.awssdk.core.SdkRequest;
+
+/**
+ * Response cache shared by the clients, which is registered if any client sets
+ * {@code aws2.*.cache.enabled=true} and Caffeine is present.
+ *
+ * <p>The responses are the immutable SDK response objects, and cached as they are. The cache is bounded by
+ * the number of the entries {@code aws2.cache.max-size}, as the size of a response is not known without
+ * traversing it, and evicted by the W-TinyLFU policy of Caffeine. Each entry expires after the TTL
+ * of its operation.</p>
+ *
+ * <p>The stale entries are refreshed by a few dedicated daemon threads, so that the blocking calls
+ * of the sync clients do not occupy the common pool.</p>
+ *
+ * @author miyamoto.daisuke
+ */
+class AwsClientV2ResponseCache implements DisposableBean {
+	
+	static final String BEAN_NAME = "awsClientV2ResponseCache";
+	
+	static final long DEFAULT_MAX_SIZE = 10_000;
+	
+	private static final String THREAD_NAME_PREFIX = "aws-cache-refresh-";
+	
+	private static final int REFRESH_THREADS = 2;
+	
+	private static final long REFRESH_KEEP_ALIVE_SECONDS = 60;
+	
+	
+	@Getter
+	private final Cache<Key, Entry> cache;
+	
+	@Getter
+	private final ExecutorService refreshExecutor;
+	
+	
+	AwsClientV2ResponseCache(long maxSize) {
+		cache = Caffeine.newBuilder()
+			.maximumSize(maxSize)
+			.expireAfter(new EntryExpiry())
+			.recordStats()
+			.build();
+		CustomizableThreadFactory threadFactory = new CustomizableThreadFactory(THREAD_NAME_PREFIX);
+		threadFactory.setDaemon(true);
+		// the refresh of an entry is queued at most once, so the queue is bounded by the entries
+		ThreadPoolExecutor threadPoolExecutor = new ThreadPoolExecutor(REFRESH_THREADS, REFRESH_THREADS,
+				REFRESH_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), threadFactory);
+		threadPoolExecutor.allowCoreThreadTimeOut(true);
+		refreshExecutor = threadPoolExecutor;
+	}
+	
+	@Override
+	public void destroy() {
+		refreshExecutor.shutdownNow();
+	}
+	
+	/**
+	 * Get the cached entry.
+	 *
+	 * @param key the key
+	 * @return the entry, or {@code null} if absent or expired
+	 */
+	Entry get(Key key) {
+		return cache.getIfPresent(key);
+	}
+	
+	/**
+	 * Put the response.
+	 *
+	 * @param key the key
+	 * @param response the response
+	 * @param ttl the time to live
+	 * @param refreshAt the time to refresh the entry in background, or {@link Long#MAX_VALUE} not to refresh
+	 */
+	void put(Key key, Object response, Duration ttl, long refreshAt) {
+		cache.put(key, new Entry(response, ttl.toNanos(), refreshAt));
+	}
+	
+	
+	/**
+	 * Key of a cached response, which is the request to a client.
+	 */
+	@Value
+	static class Key {
+		
+		private final String clientName;
+		
+		private final SdkRequest request;
+	}
+	
+	/**
+	 * Cached response.
+	 */
+	@RequiredArgsConstructor
+	static class Entry {
+		
+		@Getter
+		private final Object response;
+		
+		private final long ttlNanos;
+		
+		private final long refreshAt;
+		
+		private final AtomicBoolean refreshing = new AtomicBoolean();
+		
+		
+		/**
+		 * Returns whether the caller should refresh the stale entry, which is {@code true} only once.
+		 *
+		 * @param now the current time
+		 * @return {@code true} if the caller should refresh
+		 */
+		boolean tryRefresh(long now) {
+			return now >= refreshAt && refreshing.compareAndSet(false, true);
+		}
+		
+		/**
+		 * Allow the entry to be refreshed again, after the refresh fails.
+		 */
+		void refreshFailed() {
+			refreshing.set(false);
+		}
+	}
+	
+	private static class EntryExpiry implements Expiry<Key, Entry> {
+		
+		@Override
+		public long expireAfterCreate(Key key, Entry entry, long currentTime) {
+			return entry.ttlNanos;
+		}
+		
+		@Override
+		public long expireAfterUpdate(Key key, Entry entry, long currentTime, long currentDuration) {
+			return entry.ttlNanos;
+		}
+		
+		@Override
+		public long expireAfterRead(Key key, Entry entry, long currentTime, long currentDuration) {
+			return currentDuration;
+		}
+	}
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jp.xet.springconfig.aws.v2;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import jp.xet.springconfig.aws.RetryBudget;
+
+import software.amazon.awssdk.core.interceptor.Context;
+import software.amazon.awssdk.core.interceptor.ExecutionAttributes;
+import software.amazon.awssdk.core.interceptor.ExecutionInterceptor;
+import software.amazon.awssdk.core.retry.RetryPolicy;
+
+/**
+ * {@link ExecutionInterceptor} which limits the retries by {@link RetryBudget}.
+ *
+ * <p>The successful calls are recorded by {@link #afterExecution}, and each retry is withdrawn by
+ * the retry condition of {@link #apply(RetryPolicy)} only after the original condition allows it.</p>
+ *
+ * @author miyamoto.daisuke
+ */
+@RequiredArgsConstructor
+class AwsClientV2RetryBudgetInterceptor implements ExecutionInterceptor {
+	
+	@Getter
+	private final RetryBudget retryBudget;
+	
+	
+	/**
+	 * Create the retry policy which withdraws the retries from the budget.
+	 *
+	 * @param retryPolicy the original retry policy
+	 * @return the retry policy
+	 */
+	RetryPolicy apply(RetryPolicy retryPolicy) {
+		return AwsClientV2OverrideConfigurations.wrapRetryCondition(retryPolicy, retryPolicy.numRetries(),
+				retryCondition -> context -> retryCondition.shouldRetry(context) && retryBudget.tryAcquire());
+	}
+	
+	@Override
+	public void afterExecution(Context.AfterExecution context, ExecutionAttributes executionAttributes) {
+		retryBudget.recordSuccess();
+	}
+}
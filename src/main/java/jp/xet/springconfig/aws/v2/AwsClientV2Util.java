@@ -22,6 +22,13 @@ import java.net.URI;
 
 import lombok.extern.slf4j.Slf4j;
 
+import org.springframework.boot.context.properties.bind.BindHandler;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.context.properties.bind.handler.IgnoreErrorsBindHandler;
+
+import jp.xet.springconfig.aws.v2.AwsClientV2Configuration.AwsClientV2Properties;
+
 import software.amazon.awssdk.auth.credentials.AwsCredentialsProvider;
 import software.amazon.awssdk.core.ServiceConfiguration;
 import software.amazon.awssdk.core.client.config.ClientOverrideConfiguration;
@@ -152,6 +159,45 @@ class AwsClientV2Util {
 		}
 	}
 	
+	/**
+	 * @see software.amazon.awssdk.core.client.builder.SdkAsyncClientBuilder#httpClient(SdkAsyncHttpClient) 
+	 */
+	static void configureHttpAsyncClient(Object builder, SdkAsyncHttpClient httpAsyncClient) {
+		if (httpAsyncClient == null) {
+			return;
+		}
+		try {
+			invokeMethod(builder, "httpClient", httpAsyncClient);
+		} catch (IllegalStateException e) {
+			log.warn(e.getMessage());
+		}
+	}
+	
+	/**
+	 * Build AWS client outside the application context, which is configured by {@code region}, {@code endpoint},
+	 * {@code retry}, {@code timeouts} and {@code operations} of {@code aws2.<service-package-name>.*}
+	 * on top of {@code aws2.default.*}.
+	 * 
+	 * @param clientClass AWS client class
+	 * @param binder the binder of the environment
+	 * @param region the region to override the properties, or {@code null}
+	 * @return AWS client
+	 */
+	static <T> T buildStandalone(Class<?> clientClass, Binder binder, String region) {
+		AwsClientV2Properties config = new AwsClientV2Properties();
+		BindHandler bindHandler = new IgnoreErrorsBindHandler();
+		binder.bind("aws2." + AwsClientV2Configuration.DEFAULT_KEY, Bindable.ofInstance(config), bindHandler);
+		binder.bind("aws2." + AwsClientV2FactoryBean.getPropertyName(clientClass), Bindable.ofInstance(config),
+				bindHandler);
+		
+		Object builder = createBuilder(clientClass);
+		configureRegion(builder, region != null ? region : config.getRegion());
+		configureEndpoint(builder, config.getEndpoint());
+		configureClientOverrideConfiguration(builder, AwsClientV2OverrideConfigurations.merge(null,
+				config.getRetry(), config.getTimeouts(), config.getOperations()));
+		return build(builder);
+	}
+	
 	/**
 	 * Build AWS client or config.
 	 * 
@@ -0,0 +1,256 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jp.xet.springconfig.aws.v2;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.BeanFactoryAware;
+
+import jp.xet.springconfig.aws.ConnectionPoolMetrics;
+import jp.xet.springconfig.aws.InternalReflectionUtil;
+
+import software.amazon.awssdk.http.ExecutableHttpRequest;
+import software.amazon.awssdk.http.HttpExecuteRequest;
+import software.amazon.awssdk.http.SdkHttpClient;
+import software.amazon.awssdk.http.SdkHttpConfigurationOption;
+import software.amazon.awssdk.http.async.AsyncExecuteRequest;
+import software.amazon.awssdk.http.async.SdkAsyncHttpClient;
+import software.amazon.awssdk.utils.AttributeMap;
+
+/**
+ * Publisher of the connection pool statistics of the HTTP clients built by this library.
+ *
+ * <p>The HTTP client builders are decorated to wrap the built HTTP clients, so that the MBean is
+ * unregistered when the HTTP client is closed, whichever closes it. The pool of Apache HTTP client is read
+ * directly, and the pool of Netty HTTP client is estimated from the number of in-flight requests.
+ * The gauges are bound only if {@link AwsClientV2MetricsInterceptor} is enabled.</p>
+ *
+ * @author miyamoto.daisuke
+ */
+@Slf4j
+@RequiredArgsConstructor
+class AwsConnectionPoolV2Metrics implements BeanFactoryAware {
+	
+	static final String BEAN_NAME = "awsConnectionPoolV2Metrics";
+	
+	private static final String APACHE_HTTP_CLIENT = "software.amazon.awssdk.http.apache.ApacheHttpClient";
+	
+	private static final String NETTY_HTTP_CLIENT = "software.amazon.awssdk.http.nio.netty.NettyNioAsyncHttpClient";
+	
+	
+	private final boolean jmxEnabled;
+	
+	private BeanFactory beanFactory;
+	
+	
+	@Override
+	public void setBeanFactory(BeanFactory beanFactory) {
+		this.beanFactory = beanFactory;
+	}
+	
+	/**
+	 * Decorate the builder to publish the pool statistics of the built HTTP client.
+	 *
+	 * @param name the name of the HTTP client
+	 * @param builder the builder to decorate
+	 * @return the decorated builder
+	 */
+	SdkHttpClient.Builder<?> instrument(String name, SdkHttpClient.Builder<?> builder) {
+		return isEnabled() ? new InstrumentedHttpClientBuilder(name, builder) : builder;
+	}
+	
+	/**
+	 * Decorate the builder to publish the pool statistics of the built async HTTP client.
+	 *
+	 * @param name the name of the HTTP client
+	 * @param builder the builder to decorate
+	 * @param maxConcurrency the configured max concurrency, or {@code null} to use the default
+	 * @return the decorated builder
+	 */
+	SdkAsyncHttpClient.Builder<?> instrument(String name, SdkAsyncHttpClient.Builder<?> builder,
+			Integer maxConcurrency) {
+		return isEnabled() ? new InstrumentedAsyncHttpClientBuilder(name, builder, maxConcurrency) : builder;
+	}
+	
+	/**
+	 * Publish the pool statistics of the HTTP client.
+	 *
+	 * @param name the name of the HTTP client
+	 * @param httpClient the HTTP client
+	 * @return the wrapped HTTP client, or the HTTP client itself if its pool is not exposed
+	 */
+	SdkHttpClient instrument(String name, SdkHttpClient httpClient) {
+		if (isEnabled() == false || APACHE_HTTP_CLIENT.equals(httpClient.getClass().getName()) == false) {
+			return httpClient;
+		}
+		ConnectionPoolMetrics metrics;
+		try {
+			Object apacheClient = InternalReflectionUtil.getField(httpClient, "httpClient");
+			metrics = ConnectionPoolMetrics.ofConnectionManager(name,
+					InternalReflectionUtil.invokeMethod(apacheClient, "getHttpClientConnectionManager"));
+		} catch (IllegalStateException e) {
+			log.debug("Connection pool of {} is not exposed", name, e);
+			return httpClient;
+		}
+		if (metrics == null) {
+			return httpClient;
+		}
+		register(metrics);
+		return new InstrumentedHttpClient(httpClient, metrics);
+	}
+	
+	/**
+	 * Publish the pool statistics of the async HTTP client.
+	 *
+	 * @param name the name of the HTTP client
+	 * @param httpClient the async HTTP client
+	 * @param maxConcurrency the max concurrency of the HTTP client
+	 * @return the wrapped HTTP client, or the HTTP client itself if its pool is not estimated
+	 */
+	SdkAsyncHttpClient instrument(String name, SdkAsyncHttpClient httpClient, int maxConcurrency) {
+		if (isEnabled() == false || NETTY_HTTP_CLIENT.equals(httpClient.getClass().getName()) == false) {
+			return httpClient;
+		}
+		AtomicInteger inFlight = new AtomicInteger();
+		ConnectionPoolMetrics metrics = ConnectionPoolMetrics.ofInFlight(name, "netty", inFlight::get, maxConcurrency);
+		register(metrics);
+		return new InstrumentedAsyncHttpClient(httpClient, metrics, inFlight);
+	}
+	
+	private boolean isEnabled() {
+		return jmxEnabled || getMetricsInterceptor() != null;
+	}
+	
+	private AwsClientV2MetricsInterceptor getMetricsInterceptor() {
+		if (beanFactory == null || beanFactory.containsBean(AwsClientV2MetricsInterceptor.BEAN_NAME) == false) {
+			return null;
+		}
+		AwsClientV2MetricsInterceptor metricsInterceptor =
+				beanFactory.getBean(AwsClientV2MetricsInterceptor.BEAN_NAME, AwsClientV2MetricsInterceptor.class);
+		return metricsInterceptor.isEnabled() ? metricsInterceptor : null;
+	}
+	
+	private void register(ConnectionPoolMetrics metrics) {
+		AwsClientV2MetricsInterceptor metricsInterceptor = getMetricsInterceptor();
+		if (metricsInterceptor != null) {
+			metricsInterceptor.bindConnectionPool(metrics);
+		}
+		if (jmxEnabled) {
+			metrics.registerMBean();
+		}
+	}
+	
+	
+	@RequiredArgsConstructor
+	private class InstrumentedHttpClientBuilder implements SdkHttpClient.Builder<InstrumentedHttpClientBuilder> {
+		
+		private final String name;
+		
+		private final SdkHttpClient.Builder<?> delegate;
+		
+		
+		@Override
+		public SdkHttpClient buildWithDefaults(AttributeMap serviceDefaults) {
+			return instrument(name, delegate.buildWithDefaults(serviceDefaults));
+		}
+	}
+	
+	@RequiredArgsConstructor
+	private class InstrumentedAsyncHttpClientBuilder
+			implements SdkAsyncHttpClient.Builder<InstrumentedAsyncHttpClientBuilder> {
+		
+		private final String name;
+		
+		private final SdkAsyncHttpClient.Builder<?> delegate;
+		
+		private final Integer maxConcurrency;
+		
+		
+		@Override
+		public SdkAsyncHttpClient buildWithDefaults(AttributeMap serviceDefaults) {
+			int max = maxConcurrency != null ? maxConcurrency
+					: serviceDefaults.merge(SdkHttpConfigurationOption.GLOBAL_HTTP_DEFAULTS)
+						.get(SdkHttpConfigurationOption.MAX_CONNECTIONS);
+			return instrument(name, delegate.buildWithDefaults(serviceDefaults), max);
+		}
+	}
+	
+	@RequiredArgsConstructor
+	private static class InstrumentedHttpClient implements SdkHttpClient {
+		
+		private final SdkHttpClient delegate;
+		
+		private final ConnectionPoolMetrics metrics;
+		
+		
+		@Override
+		public ExecutableHttpRequest prepareRequest(HttpExecuteRequest request) {
+			return delegate.prepareRequest(request);
+		}
+		
+		@Override
+		public String clientName() {
+			return delegate.clientName();
+		}
+		
+		@Override
+		public void close() {
+			metrics.unregisterMBean();
+			delegate.close();
+		}
+	}
+	
+	@RequiredArgsConstructor
+	private static class InstrumentedAsyncHttpClient implements SdkAsyncHttpClient {
+		
+		private final SdkAsyncHttpClient delegate;
+		
+		private final ConnectionPoolMetrics metrics;
+		
+		private final AtomicInteger inFlight;
+		
+		
+		@Override
+		public CompletableFuture<Void> execute(AsyncExecuteRequest request) {
+			inFlight.incrementAndGet();
+			CompletableFuture<Void> future;
+			try {
+				future = delegate.execute(request);
+			} catch (RuntimeException e) {
+				inFlight.decrementAndGet();
+				throw e;
+			}
+			future.whenComplete((r, t) -> inFlight.decrementAndGet());
+			return future;
+		}
+		
+		@Override
+		public String clientName() {
+			return delegate.clientName();
+		}
+		
+		@Override
+		public void close() {
+			metrics.unregisterMBean();
+			delegate.close();
+		}
+	}
+}
@@ -0,0 +1,207 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jp.xet.springconfig.aws.v2;
+
+import static jp.xet.springconfig.aws.InternalReflectionUtil.invokeMethod;
+import static jp.xet.springconfig.aws.InternalReflectionUtil.invokeStaticMethod;
+
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.EnvironmentAware;
+import org.springframework.core.env.Environment;
+import org.springframework.util.Assert;
+import org.springframework.util.ClassUtils;
+
+import jp.xet.springconfig.aws.v2.AwsClientV2Configuration.AwsCredentialsV2Properties;
+
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.AwsCredentials;
+import software.amazon.awssdk.auth.credentials.AwsCredentialsProvider;
+import software.amazon.awssdk.auth.credentials.AwsSessionCredentials;
+import software.amazon.awssdk.auth.credentials.ContainerCredentialsProvider;
+import software.amazon.awssdk.auth.credentials.InstanceProfileCredentialsProvider;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.auth.credentials.WebIdentityTokenFileCredentialsProvider;
+import software.amazon.awssdk.core.SdkClient;
+import software.amazon.awssdk.utils.SdkAutoCloseable;
+
+/**
+ * Registry of the credentials providers defined by {@code aws2.credentials.<name>.*},
+ * which is registered if any definition exists.
+ *
+ * <p>Each provider is created only once, registered as the bean named {@code <name>}, and shared by
+ * the clients which set {@code credentials-provider-bean-name} to the name. The providers of temporary
+ * credentials refresh them asynchronously ahead of the expiry unless {@code async-refresh=false},
+ * so that the calls do not block on the refresh. The assume-role providers of the same region share
+ * a single STS client, which is configured by {@code aws2.sts.*}.</p>
+ *
+ * @author miyamoto.daisuke
+ */
+@Slf4j
+@RequiredArgsConstructor
+class AwsCredentialsV2Providers implements EnvironmentAware, DisposableBean {
+	
+	static final String BEAN_NAME = "awsCredentialsV2Providers";
+	
+	private static final String STS_CLIENT = "software.amazon.awssdk.services.sts.StsClient";
+	
+	private static final String ASSUME_ROLE_REQUEST = "software.amazon.awssdk.services.sts.model.AssumeRoleRequest";
+	
+	private static final String ASSUME_ROLE_PROVIDER =
+			"software.amazon.awssdk.services.sts.auth.StsAssumeRoleCredentialsProvider";
+	
+	private static final String THREAD_NAME_PREFIX = "aws-credentials-";
+	
+	
+	private final Map<String, AwsCredentialsV2Properties> definitions;
+	
+	private final Map<String, AwsCredentialsProvider> providers = new ConcurrentHashMap<>();
+	
+	private final Map<String, SdkClient> stsClients = new ConcurrentHashMap<>();
+	
+	private Environment environment;
+	
+	
+	@Override
+	public void setEnvironment(Environment environment) {
+		this.environment = environment;
+	}
+	
+	/**
+	 * Get the credentials provider, which is created on the first call.
+	 *
+	 * @param name the name of the definition
+	 * @return the credentials provider
+	 * @throws IllegalArgumentException if the definition is not found or invalid
+	 * @throws IllegalStateException if the required module is not found
+	 */
+	AwsCredentialsProvider getProvider(String name) {
+		return providers.computeIfAbsent(name, this::createProvider);
+	}
+	
+	@Override
+	public void destroy() {
+		providers.values().stream()
+			.filter(SdkAutoCloseable.class::isInstance)
+			.map(SdkAutoCloseable.class::cast)
+			.forEach(SdkAutoCloseable::close);
+		stsClients.values().forEach(SdkClient::close);
+	}
+	
+	private AwsCredentialsProvider createProvider(String name) {
+		AwsCredentialsV2Properties definition = definitions.get(name);
+		Assert.notNull(definition, () -> "Credentials provider is not defined: aws2.credentials." + name);
+		Assert.notNull(definition.getType(), () -> "Type is required: aws2.credentials." + name + ".type");
+		boolean async = Boolean.FALSE.equals(definition.getAsyncRefresh()) == false;
+		log.debug("Creating {} credentials provider: {}", definition.getType(), name);
+		switch (definition.getType()) {
+			case STATIC:
+				return StaticCredentialsProvider.create(createStaticCredentials(name, definition));
+			case INSTANCE_PROFILE:
+				return InstanceProfileCredentialsProvider.builder()
+					.asyncCredentialUpdateEnabled(async)
+					.asyncThreadName(THREAD_NAME_PREFIX + name)
+					.build();
+			case CONTAINER:
+				return ContainerCredentialsProvider.builder()
+					.asyncCredentialUpdateEnabled(async)
+					.asyncThreadName(THREAD_NAME_PREFIX + name)
+					.build();
+			case WEB_IDENTITY:
+				return createWebIdentityProvider(name, definition);
+			case ASSUME_ROLE:
+				return createAssumeRoleProvider(name, definition, async);
+			default:
+				throw new IllegalArgumentException("Unsupported type: " + definition.getType());
+		}
+	}
+	
+	private static AwsCredentials createStaticCredentials(String name, AwsCredentialsV2Properties definition) {
+		Assert.hasText(definition.getAccessKeyId(),
+				() -> "Access key ID is required: aws2.credentials." + name + ".access-key-id");
+		Assert.hasText(definition.getSecretAccessKey(),
+				() -> "Secret access key is required: aws2.credentials." + name + ".secret-access-key");
+		return definition.getSessionToken() == null
+				? AwsBasicCredentials.create(definition.getAccessKeyId(), definition.getSecretAccessKey())
+				: AwsSessionCredentials.create(definition.getAccessKeyId(), definition.getSecretAccessKey(),
+						definition.getSessionToken());
+	}
+	
+	/**
+	 * Create the provider of the web identity token, which falls back to {@code AWS_ROLE_ARN},
+	 * {@code AWS_ROLE_SESSION_NAME} and {@code AWS_WEB_IDENTITY_TOKEN_FILE} for the absent properties.
+	 * The refresh is managed by the SDK.
+	 */
+	private AwsCredentialsProvider createWebIdentityProvider(String name, AwsCredentialsV2Properties definition) {
+		assertStsPresent(name);
+		WebIdentityTokenFileCredentialsProvider.Builder builder = WebIdentityTokenFileCredentialsProvider.builder();
+		Optional.ofNullable(definition.getRoleArn()).ifPresent(builder::roleArn);
+		Optional.ofNullable(definition.getRoleSessionName()).ifPresent(builder::roleSessionName);
+		Optional.ofNullable(definition.getWebIdentityTokenFile())
+			.ifPresent(webIdentityTokenFile -> builder.webIdentityTokenFile(Paths.get(webIdentityTokenFile)));
+		return builder.build();
+	}
+	
+	private AwsCredentialsProvider createAssumeRoleProvider(String name, AwsCredentialsV2Properties definition,
+			boolean async) {
+		assertStsPresent(name);
+		Assert.hasText(definition.getRoleArn(), () -> "Role ARN is required: aws2.credentials." + name + ".role-arn");
+		ClassLoader classLoader = ClassUtils.getDefaultClassLoader();
+		Object requestBuilder = invokeStaticMethod(ClassUtils.resolveClassName(ASSUME_ROLE_REQUEST, classLoader),
+				"builder");
+		invokeMethod(requestBuilder, "roleArn", definition.getRoleArn());
+		invokeMethod(requestBuilder, "roleSessionName",
+				Optional.ofNullable(definition.getRoleSessionName()).orElse(name));
+		Optional.ofNullable(definition.getExternalId())
+			.ifPresent(externalId -> invokeMethod(requestBuilder, "externalId", externalId));
+		Optional.ofNullable(definition.getDuration())
+			.ifPresent(duration -> invokeMethod(requestBuilder, "durationSeconds",
+					Math.toIntExact(duration.getSeconds())));
+		
+		Object providerBuilder = invokeStaticMethod(ClassUtils.resolveClassName(ASSUME_ROLE_PROVIDER, classLoader),
+				"builder");
+		invokeMethod(providerBuilder, "stsClient", getStsClient(definition.getRegion()));
+		Object refreshRequest = AwsClientV2Util.build(requestBuilder);
+		invokeMethod(providerBuilder, "refreshRequest", refreshRequest);
+		invokeMethod(providerBuilder, "asyncCredentialUpdateEnabled", async);
+		Optional.ofNullable(definition.getPrefetchTime())
+			.ifPresent(prefetchTime -> invokeMethod(providerBuilder, "prefetchTime", prefetchTime));
+		Optional.ofNullable(definition.getStaleTime())
+			.ifPresent(staleTime -> invokeMethod(providerBuilder, "staleTime", staleTime));
+		return AwsClientV2Util.build(providerBuilder);
+	}
+	
+	private SdkClient getStsClient(String region) {
+		return stsClients.computeIfAbsent(String.valueOf(region), k -> {
+			Binder binder = environment == null ? new Binder() : Binder.get(environment);
+			return AwsClientV2Util.buildStandalone(ClassUtils.resolveClassName(STS_CLIENT,
+					ClassUtils.getDefaultClassLoader()), binder, region);
+		});
+	}
+	
+	private static void assertStsPresent(String name) {
+		Assert.state(ClassUtils.isPresent(STS_CLIENT, ClassUtils.getDefaultClassLoader()),
+				() -> "software.amazon.awssdk:sts is required by aws2.credentials." + name);
+	}
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jp.xet.springconfig.aws.v2;
+
+import static jp.xet.springconfig.aws.InternalReflectionUtil.invokeStaticMethod;
+
+import java.lang.reflect.UndeclaredThrowableException;
+import java.util.concurrent.ThreadFactory;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.beans.factory.config.AbstractFactoryBean;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.ReflectionUtils;
+
+import jp.xet.springconfig.aws.v2.AwsClientV2Configuration.AwsEventLoopGroupV2Properties;
+
+import io.netty.channel.EventLoopGroup;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import software.amazon.awssdk.http.nio.netty.SdkEventLoopGroup;
+
+/**
+ * Spring factory bean class of {@link SdkEventLoopGroup} shared by AWS async clients v2.
+ *
+ * <p>The native epoll transport is used if it is available and enabled. The event loop group is not shut down
+ * by the AWS clients which use it, and it is shut down by this factory bean after all the dependent clients
+ * are destroyed.</p>
+ *
+ * @author miyamoto.daisuke
+ */
+@Slf4j
+@RequiredArgsConstructor
+class AwsEventLoopGroupV2FactoryBean extends AbstractFactoryBean<SdkEventLoopGroup> {
+	
+	static final String BEAN_NAME = "awsSdkEventLoopGroupV2";
+	
+	private static final String EPOLL = "io.netty.channel.epoll.Epoll";
+	
+	private static final String EPOLL_EVENT_LOOP_GROUP = "io.netty.channel.epoll.EpollEventLoopGroup";
+	
+	private static final String THREAD_NAME_PREFIX = "aws-client-v2-event-loop";
+	
+	
+	private final AwsEventLoopGroupV2Properties properties;
+	
+	
+	@Override
+	public Class<?> getObjectType() {
+		return SdkEventLoopGroup.class;
+	}
+	
+	@Override
+	protected SdkEventLoopGroup createInstance() {
+		ThreadFactory threadFactory = new DefaultThreadFactory(THREAD_NAME_PREFIX, true);
+		if (properties.isNativeTransport() && isEpollAvailable()) {
+			try {
+				// 0 means the default number of threads of netty
+				int numberOfThreads = properties.getNumberOfThreads() == null ? 0 : properties.getNumberOfThreads();
+				Class<?> groupClass = ClassUtils.forName(EPOLL_EVENT_LOOP_GROUP, getClassLoader());
+				EventLoopGroup eventLoopGroup = (EventLoopGroup) ReflectionUtils
+					.accessibleConstructor(groupClass, int.class, ThreadFactory.class)
+					.newInstance(numberOfThreads, threadFactory);
+				log.debug("Shared event loop group with epoll transport is created");
+				return SdkEventLoopGroup.create(eventLoopGroup);
+			} catch (ReflectiveOperationException | LinkageError e) {
+				log.warn("Failed to create epoll event loop group -- fall back to NIO", e);
+			}
+		}
+		log.debug("Shared event loop group with NIO transport is created");
+		return SdkEventLoopGroup.builder()
+			.numberOfThreads(properties.getNumberOfThreads())
+			.threadFactory(threadFactory)
+			.build();
+	}
+	
+	private boolean isEpollAvailable() {
+		if (ClassUtils.isPresent(EPOLL, getClassLoader()) == false) {
+			return false;
+		}
+		try {
+			Boolean available = invokeStaticMethod(ClassUtils.forName(EPOLL, getClassLoader()), "isAvailable");
+			return Boolean.TRUE.equals(available);
+		} catch (ClassNotFoundException | IllegalStateException | UndeclaredThrowableException | LinkageError e) {
+			log.debug("Epoll is not available", e);
+			return false;
+		}
+	}
+	
+	private ClassLoader getClassLoader() {
+		return SdkEventLoopGroup.class.getClassLoader();
+	}
+	
+	@Override
+	protected void destroyInstance(SdkEventLoopGroup instance) {
+		if (instance != null) {
+			log.debug("Shut down shared event loop group");
+			instance.eventLoopGroup().shutdownGracefully();
+		}
+	}
+}
@@ -0,0 +1,204 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jp.xet.springconfig.aws.v2;
+
+import java.util.Optional;
+
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.util.ClassUtils;
+
+import jp.xet.springconfig.aws.InternalReflectionUtil;
+
+import jp.xet.springconfig.aws.v2.AwsClientV2Configuration.ApacheHttpClientBuilder;
+import jp.xet.springconfig.aws.v2.AwsClientV2Configuration.AwsClientV2Properties;
+import jp.xet.springconfig.aws.v2.AwsClientV2Configuration.CrtAsyncHttpClientBuilder;
+import jp.xet.springconfig.aws.v2.AwsClientV2Configuration.HttpClientType;
+import jp.xet.springconfig.aws.v2.AwsClientV2Configuration.NettyNioAsyncHttpClientBuilder;
+import jp.xet.springconfig.aws.v2.AwsClientV2Configuration.UrlConnectionHttpClientBuilder;
+
+import software.amazon.awssdk.http.SdkHttpClient;
+import software.amazon.awssdk.http.apache.ApacheHttpClient;
+import software.amazon.awssdk.http.apache.ProxyConfiguration;
+import software.amazon.awssdk.http.async.SdkAsyncHttpClient;
+import software.amazon.awssdk.http.nio.netty.NettyNioAsyncHttpClient;
+import software.amazon.awssdk.http.nio.netty.SdkEventLoopGroup;
+import software.amazon.awssdk.http.urlconnection.UrlConnectionHttpClient;
+
+/**
+ * Factory methods of the HTTP client builders for AWS clients v2.
+ *
+ * <p>The HTTP client implementations are optional dependencies. They are referred only from this class,
+ * so that the factory beans can be introspected by Spring even if some implementations are absent.</p>
+ *
+ * @author miyamoto.daisuke
+ */
+class AwsHttpClientV2Builders {
+	
+	/**
+	 * Create {@link SdkHttpClient.Builder} of the HTTP client type, or configured by the properties.
+	 * 
+	 * @param httpClientType the HTTP client type, or {@code null} if not specified
+	 * @param config the properties of the client
+	 * @return the configured builder, or {@code null} if the SDK default should be used
+	 */
+	static SdkHttpClient.Builder<?> createSdkHttpClientBuilder(HttpClientType httpClientType,
+			AwsClientV2Properties config) {
+		if (httpClientType == HttpClientType.URL_CONNECTION) {
+			return createUrlConnectionHttpClientBuilder(Optional.ofNullable(
+					config.getUrlConnectionHttpClientBuilder()).orElseGet(UrlConnectionHttpClientBuilder::new));
+		}
+		if (config.getApacheHttpClientBuilder() != null) {
+			return createApacheHttpClientBuilder(config.getApacheHttpClientBuilder());
+		}
+		if (httpClientType == HttpClientType.APACHE) {
+			return ApacheHttpClient.builder();
+		}
+		if (httpClientType == null && config.getUrlConnectionHttpClientBuilder() != null) {
+			return createUrlConnectionHttpClientBuilder(config.getUrlConnectionHttpClientBuilder());
+		}
+		return null;
+	}
+	
+	/**
+	 * Create {@link ApacheHttpClient.Builder} which is configured by the properties.
+	 * 
+	 * @param sdkClientConfig the properties of the builder
+	 * @return the configured builder
+	 */
+	static SdkHttpClient.Builder<?> createApacheHttpClientBuilder(ApacheHttpClientBuilder sdkClientConfig) {
+		ApacheHttpClient.Builder apacheHttpClientBuilder = ApacheHttpClient.builder()
+			.socketTimeout(sdkClientConfig.getSocketTimeout())
+			.connectionTimeout(sdkClientConfig.getConnectionTimeout())
+			.maxConnections(sdkClientConfig.getMaxConnections())
+			.expectContinueEnabled(sdkClientConfig.getExpectContinueEnabled())
+			.connectionTimeToLive(sdkClientConfig.getConnectionTimeToLive())
+			.connectionMaxIdleTime(sdkClientConfig.getConnectionMaxIdleTime())
+			.useIdleConnectionReaper(sdkClientConfig.getUseIdleConnectionReaper());
+		Optional.ofNullable(sdkClientConfig.getConnectionAcquisitionTimeout())
+			.ifPresent(apacheHttpClientBuilder::connectionAcquisitionTimeout);
+		if (sdkClientConfig.getProxyConfiguration() != null) {
+			apacheHttpClientBuilder.proxyConfiguration(ProxyConfiguration.builder()
+				.endpoint(sdkClientConfig.getProxyConfiguration().getEndpoint())
+				.username(sdkClientConfig.getProxyConfiguration().getUsername())
+				.password(sdkClientConfig.getProxyConfiguration().getPassword())
+				.ntlmDomain(sdkClientConfig.getProxyConfiguration().getNtlmDomain())
+				.ntlmWorkstation(sdkClientConfig.getProxyConfiguration().getNtlmWorkstation())
+				.preemptiveBasicAuthenticationEnabled(
+						sdkClientConfig.getProxyConfiguration().getPreemptiveBasicAuthenticationEnabled())
+				.useSystemPropertyValues(
+						sdkClientConfig.getProxyConfiguration().getUseSystemPropertyValues())
+				.build());
+		}
+		return apacheHttpClientBuilder;
+	}
+	
+	
+	/**
+	 * Create {@link UrlConnectionHttpClient.Builder} which is configured by the properties.
+	 * 
+	 * @param sdkClientConfig the properties of the builder
+	 * @return the configured builder
+	 */
+	static SdkHttpClient.Builder<?> createUrlConnectionHttpClientBuilder(UrlConnectionHttpClientBuilder sdkClientConfig) {
+		UrlConnectionHttpClient.Builder urlConnectionHttpClientBuilder = UrlConnectionHttpClient.builder();
+		Optional.ofNullable(sdkClientConfig.getSocketTimeout())
+			.ifPresent(urlConnectionHttpClientBuilder::socketTimeout);
+		Optional.ofNullable(sdkClientConfig.getConnectionTimeout())
+			.ifPresent(urlConnectionHttpClientBuilder::connectionTimeout);
+		return urlConnectionHttpClientBuilder;
+	}
+	
+	/**
+	 * Create {@code AwsCrtAsyncHttpClient.Builder} which is configured by the properties.
+	 * 
+	 * <p>The builder is created reflectively, because {@code aws-crt-client} requires newer SDK
+	 * than the one this library is compiled against.</p>
+	 * 
+	 * @param sdkClientConfig the properties of the builder
+	 * @return the configured builder
+	 */
+	static SdkAsyncHttpClient.Builder<?> createCrtAsyncHttpClientBuilder(CrtAsyncHttpClientBuilder sdkClientConfig) {
+		Class<?> crtClass = ClassUtils.resolveClassName(HttpClientType.CRT.getClassName(),
+				AwsHttpClientV2Builders.class.getClassLoader());
+		SdkAsyncHttpClient.Builder<?> crtAsyncHttpClientBuilder =
+				InternalReflectionUtil.invokeStaticMethod(crtClass, "builder");
+		Optional.ofNullable(sdkClientConfig.getMaxConcurrency())
+			.ifPresent(v -> InternalReflectionUtil.invokeMethod(crtAsyncHttpClientBuilder, "maxConcurrency", v));
+		Optional.ofNullable(sdkClientConfig.getReadBufferSizeInBytes())
+			.ifPresent(v -> InternalReflectionUtil.invokeMethod(crtAsyncHttpClientBuilder, "readBufferSizeInBytes", v));
+		Optional.ofNullable(sdkClientConfig.getConnectionTimeout())
+			.ifPresent(v -> InternalReflectionUtil.invokeMethod(crtAsyncHttpClientBuilder, "connectionTimeout", v));
+		Optional.ofNullable(sdkClientConfig.getConnectionMaxIdleTime())
+			.ifPresent(v -> InternalReflectionUtil.invokeMethod(crtAsyncHttpClientBuilder, "connectionMaxIdleTime", v));
+		return crtAsyncHttpClientBuilder;
+	}
+	
+	/**
+	 * Create {@link NettyNioAsyncHttpClient.Builder} which is configured by the properties.
+	 * 
+	 * @param sdkClientConfig the properties of the builder
+	 * @param beanFactory the bean factory to look up the event loop group
+	 * @param sharedEventLoopGroup the event loop group used if no event loop group is configured, or {@code null}
+	 * @return the configured builder
+	 */
+	static SdkAsyncHttpClient.Builder<?> createNettyNioAsyncHttpClientBuilder(
+			NettyNioAsyncHttpClientBuilder sdkClientConfig, BeanFactory beanFactory,
+			SdkEventLoopGroup sharedEventLoopGroup) {
+		NettyNioAsyncHttpClient.Builder nettyNioAsyncHttpClientBuilder = NettyNioAsyncHttpClient.builder()
+			.maxConcurrency(sdkClientConfig.getMaxConcurrency())
+			.maxPendingConnectionAcquires(sdkClientConfig.getMaxPendingConnectionAcquires())
+			.protocol(sdkClientConfig.getProtocol())
+			.maxHttp2Streams(sdkClientConfig.getMaxHttp2Streams());
+		Optional.ofNullable(sdkClientConfig.getReadTimeout())
+			.ifPresent(nettyNioAsyncHttpClientBuilder::readTimeout);
+		Optional.ofNullable(sdkClientConfig.getWriteTimeout())
+			.ifPresent(nettyNioAsyncHttpClientBuilder::writeTimeout);
+		Optional.ofNullable(sdkClientConfig.getConnectionAcquisitionTimeout())
+			.ifPresent(nettyNioAsyncHttpClientBuilder::connectionAcquisitionTimeout);
+		Optional.ofNullable(sdkClientConfig.getConnectionTimeout())
+			.ifPresent(nettyNioAsyncHttpClientBuilder::connectionTimeout);
+		if (sdkClientConfig.getEventLoopGroupBeanName() != null) {
+			SdkEventLoopGroup eventLoopGroup = beanFactory.getBean(
+					sdkClientConfig.getEventLoopGroupBeanName(), SdkEventLoopGroup.class);
+			nettyNioAsyncHttpClientBuilder.eventLoopGroup(eventLoopGroup);
+		}
+		if (sdkClientConfig.getEventLoopGroupBuilderBeanName() != null) {
+			SdkEventLoopGroup.Builder eventLoopGroupBuilder = beanFactory.getBean(
+					sdkClientConfig.getEventLoopGroupBeanName(), SdkEventLoopGroup.Builder.class);
+			nettyNioAsyncHttpClientBuilder.eventLoopGroupBuilder(eventLoopGroupBuilder);
+		}
+		if (sdkClientConfig.getEventLoopGroupBeanName() == null
+				&& sdkClientConfig.getEventLoopGroupBuilderBeanName() == null && sharedEventLoopGroup != null) {
+			nettyNioAsyncHttpClientBuilder.eventLoopGroup(sharedEventLoopGroup);
+		}
+		return nettyNioAsyncHttpClientBuilder;
+	}
+	
+	/**
+	 * Get the event loop group shared by AWS clients v2.
+	 * 
+	 * @param config the properties of the client
+	 * @param beanFactory the bean factory to look up the event loop group
+	 * @return the shared event loop group, or {@code null} if the client does not share it
+	 */
+	static SdkEventLoopGroup getSharedEventLoopGroup(AwsClientV2Properties config, BeanFactory beanFactory) {
+		if (Boolean.FALSE.equals(config.getSharedEventLoopGroup())
+				|| beanFactory.containsBean(AwsEventLoopGroupV2FactoryBean.BEAN_NAME) == false) {
+			return null;
+		}
+		return beanFactory.getBean(AwsEventLoopGroupV2FactoryBean.BEAN_NAME, SdkEventLoopGroup.class);
+	}
+}
@@ -0,0 +1,161 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jp.xet.springconfig.aws.v2;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.context.config.ConfigFileApplicationListener;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.env.EnvironmentPostProcessor;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.ContextClosedEvent;
+import org.springframework.core.Ordered;
+import org.springframework.core.env.ConfigurableEnvironment;
+import org.springframework.core.env.MutablePropertySources;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.util.ClassUtils;
+
+import jp.xet.springconfig.aws.v2.AwsClientV2Configuration.AwsPropertySourceV2Properties;
+
+import software.amazon.awssdk.core.SdkClient;
+
+/**
+ * {@link EnvironmentPostProcessor} which adds the properties loaded from SSM Parameter Store and
+ * Secrets Manager, if {@code aws2.property-source.parameter-paths} or {@code aws2.property-source.secret-ids}
+ * is configured.
+ *
+ * <p>The clients are built before the application context by {@link AwsClientV2Util}, and configured by
+ * {@code region}, {@code endpoint}, {@code retry}, {@code timeouts} and {@code operations} of
+ * {@code aws2.ssm.*} and {@code aws2.secretsmanager.*} on top of {@code aws2.default.*}. The credentials are
+ * resolved by the default provider chain, as no beans are available yet.</p>
+ *
+ * <p>The property source is placed after the system environment variables, so that it overrides
+ * the configuration files. If {@code aws2.property-source.refresh-interval} is configured, the properties
+ * are refreshed in background until the application context is closed.</p>
+ *
+ * @author miyamoto.daisuke
+ * @since #version#
+ */
+@Slf4j
+public class AwsParameterV2EnvironmentPostProcessor implements EnvironmentPostProcessor, Ordered {
+	
+	static final String PROPERTY_SOURCE_NAME = "aws2PropertySource";
+	
+	private static final String SSM_CLIENT = "software.amazon.awssdk.services.ssm.SsmClient";
+	
+	private static final String SECRETS_MANAGER_CLIENT =
+			"software.amazon.awssdk.services.secretsmanager.SecretsManagerClient";
+	
+	private static final String THREAD_NAME_PREFIX = "aws-property-source-";
+	
+	private static final int DEFAULT_PARALLELISM = 4;
+	
+	
+	@Override
+	public int getOrder() {
+		// after the configuration files are loaded, to read aws2.* from them
+		return ConfigFileApplicationListener.DEFAULT_ORDER + 1;
+	}
+	
+	@Override
+	public void postProcessEnvironment(ConfigurableEnvironment environment, SpringApplication application) {
+		MutablePropertySources propertySources = environment.getPropertySources();
+		if (propertySources.contains(PROPERTY_SOURCE_NAME)) {
+			return;
+		}
+		Binder binder = Binder.get(environment);
+		AwsPropertySourceV2Properties properties = binder
+			.bind("aws2.property-source", AwsPropertySourceV2Properties.class)
+			.orElseGet(AwsPropertySourceV2Properties::new);
+		List<String> parameterPaths = Optional.ofNullable(properties.getParameterPaths())
+			.orElse(Collections.emptyList());
+		List<String> secretIds = Optional.ofNullable(properties.getSecretIds())
+			.orElse(Collections.emptyList());
+		if (parameterPaths.isEmpty() && secretIds.isEmpty()) {
+			return;
+		}
+		ClassLoader classLoader = application.getClassLoader();
+		SdkClient ssmClient = parameterPaths.isEmpty() ? null : createClient(binder, SSM_CLIENT, classLoader);
+		SdkClient secretsManagerClient =
+				secretIds.isEmpty() ? null : createClient(binder, SECRETS_MANAGER_CLIENT, classLoader);
+		if (ssmClient == null && secretsManagerClient == null) {
+			return;
+		}
+		
+		CustomizableThreadFactory threadFactory = new CustomizableThreadFactory(THREAD_NAME_PREFIX);
+		threadFactory.setDaemon(true);
+		ExecutorService executor = Executors.newFixedThreadPool(
+				Optional.ofNullable(properties.getParallelism()).orElse(DEFAULT_PARALLELISM), threadFactory);
+		AwsParameterV2PropertySource propertySource = new AwsParameterV2PropertySource(PROPERTY_SOURCE_NAME,
+				new AwsParameterV2Loader(ssmClient, parameterPaths, secretsManagerClient, secretIds, executor));
+		try {
+			propertySource.load();
+		} catch (RuntimeException e) {
+			if (Boolean.FALSE.equals(properties.getFailFast()) == false) {
+				propertySource.close();
+				throw e;
+			}
+			log.warn("Failed to load properties from AWS -- ignored", e);
+		}
+		if (propertySources.contains(StandardEnvironment.SYSTEM_ENVIRONMENT_PROPERTY_SOURCE_NAME)) {
+			propertySources.addAfter(StandardEnvironment.SYSTEM_ENVIRONMENT_PROPERTY_SOURCE_NAME, propertySource);
+		} else {
+			propertySources.addFirst(propertySource);
+		}
+		
+		if (properties.getRefreshInterval() == null) {
+			propertySource.close();
+		} else {
+			propertySource.start(properties.getRefreshInterval());
+			application.addListeners(new CloseListener(propertySource));
+		}
+	}
+	
+	private static SdkClient createClient(Binder binder, String clientClassName, ClassLoader classLoader) {
+		if (ClassUtils.isPresent(clientClassName, classLoader) == false) {
+			log.warn("{} is not found on the classpath -- ignored", clientClassName);
+			return null;
+		}
+		return AwsClientV2Util.buildStandalone(ClassUtils.resolveClassName(clientClassName, classLoader), binder, null);
+	}
+	
+	
+	/**
+	 * Stop refreshing when the root application context is closed.
+	 */
+	@RequiredArgsConstructor
+	private static class CloseListener implements ApplicationListener<ContextClosedEvent> {
+		
+		private final AwsParameterV2PropertySource propertySource;
+		
+		
+		@Override
+		public void onApplicationEvent(ContextClosedEvent event) {
+			if (event.getApplicationContext().getParent() == null) {
+				propertySource.close();
+			}
+		}
+	}
+}
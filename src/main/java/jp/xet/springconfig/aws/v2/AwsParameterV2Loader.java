@@ -0,0 +1,181 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jp.xet.springconfig.aws.v2;
+
+import static jp.xet.springconfig.aws.InternalReflectionUtil.invokeMethod;
+import static jp.xet.springconfig.aws.InternalReflectionUtil.invokeStaticMethod;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.util.ClassUtils;
+import org.springframework.util.StringUtils;
+
+import software.amazon.awssdk.core.SdkClient;
+
+/**
+ * Loader of the properties from SSM Parameter Store and Secrets Manager.
+ *
+ * <p>Each parameter path is loaded by {@code GetParametersByPath} recursively with decryption, following
+ * the pagination, and each secret is loaded by {@code GetSecretValue}. The paths and the secrets are loaded
+ * in parallel by the executor, and merged in the configured order, so that the latter ones take precedence.</p>
+ *
+ * <p>The requests are built by reflection, as the other service-specific calls of this library, so that
+ * the service modules are required only if the corresponding properties are configured.</p>
+ *
+ * @author miyamoto.daisuke
+ */
+@Slf4j
+@RequiredArgsConstructor
+class AwsParameterV2Loader {
+	
+	private static final String GET_PARAMETERS_BY_PATH_REQUEST =
+			"software.amazon.awssdk.services.ssm.model.GetParametersByPathRequest";
+	
+	private static final String GET_SECRET_VALUE_REQUEST =
+			"software.amazon.awssdk.services.secretsmanager.model.GetSecretValueRequest";
+	
+	
+	/**
+	 * Convert the name of a parameter to the property name, which is relative to the path
+	 * and separated by dots, e.g. {@code /app/prod/db/url} under {@code /app/prod} to {@code db.url}.
+	 *
+	 * @param path the parameter path
+	 * @param name the parameter name
+	 * @return the property name
+	 */
+	static String toPropertyName(String path, String name) {
+		String prefix = path.endsWith("/") ? path : path + "/";
+		String relativeName = name.startsWith(prefix) ? name.substring(prefix.length()) : name;
+		return StringUtils.trimLeadingCharacter(relativeName, '/').replace('/', '.');
+	}
+	
+	/**
+	 * Run the tasks in parallel and merge the results in the order of the tasks.
+	 *
+	 * @param tasks the tasks
+	 * @param executor the executor
+	 * @return the merged properties
+	 * @throws IllegalStateException if any task fails or interrupted
+	 */
+	static Map<String, Object> loadAll(List<Callable<Map<String, Object>>> tasks, ExecutorService executor) {
+		Map<String, Object> properties = new LinkedHashMap<>();
+		try {
+			for (Future<Map<String, Object>> future : executor.invokeAll(tasks)) {
+				properties.putAll(future.get());
+			}
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("Failed to load properties from AWS", e.getCause());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while loading properties from AWS", e);
+		}
+		return properties;
+	}
+	
+	
+	private final SdkClient ssmClient;
+	
+	private final List<String> parameterPaths;
+	
+	private final SdkClient secretsManagerClient;
+	
+	private final List<String> secretIds;
+	
+	private final ExecutorService executor;
+	
+	
+	/**
+	 * Load all the parameters and the secrets.
+	 *
+	 * @return the properties
+	 * @throws RuntimeException if failed to load any of them
+	 */
+	Map<String, Object> load() {
+		List<Callable<Map<String, Object>>> tasks = new ArrayList<>();
+		if (ssmClient != null) {
+			parameterPaths.forEach(path -> tasks.add(() -> loadParameters(path)));
+		}
+		if (secretsManagerClient != null) {
+			secretIds.forEach(secretId -> tasks.add(() -> loadSecret(secretId)));
+		}
+		return loadAll(tasks, executor);
+	}
+	
+	/**
+	 * Shutdown the executor and close the clients.
+	 */
+	void close() {
+		executor.shutdownNow();
+		if (ssmClient != null) {
+			ssmClient.close();
+		}
+		if (secretsManagerClient != null) {
+			secretsManagerClient.close();
+		}
+	}
+	
+	private Map<String, Object> loadParameters(String path) {
+		Class<?> requestClass =
+				ClassUtils.resolveClassName(GET_PARAMETERS_BY_PATH_REQUEST, ssmClient.getClass().getClassLoader());
+		Map<String, Object> parameters = new LinkedHashMap<>();
+		String nextToken = null;
+		do {
+			Object builder = invokeStaticMethod(requestClass, "builder");
+			invokeMethod(builder, "path", path);
+			invokeMethod(builder, "recursive", Boolean.TRUE);
+			invokeMethod(builder, "withDecryption", Boolean.TRUE);
+			if (nextToken != null) {
+				invokeMethod(builder, "nextToken", nextToken);
+			}
+			Object request = AwsClientV2Util.build(builder);
+			Object response = invokeMethod(ssmClient, "getParametersByPath", request);
+			List<?> page = invokeMethod(response, "parameters");
+			for (Object parameter : page) {
+				String name = invokeMethod(parameter, "name");
+				parameters.put(toPropertyName(path, name), invokeMethod(parameter, "value"));
+			}
+			nextToken = invokeMethod(response, "nextToken");
+		} while (nextToken != null);
+		log.debug("{} parameters are loaded from {}", parameters.size(), path);
+		return parameters;
+	}
+	
+	private Map<String, Object> loadSecret(String secretId) {
+		Class<?> requestClass = ClassUtils.resolveClassName(GET_SECRET_VALUE_REQUEST,
+				secretsManagerClient.getClass().getClassLoader());
+		Object builder = invokeStaticMethod(requestClass, "builder");
+		invokeMethod(builder, "secretId", secretId);
+		Object request = AwsClientV2Util.build(builder);
+		Object response = invokeMethod(secretsManagerClient, "getSecretValue", request);
+		String secretString = invokeMethod(response, "secretString");
+		if (secretString == null) {
+			log.warn("Binary secret is not supported -- ignored: {}", secretId);
+			return Collections.emptyMap();
+		}
+		return Collections.singletonMap(secretId, secretString);
+	}
+}
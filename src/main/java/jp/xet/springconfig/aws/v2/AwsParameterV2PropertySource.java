@@ -0,0 +1,116 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jp.xet.springconfig.aws.v2;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.core.env.EnumerablePropertySource;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.util.StringUtils;
+
+/**
+ * {@link EnumerablePropertySource} of the properties loaded by {@link AwsParameterV2Loader}.
+ *
+ * <p>The properties are held in an immutable snapshot, which is replaced as a whole by each refresh,
+ * so that the property reads never block nor see a partially loaded snapshot. If a refresh fails,
+ * the previous snapshot is kept and the next refresh is tried on schedule.</p>
+ *
+ * @author miyamoto.daisuke
+ */
+@Slf4j
+class AwsParameterV2PropertySource extends EnumerablePropertySource<AwsParameterV2Loader> {
+	
+	private static final String THREAD_NAME_PREFIX = "aws-property-source-refresh-";
+	
+	
+	private volatile Map<String, Object> snapshot = Collections.emptyMap();
+	
+	private ScheduledExecutorService scheduler;
+	
+	
+	AwsParameterV2PropertySource(String name, AwsParameterV2Loader loader) {
+		super(name, loader);
+	}
+	
+	@Override
+	public Object getProperty(String name) {
+		return snapshot.get(name);
+	}
+	
+	@Override
+	public boolean containsProperty(String name) {
+		return snapshot.containsKey(name);
+	}
+	
+	@Override
+	public String[] getPropertyNames() {
+		return StringUtils.toStringArray(snapshot.keySet());
+	}
+	
+	/**
+	 * Load the properties and replace the snapshot.
+	 *
+	 * @throws RuntimeException if failed to load
+	 */
+	void load() {
+		snapshot = Collections.unmodifiableMap(getSource().load());
+		log.debug("{} properties are loaded into {}", snapshot.size(), getName());
+	}
+	
+	/**
+	 * Start refreshing the properties in background by a daemon thread.
+	 *
+	 * @param interval the interval between the refreshes
+	 */
+	synchronized void start(Duration interval) {
+		if (scheduler != null) {
+			return;
+		}
+		CustomizableThreadFactory threadFactory = new CustomizableThreadFactory(THREAD_NAME_PREFIX);
+		threadFactory.setDaemon(true);
+		scheduler = new ScheduledThreadPoolExecutor(1, threadFactory);
+		long intervalNanos = interval.toNanos();
+		scheduler.scheduleWithFixedDelay(this::refresh, intervalNanos, intervalNanos, TimeUnit.NANOSECONDS);
+	}
+	
+	/**
+	 * Stop refreshing and close the loader.
+	 */
+	synchronized void close() {
+		if (scheduler != null) {
+			scheduler.shutdownNow();
+		}
+		getSource().close();
+	}
+	
+	/**
+	 * Refresh the properties, keeping the previous snapshot on failure.
+	 */
+	void refresh() {
+		try {
+			load();
+		} catch (RuntimeException e) {
+			log.warn("Failed to refresh {} -- the previous properties are kept", getName(), e);
+		}
+	}
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jp.xet.springconfig.aws.v2;
+
+import java.util.Optional;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.beans.factory.config.AbstractFactoryBean;
+
+import jp.xet.springconfig.aws.v2.AwsClientV2Configuration.AwsHttpClientV2Properties;
+
+import software.amazon.awssdk.http.SdkHttpClient;
+import software.amazon.awssdk.http.apache.ApacheHttpClient;
+
+/**
+ * Spring factory bean class of {@link SdkHttpClient} shared by AWS clients v2.
+ *
+ * <p>The HTTP client is not closed by the AWS clients which use it,
+ * and it is closed by this factory bean after all the dependent clients are destroyed.</p>
+ *
+ * @author miyamoto.daisuke
+ */
+@Slf4j
+@RequiredArgsConstructor
+class AwsSharedHttpClientV2FactoryBean extends AbstractFactoryBean<SdkHttpClient> {
+	
+	private static final String BEAN_NAME_PREFIX = "awsSharedHttpClientV2.";
+	
+	
+	/**
+	 * Get the bean name of the shared HTTP client.
+	 * 
+	 * @param name the name of the shared HTTP client
+	 * @return the bean name
+	 */
+	static String getBeanName(String name) {
+		return BEAN_NAME_PREFIX + name;
+	}
+	
+	
+	private final String name;
+	
+	private final AwsHttpClientV2Properties properties;
+	
+	
+	@Override
+	public Class<?> getObjectType() {
+		return SdkHttpClient.class;
+	}
+	
+	@Override
+	protected SdkHttpClient createInstance() {
+		log.debug("Build shared HTTP client: {}", name);
+		SdkHttpClient httpClient = Optional.ofNullable(properties.getApache())
+			.map(AwsHttpClientV2Builders::createApacheHttpClientBuilder)
+			.orElseGet(ApacheHttpClient::builder)
+			.build();
+		if (getBeanFactory() != null && getBeanFactory().containsBean(AwsConnectionPoolV2Metrics.BEAN_NAME)) {
+			return getBeanFactory().getBean(AwsConnectionPoolV2Metrics.BEAN_NAME, AwsConnectionPoolV2Metrics.class)
+				.instrument(getBeanName(name), httpClient);
+		}
+		return httpClient;
+	}
+	
+	@Override
+	protected void destroyInstance(SdkHttpClient instance) {
+		log.debug("Close shared HTTP client: {}", name);
+		if (instance != null) {
+			instance.close();
+		}
+	}
+}
@@ -0,0 +1,34 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jp.xet.springconfig.aws.v2;
+
+import software.amazon.awssdk.core.exception.SdkClientException;
+
+/**
+ * Exception thrown when the in-flight calls of an AWS client v2 reach the limit of the bulkhead.
+ *
+ * <p>The call is rejected before it is transmitted, so it is safe to retry later or to fall back.
+ * This exception is not retried by the retry policy of the client.</p>
+ *
+ * @author miyamoto.daisuke
+ */
+@SuppressWarnings("serial")
+public class BulkheadFullException extends SdkClientException {
+	
+	BulkheadFullException(String message) {
+		super(SdkClientException.builder().message(message));
+	}
+}
@@ -0,0 +1,206 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jp.xet.springconfig.aws.v2;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+import jp.xet.springconfig.aws.v2.AwsClientV2Configuration.AwsBulkheadV2Properties;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+
+/**
+ * Limiter of the in-flight calls of a client, with a fixed limit or an adaptive limit
+ * which is estimated from the latency.
+ *
+ * <p>The adaptive limit follows the gradient of the latency, as the {@code Gradient2} limit of Netflix
+ * concurrency-limits: the long-term latency is an exponential moving average of the samples, and the limit
+ * is multiplied by {@code clamp(tolerance * long-term latency / latency, 0.5, 1.0)} and added
+ * {@code sqrt(limit)} as the headroom for queueing, then smoothed. So the limit grows while the latency
+ * is stable, and shrinks as soon as the calls start queueing in the dependency. The samples of the calls
+ * which did not use the half of the limit are ignored, because they tell nothing about the capacity.</p>
+ *
+ * <p>Acquiring a permit is a CAS on the in-flight counter. The limit is updated by a single thread at a time,
+ * and the samples which arrive during the update are dropped instead of blocking.</p>
+ *
+ * @author miyamoto.daisuke
+ */
+class ConcurrencyLimiter {
+	
+	private static final int DEFAULT_LIMIT = 20;
+	
+	private static final int DEFAULT_MIN_LIMIT = 1;
+	
+	private static final int DEFAULT_MAX_LIMIT = 200;
+	
+	private static final double DEFAULT_TOLERANCE = 1.5;
+	
+	private static final double DEFAULT_SMOOTHING = 0.2;
+	
+	private static final int WARMUP_SAMPLES = 10;
+	
+	private static final int LONG_WINDOW = 600;
+	
+	
+	private final LongSupplier ticker;
+	
+	private final boolean adaptive;
+	
+	private final int minLimit;
+	
+	private final int maxLimit;
+	
+	private final double tolerance;
+	
+	private final double smoothing;
+	
+	private final AtomicInteger inFlight = new AtomicInteger();
+	
+	private final LongAdder rejected = new LongAdder();
+	
+	private final AtomicBoolean updating = new AtomicBoolean();
+	
+	private volatile int limit;
+	
+	// guarded by updating
+	private double estimatedLimit;
+	
+	// guarded by updating
+	private double longRtt;
+	
+	// guarded by updating
+	private long samples;
+	
+	
+	ConcurrencyLimiter(AwsBulkheadV2Properties properties) {
+		this(properties, System::nanoTime);
+	}
+	
+	ConcurrencyLimiter(AwsBulkheadV2Properties properties, LongSupplier ticker) {
+		this.ticker = ticker;
+		adaptive = Boolean.TRUE.equals(properties.getAdaptive());
+		minLimit = properties.getMinLimit() != null ? properties.getMinLimit() : DEFAULT_MIN_LIMIT;
+		maxLimit = properties.getMaxLimit() != null ? properties.getMaxLimit() : DEFAULT_MAX_LIMIT;
+		tolerance = properties.getTolerance() != null ? properties.getTolerance() : DEFAULT_TOLERANCE;
+		smoothing = properties.getSmoothing() != null ? properties.getSmoothing() : DEFAULT_SMOOTHING;
+		limit = properties.getLimit() != null ? properties.getLimit() : DEFAULT_LIMIT;
+		estimatedLimit = limit;
+	}
+	
+	/**
+	 * Acquire a permit if the in-flight calls are under the limit.
+	 *
+	 * @return the number of the in-flight calls including this call, or {@code -1} if the limit is reached
+	 */
+	int tryAcquire() {
+		while (true) {
+			int current = inFlight.get();
+			if (current >= limit) {
+				rejected.increment();
+				return -1;
+			}
+			if (inFlight.compareAndSet(current, current + 1)) {
+				return current + 1;
+			}
+		}
+	}
+	
+	/**
+	 * Release the permit and update the adaptive limit by the latency of the call.
+	 *
+	 * @param start the time when the permit is acquired, returned by {@link #now()}
+	 * @param inFlightAtStart the number of the in-flight calls when the permit is acquired
+	 */
+	void release(long start, int inFlightAtStart) {
+		inFlight.decrementAndGet();
+		if (adaptive) {
+			onSample(Math.max(now() - start, 1), inFlightAtStart);
+		}
+	}
+	
+	int getLimit() {
+		return limit;
+	}
+	
+	int getInFlight() {
+		return inFlight.get();
+	}
+	
+	long getRejected() {
+		return rejected.sum();
+	}
+	
+	/**
+	 * Returns the current value of the monotonic ticker in nanoseconds.
+	 *
+	 * @return the current ticker value
+	 */
+	long now() {
+		return ticker.getAsLong();
+	}
+	
+	/**
+	 * Register the gauges of the limit and the in-flight calls, and the counter of the rejected calls.
+	 *
+	 * @param meterRegistry the registry
+	 * @param name the name of the client
+	 */
+	void bindTo(MeterRegistry meterRegistry, String name) {
+		Tags tags = Tags.of("client", name);
+		Gauge.builder("aws.client.bulkhead.limit", this, ConcurrencyLimiter::getLimit)
+			.tags(tags)
+			.register(meterRegistry);
+		Gauge.builder("aws.client.bulkhead.inflight", this, ConcurrencyLimiter::getInFlight)
+			.tags(tags)
+			.register(meterRegistry);
+		FunctionCounter.builder("aws.client.bulkhead.rejected", this, ConcurrencyLimiter::getRejected)
+			.tags(tags)
+			.register(meterRegistry);
+	}
+	
+	private void onSample(long rtt, int inFlightAtStart) {
+		if (updating.compareAndSet(false, true) == false) {
+			return;
+		}
+		try {
+			samples++;
+			if (samples <= WARMUP_SAMPLES) {
+				longRtt += (rtt - longRtt) / samples;
+			} else {
+				longRtt += (rtt - longRtt) / LONG_WINDOW;
+			}
+			if (longRtt / rtt > 2) {
+				// recover quickly from a long latency which has gone
+				longRtt *= 0.95;
+			}
+			if (inFlightAtStart < estimatedLimit / 2) {
+				return;
+			}
+			double gradient = Math.max(0.5, Math.min(1.0, tolerance * longRtt / rtt));
+			double newLimit = estimatedLimit * gradient + Math.sqrt(estimatedLimit);
+			newLimit = estimatedLimit * (1 - smoothing) + newLimit * smoothing;
+			estimatedLimit = Math.max(minLimit, Math.min(maxLimit, newLimit));
+			limit = (int) estimatedLimit;
+		} finally {
+			updating.set(false);
+		}
+	}
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jp.xet.springconfig.aws.v2;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.LongSupplier;
+
+/**
+ * Histogram of the recent latencies to estimate a percentile.
+ *
+ * <p>The latencies are counted in {@value #BUCKETS} exponential buckets, each of which is {@code 1.2} times
+ * wider than the previous one, so the estimation is at most 20% larger than the actual value. Two windows
+ * are reused in turn, and a percentile is estimated from the current and the previous windows.
+ * Recording a latency is an atomic increment without allocation.</p>
+ *
+ * @author miyamoto.daisuke
+ */
+class LatencyHistogram {
+	
+	private static final int BUCKETS = 128;
+	
+	private static final double GROWTH = 1.2;
+	
+	private static final double LOG_GROWTH = Math.log(GROWTH);
+	
+	private static final long NANOS_PER_MICRO = 1000;
+	
+	
+	private final LongSupplier ticker;
+	
+	private final long windowNanos;
+	
+	private final long minSamples;
+	
+	private final AtomicLongArray epochs = new AtomicLongArray(2);
+	
+	private final AtomicLongArray[] counts = {
+		new AtomicLongArray(BUCKETS),
+		new AtomicLongArray(BUCKETS)
+	};
+	
+	
+	LatencyHistogram(Duration window, long minSamples, LongSupplier ticker) {
+		this.ticker = ticker;
+		this.windowNanos = Math.max(window.toNanos(), 1);
+		this.minSamples = minSamples;
+	}
+	
+	/**
+	 * Record a latency.
+	 *
+	 * @param nanos the latency in nanoseconds
+	 */
+	void record(long nanos) {
+		long epoch = Math.floorDiv(ticker.getAsLong(), windowNanos);
+		int window = (int) Math.floorMod(epoch, 2L);
+		long windowEpoch = epochs.get(window);
+		if (windowEpoch != epoch && epochs.compareAndSet(window, windowEpoch, epoch)) {
+			for (int i = 0; i < BUCKETS; i++) {
+				counts[window].set(i, 0);
+			}
+		}
+		counts[window].incrementAndGet(getBucket(nanos));
+	}
+	
+	/**
+	 * Estimate the percentile of the recent latencies.
+	 *
+	 * @param percentile the percentile, between {@code 0} and {@code 100}
+	 * @return the latency in nanoseconds, or {@code -1} if the samples are not enough
+	 */
+	long getPercentile(double percentile) {
+		long epoch = Math.floorDiv(ticker.getAsLong(), windowNanos);
+		boolean[] valid = new boolean[2];
+		long total = 0;
+		for (int window = 0; window < 2; window++) {
+			long windowEpoch = epochs.get(window);
+			valid[window] = windowEpoch == epoch || windowEpoch == epoch - 1;
+			for (int i = 0; valid[window] && i < BUCKETS; i++) {
+				total += counts[window].get(i);
+			}
+		}
+		if (total < minSamples || total == 0) {
+			return -1;
+		}
+		long rank = (long) Math.ceil(total * percentile / 100);
+		long cumulative = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			for (int window = 0; window < 2; window++) {
+				cumulative += valid[window] ? counts[window].get(i) : 0;
+			}
+			if (cumulative >= rank) {
+				return getUpperBound(i);
+			}
+		}
+		return getUpperBound(BUCKETS - 1);
+	}
+	
+	private static int getBucket(long nanos) {
+		long micros = nanos / NANOS_PER_MICRO;
+		if (micros <= 1) {
+			return 0;
+		}
+		return (int) Math.min(Math.ceil(Math.log(micros) / LOG_GROWTH), BUCKETS - 1);
+	}
+	
+	private static long getUpperBound(int bucket) {
+		return (long) (Math.pow(GROWTH, bucket) * NANOS_PER_MICRO);
+	}
+}
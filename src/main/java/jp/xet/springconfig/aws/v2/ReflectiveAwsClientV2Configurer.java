@@ -0,0 +1,116 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jp.xet.springconfig.aws.v2;
+
+import static jp.xet.springconfig.aws.InternalReflectionUtil.invokeMethod;
+
+import java.net.URI;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import software.amazon.awssdk.auth.credentials.AwsCredentialsProvider;
+import software.amazon.awssdk.core.ServiceConfiguration;
+import software.amazon.awssdk.core.client.config.ClientOverrideConfiguration;
+import software.amazon.awssdk.http.SdkHttpClient;
+import software.amazon.awssdk.http.async.SdkAsyncHttpClient;
+
+/**
+ * {@link AwsClientV2Configurer} implementation which configures the builder by reflection.
+ *
+ * @author miyamoto.daisuke
+ */
+@Slf4j
+@RequiredArgsConstructor
+class ReflectiveAwsClientV2Configurer implements AwsClientV2Configurer {
+	
+	private static final String S3_CONFIG = "software.amazon.awssdk.services.s3.S3Configuration";
+	
+	
+	private final Class<?> clientClass;
+	
+	
+	@Override
+	public Object createBuilder() {
+		return AwsClientV2Util.createBuilder(clientClass);
+	}
+	
+	@Override
+	public void configureCredentialsProvider(Object builder, AwsCredentialsProvider credentialsProvider) {
+		AwsClientV2Util.configureCredentialsProvider(builder, credentialsProvider);
+	}
+	
+	@Override
+	public void configureRegion(Object builder, String region) {
+		AwsClientV2Util.configureRegion(builder, region);
+	}
+	
+	@Override
+	public void configureEndpoint(Object builder, URI endpoint) {
+		AwsClientV2Util.configureEndpoint(builder, endpoint);
+	}
+	
+	@Override
+	public void configureClientOverrideConfiguration(Object builder,
+			ClientOverrideConfiguration overrideConfiguration) {
+		AwsClientV2Util.configureClientOverrideConfiguration(builder, overrideConfiguration);
+	}
+	
+	@Override
+	public void configureS3Configuration(Object builder, Boolean pathStyleAccessEnabled,
+			Boolean chunkedEncodingEnabled, Boolean accelerateModeEnabled, Boolean dualstackEnabled,
+			Boolean checksumValidationEnabled) {
+		try {
+			Object configBuilder = AwsClientV2Util.createBuilder(Class.forName(S3_CONFIG));
+			invokeMethod(configBuilder, "pathStyleAccessEnabled", pathStyleAccessEnabled);
+			invokeMethod(configBuilder, "chunkedEncodingEnabled", chunkedEncodingEnabled);
+			invokeMethod(configBuilder, "accelerateModeEnabled", accelerateModeEnabled);
+			invokeMethod(configBuilder, "dualstackEnabled", dualstackEnabled);
+			invokeMethod(configBuilder, "checksumValidationEnabled", checksumValidationEnabled);
+			
+			ServiceConfiguration serviceConfiguration = AwsClientV2Util.build(configBuilder);
+			AwsClientV2Util.configureServiceConfiguration(builder, serviceConfiguration);
+		} catch (ClassNotFoundException e) {
+			log.debug(S3_CONFIG + " is not found in classpath -- ignored", e);
+		}
+	}
+	
+	@Override
+	public void configureHttpSyncClientBuilder(Object builder, SdkHttpClient.Builder<?> httpClientBuilder) {
+		AwsClientV2Util.configureHttpSyncClientBuilder(builder, httpClientBuilder);
+	}
+	
+	@Override
+	public void configureHttpAsyncClientBuilder(Object builder,
+			SdkAsyncHttpClient.Builder<?> httpAsyncClientBuilder) {
+		AwsClientV2Util.configureHttpAsyncClientBuilder(builder, httpAsyncClientBuilder);
+	}
+	
+	@Override
+	public void configureHttpClient(Object builder, SdkHttpClient httpClient) {
+		AwsClientV2Util.configureHttpClient(builder, httpClient);
+	}
+	
+	@Override
+	public void configureHttpAsyncClient(Object builder, SdkAsyncHttpClient httpAsyncClient) {
+		AwsClientV2Util.configureHttpAsyncClient(builder, httpAsyncClient);
+	}
+	
+	@Override
+	public Object build(Object builder) {
+		return AwsClientV2Util.build(builder);
+	}
+}
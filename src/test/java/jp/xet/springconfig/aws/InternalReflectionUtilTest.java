@@ -0,0 +1,224 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jp.xet.springconfig.aws;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Test for {@link InternalReflectionUtil}.
+ *
+ * @author miyamoto.daisuke
+ * @since #version#
+ */
+public class InternalReflectionUtilTest {
+	
+	@Test
+	public void testInvokeMethod() {
+		// setup
+		StringBuilder target = new StringBuilder("foo");
+		// exercise
+		Object actual1 = InternalReflectionUtil.invokeMethod(target, "append", "bar");
+		Object actual2 = InternalReflectionUtil.invokeMethod(target, "append", "baz");
+		int length = InternalReflectionUtil.invokeMethod(target, "length");
+		// verify
+		assertThat(actual1).isSameAs(target);
+		assertThat(actual2).isSameAs(target);
+		assertThat(target.toString()).isEqualTo("foobarbaz");
+		assertThat(length).isEqualTo(9);
+	}
+	
+	@Test
+	public void testInvokeMethod_NullArgument() {
+		// setup
+		Example target = new Example();
+		// exercise
+		String actual1 = InternalReflectionUtil.invokeMethod(target, "echo", (Object) null);
+		String actual2 = InternalReflectionUtil.invokeMethod(target, "echo", Boolean.TRUE);
+		String actual3 = InternalReflectionUtil.invokeMethod(target, "echo", (Object) null);
+		// verify
+		assertThat(actual1).isEqualTo("null");
+		assertThat(actual2).isEqualTo("true");
+		assertThat(actual3).isEqualTo("null");
+	}
+	
+	@Test
+	public void testInvokeMethod_OverloadedMethod() {
+		// setup
+		Example target = new Example();
+		// exercise
+		String actual1 = InternalReflectionUtil.invokeMethod(target, "describe", "foo");
+		String actual2 = InternalReflectionUtil.invokeMethod(target, "describe", 1);
+		String actual3 = InternalReflectionUtil.invokeMethod(target, "describe", 1L);
+		String actual4 = InternalReflectionUtil.invokeMethod(target, "describe", "bar");
+		// verify
+		assertThat(actual1).isEqualTo("String:foo");
+		assertThat(actual2).isEqualTo("int:1");
+		assertThat(actual3).isEqualTo("Object:1");
+		assertThat(actual4).isEqualTo("String:bar");
+	}
+	
+	@Test
+	public void testInvokeMethod_VarargsMethod() {
+		// setup
+		Example target = new Example();
+		// exercise
+		String actual1 = InternalReflectionUtil.invokeMethod(target, "join", (Object) new String[] {
+			"foo",
+			"bar"
+		});
+		String actual2 = InternalReflectionUtil.invokeMethod(target, "join", (Object) new String[0]);
+		String actual3 = InternalReflectionUtil.invokeMethod(target, "prefix", "-", new String[] {
+			"foo"
+		});
+		// verify
+		assertThat(actual1).isEqualTo("foo,bar");
+		assertThat(actual2).isEmpty();
+		assertThat(actual3).isEqualTo("-foo");
+	}
+	
+	@Test
+	public void testInvokeMethod_ArgumentTypeMismatch() {
+		assertThatThrownBy(() -> InternalReflectionUtil.invokeMethod(new Example(), "setCount", (Object) null))
+			.isInstanceOf(IllegalStateException.class);
+		assertThatThrownBy(() -> InternalReflectionUtil.invokeMethod(new Example(), "join", "foo"))
+			.isInstanceOf(IllegalStateException.class);
+	}
+	
+	@Test
+	public void testInvokeMethod_VoidMethod() {
+		// setup
+		Example target = new Example();
+		// exercise
+		Object actual = InternalReflectionUtil.invokeMethod(target, "setValue", "foo");
+		// verify
+		assertThat(actual).isNull();
+		assertThat(target.value).isEqualTo("foo");
+	}
+	
+	@Test
+	public void testInvokeMethod_NonPublicClass() {
+		// setup
+		List<String> target = Collections.unmodifiableList(Arrays.asList("foo", "bar"));
+		// exercise
+		int actual = InternalReflectionUtil.invokeMethod(target, "size");
+		// verify
+		assertThat(actual).isEqualTo(2);
+	}
+	
+	@Test
+	public void testInvokeMethod_MethodNotFound() {
+		assertThatThrownBy(() -> InternalReflectionUtil.invokeMethod(new Example(), "unknown", "foo"))
+			.isInstanceOf(IllegalStateException.class);
+	}
+	
+	@Test
+	public void testInvokeMethod_ExceptionIsPropagated() {
+		assertThatThrownBy(() -> InternalReflectionUtil.invokeMethod(new Example(), "fail", "foo"))
+			.isInstanceOf(UnsupportedOperationException.class)
+			.hasMessage("foo");
+	}
+	
+	@Test
+	public void testInvokeStaticMethod() {
+		// exercise
+		String actual1 = InternalReflectionUtil.invokeStaticMethod(String.class, "valueOf", 1);
+		String actual2 = InternalReflectionUtil.invokeStaticMethod(String.class, "valueOf", true);
+		Example actual3 = InternalReflectionUtil.invokeStaticMethod(Example.class, "builder");
+		// verify
+		assertThat(actual1).isEqualTo("1");
+		assertThat(actual2).isEqualTo("true");
+		assertThat(actual3).isNotNull();
+	}
+	
+	@Test
+	public void testInvokeStaticMethod_InstanceMethod() {
+		assertThatThrownBy(() -> InternalReflectionUtil.invokeStaticMethod(Example.class, "setValue", "foo"))
+			.isInstanceOf(IllegalArgumentException.class);
+	}
+	
+	@Test
+	public void testGetField() {
+		// setup
+		Example target = new Example();
+		target.setValue("foo");
+		// exercise
+		String actual = InternalReflectionUtil.getField(target, "value");
+		// verify
+		assertThat(actual).isEqualTo("foo");
+	}
+	
+	@Test
+	public void testGetField_FieldNotFound() {
+		assertThatThrownBy(() -> InternalReflectionUtil.getField(new Example(), "unknown"))
+			.isInstanceOf(IllegalStateException.class);
+	}
+	
+	
+	@SuppressWarnings("javadoc")
+	public static class Example {
+		
+		public static Example builder() {
+			return new Example();
+		}
+		
+		
+		private String value;
+		
+		
+		public String echo(Boolean value) {
+			return String.valueOf(value);
+		}
+		
+		public void setValue(String value) {
+			this.value = value;
+		}
+		
+		public void setCount(int count) {
+			this.value = String.valueOf(count);
+		}
+		
+		public String describe(String value) {
+			return "String:" + value;
+		}
+		
+		public String describe(int value) {
+			return "int:" + value;
+		}
+		
+		public String describe(Object value) {
+			return "Object:" + value;
+		}
+		
+		public String join(String... values) {
+			return String.join(",", values);
+		}
+		
+		public String prefix(String prefix, String... values) {
+			return prefix + String.join(prefix, values);
+		}
+		
+		public void fail(String message) {
+			throw new UnsupportedOperationException(message);
+		}
+	}
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jp.xet.springconfig.aws;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+
+import org.junit.Test;
+
+import jp.xet.springconfig.aws.AwsRetryProperties.Jitter;
+
+/**
+ * Test for {@link RetryBackoff} and {@link AwsRetryProperties}.
+ *
+ * @author miyamoto.daisuke
+ * @since #version#
+ */
+public class RetryBackoffTest {
+	
+	private static final int SAMPLES = 1000;
+	
+	
+	@Test
+	public void testFullJitter() {
+		// setup
+		RetryBackoff sut = new RetryBackoff(Jitter.FULL, Duration.ofMillis(100), Duration.ofSeconds(1));
+		// exercise & verify
+		for (int i = 0; i < SAMPLES; i++) {
+			assertThat(sut.computeDelay(0)).isBetween(Duration.ZERO, Duration.ofMillis(100));
+			assertThat(sut.computeDelay(2)).isBetween(Duration.ZERO, Duration.ofMillis(400));
+			assertThat(sut.computeDelay(10)).isBetween(Duration.ZERO, Duration.ofSeconds(1));
+		}
+	}
+	
+	@Test
+	public void testEqualJitter() {
+		// setup
+		RetryBackoff sut = new RetryBackoff(Jitter.EQUAL, Duration.ofMillis(100), Duration.ofSeconds(1));
+		// exercise & verify
+		for (int i = 0; i < SAMPLES; i++) {
+			assertThat(sut.computeDelay(0)).isBetween(Duration.ofMillis(50), Duration.ofMillis(100));
+			assertThat(sut.computeDelay(2)).isBetween(Duration.ofMillis(200), Duration.ofMillis(400));
+			assertThat(sut.computeDelay(10)).isBetween(Duration.ofMillis(500), Duration.ofSeconds(1));
+		}
+	}
+	
+	@Test
+	public void testDecorrelatedJitter() {
+		// setup
+		RetryBackoff sut = new RetryBackoff(Jitter.DECORRELATED, Duration.ofMillis(100), Duration.ofSeconds(1));
+		// exercise & verify
+		for (int i = 0; i < SAMPLES; i++) {
+			assertThat(sut.computeDelay(0)).isBetween(Duration.ofMillis(100), Duration.ofMillis(300));
+			assertThat(sut.computeDelay(1)).isBetween(Duration.ofMillis(100), Duration.ofMillis(900));
+			assertThat(sut.computeDelay(100)).isBetween(Duration.ofMillis(100), Duration.ofSeconds(1));
+		}
+	}
+	
+	@Test
+	public void testToBackoff() {
+		// setup
+		AwsRetryProperties sut = new AwsRetryProperties();
+		// exercise & verify
+		assertThat(sut.toBackoff()).isNull();
+		assertThat(sut.toThrottlingBackoff()).isNull();
+		
+		sut.setMaxBackoff(Duration.ofSeconds(5));
+		sut.setThrottlingBaseDelay(Duration.ofSeconds(1));
+		assertThat(sut.toBackoff())
+			.returns(Jitter.FULL, RetryBackoff::getJitter)
+			.returns(Duration.ofMillis(100), RetryBackoff::getBaseDelay)
+			.returns(Duration.ofSeconds(5), RetryBackoff::getMaxBackoff);
+		assertThat(sut.toThrottlingBackoff())
+			.returns(Jitter.EQUAL, RetryBackoff::getJitter)
+			.returns(Duration.ofSeconds(1), RetryBackoff::getBaseDelay)
+			.returns(Duration.ofSeconds(20), RetryBackoff::getMaxBackoff);
+	}
+}
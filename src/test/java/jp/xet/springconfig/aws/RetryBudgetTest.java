@@ -0,0 +1,153 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jp.xet.springconfig.aws;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+import org.junit.Test;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Test for {@link RetryBudget}.
+ *
+ * @author miyamoto.daisuke
+ * @since #version#
+ */
+public class RetryBudgetTest {
+	
+	private final MutableClock clock = new MutableClock();
+	
+	
+	@Test
+	public void testMinRetriesAreAllowedWithoutSuccess() {
+		// setup
+		RetryBudget sut = new RetryBudget("test", new AwsRetryBudgetProperties(), clock);
+		// exercise
+		int acquired = acquireAll(sut);
+		// verify
+		assertThat(acquired).isEqualTo(10); // default min-retries-per-second 1 * window 10s
+		assertThat(sut.getAvailable()).isZero();
+		assertThat(sut.getExhausted()).isEqualTo(1);
+	}
+	
+	@Test
+	public void testRetriesAreLimitedToRatioOfSuccesses() {
+		// setup
+		AwsRetryBudgetProperties properties = new AwsRetryBudgetProperties();
+		properties.setMinRetriesPerSecond(0.0);
+		RetryBudget sut = new RetryBudget("test", properties, clock);
+		for (int i = 0; i < 1000; i++) {
+			sut.recordSuccess();
+		}
+		// exercise
+		int acquired = acquireAll(sut);
+		// verify
+		assertThat(acquired).isEqualTo(100); // default ratio 0.1
+	}
+	
+	@Test
+	public void testBudgetIsRestoredAfterWindow() {
+		// setup
+		AwsRetryBudgetProperties properties = new AwsRetryBudgetProperties();
+		properties.setWindow(Duration.ofSeconds(5));
+		properties.setMinRetriesPerSecond(2.0);
+		RetryBudget sut = new RetryBudget("test", properties, clock);
+		assertThat(acquireAll(sut)).isEqualTo(10);
+		// exercise
+		clock.advance(Duration.ofSeconds(3));
+		boolean acquiredInWindow = sut.tryAcquire();
+		clock.advance(Duration.ofSeconds(2));
+		int acquiredAfterWindow = acquireAll(sut);
+		// verify
+		assertThat(acquiredInWindow).isFalse();
+		assertThat(acquiredAfterWindow).isEqualTo(10);
+	}
+	
+	@Test
+	public void testSuccessesExpireWithWindow() {
+		// setup
+		AwsRetryBudgetProperties properties = new AwsRetryBudgetProperties();
+		properties.setMinRetriesPerSecond(0.0);
+		properties.setRatio(0.5);
+		RetryBudget sut = new RetryBudget("test", properties, clock);
+		for (int i = 0; i < 10; i++) {
+			sut.recordSuccess();
+			clock.advance(Duration.ofSeconds(1));
+		}
+		// exercise
+		long available = sut.getAvailable();
+		// verify
+		assertThat(available).isEqualTo(4); // the first success is out of the window
+	}
+	
+	@Test
+	public void testBindTo() {
+		// setup
+		MeterRegistry meterRegistry = new SimpleMeterRegistry();
+		RetryBudget sut = new RetryBudget("test", new AwsRetryBudgetProperties(), clock);
+		// exercise
+		sut.bindTo(meterRegistry);
+		acquireAll(sut);
+		sut.tryAcquire();
+		// verify
+		assertThat(meterRegistry.get("aws.client.retry.budget.exhausted").tag("client", "test")
+			.functionCounter().count()).isEqualTo(2.0);
+		assertThat(meterRegistry.get("aws.client.retry.budget.available").tag("client", "test")
+			.gauge().value()).isZero();
+	}
+	
+	private static int acquireAll(RetryBudget sut) {
+		int acquired = 0;
+		while (sut.tryAcquire()) {
+			acquired++;
+		}
+		return acquired;
+	}
+	
+	
+	private static class MutableClock extends Clock {
+		
+		private Instant instant = Instant.parse("2020-01-01T00:00:00Z");
+		
+		
+		void advance(Duration duration) {
+			instant = instant.plus(duration);
+		}
+		
+		@Override
+		public ZoneId getZone() {
+			return ZoneOffset.UTC;
+		}
+		
+		@Override
+		public Clock withZone(ZoneId zone) {
+			throw new UnsupportedOperationException();
+		}
+		
+		@Override
+		public Instant instant() {
+			return instant;
+		}
+	}
+}
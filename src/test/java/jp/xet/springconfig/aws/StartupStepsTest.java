@@ -0,0 +1,119 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jp.xet.springconfig.aws;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+/**
+ * Test for {@link StartupSteps}.
+ *
+ * @author miyamoto.daisuke
+ * @since #version#
+ */
+public class StartupStepsTest {
+	
+	@Test
+	public void testStart_ApplicationStartup() {
+		// setup
+		ExampleBeanFactory beanFactory = new ExampleBeanFactory();
+		// exercise
+		StartupSteps.Step step = StartupSteps.start(beanFactory, "foo").tag("client", "bar");
+		step.close();
+		// verify
+		assertThat(beanFactory.applicationStartup.events).containsExactly("start:foo", "tag:client=bar", "end");
+	}
+	
+	@Test
+	public void testStart_FlightRecorder() throws Exception {
+		// setup
+		Path file = Files.createTempFile("startup", ".jfr");
+		try (Recording recording = new Recording()) {
+			recording.enable("jp.xet.springconfig.aws.Startup");
+			recording.start();
+			// exercise
+			StartupSteps.Step step = StartupSteps.start(new Object(), "foo").tag("client", "bar").tag("baz", "qux");
+			step.close();
+			recording.stop();
+			recording.dump(file);
+			// verify
+			List<RecordedEvent> events = RecordingFile.readAllEvents(file).stream()
+				.filter(e -> e.getEventType().getName().equals("jp.xet.springconfig.aws.Startup"))
+				.collect(Collectors.toList());
+			assertThat(events).hasSize(1);
+			assertThat(events.get(0).getString("step")).isEqualTo("foo");
+			assertThat(events.get(0).getString("client")).isEqualTo("bar");
+			assertThat(events.get(0).getString("tags")).isEqualTo("baz=qux");
+		} finally {
+			Files.deleteIfExists(file);
+		}
+	}
+	
+	
+	@SuppressWarnings("javadoc")
+	public static class ExampleBeanFactory {
+		
+		private final ExampleApplicationStartup applicationStartup = new ExampleApplicationStartup();
+		
+		
+		public ExampleApplicationStartup getApplicationStartup() {
+			return applicationStartup;
+		}
+	}
+	
+	@SuppressWarnings("javadoc")
+	public static class ExampleApplicationStartup {
+		
+		private final List<String> events = new ArrayList<>();
+		
+		
+		public ExampleStartupStep start(String name) {
+			events.add("start:" + name);
+			return new ExampleStartupStep(events);
+		}
+	}
+	
+	@SuppressWarnings("javadoc")
+	public static class ExampleStartupStep {
+		
+		private final List<String> events;
+		
+		
+		ExampleStartupStep(List<String> events) {
+			this.events = events;
+		}
+		
+		public ExampleStartupStep tag(String key, String value) {
+			events.add("tag:" + key + "=" + value);
+			return this;
+		}
+		
+		public void end() {
+			events.add("end");
+		}
+	}
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jp.xet.springconfig.aws.v1;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import org.junit.Test;
+
+import com.amazonaws.auth.AWSCredentials;
+import com.amazonaws.auth.BasicSessionCredentials;
+
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.AwsSessionCredentials;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+
+/**
+ * Test for {@link AwsCredentialsV1Adapter}.
+ *
+ * @author miyamoto.daisuke
+ * @since #version#
+ */
+public class AwsCredentialsV1AdapterTest {
+	
+	@Test
+	public void testBasicCredentials() {
+		// setup
+		StaticCredentialsProvider provider =
+				StaticCredentialsProvider.create(AwsBasicCredentials.create("accessKeyId", "secretAccessKey"));
+		// exercise
+		AWSCredentials actual = AwsCredentialsV1Adapter.adapt(provider).getCredentials();
+		// verify
+		assertThat(actual).isNotInstanceOf(BasicSessionCredentials.class);
+		assertThat(actual.getAWSAccessKeyId()).isEqualTo("accessKeyId");
+		assertThat(actual.getAWSSecretKey()).isEqualTo("secretAccessKey");
+	}
+	
+	@Test
+	public void testSessionCredentials() {
+		// setup
+		StaticCredentialsProvider provider = StaticCredentialsProvider.create(
+				AwsSessionCredentials.create("accessKeyId", "secretAccessKey", "sessionToken"));
+		// exercise
+		AWSCredentials actual = AwsCredentialsV1Adapter.adapt(provider).getCredentials();
+		// verify
+		assertThat(actual).isInstanceOfSatisfying(BasicSessionCredentials.class,
+				credentials -> assertThat(credentials.getSessionToken()).isEqualTo("sessionToken"));
+		assertThat(actual.getAWSAccessKeyId()).isEqualTo("accessKeyId");
+	}
+	
+	@Test
+	public void testNotCredentialsProvider() {
+		assertThatThrownBy(() -> AwsCredentialsV1Adapter.adapt("example"))
+			.isInstanceOf(IllegalArgumentException.class);
+	}
+}
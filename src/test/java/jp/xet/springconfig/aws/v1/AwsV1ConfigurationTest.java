@@ -16,15 +16,24 @@
 package jp.xet.springconfig.aws.v1; // NOPMD CouplingBetweenObjects
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.Mockito.mock;
 
 import java.io.Serializable;
+import java.lang.management.ManagementFactory;
 import java.net.URI;
 import java.security.SecureRandom;
+import java.util.List;
 import java.util.Locale;
+import java.util.stream.Collectors;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
 
 import lombok.extern.slf4j.Slf4j;
 
+import org.springframework.aop.framework.Advised;
+import org.springframework.aop.support.AopUtils;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.boot.test.context.runner.ApplicationContextRunner;
 import org.springframework.context.annotation.Bean;
@@ -35,11 +44,16 @@ import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
+import com.amazonaws.AmazonServiceException;
 import com.amazonaws.AmazonWebServiceClient;
 import com.amazonaws.ClientConfiguration;
 import com.amazonaws.Protocol;
+import com.amazonaws.SdkClientException;
 import com.amazonaws.SystemDefaultDnsResolver;
 import com.amazonaws.auth.AWSCredentialsProvider;
+import com.amazonaws.auth.AWSStaticCredentialsProvider;
+import com.amazonaws.auth.BasicAWSCredentials;
+import com.amazonaws.handlers.RequestHandler2;
 import com.amazonaws.regions.Regions;
 import com.amazonaws.services.alexaforbusiness.AmazonAlexaForBusiness;
 import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
@@ -62,6 +76,13 @@ import com.amazonaws.services.sqs.AmazonSQSAsync;
 import com.amazonaws.services.sqs.AmazonSQSAsyncClient;
 import com.amazonaws.services.sqs.AmazonSQSClient;
 
+import jp.xet.springconfig.aws.AwsClientDescriptor;
+import jp.xet.springconfig.aws.AwsClientsEndpoint;
+import jp.xet.springconfig.aws.RetryBudgets;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
 /**
  * Test for all AWS SDK v1 configuration.
  *
@@ -186,6 +207,33 @@ public class AwsV1ConfigurationTest {
 		});
 	}
 	
+	@Test
+	public void configuredClient_InheritDefault() {
+		contextRunner.withUserConfiguration(ExampleS3SqsSnsConfiguration.class)
+			.withPropertyValues("aws1.default.client.socket-timeout=123")
+			.withPropertyValues("aws1.default.client.max-connections=77")
+			.withPropertyValues("aws1.default.region=eu-central-1")
+			.withPropertyValues("aws1.sns.client.socket-timeout=456")
+			.run(context -> {
+				assertThat(context.getBean(AmazonSQS.class)).isInstanceOfSatisfying(AmazonSQSClient.class, client -> {
+					assertThat(client.getClientConfiguration().getSocketTimeout())
+						.isEqualTo(123); // aws1.default.client.socket-timeout
+					assertThat(client.getClientConfiguration().getMaxConnections())
+						.isEqualTo(77); // aws1.default.client.max-connections
+					assertThat(client).hasFieldOrPropertyWithValue("endpoint",
+							URI.create("https://sqs.eu-central-1.amazonaws.com")); // aws1.default.region
+				});
+				assertThat(context.getBean(AmazonSNS.class)).isInstanceOfSatisfying(AmazonSNSClient.class, client -> {
+					assertThat(client.getClientConfiguration().getSocketTimeout())
+						.isEqualTo(456); // aws1.sns.client.socket-timeout
+					assertThat(client.getClientConfiguration().getMaxConnections())
+						.isEqualTo(77); // aws1.default.client.max-connections
+					assertThat(client).hasFieldOrPropertyWithValue("endpoint",
+							URI.create("https://sns.eu-central-1.amazonaws.com")); // aws1.default.region
+				});
+			});
+	}
+	
 	@Test
 	public void configuredClient_SyncOnly() {
 		contextRunner.withUserConfiguration(ExampleS3SqsSnsConfiguration.class)
@@ -212,6 +260,89 @@ public class AwsV1ConfigurationTest {
 	}
 	
 	
+	@Test
+	public void configuredClient_RetryAndTimeouts() {
+		contextRunner.withUserConfiguration(ExampleS3SqsSnsConfiguration.class)
+			.withPropertyValues("aws1.default.client.socket-timeout=123")
+			.withPropertyValues("aws1.default.retry.max-retries=5")
+			.withPropertyValues("aws1.sqs.retry.base-delay=50ms")
+			.withPropertyValues("aws1.sqs.retry.jitter=equal")
+			.withPropertyValues("aws1.sqs.timeouts.api-call=10s")
+			.withPropertyValues("aws1.sqs.timeouts.api-call-attempt=2s")
+			.run(context -> {
+				assertThat(context.getBean(AmazonSQS.class)).isInstanceOfSatisfying(AmazonSQSClient.class, client -> {
+					ClientConfiguration clientConfiguration = client.getClientConfiguration();
+					assertThat(clientConfiguration.getSocketTimeout())
+						.isEqualTo(123); // aws1.default.client.socket-timeout
+					assertThat(clientConfiguration.getMaxErrorRetry())
+						.isEqualTo(5); // aws1.default.retry.max-retries
+					assertThat(clientConfiguration.getRetryPolicy().getBackoffStrategy()
+						.delayBeforeNextRetry(null, new SdkClientException("test"), 1))
+						.isBetween(50L, 100L); // aws1.sqs.retry.base-delay
+					assertThat(clientConfiguration.getClientExecutionTimeout())
+						.isEqualTo(10000); // aws1.sqs.timeouts.api-call
+					assertThat(clientConfiguration.getRequestTimeout())
+						.isEqualTo(2000); // aws1.sqs.timeouts.api-call-attempt
+				});
+				assertThat(context.getBean(AmazonSNS.class)).isInstanceOfSatisfying(AmazonSNSClient.class, client -> {
+					assertThat(client.getClientConfiguration().getMaxErrorRetry())
+						.isEqualTo(5); // aws1.default.retry.max-retries
+					assertThat(client.getClientConfiguration().getRequestTimeout())
+						.isEqualTo(ClientConfiguration.DEFAULT_REQUEST_TIMEOUT);
+				});
+			});
+	}
+	
+	@Test
+	public void configuredClient_RetryBudget() {
+		contextRunner.withUserConfiguration(ExampleS3SqsSnsConfiguration.class)
+			.withPropertyValues("aws1.default.retry-budget.enabled=true")
+			.withPropertyValues("aws1.sqs.retry-budget.min-retries-per-second=0")
+			.run(context -> {
+				assertThat(context).doesNotHaveBean(RetryBudgets.BEAN_NAME);
+				assertThat(context.getBean(AmazonSQS.class)).isInstanceOfSatisfying(AmazonSQSClient.class, client -> {
+					assertThat(getRetryBudgetHandlers(client)).hasSize(1);
+					AmazonServiceException exception = new AmazonServiceException("test");
+					exception.setStatusCode(500);
+					assertThat(client.getClientConfiguration().getRetryPolicy().getRetryCondition()
+						.shouldRetry(null, exception, 0))
+						.isFalse(); // aws1.sqs.retry-budget.min-retries-per-second
+				});
+				assertThat(context.getBean(AmazonSNS.class)).isInstanceOfSatisfying(AmazonSNSClient.class, client -> {
+					assertThat(getRetryBudgetHandlers(client)).hasSize(1);
+				});
+			});
+	}
+	
+	@Test
+	public void configuredClient_RetryBudget_Shared() {
+		contextRunner.withUserConfiguration(ExampleSqsSnsSyncAsyncConfiguration.class)
+			.withPropertyValues("aws1.default.retry-budget.enabled=true")
+			.withPropertyValues("aws1.default.retry-budget.shared=true")
+			.run(context -> {
+				assertThat(context).hasBean(RetryBudgets.BEAN_NAME);
+				AwsClientV1RetryBudgetHandler syncHandler =
+						getRetryBudgetHandlers(context.getBean(AmazonSQS.class.getName())).get(0);
+				AwsClientV1RetryBudgetHandler asyncHandler =
+						getRetryBudgetHandlers(context.getBean(AmazonSQSAsync.class)).get(0);
+				AwsClientV1RetryBudgetHandler snsHandler =
+						getRetryBudgetHandlers(context.getBean(AmazonSNS.class.getName())).get(0);
+				assertThat(syncHandler.getRetryBudget()).isSameAs(asyncHandler.getRetryBudget());
+				assertThat(syncHandler.getRetryBudget()).isNotSameAs(snsHandler.getRetryBudget());
+			});
+	}
+	
+	@SuppressWarnings("unchecked")
+	private static List<AwsClientV1RetryBudgetHandler> getRetryBudgetHandlers(Object client) {
+		List<RequestHandler2> requestHandlers =
+				(List<RequestHandler2>) ReflectionTestUtils.getField(client, "requestHandler2s");
+		return requestHandlers.stream()
+			.filter(AwsClientV1RetryBudgetHandler.class::isInstance)
+			.map(AwsClientV1RetryBudgetHandler.class::cast)
+			.collect(Collectors.toList());
+	}
+	
+	
 	@Configuration
 	@EnableAwsClientV1({
 		AmazonSQS.class,
@@ -273,6 +404,66 @@ public class AwsV1ConfigurationTest {
 			});
 	}
 	
+	@Test
+	public void configuredClient_ParallelBuild() {
+		contextRunner.withUserConfiguration(ExampleSqsSnsSyncAsyncConfiguration.class)
+			.withPropertyValues("aws1.startup.parallel-build=true")
+			.withPropertyValues("aws1.startup.parallelism=2")
+			.withPropertyValues("aws1.sqs.client.socket-timeout=2")
+			.withPropertyValues("aws1.sns-async.endpoint.service-endpoint=http://localhost:60004")
+			.run(context -> {
+				assertThat(context).hasSingleBean(AwsClientV1BuildCoordinator.class);
+				assertThat(context.getBean(AmazonSQS.class.getName()))
+					.isInstanceOfSatisfying(AmazonSQSClient.class, client -> {
+						assertThat(client.getClientConfiguration().getSocketTimeout()).isEqualTo(2);
+					});
+				assertThat(context.getBean(AmazonSQSAsync.class))
+					.isInstanceOfSatisfying(AmazonSQSAsyncClient.class, this::isDefaultConfig);
+				assertThat(context.getBean(AmazonSNS.class.getName()))
+					.isInstanceOfSatisfying(AmazonSNSClient.class, this::isDefaultConfig);
+				assertThat(context.getBean(AmazonSNSAsync.class))
+					.isInstanceOfSatisfying(AmazonSNSAsyncClient.class, client -> {
+						assertThat(client).hasFieldOrPropertyWithValue("endpoint",
+								URI.create("http://localhost:60004"));
+					});
+			});
+	}
+	
+	
+	@Configuration
+	@EnableAwsClientV1(value = {
+		AmazonSQS.class,
+		AmazonSNS.class
+	}, lazy = true)
+	@EnableConfigurationProperties
+	static class ExampleLazyConfiguration {
+	}
+	
+	
+	@Test
+	public void lazyClient() {
+		String targetBeanName = AwsClientV1BeanDefinitionRegistrar.LAZY_TARGET_PREFIX + AmazonSQS.class.getName();
+		contextRunner.withUserConfiguration(ExampleLazyConfiguration.class)
+			.withPropertyValues("aws1.sqs.client.socket-timeout=2")
+			.withPropertyValues("aws1.sns.lazy=false")
+			.run(context -> {
+				Object sqs = context.getBean(AmazonSQS.class.getName());
+				assertThat(AopUtils.isAopProxy(sqs)).isTrue();
+				assertThat(context.getBeanFactory().containsSingleton(targetBeanName)).isFalse();
+			
+				// exercise
+				Object target = ((Advised) sqs).getTargetSource().getTarget();
+			
+				// verify
+				assertThat(context.getBeanFactory().containsSingleton(targetBeanName)).isTrue();
+				assertThat(target).isInstanceOfSatisfying(AmazonSQSClient.class, client -> {
+					assertThat(client.getClientConfiguration().getSocketTimeout()).isEqualTo(2);
+				});
+				// aws1.sns.lazy
+				assertThat(context.getBean(AmazonSNS.class.getName())).isInstanceOf(AmazonSNSClient.class);
+			});
+	}
+	
 	
 	@Configuration
 	@EnableAwsClientV1(AmazonS3.class)
@@ -405,6 +596,107 @@ public class AwsV1ConfigurationTest {
 	}
 	
 	
+	@Configuration
+	@EnableAwsClientV1({
+		AmazonSQS.class,
+		AmazonSNS.class
+	})
+	@EnableConfigurationProperties
+	static class ExampleMetricsConfiguration {
+		
+		@Bean
+		public MeterRegistry meterRegistry() {
+			return new SimpleMeterRegistry();
+		}
+		
+		@Bean
+		public AWSCredentialsProvider exampleAwsCredentialsProvider() {
+			return new AWSStaticCredentialsProvider(new BasicAWSCredentials("accessKeyId", "secretAccessKey"));
+		}
+	}
+	
+	
+	@Test
+	public void metricsCollector() {
+		contextRunner.withUserConfiguration(ExampleMetricsConfiguration.class)
+			.withPropertyValues("aws1.sqs.metrics-enabled=true")
+			.withPropertyValues("aws1.sqs.credentials-provider-bean-name=exampleAwsCredentialsProvider")
+			// nothing listens on the port
+			.withPropertyValues("aws1.sqs.endpoint.service-endpoint=http://127.0.0.1:1")
+			.withPropertyValues("aws1.sqs.endpoint.signing-region=us-east-1")
+			.withPropertyValues("aws1.sqs.client.max-error-retry=1")
+			.run(context -> {
+				AmazonSQS sqs = context.getBean(AmazonSQS.class.getName(), AmazonSQS.class);
+				assertThat(((AmazonWebServiceClient) sqs).getRequestMetricsCollector())
+					.isSameAs(context.getBean(AwsClientV1MetricsCollector.BEAN_NAME));
+				// aws1.sns.metrics-enabled is not set
+				AmazonSNS sns = context.getBean(AmazonSNS.class.getName(), AmazonSNS.class);
+				assertThat(((AmazonWebServiceClient) sns).getRequestMetricsCollector()).isNull();
+			
+				assertThatThrownBy(sqs::listQueues).isInstanceOf(SdkClientException.class);
+			
+				MeterRegistry registry = context.getBean(MeterRegistry.class);
+				assertThat(registry.get("aws.client.call").tag("service", "AmazonSQS").tag("operation", "ListQueues")
+					.tag("outcome", "FAILURE").timer().count()).isEqualTo(1L);
+				assertThat(registry.get("aws.client.call.marshalling").timer().count()).isEqualTo(1L);
+				assertThat(registry.get("aws.client.call.retry.pause").timer().count()).isEqualTo(1L);
+				assertThat(registry.get("aws.client.call.errors").tag("error.code", "HttpHostConnectException")
+					.counter().count()).isEqualTo(1.0);
+			});
+	}
+	
+	@Test
+	public void connectionPoolMetrics() throws Exception {
+		MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+		ObjectName objectName = new ObjectName(
+				"jp.xet.springconfig.aws:type=ConnectionPool,name=" + ObjectName.quote(AmazonSQS.class.getName()));
+		contextRunner.withUserConfiguration(ExampleMetricsConfiguration.class)
+			.withPropertyValues("aws1.metrics.jmx-enabled=true")
+			.withPropertyValues("aws1.sqs.metrics-enabled=true")
+			.withPropertyValues("aws1.sqs.client.max-connections=7")
+			.withPropertyValues("aws1.sqs.credentials-provider-bean-name=exampleAwsCredentialsProvider")
+			.run(context -> {
+				context.getBean(AmazonSQS.class.getName(), AmazonSQS.class);
+			
+				MeterRegistry registry = context.getBean(MeterRegistry.class);
+				assertThat(registry.get("aws.client.connections.max").tag("client", AmazonSQS.class.getName())
+					.tag("type", "apache").gauge().value()).isEqualTo(7.0);
+				assertThat(registry.get("aws.client.connections.leased").tag("client", AmazonSQS.class.getName())
+					.gauge().value()).isEqualTo(0.0);
+				// aws1.sns.metrics-enabled is not set
+				assertThat(registry.find("aws.client.connections.max").tag("client", AmazonSNS.class.getName())
+					.gauge()).isNull();
+				assertThat(mBeanServer.getAttribute(objectName, "Max")).isEqualTo(7);
+			});
+		assertThat(mBeanServer.isRegistered(objectName)).isFalse();
+	}
+	
+	@Test
+	public void awsClientsEndpoint() {
+		contextRunner.withUserConfiguration(ExampleMetricsConfiguration.class)
+			.withPropertyValues("aws1.sqs.region=us-west-2")
+			.withPropertyValues("aws1.sqs.client.max-connections=7")
+			.withPropertyValues("aws1.sqs.credentials-provider-bean-name=exampleAwsCredentialsProvider")
+			.run(context -> {
+				context.getBean(AmazonSQS.class.getName());
+			
+				AwsClientDescriptor sqs = context.getBean(AwsClientsEndpoint.class).client(AmazonSQS.class.getName());
+				assertThat(sqs.getPropertyKey()).isEqualTo("aws1.sqs");
+				assertThat(sqs.getRegion()).isEqualTo("us-west-2");
+				assertThat(sqs.getEndpoint()).isEqualTo("https://sqs.us-west-2.amazonaws.com");
+				assertThat(sqs.getHttpClientType()).isEqualTo("APACHE");
+				assertThat(sqs.getMaxConnections()).isEqualTo(7);
+				assertThat(sqs.getCredentialsProviderBeanName()).isEqualTo("exampleAwsCredentialsProvider");
+				assertThat(sqs.isBuilt()).isTrue();
+			
+				// aws1.sns is not configured
+				AwsClientDescriptor sns = context.getBean(AwsClientsEndpoint.class).client(AmazonSNS.class.getName());
+				assertThat(sns.getPropertyKey()).isNull();
+				assertThat(sns.getMaxConnections()).isEqualTo(ClientConfiguration.DEFAULT_MAX_CONNECTIONS);
+			});
+	}
+	
+	
 	@Configuration
 	@EnableAwsClientV1({
 		AmazonS3.class,
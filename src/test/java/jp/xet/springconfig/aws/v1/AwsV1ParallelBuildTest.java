@@ -0,0 +1,149 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jp.xet.springconfig.aws.v1;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.amazonaws.services.kms.AWSKMS;
+import com.amazonaws.services.kms.AWSKMSAsync;
+import com.amazonaws.services.s3.AmazonS3;
+
+/**
+ * Test for AWS SDK v1 clients built in parallel at startup.
+ *
+ * @author miyamoto.daisuke
+ * @since #version#
+ */
+public class AwsV1ParallelBuildTest {
+	
+	private final ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+		.withPropertyValues("aws1.startup.parallel-build=true");
+	
+	
+	@Before
+	public void setUp() {
+		System.setProperty("aws.region", "us-east-1");
+	}
+	
+	@After
+	public void tearDown() {
+		System.clearProperty("aws.region");
+	}
+	
+	
+	@Configuration
+	@EnableAwsClientV1(AmazonS3.class)
+	@EnableConfigurationProperties
+	static class ExampleS3Configuration {
+		
+		@Bean
+		public static BuildCoordinatorRecorder buildCoordinatorRecorder() {
+			return new BuildCoordinatorRecorder();
+		}
+	}
+	
+	@Configuration
+	@EnableAwsClientV1({
+		AWSKMS.class,
+		AWSKMSAsync.class
+	})
+	@EnableConfigurationProperties
+	static class ExampleKmsConfiguration {
+	}
+	
+	
+	@Test
+	public void testEachAnnotatedClassHasCoordinator() {
+		contextRunner.withUserConfiguration(ExampleS3Configuration.class, ExampleKmsConfiguration.class)
+			.run(context -> {
+				String s3CoordinatorName =
+						AwsClientV1BuildCoordinator.getBeanName(ExampleS3Configuration.class.getName());
+				String kmsCoordinatorName =
+						AwsClientV1BuildCoordinator.getBeanName(ExampleKmsConfiguration.class.getName());
+				assertThat(context.getBeansOfType(AwsClientV1BuildCoordinator.class))
+					.containsOnlyKeys(s3CoordinatorName, kmsCoordinatorName);
+				
+				// built by the coordinator of the annotated class
+				Map<String, Set<Class<?>>> built = context.getBean(BuildCoordinatorRecorder.class).built;
+				assertThat(built).containsOnlyKeys(s3CoordinatorName, kmsCoordinatorName);
+				assertThat(built.get(s3CoordinatorName)).containsOnly(AmazonS3.class);
+				assertThat(built.get(kmsCoordinatorName)).containsOnly(AWSKMS.class, AWSKMSAsync.class);
+				
+				// handed out exactly once
+				assertThat(context).hasSingleBean(AmazonS3.class);
+				assertThat(context).hasSingleBean(AWSKMSAsync.class);
+				assertThat(context.getBeansOfType(AWSKMS.class)).containsKey(AWSKMS.class.getName());
+				for (Map.Entry<String, AwsClientV1BuildCoordinator> e : context
+					.getBeansOfType(AwsClientV1BuildCoordinator.class).entrySet()) {
+					assertThat(getFutures(e.getValue())).isEmpty();
+					for (Class<?> clientClass : built.get(e.getKey())) {
+						assertThat(e.getValue().getClient(clientClass)).isNull();
+					}
+				}
+			});
+	}
+	
+	@Test
+	public void testNoCoordinatorBySerialBuild() {
+		contextRunner.withPropertyValues("aws1.startup.parallel-build=false")
+			.withUserConfiguration(ExampleS3Configuration.class, ExampleKmsConfiguration.class)
+			.run(context -> {
+				assertThat(context).doesNotHaveBean(AwsClientV1BuildCoordinator.class);
+				assertThat(context).hasSingleBean(AmazonS3.class);
+				assertThat(context).hasSingleBean(AWSKMSAsync.class);
+			});
+	}
+	
+	@SuppressWarnings("unchecked")
+	private static Map<Class<?>, Future<Object>> getFutures(AwsClientV1BuildCoordinator coordinator) {
+		return (Map<Class<?>, Future<Object>>) ReflectionTestUtils.getField(coordinator, "futures");
+	}
+	
+	
+	/**
+	 * Records the clients which each coordinator starts to build, before the clients are handed out.
+	 */
+	static class BuildCoordinatorRecorder implements BeanPostProcessor {
+		
+		final Map<String, Set<Class<?>>> built = new ConcurrentHashMap<>();
+		
+		
+		@Override
+		public Object postProcessAfterInitialization(Object bean, String beanName) {
+			if (bean instanceof AwsClientV1BuildCoordinator) {
+				built.put(beanName, new HashSet<>(getFutures((AwsClientV1BuildCoordinator) bean).keySet()));
+			}
+			return bean;
+		}
+	}
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jp.xet.springconfig.aws.v2;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+import java.time.Duration;
+
+import org.junit.Test;
+
+import jp.xet.springconfig.aws.v2.AwsClientV2Configuration.AwsRateLimiterV2Properties;
+
+/**
+ * Test for {@link AdaptiveRateLimiter}.
+ *
+ * @author miyamoto.daisuke
+ * @since #version#
+ */
+public class AdaptiveRateLimiterTest {
+	
+	private final FakeTicker ticker = new FakeTicker();
+	
+	private final AwsRateLimiterV2Properties properties = new AwsRateLimiterV2Properties();
+	
+	
+	@Test
+	public void testInactiveUntilThrottled() {
+		// setup
+		AdaptiveRateLimiter sut = new AdaptiveRateLimiter(properties, ticker);
+		// exercise & verify
+		for (int i = 0; i < 100; i++) {
+			assertThat(sut.acquire()).isZero();
+		}
+		assertThat(sut.isActive()).isFalse();
+		assertThat(sut.getRate()).isEqualTo(Double.POSITIVE_INFINITY);
+	}
+	
+	@Test
+	public void testThrottleDecreasesMeasuredRate() {
+		// setup
+		AdaptiveRateLimiter sut = new AdaptiveRateLimiter(properties, ticker);
+		sendRequests(sut, 100, Duration.ofMillis(10)); // 100 requests per second
+		// exercise
+		sut.onThrottle();
+		// verify
+		assertThat(sut.isActive()).isTrue();
+		assertThat(sut.getRate()).isCloseTo(70.0, within(1.0)); // default backoff-factor 0.7
+	}
+	
+	@Test
+	public void testRateRecoversAlongCubicCurve() {
+		// setup
+		properties.setMaxRate(200.0);
+		AdaptiveRateLimiter sut = new AdaptiveRateLimiter(properties, ticker);
+		sendRequests(sut, 100, Duration.ofMillis(10));
+		sut.onThrottle();
+		// K = cbrt(100 * (1 - 0.7) / 0.4) = 4.217 seconds to recover the rate of the last throttle
+		// exercise & verify
+		ticker.advance(Duration.ofSeconds(2));
+		assertThat(sut.getRate()).isBetween(70.0, 100.0);
+		ticker.advance(Duration.ofMillis(2217));
+		assertThat(sut.getRate()).isCloseTo(100.0, within(0.1));
+		ticker.advance(Duration.ofSeconds(60));
+		assertThat(sut.getRate()).isEqualTo(200.0); // max-rate
+	}
+	
+	@Test
+	public void testThrottlesInFlightAreCountedOnce() {
+		// setup
+		AdaptiveRateLimiter sut = new AdaptiveRateLimiter(properties, ticker);
+		sendRequests(sut, 100, Duration.ofMillis(10));
+		// exercise
+		sut.onThrottle();
+		sut.onThrottle();
+		sut.onThrottle();
+		// verify
+		assertThat(sut.getRate()).isCloseTo(70.0, within(1.0));
+	}
+	
+	@Test
+	public void testAcquireSpacesRequestsAfterBurst() {
+		// setup
+		properties.setMinRate(10.0);
+		properties.setBurst(2);
+		AdaptiveRateLimiter sut = new AdaptiveRateLimiter(properties, ticker);
+		sut.onThrottle(); // no measurement, decreased to min-rate
+		// exercise & verify
+		assertThat(sut.getRate()).isEqualTo(10.0);
+		assertThat(sut.acquire()).isZero();
+		assertThat(sut.acquire()).isZero();
+		assertThat(sut.acquire()).isEqualTo(Duration.ofMillis(100).toNanos());
+		assertThat(sut.acquire()).isEqualTo(Duration.ofMillis(200).toNanos());
+	}
+	
+	@Test
+	public void testAcquireExceedingMaxWait() {
+		// setup
+		properties.setMinRate(10.0);
+		properties.setBurst(1);
+		properties.setMaxWait(Duration.ofMillis(150));
+		AdaptiveRateLimiter sut = new AdaptiveRateLimiter(properties, ticker);
+		sut.onThrottle();
+		// exercise & verify
+		assertThat(sut.acquire()).isZero();
+		assertThat(sut.acquire()).isEqualTo(Duration.ofMillis(100).toNanos());
+		assertThat(sut.acquire()).isEqualTo(-1L);
+		ticker.advance(Duration.ofMillis(100));
+		assertThat(sut.acquire()).isEqualTo(Duration.ofMillis(100).toNanos());
+	}
+	
+	@Test
+	public void testAcquireExceedingDefaultMaxWait() {
+		// setup
+		properties.setMinRate(1.0);
+		properties.setBurst(1);
+		AdaptiveRateLimiter sut = new AdaptiveRateLimiter(properties, ticker);
+		sut.onThrottle();
+		// exercise & verify
+		for (int i = 0; i <= 5; i++) {
+			assertThat(sut.acquire()).isEqualTo(Duration.ofSeconds(i).toNanos());
+		}
+		assertThat(sut.acquire()).isEqualTo(-1L);
+	}
+	
+	@Test
+	public void testTryAcquire() {
+		// setup
+		properties.setMinRate(10.0);
+		properties.setBurst(1);
+		AdaptiveRateLimiter sut = new AdaptiveRateLimiter(properties, ticker);
+		sut.onThrottle();
+		// exercise & verify
+		assertThat(sut.tryAcquire()).isTrue();
+		assertThat(sut.tryAcquire()).isFalse();
+		ticker.advance(Duration.ofMillis(100));
+		assertThat(sut.tryAcquire()).isTrue();
+	}
+	
+	private void sendRequests(AdaptiveRateLimiter sut, int count, Duration interval) {
+		for (int i = 0; i < count; i++) {
+			sut.acquire();
+			ticker.advance(interval);
+		}
+	}
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jp.xet.springconfig.aws.v2;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.aop.framework.ProxyFactory;
+
+import org.junit.Test;
+
+import jp.xet.springconfig.aws.v2.AwsClientV2Configuration.AwsBulkheadV2Properties;
+
+import software.amazon.awssdk.core.interceptor.ExecutionAttributes;
+import software.amazon.awssdk.services.sqs.SqsAsyncClient;
+import software.amazon.awssdk.services.sqs.model.ListQueuesRequest;
+import software.amazon.awssdk.services.sqs.model.ListQueuesResponse;
+
+/**
+ * Test for {@link AwsClientV2BulkheadInterceptor}.
+ *
+ * @author miyamoto.daisuke
+ * @since #version#
+ */
+public class AwsClientV2BulkheadInterceptorTest {
+	
+	private static final ListQueuesRequest REQUEST = ListQueuesRequest.builder().build();
+	
+	
+	private final SqsAsyncClient target = mock(SqsAsyncClient.class);
+	
+	private final ConcurrencyLimiter concurrencyLimiter = createConcurrencyLimiter(1);
+	
+	private final AwsClientV2BulkheadInterceptor sut = new AwsClientV2BulkheadInterceptor(concurrencyLimiter);
+	
+	
+	@Test
+	public void testAsyncCallReleasesPermitOnCompletion() throws Exception {
+		// setup
+		CompletableFuture<ListQueuesResponse> future = new CompletableFuture<>();
+		when(target.listQueues(any(ListQueuesRequest.class))).thenReturn(future);
+		SqsAsyncClient client = createClient();
+		CompletableFuture<ListQueuesResponse> actual = client.listQueues(REQUEST);
+		assertThat(concurrencyLimiter.getInFlight()).isEqualTo(1);
+		// exercise
+		future.complete(ListQueuesResponse.builder().build());
+		// verify
+		assertThat(actual.get(1, TimeUnit.SECONDS)).isNotNull();
+		assertThat(concurrencyLimiter.getInFlight()).isZero();
+	}
+	
+	@Test
+	public void testAsyncCallReleasesPermitOnCancel() {
+		// setup
+		when(target.listQueues(any(ListQueuesRequest.class))).thenAnswer(invocation -> new CompletableFuture<>());
+		SqsAsyncClient client = createClient();
+		CompletableFuture<ListQueuesResponse> actual = client.listQueues(REQUEST);
+		assertThat(concurrencyLimiter.getInFlight()).isEqualTo(1);
+		// exercise
+		actual.cancel(true);
+		// verify
+		assertThat(concurrencyLimiter.getInFlight()).isZero();
+		assertThat(client.listQueues(REQUEST)).isNotCompletedExceptionally();
+	}
+	
+	@Test
+	public void testAsyncCallFailsWhenFull() {
+		// setup
+		when(target.listQueues(any(ListQueuesRequest.class))).thenReturn(new CompletableFuture<>());
+		SqsAsyncClient client = createClient();
+		client.listQueues(REQUEST);
+		// exercise
+		CompletableFuture<ListQueuesResponse> actual = client.listQueues(REQUEST);
+		// verify
+		assertThat(actual).isCompletedExceptionally();
+		assertThat(actual).hasFailedWithThrowableThat().isInstanceOf(BulkheadFullException.class);
+		assertThat(concurrencyLimiter.getInFlight()).isEqualTo(1);
+	}
+	
+	@Test
+	public void testSyncCallReleasesPermitOnce() {
+		// setup
+		ConcurrencyLimiter concurrencyLimiter = createConcurrencyLimiter(2);
+		AwsClientV2BulkheadInterceptor sut = new AwsClientV2BulkheadInterceptor(concurrencyLimiter);
+		ExecutionAttributes executionAttributes = new ExecutionAttributes();
+		sut.beforeTransmission(null, executionAttributes);
+		sut.beforeTransmission(null, new ExecutionAttributes());
+		// exercise
+		sut.afterExecution(null, executionAttributes);
+		sut.onExecutionFailure(null, executionAttributes);
+		// verify
+		assertThat(concurrencyLimiter.getInFlight()).isEqualTo(1);
+	}
+	
+	private SqsAsyncClient createClient() {
+		ProxyFactory proxyFactory = new ProxyFactory(target);
+		proxyFactory.setInterfaces(SqsAsyncClient.class);
+		proxyFactory.addAdvice(sut);
+		return (SqsAsyncClient) proxyFactory.getProxy();
+	}
+	
+	private static ConcurrencyLimiter createConcurrencyLimiter(int limit) {
+		AwsBulkheadV2Properties properties = new AwsBulkheadV2Properties();
+		properties.setLimit(limit);
+		return new ConcurrencyLimiter(properties);
+	}
+}
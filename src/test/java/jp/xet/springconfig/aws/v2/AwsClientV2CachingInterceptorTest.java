@@ -0,0 +1,208 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jp.xet.springconfig.aws.v2;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.springframework.aop.framework.ProxyFactory;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.junit.Before;
+import org.junit.Test;
+
+import jp.xet.springconfig.aws.v2.AwsClientV2Configuration.AwsCacheOperationV2Properties;
+
+import software.amazon.awssdk.services.sqs.SqsAsyncClient;
+import software.amazon.awssdk.services.sqs.SqsClient;
+import software.amazon.awssdk.services.sqs.model.GetQueueUrlRequest;
+import software.amazon.awssdk.services.sqs.model.GetQueueUrlResponse;
+import software.amazon.awssdk.services.sqs.model.QueueDoesNotExistException;
+
+/**
+ * Test for {@link AwsClientV2CachingInterceptor}.
+ *
+ * @author miyamoto.daisuke
+ * @since #version#
+ */
+public class AwsClientV2CachingInterceptorTest {
+	
+	private static final GetQueueUrlResponse RESPONSE1 = GetQueueUrlResponse.builder().queueUrl("example1").build();
+	
+	private static final GetQueueUrlResponse RESPONSE2 = GetQueueUrlResponse.builder().queueUrl("example2").build();
+	
+	
+	private final AtomicReference<Instant> now = new AtomicReference<>(Instant.EPOCH);
+	
+	private final Clock clock = mock(Clock.class);
+	
+	private final AwsClientV2ResponseCache responseCache =
+			new AwsClientV2ResponseCache(AwsClientV2ResponseCache.DEFAULT_MAX_SIZE);
+	
+	
+	@Before
+	public void setUp() {
+		when(clock.instant()).thenAnswer(invocation -> now.get());
+	}
+	
+	@Test
+	public void testAsyncResponseIsCached() throws Exception {
+		// setup
+		SqsAsyncClient target = mock(SqsAsyncClient.class);
+		when(target.getQueueUrl(any(GetQueueUrlRequest.class)))
+			.thenReturn(CompletableFuture.completedFuture(RESPONSE1));
+		SqsAsyncClient sut = createClient(target, SqsAsyncClient.class, Duration.ofMinutes(1), null);
+		// exercise
+		GetQueueUrlResponse actual1 = sut.getQueueUrl(b -> b.queueName("example")).get(1, TimeUnit.SECONDS);
+		GetQueueUrlResponse actual2 = sut.getQueueUrl(GetQueueUrlRequest.builder().queueName("example").build())
+			.get(1, TimeUnit.SECONDS);
+		GetQueueUrlResponse actual3 = sut.getQueueUrl(b -> b.queueName("other")).get(1, TimeUnit.SECONDS);
+		// verify
+		assertThat(actual1).isSameAs(RESPONSE1);
+		assertThat(actual2).isSameAs(RESPONSE1);
+		assertThat(actual3).isSameAs(RESPONSE1);
+		verify(target, times(2)).getQueueUrl(any(GetQueueUrlRequest.class));
+		assertThat(responseCache.getCache().stats().hitCount()).isEqualTo(1);
+		assertThat(responseCache.getCache().stats().missCount()).isEqualTo(2);
+	}
+	
+	@Test
+	public void testSyncResponseExpires() throws Exception {
+		// setup
+		SqsClient target = mock(SqsClient.class);
+		when(target.getQueueUrl(any(GetQueueUrlRequest.class))).thenReturn(RESPONSE1, RESPONSE2);
+		SqsClient sut = createClient(target, SqsClient.class, Duration.ofMillis(50), null);
+		GetQueueUrlRequest request = GetQueueUrlRequest.builder().queueName("example").build();
+		// exercise
+		GetQueueUrlResponse actual1 = sut.getQueueUrl(request);
+		GetQueueUrlResponse actual2 = sut.getQueueUrl(request);
+		TimeUnit.MILLISECONDS.sleep(100);
+		GetQueueUrlResponse actual3 = sut.getQueueUrl(request);
+		// verify
+		assertThat(actual1).isSameAs(RESPONSE1);
+		assertThat(actual2).isSameAs(RESPONSE1);
+		assertThat(actual3).isSameAs(RESPONSE2);
+		verify(target, times(2)).getQueueUrl(request);
+	}
+	
+	@Test
+	public void testStaleResponseIsRefreshedInBackground() {
+		// setup
+		SqsClient target = mock(SqsClient.class);
+		when(target.getQueueUrl(any(GetQueueUrlRequest.class))).thenReturn(RESPONSE1, RESPONSE2);
+		SqsClient sut = createClient(target, SqsClient.class, Duration.ofMinutes(10), Duration.ofMinutes(1));
+		GetQueueUrlRequest request = GetQueueUrlRequest.builder().queueName("example").build();
+		// exercise
+		GetQueueUrlResponse actual1 = sut.getQueueUrl(request);
+		GetQueueUrlResponse actual2 = sut.getQueueUrl(request);
+		now.set(Instant.EPOCH.plus(Duration.ofMinutes(2)));
+		GetQueueUrlResponse actual3 = sut.getQueueUrl(request);
+		GetQueueUrlResponse actual4 = sut.getQueueUrl(request);
+		// verify
+		assertThat(actual1).isSameAs(RESPONSE1);
+		assertThat(actual2).isSameAs(RESPONSE1);
+		assertThat(actual3).isSameAs(RESPONSE1); // stale, refreshed by the direct executor
+		assertThat(actual4).isSameAs(RESPONSE2);
+		verify(target, times(2)).getQueueUrl(request);
+	}
+	
+	@Test
+	public void testRefreshProceedsThroughFollowingInterceptors() {
+		// setup
+		SqsClient target = mock(SqsClient.class);
+		when(target.getQueueUrl(any(GetQueueUrlRequest.class))).thenReturn(RESPONSE1, RESPONSE2);
+		AtomicInteger proceeded = new AtomicInteger();
+		SqsClient sut = createClient(target, SqsClient.class, Duration.ofMinutes(10), Duration.ofMinutes(1),
+				invocation -> {
+					proceeded.incrementAndGet();
+					return invocation.proceed();
+				});
+		GetQueueUrlRequest request = GetQueueUrlRequest.builder().queueName("example").build();
+		// exercise
+		sut.getQueueUrl(request);
+		now.set(Instant.EPOCH.plus(Duration.ofMinutes(2)));
+		sut.getQueueUrl(request);
+		GetQueueUrlResponse actual = sut.getQueueUrl(request);
+		// verify
+		assertThat(actual).isSameAs(RESPONSE2);
+		assertThat(proceeded).hasValue(2);
+		verify(target, times(2)).getQueueUrl(request);
+	}
+	
+	@Test
+	public void testFailureIsNotCached() {
+		// setup
+		SqsClient target = mock(SqsClient.class);
+		when(target.getQueueUrl(any(GetQueueUrlRequest.class)))
+			.thenThrow(QueueDoesNotExistException.builder().build())
+			.thenReturn(RESPONSE1);
+		SqsClient sut = createClient(target, SqsClient.class, Duration.ofMinutes(1), null);
+		GetQueueUrlRequest request = GetQueueUrlRequest.builder().queueName("example").build();
+		// exercise
+		assertThatThrownBy(() -> sut.getQueueUrl(request)).isInstanceOf(QueueDoesNotExistException.class);
+		GetQueueUrlResponse actual1 = sut.getQueueUrl(request);
+		GetQueueUrlResponse actual2 = sut.getQueueUrl(request);
+		// verify
+		assertThat(actual1).isSameAs(RESPONSE1);
+		assertThat(actual2).isSameAs(RESPONSE1);
+		verify(target, times(2)).getQueueUrl(request);
+	}
+	
+	@Test
+	public void testOverrideConfigurationIsNotCached() {
+		// setup
+		SqsClient target = mock(SqsClient.class);
+		when(target.getQueueUrl(any(GetQueueUrlRequest.class))).thenReturn(RESPONSE1);
+		SqsClient sut = createClient(target, SqsClient.class, Duration.ofMinutes(1), null);
+		GetQueueUrlRequest request = GetQueueUrlRequest.builder().queueName("example")
+			.overrideConfiguration(c -> c.putHeader("x-example", "1"))
+			.build();
+		// exercise
+		sut.getQueueUrl(request);
+		sut.getQueueUrl(request);
+		// verify
+		verify(target, times(2)).getQueueUrl(request);
+	}
+	
+	private <T> T createClient(T target, Class<T> clientClass, Duration ttl, Duration refresh,
+			MethodInterceptor... following) {
+		AwsCacheOperationV2Properties properties = new AwsCacheOperationV2Properties();
+		properties.setTtl(ttl);
+		properties.setRefresh(refresh);
+		ProxyFactory proxyFactory = new ProxyFactory(target);
+		proxyFactory.setInterfaces(clientClass);
+		proxyFactory.addAdvice(new AwsClientV2CachingInterceptor(clientClass.getName(),
+				Collections.singletonMap("GetQueueUrl", properties), responseCache, Runnable::run, clock));
+		for (MethodInterceptor interceptor : following) {
+			proxyFactory.addAdvice(interceptor);
+		}
+		return clientClass.cast(proxyFactory.getProxy());
+	}
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jp.xet.springconfig.aws.v2;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.aop.framework.ProxyFactory;
+
+import org.junit.After;
+import org.junit.Test;
+
+import software.amazon.awssdk.services.sqs.SqsAsyncClient;
+import software.amazon.awssdk.services.sqs.SqsClient;
+import software.amazon.awssdk.services.sqs.model.GetQueueUrlRequest;
+import software.amazon.awssdk.services.sqs.model.GetQueueUrlResponse;
+import software.amazon.awssdk.services.sqs.model.ListQueuesRequest;
+import software.amazon.awssdk.services.sqs.model.ListQueuesResponse;
+
+/**
+ * Test for {@link AwsClientV2CoalescingInterceptor}.
+ *
+ * @author miyamoto.daisuke
+ * @since #version#
+ */
+public class AwsClientV2CoalescingInterceptorTest {
+	
+	private static final ListQueuesResponse RESPONSE = ListQueuesResponse.builder().queueUrls("example").build();
+	
+	
+	private final ExecutorService executor = Executors.newFixedThreadPool(2);
+	
+	
+	@After
+	public void tearDown() {
+		executor.shutdownNow();
+	}
+	
+	@Test
+	public void testAsyncEqualRequestsAreCoalesced() throws Exception {
+		// setup
+		SqsAsyncClient target = mock(SqsAsyncClient.class);
+		CompletableFuture<ListQueuesResponse> future = new CompletableFuture<>();
+		when(target.listQueues(any(ListQueuesRequest.class))).thenReturn(future);
+		SqsAsyncClient sut = createClient(target, SqsAsyncClient.class);
+		// exercise
+		CompletableFuture<ListQueuesResponse> actual1 = sut.listQueues(b -> b.queueNamePrefix("example"));
+		CompletableFuture<ListQueuesResponse> actual2 =
+				sut.listQueues(ListQueuesRequest.builder().queueNamePrefix("example").build());
+		future.complete(RESPONSE);
+		// verify
+		assertThat(actual1.get(1, TimeUnit.SECONDS)).isSameAs(RESPONSE);
+		assertThat(actual2.get(1, TimeUnit.SECONDS)).isSameAs(RESPONSE);
+		verify(target, times(1)).listQueues(any(ListQueuesRequest.class));
+	}
+	
+	@Test
+	public void testAsyncCompletedCallIsNotShared() {
+		// setup
+		SqsAsyncClient target = mock(SqsAsyncClient.class);
+		when(target.listQueues(any(ListQueuesRequest.class))).thenReturn(CompletableFuture.completedFuture(RESPONSE));
+		SqsAsyncClient sut = createClient(target, SqsAsyncClient.class);
+		ListQueuesRequest request = ListQueuesRequest.builder().build();
+		// exercise
+		sut.listQueues(request).join();
+		sut.listQueues(request).join();
+		// verify
+		verify(target, times(2)).listQueues(request);
+	}
+	
+	@Test
+	public void testAsyncCancelDoesNotAffectOthers() throws Exception {
+		// setup
+		SqsAsyncClient target = mock(SqsAsyncClient.class);
+		CompletableFuture<ListQueuesResponse> future = new CompletableFuture<>();
+		when(target.listQueues(any(ListQueuesRequest.class))).thenReturn(future);
+		SqsAsyncClient sut = createClient(target, SqsAsyncClient.class);
+		ListQueuesRequest request = ListQueuesRequest.builder().build();
+		// exercise
+		sut.listQueues(request).cancel(true);
+		CompletableFuture<ListQueuesResponse> actual = sut.listQueues(request);
+		future.complete(RESPONSE);
+		// verify
+		assertThat(future).isNotCancelled();
+		assertThat(actual.get(1, TimeUnit.SECONDS)).isSameAs(RESPONSE);
+	}
+	
+	@Test
+	public void testDifferentRequestsAreNotCoalesced() {
+		// setup
+		SqsAsyncClient target = mock(SqsAsyncClient.class);
+		when(target.listQueues(any(ListQueuesRequest.class))).thenReturn(new CompletableFuture<>());
+		SqsAsyncClient sut = createClient(target, SqsAsyncClient.class);
+		// exercise
+		sut.listQueues(b -> b.queueNamePrefix("foo"));
+		sut.listQueues(b -> b.queueNamePrefix("bar"));
+		sut.listQueues(b -> b.queueNamePrefix("foo").overrideConfiguration(c -> c.putHeader("x-example", "1")));
+		// verify
+		verify(target, times(3)).listQueues(any(ListQueuesRequest.class));
+	}
+	
+	@Test
+	public void testOperationNotAllowed() {
+		// setup
+		SqsAsyncClient target = mock(SqsAsyncClient.class);
+		when(target.getQueueUrl(any(GetQueueUrlRequest.class))).thenReturn(new CompletableFuture<>());
+		SqsAsyncClient sut = createClient(target, SqsAsyncClient.class);
+		GetQueueUrlRequest request = GetQueueUrlRequest.builder().queueName("example").build();
+		// exercise
+		sut.getQueueUrl(request);
+		sut.getQueueUrl(request);
+		// verify
+		verify(target, times(2)).getQueueUrl(request);
+	}
+	
+	@Test
+	public void testSyncEqualRequestsAreCoalesced() throws Exception {
+		// setup
+		SqsClient target = mock(SqsClient.class);
+		CountDownLatch latch = new CountDownLatch(1);
+		when(target.listQueues(any(ListQueuesRequest.class))).thenAnswer(invocation -> {
+			latch.await();
+			return RESPONSE;
+		});
+		SqsClient sut = createClient(target, SqsClient.class);
+		ListQueuesRequest request = ListQueuesRequest.builder().build();
+		// exercise
+		Future<ListQueuesResponse> actual1 = executor.submit(() -> sut.listQueues(request));
+		verify(target, timeout(1000)).listQueues(request);
+		Future<ListQueuesResponse> actual2 = executor.submit(() -> sut.listQueues(request));
+		TimeUnit.MILLISECONDS.sleep(100);
+		latch.countDown();
+		// verify
+		assertThat(actual1.get(1, TimeUnit.SECONDS)).isSameAs(RESPONSE);
+		assertThat(actual2.get(1, TimeUnit.SECONDS)).isSameAs(RESPONSE);
+		verify(target, times(1)).listQueues(request);
+	}
+	
+	private static <T> T createClient(T target, Class<T> clientClass) {
+		ProxyFactory proxyFactory = new ProxyFactory(target);
+		proxyFactory.setInterfaces(clientClass);
+		proxyFactory.addAdvice(new AwsClientV2CoalescingInterceptor(Arrays.asList("list-queues")));
+		return clientClass.cast(proxyFactory.getProxy());
+	}
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jp.xet.springconfig.aws.v2;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.after;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.aop.framework.ProxyFactory;
+
+import org.junit.After;
+import org.junit.Test;
+
+import jp.xet.springconfig.aws.AwsRetryBudgetProperties;
+import jp.xet.springconfig.aws.RetryBudget;
+
+import software.amazon.awssdk.services.sqs.SqsAsyncClient;
+import software.amazon.awssdk.services.sqs.model.GetQueueUrlRequest;
+import software.amazon.awssdk.services.sqs.model.GetQueueUrlResponse;
+import software.amazon.awssdk.services.sqs.model.ListQueuesRequest;
+import software.amazon.awssdk.services.sqs.model.ListQueuesResponse;
+
+/**
+ * Test for {@link AwsClientV2HedgingInterceptor}.
+ *
+ * @author miyamoto.daisuke
+ * @since #version#
+ */
+public class AwsClientV2HedgingInterceptorTest {
+	
+	private static final ListQueuesRequest REQUEST = ListQueuesRequest.builder().build();
+	
+	private static final ListQueuesResponse FIRST = ListQueuesResponse.builder().queueUrls("first").build();
+	
+	private static final ListQueuesResponse HEDGED = ListQueuesResponse.builder().queueUrls("hedged").build();
+	
+	
+	private final ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1);
+	
+	private final SqsAsyncClient target = mock(SqsAsyncClient.class);
+	
+	
+	@After
+	public void tearDown() {
+		scheduler.shutdownNow();
+	}
+	
+	@Test
+	public void testHedgedRequestWins() throws Exception {
+		// setup
+		CompletableFuture<ListQueuesResponse> first = new CompletableFuture<>();
+		when(target.listQueues(any(ListQueuesRequest.class)))
+			.thenReturn(first, CompletableFuture.completedFuture(HEDGED));
+		SqsAsyncClient sut = createClient(1.0);
+		// exercise
+		ListQueuesResponse actual = sut.listQueues(REQUEST).get(1, TimeUnit.SECONDS);
+		// verify
+		assertThat(actual).isSameAs(HEDGED);
+		assertThat(first).isCancelled();
+		verify(target, times(2)).listQueues(REQUEST);
+	}
+	
+	@Test
+	public void testFirstRequestWins() throws Exception {
+		// setup
+		when(target.listQueues(any(ListQueuesRequest.class))).thenReturn(CompletableFuture.completedFuture(FIRST));
+		SqsAsyncClient sut = createClient(1.0);
+		// exercise
+		ListQueuesResponse actual = sut.listQueues(REQUEST).get(1, TimeUnit.SECONDS);
+		// verify
+		assertThat(actual).isSameAs(FIRST);
+		verify(target, after(100).times(1)).listQueues(REQUEST);
+	}
+	
+	@Test
+	public void testFailureAwaitsHedgedRequest() throws Exception {
+		// setup
+		CompletableFuture<ListQueuesResponse> first = new CompletableFuture<>();
+		CompletableFuture<ListQueuesResponse> hedged = new CompletableFuture<>();
+		when(target.listQueues(any(ListQueuesRequest.class))).thenReturn(first, hedged);
+		SqsAsyncClient sut = createClient(1.0);
+		CompletableFuture<ListQueuesResponse> actual = sut.listQueues(REQUEST);
+		verify(target, timeout(1000).times(2)).listQueues(REQUEST);
+		// exercise
+		first.completeExceptionally(new IllegalStateException());
+		hedged.complete(HEDGED);
+		// verify
+		assertThat(actual.get(1, TimeUnit.SECONDS)).isSameAs(HEDGED);
+	}
+	
+	@Test
+	public void testBudgetExhausted() throws Exception {
+		// setup
+		CompletableFuture<ListQueuesResponse> first = new CompletableFuture<>();
+		when(target.listQueues(any(ListQueuesRequest.class))).thenReturn(first);
+		SqsAsyncClient sut = createClient(0.0);
+		// exercise
+		CompletableFuture<ListQueuesResponse> actual = sut.listQueues(REQUEST);
+		// verify
+		verify(target, after(100).times(1)).listQueues(REQUEST);
+		first.complete(FIRST);
+		assertThat(actual.get(1, TimeUnit.SECONDS)).isSameAs(FIRST);
+	}
+	
+	@Test
+	public void testOperationNotAllowed() throws Exception {
+		// setup
+		GetQueueUrlRequest request = GetQueueUrlRequest.builder().queueName("example").build();
+		when(target.getQueueUrl(any(GetQueueUrlRequest.class))).thenReturn(new CompletableFuture<>());
+		SqsAsyncClient sut = createClient(1.0);
+		// exercise
+		CompletableFuture<GetQueueUrlResponse> actual = sut.getQueueUrl(request);
+		// verify
+		verify(target, after(100).times(1)).getQueueUrl(request);
+		assertThat(actual).isNotDone();
+	}
+	
+	private SqsAsyncClient createClient(double budgetRatio) {
+		AwsRetryBudgetProperties budgetProperties = new AwsRetryBudgetProperties();
+		budgetProperties.setRatio(budgetRatio);
+		budgetProperties.setMinRetriesPerSecond(0.0);
+		RetryBudget budget = new RetryBudget("example", budgetProperties, Clock.systemUTC());
+		ProxyFactory proxyFactory = new ProxyFactory(target);
+		proxyFactory.setInterfaces(SqsAsyncClient.class);
+		proxyFactory.addAdvice(new AwsClientV2HedgingInterceptor(Arrays.asList("list-queues"), Duration.ofMillis(10),
+				null, budget, scheduler));
+		return (SqsAsyncClient) proxyFactory.getProxy();
+	}
+}
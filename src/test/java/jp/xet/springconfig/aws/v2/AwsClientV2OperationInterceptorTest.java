@@ -0,0 +1,138 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jp.xet.springconfig.aws.v2;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.util.Collections;
+
+import org.junit.Test;
+
+import jp.xet.springconfig.aws.v2.AwsClientV2Configuration.AwsOperationV2Properties;
+
+import software.amazon.awssdk.awscore.AwsRequest;
+import software.amazon.awssdk.core.SdkRequest;
+import software.amazon.awssdk.core.interceptor.ExecutionAttributes;
+import software.amazon.awssdk.core.interceptor.InterceptorContext;
+import software.amazon.awssdk.core.interceptor.SdkExecutionAttribute;
+import software.amazon.awssdk.core.retry.RetryPolicy;
+import software.amazon.awssdk.core.retry.RetryPolicyContext;
+import software.amazon.awssdk.services.sqs.model.ListQueuesRequest;
+import software.amazon.awssdk.services.sqs.model.ReceiveMessageRequest;
+
+/**
+ * Test for {@link AwsClientV2OperationInterceptor}.
+ *
+ * @author miyamoto.daisuke
+ * @since #version#
+ */
+public class AwsClientV2OperationInterceptorTest {
+	
+	private final AwsClientV2OperationInterceptor sut;
+	
+	
+	/**
+	 * Create the interceptor with the overrides of {@code list-queues}.
+	 */
+	public AwsClientV2OperationInterceptorTest() {
+		AwsOperationV2Properties properties = new AwsOperationV2Properties();
+		properties.setApiCallTimeout(Duration.ofSeconds(3));
+		properties.setAttemptTimeout(Duration.ofMillis(50));
+		sut = new AwsClientV2OperationInterceptor(Collections.singletonMap("list-queues", properties));
+	}
+	
+	@Test
+	public void testModifyRequest() {
+		// setup
+		SdkRequest request = ListQueuesRequest.builder().build();
+		// exercise
+		SdkRequest actual = execute("ListQueues", request);
+		// verify
+		assertThat(actual).isInstanceOfSatisfying(AwsRequest.class, awsRequest -> {
+			assertThat(awsRequest.overrideConfiguration()).hasValueSatisfying(config -> {
+				assertThat(config.apiCallTimeout()).hasValue(Duration.ofSeconds(3));
+				assertThat(config.apiCallAttemptTimeout()).hasValue(Duration.ofMillis(50));
+			});
+		});
+		assertThat(sut.hasMaxRetries()).isFalse();
+	}
+	
+	@Test
+	public void testModifyRequest_RequestOverrideTakesPrecedence() {
+		// setup
+		SdkRequest request = ListQueuesRequest.builder()
+			.overrideConfiguration(b -> b.apiCallAttemptTimeout(Duration.ofSeconds(1)))
+			.build();
+		// exercise
+		SdkRequest actual = execute("ListQueues", request);
+		// verify
+		assertThat(actual).isInstanceOfSatisfying(AwsRequest.class, awsRequest -> {
+			assertThat(awsRequest.overrideConfiguration()).hasValueSatisfying(config -> {
+				assertThat(config.apiCallTimeout()).hasValue(Duration.ofSeconds(3));
+				assertThat(config.apiCallAttemptTimeout()).hasValue(Duration.ofSeconds(1));
+			});
+		});
+	}
+	
+	@Test
+	public void testModifyRequest_OtherOperation() {
+		// setup
+		SdkRequest request = ReceiveMessageRequest.builder().build();
+		// exercise
+		SdkRequest actual = execute("ReceiveMessage", request);
+		// verify
+		assertThat(actual).isSameAs(request);
+	}
+	
+	@Test
+	public void testApply() {
+		// setup
+		AwsOperationV2Properties properties = new AwsOperationV2Properties();
+		properties.setMaxRetries(5);
+		AwsClientV2OperationInterceptor interceptor =
+				new AwsClientV2OperationInterceptor(Collections.singletonMap("list-queues", properties));
+		RetryPolicy retryPolicy = RetryPolicy.builder().numRetries(2).retryCondition(context -> true).build();
+		// exercise
+		RetryPolicy actual = interceptor.apply(retryPolicy);
+		// verify
+		assertThat(actual.numRetries()).isEqualTo(5);
+		assertThat(shouldRetry(interceptor, actual, "ListQueues", 4)).isTrue();
+		assertThat(shouldRetry(interceptor, actual, "ListQueues", 5)).isFalse();
+		assertThat(shouldRetry(interceptor, actual, "ReceiveMessage", 1)).isTrue();
+		assertThat(shouldRetry(interceptor, actual, "ReceiveMessage", 2)).isFalse();
+	}
+	
+	private static boolean shouldRetry(AwsClientV2OperationInterceptor interceptor, RetryPolicy retryPolicy,
+			String operationName, int retriesAttempted) {
+		ExecutionAttributes executionAttributes = new ExecutionAttributes()
+			.putAttribute(SdkExecutionAttribute.OPERATION_NAME, operationName);
+		interceptor.beforeExecution(InterceptorContext.builder().request(ListQueuesRequest.builder().build()).build(),
+				executionAttributes);
+		return retryPolicy.retryCondition().shouldRetry(RetryPolicyContext.builder()
+			.executionAttributes(executionAttributes)
+			.retriesAttempted(retriesAttempted)
+			.build());
+	}
+	
+	private SdkRequest execute(String operationName, SdkRequest request) {
+		ExecutionAttributes executionAttributes = new ExecutionAttributes()
+			.putAttribute(SdkExecutionAttribute.OPERATION_NAME, operationName);
+		InterceptorContext context = InterceptorContext.builder().request(request).build();
+		sut.beforeExecution(context, executionAttributes);
+		return sut.modifyRequest(context, executionAttributes);
+	}
+}
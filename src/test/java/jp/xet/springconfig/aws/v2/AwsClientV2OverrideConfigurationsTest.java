@@ -0,0 +1,62 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jp.xet.springconfig.aws.v2;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.Test;
+
+import software.amazon.awssdk.core.retry.RetryPolicy;
+import software.amazon.awssdk.core.retry.RetryPolicyContext;
+
+/**
+ * Test for {@link AwsClientV2OverrideConfigurations}.
+ *
+ * @author miyamoto.daisuke
+ * @since #version#
+ */
+public class AwsClientV2OverrideConfigurationsTest {
+	
+	@Test
+	public void testWrapRetryCondition_MaxRetriesIsKept() {
+		// setup
+		RetryPolicy retryPolicy = RetryPolicy.builder().numRetries(2).retryCondition(context -> true).build();
+		// exercise
+		RetryPolicy actual = AwsClientV2OverrideConfigurations.wrapRetryCondition(retryPolicy,
+				retryPolicy.numRetries(), retryCondition -> context -> true);
+		// verify
+		assertThat(actual.numRetries()).isEqualTo(2);
+		assertThat(actual.retryCondition().shouldRetry(context(1))).isTrue();
+		assertThat(actual.retryCondition().shouldRetry(context(2))).isFalse();
+	}
+	
+	@Test
+	public void testWrapRetryCondition_OriginalConditionIsWrapped() {
+		// setup
+		RetryPolicy retryPolicy = RetryPolicy.builder().numRetries(3)
+			.retryCondition(context -> context.retriesAttempted() == 0).build();
+		// exercise
+		RetryPolicy actual = AwsClientV2OverrideConfigurations.wrapRetryCondition(retryPolicy,
+				retryPolicy.numRetries(), retryCondition -> retryCondition::shouldRetry);
+		// verify
+		assertThat(actual.retryCondition().shouldRetry(context(0))).isTrue();
+		assertThat(actual.retryCondition().shouldRetry(context(1))).isFalse();
+	}
+	
+	private static RetryPolicyContext context(int retriesAttempted) {
+		return RetryPolicyContext.builder().retriesAttempted(retriesAttempted).build();
+	}
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jp.xet.springconfig.aws.v2;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import org.junit.Test;
+
+import jp.xet.springconfig.aws.v2.AwsClientV2Configuration.AwsRateLimiterV2Properties;
+
+import software.amazon.awssdk.core.ClientType;
+import software.amazon.awssdk.core.exception.SdkClientException;
+import software.amazon.awssdk.core.interceptor.ExecutionAttributes;
+import software.amazon.awssdk.core.interceptor.SdkExecutionAttribute;
+
+/**
+ * Test for {@link AwsClientV2RateLimitingInterceptor}.
+ *
+ * @author miyamoto.daisuke
+ * @since #version#
+ */
+public class AwsClientV2RateLimitingInterceptorTest {
+	
+	@Test
+	public void testBeforeTransmission_AsyncClientDoesNotWait() {
+		// setup
+		AwsRateLimiterV2Properties properties = new AwsRateLimiterV2Properties();
+		properties.setMinRate(0.5);
+		properties.setBurst(1);
+		AdaptiveRateLimiter rateLimiter = new AdaptiveRateLimiter(properties);
+		rateLimiter.onThrottle();
+		AwsClientV2RateLimitingInterceptor sut = new AwsClientV2RateLimitingInterceptor(rateLimiter);
+		ExecutionAttributes executionAttributes = new ExecutionAttributes()
+			.putAttribute(SdkExecutionAttribute.CLIENT_TYPE, ClientType.ASYNC);
+		sut.beforeTransmission(null, executionAttributes);
+		// exercise & verify
+		assertThatThrownBy(() -> sut.beforeTransmission(null, executionAttributes))
+			.isInstanceOf(SdkClientException.class);
+	}
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jp.xet.springconfig.aws.v2;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+
+import jp.xet.springconfig.aws.v2.AwsClientV2ResponseCache.Key;
+
+import software.amazon.awssdk.services.sqs.model.GetQueueUrlRequest;
+import software.amazon.awssdk.services.sqs.model.GetQueueUrlResponse;
+
+/**
+ * Test for {@link AwsClientV2ResponseCache}.
+ *
+ * @author miyamoto.daisuke
+ * @since #version#
+ */
+public class AwsClientV2ResponseCacheTest {
+	
+	private final AwsClientV2ResponseCache sut = new AwsClientV2ResponseCache(2);
+	
+	
+	@After
+	public void tearDown() {
+		sut.destroy();
+	}
+	
+	@Test
+	public void testPut_BoundedByEntries() {
+		// setup
+		GetQueueUrlResponse response = GetQueueUrlResponse.builder().queueUrl("https://example.com/queue").build();
+		// exercise
+		for (int i = 0; i < 10; i++) {
+			sut.put(key("queue" + i), response, Duration.ofMinutes(1), Long.MAX_VALUE);
+		}
+		// verify
+		sut.getCache().cleanUp();
+		assertThat(sut.getCache().estimatedSize()).isEqualTo(2);
+	}
+	
+	@Test
+	public void testRefreshExecutor() throws Exception {
+		// exercise
+		CompletableFuture<Thread> actual = CompletableFuture.supplyAsync(Thread::currentThread, sut.getRefreshExecutor());
+		// verify
+		Thread thread = actual.get(1, TimeUnit.SECONDS);
+		assertThat(thread.getName()).startsWith("aws-cache-refresh-");
+		assertThat(thread.isDaemon()).isTrue();
+	}
+	
+	private static Key key(String queueName) {
+		return new Key("example", GetQueueUrlRequest.builder().queueName(queueName).build());
+	}
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jp.xet.springconfig.aws.v2;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Test;
+
+import jp.xet.springconfig.aws.v2.AwsClientV2Configuration.AwsCredentialsV2Properties;
+import jp.xet.springconfig.aws.v2.AwsClientV2Configuration.CredentialsProviderType;
+
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.AwsCredentialsProvider;
+import software.amazon.awssdk.auth.credentials.AwsSessionCredentials;
+import software.amazon.awssdk.auth.credentials.ContainerCredentialsProvider;
+import software.amazon.awssdk.auth.credentials.InstanceProfileCredentialsProvider;
+
+/**
+ * Test for {@link AwsCredentialsV2Providers}.
+ *
+ * @author miyamoto.daisuke
+ * @since #version#
+ */
+public class AwsCredentialsV2ProvidersTest {
+	
+	private final Map<String, AwsCredentialsV2Properties> definitions = new HashMap<>();
+	
+	private final AwsCredentialsV2Providers sut = new AwsCredentialsV2Providers(definitions);
+	
+	
+	@After
+	public void tearDown() {
+		sut.destroy();
+	}
+	
+	@Test
+	public void testStatic() {
+		// setup
+		definitions.put("basic", staticDefinition(null));
+		definitions.put("session", staticDefinition("sessionToken"));
+		// exercise
+		AwsCredentialsProvider actual1 = sut.getProvider("basic");
+		AwsCredentialsProvider actual2 = sut.getProvider("session");
+		// verify
+		assertThat(actual1.resolveCredentials()).isInstanceOfSatisfying(AwsBasicCredentials.class, credentials -> {
+			assertThat(credentials.accessKeyId()).isEqualTo("accessKeyId");
+			assertThat(credentials.secretAccessKey()).isEqualTo("secretAccessKey");
+		});
+		assertThat(actual2.resolveCredentials()).isInstanceOfSatisfying(AwsSessionCredentials.class,
+				credentials -> assertThat(credentials.sessionToken()).isEqualTo("sessionToken"));
+	}
+	
+	@Test
+	public void testProviderIsShared() {
+		// setup
+		definitions.put("example", staticDefinition(null));
+		// exercise
+		AwsCredentialsProvider actual1 = sut.getProvider("example");
+		AwsCredentialsProvider actual2 = sut.getProvider("example");
+		// verify
+		assertThat(actual1).isSameAs(actual2);
+	}
+	
+	@Test
+	public void testMetadataProviders() {
+		// setup
+		definitions.put("instance", definition(CredentialsProviderType.INSTANCE_PROFILE));
+		definitions.put("container", definition(CredentialsProviderType.CONTAINER));
+		// exercise
+		AwsCredentialsProvider actual1 = sut.getProvider("instance");
+		AwsCredentialsProvider actual2 = sut.getProvider("container");
+		// verify
+		assertThat(actual1).isInstanceOf(InstanceProfileCredentialsProvider.class);
+		assertThat(actual2).isInstanceOf(ContainerCredentialsProvider.class);
+	}
+	
+	@Test
+	public void testInvalidDefinition() {
+		// setup
+		definitions.put("untyped", new AwsCredentialsV2Properties());
+		definitions.put("static", definition(CredentialsProviderType.STATIC));
+		// exercise & verify
+		assertThatThrownBy(() -> sut.getProvider("unknown")).isInstanceOf(IllegalArgumentException.class);
+		assertThatThrownBy(() -> sut.getProvider("untyped")).isInstanceOf(IllegalArgumentException.class);
+		assertThatThrownBy(() -> sut.getProvider("static")).isInstanceOf(IllegalArgumentException.class);
+	}
+	
+	private static AwsCredentialsV2Properties definition(CredentialsProviderType type) {
+		AwsCredentialsV2Properties definition = new AwsCredentialsV2Properties();
+		definition.setType(type);
+		return definition;
+	}
+	
+	private static AwsCredentialsV2Properties staticDefinition(String sessionToken) {
+		AwsCredentialsV2Properties definition = definition(CredentialsProviderType.STATIC);
+		definition.setAccessKeyId("accessKeyId");
+		definition.setSecretAccessKey("secretAccessKey");
+		definition.setSessionToken(sessionToken);
+		return definition;
+	}
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jp.xet.springconfig.aws.v2;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.AbstractMap;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Test for {@link AwsParameterV2Loader}.
+ *
+ * @author miyamoto.daisuke
+ * @since #version#
+ */
+public class AwsParameterV2LoaderTest {
+	
+	private final ExecutorService executor = Executors.newFixedThreadPool(2);
+	
+	
+	@After
+	public void tearDown() {
+		executor.shutdownNow();
+	}
+	
+	@Test
+	public void testToPropertyName() {
+		assertThat(AwsParameterV2Loader.toPropertyName("/app/prod", "/app/prod/db/url")).isEqualTo("db.url");
+		assertThat(AwsParameterV2Loader.toPropertyName("/app/prod/", "/app/prod/db/url")).isEqualTo("db.url");
+		assertThat(AwsParameterV2Loader.toPropertyName("/", "/app/prod/db/url")).isEqualTo("app.prod.db.url");
+		assertThat(AwsParameterV2Loader.toPropertyName("/app/prod", "/other/key")).isEqualTo("other.key");
+	}
+	
+	@Test
+	public void testLoadAllRunsInParallelAndMergesInOrder() {
+		// setup
+		CountDownLatch latch = new CountDownLatch(2);
+		Callable<Map<String, Object>> task1 = () -> {
+			latch.countDown();
+			latch.await(1, TimeUnit.SECONDS);
+			return properties("foo", "1", "bar", "1");
+		};
+		Callable<Map<String, Object>> task2 = () -> {
+			latch.countDown();
+			latch.await(1, TimeUnit.SECONDS);
+			return properties("bar", "2", "baz", "2");
+		};
+		// exercise
+		Map<String, Object> actual = AwsParameterV2Loader.loadAll(Arrays.asList(task1, task2), executor);
+		// verify
+		assertThat(latch.getCount()).isZero();
+		assertThat(actual).containsExactly(entry("foo", "1"), entry("bar", "2"), entry("baz", "2"));
+	}
+	
+	@Test
+	public void testLoadAllFails() {
+		// setup
+		Callable<Map<String, Object>> task1 = Collections::emptyMap;
+		Callable<Map<String, Object>> task2 = () -> {
+			throw new UnsupportedOperationException("example");
+		};
+		// exercise & verify
+		assertThatThrownBy(() -> AwsParameterV2Loader.loadAll(Arrays.asList(task1, task2), executor))
+			.isInstanceOf(IllegalStateException.class)
+			.hasCauseInstanceOf(UnsupportedOperationException.class);
+	}
+	
+	private static Map<String, Object> properties(String key1, Object value1, String key2, Object value2) {
+		Map<String, Object> properties = new LinkedHashMap<>();
+		properties.put(key1, value1);
+		properties.put(key2, value2);
+		return properties;
+	}
+	
+	private static Map.Entry<String, Object> entry(String key, Object value) {
+		return new AbstractMap.SimpleEntry<>(key, value);
+	}
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jp.xet.springconfig.aws.v2;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.util.Collections;
+
+import org.junit.Test;
+
+/**
+ * Test for {@link AwsParameterV2PropertySource}.
+ *
+ * @author miyamoto.daisuke
+ * @since #version#
+ */
+public class AwsParameterV2PropertySourceTest {
+	
+	private final AwsParameterV2Loader loader = mock(AwsParameterV2Loader.class);
+	
+	private final AwsParameterV2PropertySource sut = new AwsParameterV2PropertySource("example", loader);
+	
+	
+	@Test
+	public void testLoad() {
+		// setup
+		when(loader.load()).thenReturn(Collections.singletonMap("foo", "1"));
+		// exercise
+		sut.load();
+		// verify
+		assertThat(sut.getProperty("foo")).isEqualTo("1");
+		assertThat(sut.containsProperty("foo")).isTrue();
+		assertThat(sut.getProperty("bar")).isNull();
+		assertThat(sut.getPropertyNames()).containsExactly("foo");
+	}
+	
+	@Test
+	public void testLoadFails() {
+		// setup
+		when(loader.load()).thenThrow(new IllegalStateException("example"));
+		// exercise & verify
+		assertThatThrownBy(sut::load).isInstanceOf(IllegalStateException.class);
+		assertThat(sut.getPropertyNames()).isEmpty();
+	}
+	
+	@Test
+	public void testRefreshReplacesSnapshot() {
+		// setup
+		when(loader.load())
+			.thenReturn(Collections.singletonMap("foo", "1"))
+			.thenReturn(Collections.singletonMap("bar", "2"));
+		sut.load();
+		// exercise
+		sut.refresh();
+		// verify
+		assertThat(sut.getProperty("foo")).isNull();
+		assertThat(sut.getProperty("bar")).isEqualTo("2");
+	}
+	
+	@Test
+	public void testRefreshFailureKeepsSnapshot() {
+		// setup
+		when(loader.load())
+			.thenReturn(Collections.singletonMap("foo", "1"))
+			.thenThrow(new IllegalStateException("example"));
+		sut.load();
+		// exercise
+		sut.refresh();
+		// verify
+		assertThat(sut.getProperty("foo")).isEqualTo("1");
+	}
+	
+	@Test
+	public void testStartAndClose() {
+		// setup
+		when(loader.load())
+			.thenReturn(Collections.singletonMap("foo", "1"))
+			.thenReturn(Collections.singletonMap("foo", "2"));
+		sut.load();
+		// exercise
+		sut.start(Duration.ofMillis(10));
+		verify(loader, timeout(1000).atLeast(3)).load();
+		sut.close();
+		// verify
+		verify(loader).close();
+		assertThat(sut.getProperty("foo")).isEqualTo("2");
+	}
+}
@@ -16,15 +16,24 @@
 package jp.xet.springconfig.aws.v2; // NOPMD CouplingBetweenObjects
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
+import java.io.IOException;
 import java.io.Serializable;
+import java.lang.management.ManagementFactory;
 import java.net.URI;
+import java.time.Duration;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
 
 import lombok.extern.slf4j.Slf4j;
 
+import org.springframework.aop.framework.Advised;
+import org.springframework.aop.support.AopUtils;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.boot.test.context.runner.ApplicationContextRunner;
 import org.springframework.context.annotation.Bean;
@@ -36,15 +45,33 @@ import org.junit.Test;
 
 import com.amazonaws.regions.Regions;
 
+import jp.xet.springconfig.aws.AwsClientDescriptor;
+import jp.xet.springconfig.aws.AwsClientsEndpoint;
+import jp.xet.springconfig.aws.RetryBudget;
+import jp.xet.springconfig.aws.RetryBudgets;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.netty.channel.MultithreadEventLoopGroup;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
 import software.amazon.awssdk.auth.credentials.AwsCredentialsProvider;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
 import software.amazon.awssdk.awscore.client.config.AwsClientOption;
 import software.amazon.awssdk.core.SdkClient;
 import software.amazon.awssdk.core.client.config.SdkClientConfiguration;
 import software.amazon.awssdk.core.client.config.SdkClientOption;
+import software.amazon.awssdk.core.exception.SdkServiceException;
+import software.amazon.awssdk.core.interceptor.ExecutionInterceptor;
+import software.amazon.awssdk.core.retry.RetryPolicy;
+import software.amazon.awssdk.core.retry.RetryPolicyContext;
+import software.amazon.awssdk.http.ExecutableHttpRequest;
+import software.amazon.awssdk.http.HttpExecuteResponse;
 import software.amazon.awssdk.http.SdkHttpClient;
+import software.amazon.awssdk.http.SdkHttpResponse;
 import software.amazon.awssdk.http.apache.ApacheHttpClient;
 import software.amazon.awssdk.http.async.SdkAsyncHttpClient;
 import software.amazon.awssdk.http.nio.netty.NettyNioAsyncHttpClient;
+import software.amazon.awssdk.http.nio.netty.SdkEventLoopGroup;
 import software.amazon.awssdk.regions.Region;
 import software.amazon.awssdk.services.ec2.Ec2AsyncClient;
 import software.amazon.awssdk.services.ec2.Ec2Client;
@@ -162,6 +189,61 @@ public class AwsV2ConfigurationTest {
 	}
 	
 	
+	@Test
+	public void rateLimiter() {
+		contextRunner.withUserConfiguration(ExampleSyncAndAsyncSnsConfiguration.class)
+			.withPropertyValues("aws2.sns.rate-limiter.enabled=true")
+			.withPropertyValues("aws2.sns-async.rate-limiter.enabled=true")
+			.run(context -> {
+				assertThat(context).doesNotHaveBean(AwsClientV2RateLimiters.BEAN_NAME);
+				ExecutionInterceptor syncInterceptor = getRateLimitingInterceptor(context.getBean(SnsClient.class));
+				ExecutionInterceptor asyncInterceptor = getRateLimitingInterceptor(context.getBean(SnsAsyncClient.class));
+				assertThat(syncInterceptor).isNotSameAs(asyncInterceptor);
+			});
+	}
+	
+	@Test
+	public void rateLimiter_Shared() {
+		contextRunner.withUserConfiguration(ExampleSyncAndAsyncSnsConfiguration.class)
+			.withPropertyValues("aws2.default.rate-limiter.enabled=true")
+			.withPropertyValues("aws2.default.rate-limiter.shared=true")
+			.run(context -> {
+				assertThat(context).hasBean(AwsClientV2RateLimiters.BEAN_NAME);
+				ExecutionInterceptor syncInterceptor = getRateLimitingInterceptor(context.getBean(SnsClient.class));
+				ExecutionInterceptor asyncInterceptor = getRateLimitingInterceptor(context.getBean(SnsAsyncClient.class));
+				assertThat(syncInterceptor).isSameAs(asyncInterceptor);
+			});
+	}
+	
+	@Test
+	public void retryBudget_Shared() {
+		contextRunner.withUserConfiguration(ExampleSyncAndAsyncSnsConfiguration.class)
+			.withPropertyValues("aws2.default.retry-budget.enabled=true")
+			.withPropertyValues("aws2.default.retry-budget.shared=true")
+			.run(context -> {
+				assertThat(context).hasBean(RetryBudgets.BEAN_NAME);
+				RetryBudget syncBudget = getRetryBudget(context.getBean(SnsClient.class));
+				RetryBudget asyncBudget = getRetryBudget(context.getBean(SnsAsyncClient.class));
+				assertThat(syncBudget).isSameAs(asyncBudget);
+			});
+	}
+	
+	private static RetryBudget getRetryBudget(SdkClient client) {
+		return TestUtil.extractClientConfig(client).option(SdkClientOption.EXECUTION_INTERCEPTORS).stream()
+			.filter(AwsClientV2RetryBudgetInterceptor.class::isInstance)
+			.map(interceptor -> ((AwsClientV2RetryBudgetInterceptor) interceptor).getRetryBudget())
+			.findFirst()
+			.orElseThrow(AssertionError::new);
+	}
+	
+	private static ExecutionInterceptor getRateLimitingInterceptor(SdkClient client) {
+		return TestUtil.extractClientConfig(client).option(SdkClientOption.EXECUTION_INTERCEPTORS).stream()
+			.filter(AwsClientV2RateLimitingInterceptor.class::isInstance)
+			.findFirst()
+			.orElseThrow(AssertionError::new);
+	}
+	
+	
 	@Configuration
 	@EnableAwsClientV2(SnsAsyncClient.class)
 	@EnableConfigurationProperties
@@ -215,6 +297,67 @@ public class AwsV2ConfigurationTest {
 	}
 	
 	
+	@Test
+	public void hedging() {
+		contextRunner.withUserConfiguration(ExampleSqsSnsSyncAsyncConfiguration.class)
+			.withPropertyValues("aws2.default.hedging.enabled=true")
+			.withPropertyValues("aws2.default.hedging.operations=GetQueueUrl,ListQueues")
+			.run(context -> {
+				assertThat(context).hasBean(AwsClientV2HedgingScheduler.BEAN_NAME);
+				assertThat(AopUtils.isAopProxy(context.getBean(SqsAsyncClient.class))).isTrue();
+				assertThat(AopUtils.isAopProxy(context.getBean(SqsClient.class.getName()))).isFalse();
+			});
+	}
+	
+	@Test
+	public void coalescing() {
+		contextRunner.withUserConfiguration(ExampleSqsSnsSyncAsyncConfiguration.class)
+			.withPropertyValues("aws2.sqs.coalescing.enabled=true")
+			.withPropertyValues("aws2.sqs.coalescing.operations=GetQueueUrl")
+			.run(context -> {
+				assertThat(AopUtils.isAopProxy(context.getBean(SqsClient.class.getName()))).isTrue();
+				assertThat(AopUtils.isAopProxy(context.getBean(SqsAsyncClient.class))).isFalse();
+			});
+	}
+	
+	@Test
+	public void cache() {
+		contextRunner.withUserConfiguration(ExampleSqsSnsSyncAsyncConfiguration.class)
+			.withPropertyValues("aws2.sqs.cache.enabled=true")
+			.withPropertyValues("aws2.sqs.cache.operations.GetQueueUrl.ttl=1m")
+			.run(context -> {
+				assertThat(context).hasBean(AwsClientV2ResponseCache.BEAN_NAME);
+				assertThat(AopUtils.isAopProxy(context.getBean(SqsClient.class.getName()))).isTrue();
+				assertThat(AopUtils.isAopProxy(context.getBean(SqsAsyncClient.class))).isFalse();
+			});
+	}
+	
+	@Test
+	public void cache_Disabled() {
+		contextRunner.withUserConfiguration(ExampleSqsSnsSyncAsyncConfiguration.class)
+			.run(context -> {
+				assertThat(context).doesNotHaveBean(AwsClientV2ResponseCache.BEAN_NAME);
+			});
+	}
+	
+	@Test
+	public void credentials() {
+		contextRunner.withUserConfiguration(ExampleSqsSnsSyncAsyncConfiguration.class)
+			.withPropertyValues("aws2.credentials.example.type=static")
+			.withPropertyValues("aws2.credentials.example.access-key-id=accessKeyId")
+			.withPropertyValues("aws2.credentials.example.secret-access-key=secretAccessKey")
+			.withPropertyValues("aws2.sqs.credentials-provider-bean-name=example")
+			.withPropertyValues("aws2.sqs-async.credentials-provider-bean-name=example")
+			.run(context -> {
+				AwsCredentialsProvider provider = context.getBean("example", AwsCredentialsProvider.class);
+				assertThat(provider.resolveCredentials().accessKeyId()).isEqualTo("accessKeyId");
+				assertThat(TestUtil.extractClientConfig(context.getBean(SqsClient.class))
+					.option(AwsClientOption.CREDENTIALS_PROVIDER)).isSameAs(provider);
+				assertThat(TestUtil.extractClientConfig(context.getBean(SqsAsyncClient.class))
+					.option(AwsClientOption.CREDENTIALS_PROVIDER)).isSameAs(provider);
+			});
+	}
+	
 	@Test
 	public void configuredClient_BothSyncAndAsync() {
 		String sqsRegion = "sa-east-1";
@@ -270,6 +413,406 @@ public class AwsV2ConfigurationTest {
 			});
 	}
 	
+	@Test
+	public void configuredClient_ParallelBuild() {
+		contextRunner.withUserConfiguration(ExampleSqsSnsSyncAsyncConfiguration.class)
+			.withPropertyValues("aws2.startup.parallel-build=true")
+			.withPropertyValues("aws2.startup.parallelism=2")
+			.withPropertyValues("aws2.sqs.region=sa-east-1")
+			.withPropertyValues("aws2.sns-async.endpoint=http://localhost:60004")
+			.run(context -> {
+				assertThat(context).hasSingleBean(AwsClientV2BuildCoordinator.class);
+				assertThat(context.getBean(SqsClient.class)).satisfies(client -> {
+					SdkClientConfiguration clientConfiguration = TestUtil.extractClientConfig(client);
+					assertThat(clientConfiguration.option(AwsClientOption.AWS_REGION))
+						.isEqualTo(Region.SA_EAST_1); // aws2.sqs.region
+				});
+				assertThat(context.getBean(SqsAsyncClient.class)).satisfies(this::isDefaultConfig);
+				assertThat(context.getBean(SnsClient.class)).satisfies(this::isDefaultConfig);
+				assertThat(context.getBean(SnsAsyncClient.class)).satisfies(client -> {
+					SdkClientConfiguration clientConfiguration = TestUtil.extractClientConfig(client);
+					assertThat(clientConfiguration.option(SdkClientOption.ENDPOINT))
+						.isEqualTo(URI.create("http://localhost:60004")); // aws2.sns-async.endpoint
+				});
+			});
+	}
+	
+	@Test
+	public void defaultClient_NoParallelBuild() {
+		contextRunner.withUserConfiguration(ExampleSqsSnsSyncAsyncConfiguration.class)
+			.run(context -> assertThat(context).doesNotHaveBean(AwsClientV2BuildCoordinator.class));
+	}
+	
+	
+	@Configuration
+	@EnableAwsClientV2(value = {
+		SqsClient.class,
+		SnsClient.class
+	}, lazy = true)
+	@EnableConfigurationProperties
+	static class ExampleLazyConfiguration {
+	}
+	
+	
+	@Test
+	public void lazyClient() {
+		String targetBeanName = AwsClientV2BeanDefinitionRegistrar.LAZY_TARGET_PREFIX + SqsClient.class.getName();
+		contextRunner.withUserConfiguration(ExampleLazyConfiguration.class)
+			.withPropertyValues("aws2.sqs.region=sa-east-1")
+			.withPropertyValues("aws2.sns.lazy=false")
+			.run(context -> {
+				SqsClient sqsClient = context.getBean(SqsClient.class);
+				assertThat(AopUtils.isAopProxy(sqsClient)).isTrue();
+				assertThat(context.getBeanFactory().containsSingleton(targetBeanName)).isFalse();
+			
+				// exercise
+				String serviceName = sqsClient.serviceName();
+			
+				// verify
+				assertThat(serviceName).isEqualTo(SqsClient.SERVICE_NAME);
+				assertThat(context.getBeanFactory().containsSingleton(targetBeanName)).isTrue();
+				assertThat(((Advised) sqsClient).getTargetSource().getTarget()).satisfies(client -> {
+					SdkClientConfiguration clientConfiguration = TestUtil.extractClientConfig(client);
+					assertThat(clientConfiguration.option(AwsClientOption.AWS_REGION))
+						.isEqualTo(Region.SA_EAST_1); // aws2.sqs.region
+				});
+				// aws2.sns.lazy
+				assertThat(AopUtils.isAopProxy(context.getBean(SnsClient.class))).isFalse();
+			});
+	}
+	
+	
+	@Test
+	public void sharedHttpClient() {
+		contextRunner.withUserConfiguration(ExampleSqsSnsSyncAsyncConfiguration.class)
+			.withPropertyValues("aws2.http-clients.shared.apache.max-connections=7")
+			.withPropertyValues("aws2.sqs.shared-http-client-name=shared")
+			.withPropertyValues("aws2.sns.shared-http-client-name=shared")
+			.run(context -> {
+				Object sharedHttpClient = context.getBean(AwsSharedHttpClientV2FactoryBean.getBeanName("shared"));
+				assertThat(sharedHttpClient).isInstanceOf(ApacheHttpClient.class);
+				assertThat(context.getBean(SqsClient.class)).satisfies(client -> {
+					SdkClientConfiguration clientConfiguration = TestUtil.extractClientConfig(client);
+					// wrapped not to be closed by the client
+					assertThat(clientConfiguration.option(SdkClientOption.SYNC_HTTP_CLIENT))
+						.hasFieldOrPropertyWithValue("delegate", sharedHttpClient);
+				});
+				assertThat(context.getBean(SnsClient.class)).satisfies(client -> {
+					SdkClientConfiguration clientConfiguration = TestUtil.extractClientConfig(client);
+					// wrapped not to be closed by the client
+					assertThat(clientConfiguration.option(SdkClientOption.SYNC_HTTP_CLIENT))
+						.hasFieldOrPropertyWithValue("delegate", sharedHttpClient);
+				});
+			});
+	}
+	
+	
+	@Test
+	public void sharedEventLoopGroup() {
+		contextRunner.withUserConfiguration(ExampleSqsSnsSyncAsyncConfiguration.class)
+			.withPropertyValues("aws2.event-loop-group.number-of-threads=2")
+			.withPropertyValues("aws2.sns-async.shared-event-loop-group=false")
+			.run(context -> {
+				SdkEventLoopGroup eventLoopGroup =
+						context.getBean(AwsEventLoopGroupV2FactoryBean.BEAN_NAME, SdkEventLoopGroup.class);
+				assertThat(eventLoopGroup.eventLoopGroup())
+					.isInstanceOfSatisfying(MultithreadEventLoopGroup.class, group -> {
+						assertThat(group.executorCount()).isEqualTo(2); // aws2.event-loop-group.number-of-threads
+					});
+				assertThat(context.getBean(SqsAsyncClient.class)).satisfies(client -> {
+					SdkClientConfiguration clientConfiguration = TestUtil.extractClientConfig(client);
+					// wrapped not to be shut down by the client
+					assertThat(clientConfiguration.option(SdkClientOption.ASYNC_HTTP_CLIENT))
+						.extracting("sdkEventLoopGroup.eventLoopGroup.delegate")
+						.containsExactly(eventLoopGroup.eventLoopGroup());
+				});
+				// aws2.sns-async.shared-event-loop-group
+				assertThat(context.getBean(SnsAsyncClient.class)).satisfies(client -> {
+					SdkClientConfiguration clientConfiguration = TestUtil.extractClientConfig(client);
+					assertThat(clientConfiguration.option(SdkClientOption.ASYNC_HTTP_CLIENT))
+						.extracting("sdkEventLoopGroup.eventLoopGroup")
+						.doesNotContain(eventLoopGroup.eventLoopGroup());
+				});
+			});
+	}
+	
+	@Test
+	public void sharedEventLoopGroup_Disabled() {
+		contextRunner.withUserConfiguration(ExampleSqsSnsSyncAsyncConfiguration.class)
+			.withPropertyValues("aws2.event-loop-group.enabled=false")
+			.run(context -> assertThat(context).doesNotHaveBean(AwsEventLoopGroupV2FactoryBean.BEAN_NAME));
+	}
+	
+	@Test
+	public void sharedAsyncHttpClient() {
+		contextRunner.withUserConfiguration(ExampleSqsSnsSyncAsyncConfiguration.class)
+			.withPropertyValues("aws2.http-clients.shared.netty.max-concurrency=7")
+			.withPropertyValues("aws2.sqs-async.shared-http-client-name=shared")
+			.withPropertyValues("aws2.sns-async.shared-http-client-name=shared")
+			.run(context -> {
+				Object sharedHttpClient = context.getBean(AwsSharedAsyncHttpClientV2FactoryBean.getBeanName("shared"));
+				assertThat(sharedHttpClient).isInstanceOf(NettyNioAsyncHttpClient.class);
+				assertThat(context).doesNotHaveBean(AwsSharedHttpClientV2FactoryBean.getBeanName("shared"));
+				assertThat(context.getBean(SqsAsyncClient.class)).satisfies(client -> {
+					SdkClientConfiguration clientConfiguration = TestUtil.extractClientConfig(client);
+					assertThat(clientConfiguration.option(SdkClientOption.ASYNC_HTTP_CLIENT))
+						.hasFieldOrPropertyWithValue("delegate", sharedHttpClient);
+				});
+				assertThat(context.getBean(SnsAsyncClient.class)).satisfies(client -> {
+					SdkClientConfiguration clientConfiguration = TestUtil.extractClientConfig(client);
+					assertThat(clientConfiguration.option(SdkClientOption.ASYNC_HTTP_CLIENT))
+						.hasFieldOrPropertyWithValue("delegate", sharedHttpClient);
+				});
+			});
+	}
+	
+	
+	@Configuration
+	@EnableAwsClientV2(SqsClient.class)
+	@EnableConfigurationProperties
+	static class ExampleMetricsConfiguration {
+		
+		@Bean
+		public MeterRegistry meterRegistry() {
+			return new SimpleMeterRegistry();
+		}
+		
+		@Bean
+		public AwsCredentialsProvider exampleAwsCredentialsProvider() {
+			return StaticCredentialsProvider.create(AwsBasicCredentials.create("accessKeyId", "secretAccessKey"));
+		}
+		
+		@Bean
+		public SdkHttpClient exampleSdkHttpClient() throws IOException {
+			ExecutableHttpRequest request = mock(ExecutableHttpRequest.class);
+			when(request.call()).thenReturn(HttpExecuteResponse.builder()
+				.response(SdkHttpResponse.builder().statusCode(500).build())
+				.build());
+			SdkHttpClient httpClient = mock(SdkHttpClient.class);
+			when(httpClient.prepareRequest(any())).thenReturn(request);
+			return httpClient;
+		}
+	}
+	
+	
+	@Test
+	public void metricsInterceptor() {
+		contextRunner.withUserConfiguration(ExampleMetricsConfiguration.class)
+			.withPropertyValues("aws2.sqs.region=us-east-1")
+			.withPropertyValues("aws2.sqs.credentials-provider-bean-name=exampleAwsCredentialsProvider")
+			.withPropertyValues("aws2.sqs.http-client-bean-name=exampleSdkHttpClient")
+			.run(context -> {
+				SqsClient client = context.getBean(SqsClient.class);
+				assertThatThrownBy(client::listQueues).isInstanceOf(SdkServiceException.class);
+			
+				MeterRegistry registry = context.getBean(MeterRegistry.class);
+				assertThat(registry.get("aws.client.call").tag("service", "Sqs").tag("operation", "ListQueues")
+					.tag("outcome", "FAILURE").timer().count()).isEqualTo(1L);
+				assertThat(registry.get("aws.client.call.marshalling").timer().count()).isEqualTo(1L);
+				assertThat(registry.get("aws.client.call.signing").timer().count()).isEqualTo(1L);
+				// 1 attempt + 3 retries by the default retry policy
+				assertThat(registry.get("aws.client.call.attempt").timer().count()).isEqualTo(4L);
+				assertThat(registry.get("aws.client.call.retries").counter().count()).isEqualTo(3.0);
+				assertThat(registry.get("aws.client.call.responses").tag("status", "500").counter().count())
+					.isEqualTo(4.0);
+				assertThat(registry.get("aws.client.call.errors").tag("error.code", "500").counter().count())
+					.isEqualTo(1.0);
+			});
+	}
+	
+	@Test
+	public void operationInterceptor() {
+		contextRunner.withUserConfiguration(ExampleMetricsConfiguration.class)
+			.withPropertyValues("aws2.sqs.region=us-east-1")
+			.withPropertyValues("aws2.sqs.credentials-provider-bean-name=exampleAwsCredentialsProvider")
+			.withPropertyValues("aws2.sqs.http-client-bean-name=exampleSdkHttpClient")
+			.withPropertyValues("aws2.sqs.retry.base-delay=1ms")
+			.withPropertyValues("aws2.sqs.operations.ListQueues.max-retries=1")
+			.withPropertyValues("aws2.sqs.operations.GetQueueUrl.max-retries=5")
+			.withPropertyValues("aws2.sqs.operations.GetQueueUrl.attempt-timeout=1s")
+			.run(context -> {
+				SqsClient client = context.getBean(SqsClient.class);
+				assertThat(TestUtil.extractClientConfig(client).option(SdkClientOption.RETRY_POLICY))
+					.returns(5, RetryPolicy::numRetries);
+				assertThatThrownBy(client::listQueues).isInstanceOf(SdkServiceException.class);
+				assertThatThrownBy(() -> client.getQueueUrl(b -> b.queueName("example")))
+					.isInstanceOf(SdkServiceException.class);
+				assertThatThrownBy(() -> client.deleteQueue(b -> b.queueUrl("https://example.com/example")))
+					.isInstanceOf(SdkServiceException.class);
+			
+				MeterRegistry registry = context.getBean(MeterRegistry.class);
+				assertThat(registry.get("aws.client.call.attempt").tag("operation", "ListQueues").timer().count())
+					.isEqualTo(2L); // aws2.sqs.operations.ListQueues.max-retries
+				assertThat(registry.get("aws.client.call.attempt").tag("operation", "GetQueueUrl").timer().count())
+					.isEqualTo(6L); // aws2.sqs.operations.GetQueueUrl.max-retries
+				assertThat(registry.get("aws.client.call.attempt").tag("operation", "DeleteQueue").timer().count())
+					.isEqualTo(4L); // the default retry policy
+			});
+	}
+	
+	@Test
+	public void retryBudget() {
+		contextRunner.withUserConfiguration(ExampleMetricsConfiguration.class)
+			.withPropertyValues("aws2.sqs.region=us-east-1")
+			.withPropertyValues("aws2.sqs.credentials-provider-bean-name=exampleAwsCredentialsProvider")
+			.withPropertyValues("aws2.sqs.http-client-bean-name=exampleSdkHttpClient")
+			.withPropertyValues("aws2.sqs.retry.base-delay=1ms")
+			.withPropertyValues("aws2.sqs.retry-budget.enabled=true")
+			.withPropertyValues("aws2.sqs.retry-budget.min-retries-per-second=0.1")
+			.run(context -> {
+				assertThat(context).doesNotHaveBean(RetryBudgets.BEAN_NAME);
+				SqsClient client = context.getBean(SqsClient.class);
+				assertThatThrownBy(client::listQueues).isInstanceOf(SdkServiceException.class);
+				assertThatThrownBy(() -> client.deleteQueue(b -> b.queueUrl("https://example.com/example")))
+					.isInstanceOf(SdkServiceException.class);
+			
+				MeterRegistry registry = context.getBean(MeterRegistry.class);
+				assertThat(registry.get("aws.client.call.attempt").tag("operation", "ListQueues").timer().count())
+					.isEqualTo(2L); // a retry in the window of 10s by min-retries-per-second
+				assertThat(registry.get("aws.client.call.attempt").tag("operation", "DeleteQueue").timer().count())
+					.isEqualTo(1L);
+				assertThat(registry.get("aws.client.retry.budget.exhausted")
+					.tag("client", SqsClient.class.getName())
+					.functionCounter().count())
+					.isEqualTo(2.0);
+			});
+	}
+	
+	@Test
+	public void bulkhead() {
+		contextRunner.withUserConfiguration(ExampleMetricsConfiguration.class)
+			.withPropertyValues("aws2.sqs.region=us-east-1")
+			.withPropertyValues("aws2.sqs.credentials-provider-bean-name=exampleAwsCredentialsProvider")
+			.withPropertyValues("aws2.sqs.http-client-bean-name=exampleSdkHttpClient")
+			.withPropertyValues("aws2.sqs.retry.base-delay=1ms")
+			.withPropertyValues("aws2.sqs.bulkhead.enabled=true")
+			.withPropertyValues("aws2.sqs.bulkhead.limit=5")
+			.run(context -> {
+				SqsClient client = context.getBean(SqsClient.class);
+				assertThatThrownBy(client::listQueues).isInstanceOf(SdkServiceException.class);
+			
+				MeterRegistry registry = context.getBean(MeterRegistry.class);
+				assertThat(registry.get("aws.client.call.attempt").timer().count())
+					.isEqualTo(4L); // the retries are not limited by the bulkhead
+				assertThat(registry.get("aws.client.bulkhead.limit").tag("client", SqsClient.class.getName())
+					.gauge().value()).isEqualTo(5.0);
+				assertThat(registry.get("aws.client.bulkhead.inflight").tag("client", SqsClient.class.getName())
+					.gauge().value()).isZero();
+			});
+	}
+	
+	@Test
+	public void bulkhead_Full() {
+		contextRunner.withUserConfiguration(ExampleMetricsConfiguration.class)
+			.withPropertyValues("aws2.sqs.region=us-east-1")
+			.withPropertyValues("aws2.sqs.credentials-provider-bean-name=exampleAwsCredentialsProvider")
+			.withPropertyValues("aws2.sqs.http-client-bean-name=exampleSdkHttpClient")
+			.withPropertyValues("aws2.sqs.bulkhead.enabled=true")
+			.withPropertyValues("aws2.sqs.bulkhead.limit=0")
+			.run(context -> {
+				SqsClient client = context.getBean(SqsClient.class);
+				assertThatThrownBy(client::listQueues).isInstanceOf(BulkheadFullException.class);
+			
+				MeterRegistry registry = context.getBean(MeterRegistry.class);
+				assertThat(registry.get("aws.client.call.attempt").timer().count()).isZero();
+				assertThat(registry.get("aws.client.bulkhead.rejected").tag("client", SqsClient.class.getName())
+					.functionCounter().count()).isEqualTo(1.0);
+			});
+	}
+	
+	@Test
+	public void metricsInterceptor_Disabled() {
+		contextRunner.withUserConfiguration(ExampleMetricsConfiguration.class)
+			.withPropertyValues("aws2.metrics.enabled=false")
+			.run(context -> assertThat(context).doesNotHaveBean(AwsClientV2MetricsInterceptor.BEAN_NAME));
+	}
+	
+	
+	@Configuration
+	@EnableAwsClientV2({
+		SnsClient.class,
+		SnsAsyncClient.class
+	})
+	@EnableConfigurationProperties
+	static class ExampleConnectionPoolMetricsConfiguration {
+		
+		@Bean
+		public MeterRegistry meterRegistry() {
+			return new SimpleMeterRegistry();
+		}
+	}
+	
+	
+	@Test
+	public void connectionPoolMetrics() throws Exception {
+		MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+		ObjectName objectName = new ObjectName(
+				"jp.xet.springconfig.aws:type=ConnectionPool,name=" + ObjectName.quote(SnsClient.class.getName()));
+		contextRunner.withUserConfiguration(ExampleConnectionPoolMetricsConfiguration.class)
+			.withPropertyValues("aws2.metrics.jmx-enabled=true")
+			.withPropertyValues("aws2.sns.apache-http-client-builder.max-connections=7")
+			.withPropertyValues("aws2.sns-async.netty-nio-async-http-client-builder.max-concurrency=5")
+			.run(context -> {
+				context.getBean(SnsClient.class);
+				context.getBean(SnsAsyncClient.class);
+			
+				MeterRegistry registry = context.getBean(MeterRegistry.class);
+				assertThat(registry.get("aws.client.connections.max").tag("client", SnsClient.class.getName())
+					.tag("type", "apache").gauge().value()).isEqualTo(7.0);
+				assertThat(registry.get("aws.client.connections.leased").tag("client", SnsClient.class.getName())
+					.gauge().value()).isEqualTo(0.0);
+				assertThat(registry.get("aws.client.connections.max").tag("client", SnsAsyncClient.class.getName())
+					.tag("type", "netty").gauge().value()).isEqualTo(5.0);
+				// netty does not expose the idle connections
+				assertThat(registry.find("aws.client.connections.available").tag("type", "netty").gauge()).isNull();
+				assertThat(mBeanServer.getAttribute(objectName, "Max")).isEqualTo(7);
+			});
+		// unregistered when the HTTP client is closed
+		assertThat(mBeanServer.isRegistered(objectName)).isFalse();
+	}
+	
+	
+	@Configuration
+	@EnableAwsClientV2({
+		SnsClient.class,
+		SqsClient.class
+	})
+	@EnableConfigurationProperties
+	static class ExampleDescriptorConfiguration {
+	}
+	
+	
+	@Test
+	public void awsClientsEndpoint() {
+		contextRunner.withUserConfiguration(ExampleDescriptorConfiguration.class)
+			.withPropertyValues("aws2.sns.region=us-west-2")
+			.withPropertyValues("aws2.sns.apache-http-client-builder.max-connections=7")
+			.withPropertyValues("aws2.sqs.lazy=true")
+			// misspelling of aws2.sqs
+			.withPropertyValues("aws2.sqs-asnyc.region=us-east-1")
+			.run(context -> {
+				context.getBean(SnsClient.class);
+			
+				AwsClientsEndpoint endpoint = context.getBean(AwsClientsEndpoint.class);
+				AwsClientDescriptor sns = endpoint.client(SnsClient.class.getName());
+				assertThat(sns.getClientClass()).isEqualTo(SnsClient.class.getName());
+				assertThat(sns.getPropertyKey()).isEqualTo("aws2.sns");
+				assertThat(sns.getRegion()).isEqualTo("us-west-2");
+				assertThat(sns.getEndpoint()).isEqualTo("https://sns.us-west-2.amazonaws.com");
+				assertThat(sns.getHttpClientType()).isEqualTo("APACHE");
+				assertThat(sns.getMaxConnections()).isEqualTo(7);
+				assertThat(sns.isBuilt()).isTrue();
+				assertThat(sns.getBuildTimeMillis()).isNotNull();
+			
+				AwsClientDescriptor sqs = endpoint.client(SqsClient.class.getName());
+				assertThat(sqs.getPropertyKey()).isEqualTo("aws2.sqs");
+				assertThat(sqs.isBuilt()).isFalse();
+			
+				assertThat(endpoint.clients().getClients()).hasSize(2);
+				assertThat(endpoint.clients().getUnmatchedPropertyKeys()).containsExactly("aws2.sqs-asnyc");
+			});
+	}
+	
 	
 	@Configuration
 	@EnableAwsClientV2(S3Client.class)
@@ -321,6 +864,31 @@ public class AwsV2ConfigurationTest {
 	}
 	
 	
+	@Test
+	public void retryAndTimeouts() {
+		contextRunner.withUserConfiguration(ExampleS3Configuration.class)
+			.withPropertyValues("aws2.default.retry.max-retries=5")
+			.withPropertyValues("aws2.s3.retry.base-delay=50ms")
+			.withPropertyValues("aws2.s3.retry.jitter=decorrelated")
+			.withPropertyValues("aws2.s3.timeouts.api-call=10s")
+			.withPropertyValues("aws2.s3.timeouts.api-call-attempt=2s")
+			.run(context -> {
+				assertThat(context.getBean(S3Client.class)).satisfies(client -> {
+					SdkClientConfiguration clientConfiguration = TestUtil.extractClientConfig(client);
+					assertThat(clientConfiguration.option(SdkClientOption.RETRY_POLICY))
+						.returns(5, RetryPolicy::numRetries);
+					assertThat(clientConfiguration.option(SdkClientOption.RETRY_POLICY).backoffStrategy()
+						.computeDelayBeforeNextRetry(RetryPolicyContext.builder().retriesAttempted(0).build()))
+						.isBetween(Duration.ofMillis(50), Duration.ofMillis(150));
+					assertThat(clientConfiguration.option(SdkClientOption.API_CALL_TIMEOUT))
+						.isEqualTo(Duration.ofSeconds(10));
+					assertThat(clientConfiguration.option(SdkClientOption.API_CALL_ATTEMPT_TIMEOUT))
+						.isEqualTo(Duration.ofSeconds(2));
+				});
+			});
+	}
+	
+	
 	@Configuration
 	@EnableAwsClientV2(S3Client.class)
 	@EnableConfigurationProperties
@@ -35,6 +35,7 @@ import software.amazon.awssdk.http.apache.ApacheHttpClient;
 import software.amazon.awssdk.http.apache.internal.ApacheHttpRequestConfig;
 import software.amazon.awssdk.http.nio.netty.NettyNioAsyncHttpClient;
 import software.amazon.awssdk.http.nio.netty.internal.NettyConfiguration;
+import software.amazon.awssdk.http.urlconnection.UrlConnectionHttpClient;
 import software.amazon.awssdk.services.ec2.Ec2AsyncClient;
 import software.amazon.awssdk.services.ec2.Ec2Client;
 import software.amazon.awssdk.services.sqs.SqsAsyncClient;
@@ -169,6 +170,84 @@ public class AwsV2ConfigurationTest_SdkClientConfig {
 			});
 	}
 	
+	@Test
+	public void sdkHttpClientBuilderInheritedDefaultConfiguration() {
+		this.contextRunner.withUserConfiguration(ExampleSdkHttpClientBuilderConfiguration.class)
+			.withPropertyValues("aws2.default.apache-http-client-builder.socket-timeout=15s")
+			.withPropertyValues("aws2.default.apache-http-client-builder.connection-timeout=1s")
+			.withPropertyValues("aws2.default.apache-http-client-builder.max-connections=50")
+			.withPropertyValues("aws2.default.netty-nio-async-http-client-builder.max-concurrency=123")
+			.withPropertyValues("aws2.default.netty-nio-async-http-client-builder.read-timeout=40s")
+			.withPropertyValues("aws2.default.netty-nio-async-http-client-builder.write-timeout=50s")
+			.withPropertyValues("aws2.default.netty-nio-async-http-client-builder.connection-timeout=1s")
+			.withPropertyValues("aws2.ec2.apache-http-client-builder.max-connections=60")
+			.withPropertyValues("aws2.ec2-async.netty-nio-async-http-client-builder.read-timeout=30s")
+			.withPropertyValues("aws2.ec2-async.netty-nio-async-http-client-builder.write-timeout=30s")
+			.withPropertyValues("aws2.ec2-async.netty-nio-async-http-client-builder.connection-timeout=2s")
+			.run(context -> {
+				assertThat(context.getBean(Ec2Client.class)).satisfies(client -> {
+					SdkClientConfiguration clientConfiguration = TestUtil.extractClientConfig(client);
+					assertThat(clientConfiguration.option(SdkClientOption.SYNC_HTTP_CLIENT))
+						.isInstanceOfSatisfying(ApacheHttpClient.class, this::isConfiguredClient);
+				});
+				assertThat(context.getBean(Ec2AsyncClient.class)).satisfies(client -> {
+					SdkClientConfiguration clientConfiguration = TestUtil.extractClientConfig(client);
+					assertThat(clientConfiguration.option(SdkClientOption.ASYNC_HTTP_CLIENT))
+						.isInstanceOfSatisfying(NettyNioAsyncHttpClient.class, this::isConfiguredEc2AsyncClient);
+				});
+				assertThat(context.getBean(SqsClient.class)).satisfies(client -> {
+					SdkClientConfiguration clientConfiguration = TestUtil.extractClientConfig(client);
+					assertThat(clientConfiguration.option(SdkClientOption.SYNC_HTTP_CLIENT))
+						.isInstanceOfSatisfying(ApacheHttpClient.class, c -> {
+							assertThat(TestUtil.extractRequestConfig(c))
+								.returns(Duration.ofSeconds(15), ApacheHttpRequestConfig::socketTimeout)
+								.returns(Duration.ofSeconds(1), ApacheHttpRequestConfig::connectionTimeout);
+						});
+				});
+				assertThat(context.getBean(SqsAsyncClient.class)).satisfies(client -> {
+					SdkClientConfiguration clientConfiguration = TestUtil.extractClientConfig(client);
+					assertThat(clientConfiguration.option(SdkClientOption.ASYNC_HTTP_CLIENT))
+						.isInstanceOfSatisfying(NettyNioAsyncHttpClient.class, this::isConfiguredAsyncClient);
+				});
+			});
+	}
+	
+	@Test
+	public void httpClientType() {
+		this.contextRunner.withUserConfiguration(ExampleSdkHttpClientBuilderConfiguration.class)
+			.withPropertyValues("aws2.default.http-client-type=url-connection")
+			.withPropertyValues("aws2.ec2.http-client-type=apache")
+			.withPropertyValues("aws2.sqs.url-connection-http-client-builder.socket-timeout=15s")
+			.run(context -> {
+				assertThat(context.getBean(Ec2Client.class)).satisfies(client -> {
+					SdkClientConfiguration clientConfiguration = TestUtil.extractClientConfig(client);
+					assertThat(clientConfiguration.option(SdkClientOption.SYNC_HTTP_CLIENT))
+						.isInstanceOfSatisfying(ApacheHttpClient.class, this::isDefaultClient);
+				});
+				assertThat(context.getBean(SqsClient.class)).satisfies(client -> {
+					SdkClientConfiguration clientConfiguration = TestUtil.extractClientConfig(client);
+					assertThat(clientConfiguration.option(SdkClientOption.SYNC_HTTP_CLIENT))
+						.isInstanceOf(UrlConnectionHttpClient.class);
+				});
+				// the type for sync clients is ignored by async clients
+				assertThat(context.getBean(SqsAsyncClient.class)).satisfies(client -> {
+					SdkClientConfiguration clientConfiguration = TestUtil.extractClientConfig(client);
+					assertThat(clientConfiguration.option(SdkClientOption.ASYNC_HTTP_CLIENT))
+						.isInstanceOfSatisfying(NettyNioAsyncHttpClient.class, this::isDefaultAsyncClient);
+				});
+			});
+	}
+	
+	@Test
+	public void httpClientType_NotPresent() {
+		this.contextRunner.withUserConfiguration(ExampleSdkHttpClientBuilderConfiguration.class)
+			.withPropertyValues("aws2.sqs-async.http-client-type=crt")
+			.run(context -> {
+				assertThat(context).hasFailed();
+				assertThat(context.getStartupFailure()).hasStackTraceContaining("is not found on the classpath");
+			});
+	}
+	
 	private void isDefaultClient(ApacheHttpClient c) {
 		assertThat(TestUtil.extractRequestConfig(c))
 			.returns(Duration.ofSeconds(30), ApacheHttpRequestConfig::socketTimeout)
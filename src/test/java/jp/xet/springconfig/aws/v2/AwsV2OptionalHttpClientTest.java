@@ -0,0 +1,119 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jp.xet.springconfig.aws.v2;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.File;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Configuration;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import software.amazon.awssdk.http.nio.netty.NettyNioAsyncHttpClient;
+import software.amazon.awssdk.http.urlconnection.UrlConnectionHttpClient;
+import software.amazon.awssdk.services.sqs.SqsClient;
+
+/**
+ * Test for AWS SDK v2 configuration without the optional HTTP client implementations on the classpath.
+ *
+ * @author miyamoto.daisuke
+ * @since #version#
+ */
+public class AwsV2OptionalHttpClientTest {
+	
+	private static final String[] OPTIONAL_HTTP_CLIENT_JARS = {
+		"netty-nio-client",
+		"url-connection-client"
+	};
+	
+	
+	private ClassLoader contextClassLoader;
+	
+	
+	@Before
+	public void setUp() {
+		System.setProperty("aws.region", "us-east-1");
+		contextClassLoader = Thread.currentThread().getContextClassLoader();
+	}
+	
+	@After
+	public void tearDown() {
+		Thread.currentThread().setContextClassLoader(contextClassLoader);
+		System.clearProperty("aws.region");
+	}
+	
+	@Test
+	public void testSyncClientWithoutOptionalHttpClients() throws Exception {
+		// setup
+		ClassLoader classLoader = createClassLoaderWithout(OPTIONAL_HTTP_CLIENT_JARS);
+		assertThatThrownBy(() -> classLoader.loadClass(NettyNioAsyncHttpClient.class.getName()))
+			.isInstanceOf(ClassNotFoundException.class);
+		assertThatThrownBy(() -> classLoader.loadClass(UrlConnectionHttpClient.class.getName()))
+			.isInstanceOf(ClassNotFoundException.class);
+		Callable<?> sut = (Callable<?>) classLoader.loadClass(ContextStarter.class.getName()).newInstance();
+		Thread.currentThread().setContextClassLoader(classLoader);
+		// exercise
+		Object actual = sut.call();
+		// verify
+		assertThat(actual).isEqualTo("sqs");
+	}
+	
+	private static ClassLoader createClassLoaderWithout(String... jarNames) throws MalformedURLException {
+		String[] paths = System.getProperty("java.class.path").split(File.pathSeparator);
+		URL[] urls = new URL[paths.length];
+		int count = 0;
+		for (String path : paths) {
+			String fileName = new File(path).getName();
+			if (Arrays.stream(jarNames).noneMatch(fileName::startsWith)) {
+				urls[count++] = new File(path).toURI().toURL();
+			}
+		}
+		// the parent is the extension class loader, so that the library is loaded from the filtered classpath
+		return new URLClassLoader(Arrays.copyOf(urls, count), ClassLoader.getSystemClassLoader().getParent());
+	}
+	
+	
+	@Configuration
+	@EnableAwsClientV2(SqsClient.class)
+	@EnableConfigurationProperties
+	static class ExampleSqsConfiguration {
+	}
+	
+	/**
+	 * Starts the context in the filtered class loader, and returns the service name of the client.
+	 */
+	public static class ContextStarter implements Callable<String> {
+		
+		@Override
+		public String call() {
+			try (AnnotationConfigApplicationContext context =
+					new AnnotationConfigApplicationContext(ExampleSqsConfiguration.class)) {
+				return context.getBean(SqsClient.class).serviceName();
+			}
+		}
+	}
+}
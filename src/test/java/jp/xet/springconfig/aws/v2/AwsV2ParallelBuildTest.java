@@ -0,0 +1,154 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jp.xet.springconfig.aws.v2;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.sqs.SqsAsyncClient;
+import software.amazon.awssdk.services.sqs.SqsClient;
+
+/**
+ * Test for AWS SDK v2 clients built in parallel at startup.
+ *
+ * @author miyamoto.daisuke
+ * @since #version#
+ */
+public class AwsV2ParallelBuildTest {
+	
+	private final ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+		.withPropertyValues("aws2.startup.parallel-build=true");
+	
+	
+	@Before
+	public void setUp() {
+		System.setProperty("aws.region", "us-east-1");
+	}
+	
+	@After
+	public void tearDown() {
+		System.clearProperty("aws.region");
+	}
+	
+	
+	@Configuration
+	@EnableAwsClientV2({
+		SqsClient.class,
+		S3Client.class
+	})
+	@EnableConfigurationProperties
+	static class ExampleSyncConfiguration {
+		
+		@Bean
+		public static BuildCoordinatorRecorder buildCoordinatorRecorder() {
+			return new BuildCoordinatorRecorder();
+		}
+	}
+	
+	@Configuration
+	@EnableAwsClientV2({
+		SqsAsyncClient.class,
+		DynamoDbClient.class
+	})
+	@EnableConfigurationProperties
+	static class ExampleMixedConfiguration {
+	}
+	
+	
+	@Test
+	public void testEachAnnotatedClassHasCoordinator() {
+		contextRunner.withUserConfiguration(ExampleSyncConfiguration.class, ExampleMixedConfiguration.class)
+			.run(context -> {
+				String syncCoordinatorName =
+						AwsClientV2BuildCoordinator.getBeanName(ExampleSyncConfiguration.class.getName());
+				String mixedCoordinatorName =
+						AwsClientV2BuildCoordinator.getBeanName(ExampleMixedConfiguration.class.getName());
+				assertThat(context.getBeansOfType(AwsClientV2BuildCoordinator.class))
+					.containsOnlyKeys(syncCoordinatorName, mixedCoordinatorName);
+				
+				// built by the coordinator of the annotated class
+				Map<String, Set<Class<?>>> built = context.getBean(BuildCoordinatorRecorder.class).built;
+				assertThat(built).containsOnlyKeys(syncCoordinatorName, mixedCoordinatorName);
+				assertThat(built.get(syncCoordinatorName)).containsOnly(SqsClient.class, S3Client.class);
+				assertThat(built.get(mixedCoordinatorName)).containsOnly(SqsAsyncClient.class, DynamoDbClient.class);
+				
+				// handed out exactly once
+				assertThat(context).hasSingleBean(SqsClient.class);
+				assertThat(context).hasSingleBean(S3Client.class);
+				assertThat(context).hasSingleBean(SqsAsyncClient.class);
+				assertThat(context).hasSingleBean(DynamoDbClient.class);
+				for (Map.Entry<String, AwsClientV2BuildCoordinator> e : context
+					.getBeansOfType(AwsClientV2BuildCoordinator.class).entrySet()) {
+					assertThat(getFutures(e.getValue())).isEmpty();
+					for (Class<?> clientClass : built.get(e.getKey())) {
+						assertThat(e.getValue().getClient(clientClass)).isNull();
+					}
+				}
+			});
+	}
+	
+	@Test
+	public void testNoCoordinatorBySerialBuild() {
+		contextRunner.withPropertyValues("aws2.startup.parallel-build=false")
+			.withUserConfiguration(ExampleSyncConfiguration.class, ExampleMixedConfiguration.class)
+			.run(context -> {
+				assertThat(context).doesNotHaveBean(AwsClientV2BuildCoordinator.class);
+				assertThat(context).hasSingleBean(SqsClient.class);
+				assertThat(context).hasSingleBean(DynamoDbClient.class);
+			});
+	}
+	
+	@SuppressWarnings("unchecked")
+	private static Map<Class<?>, Future<Object>> getFutures(AwsClientV2BuildCoordinator coordinator) {
+		return (Map<Class<?>, Future<Object>>) ReflectionTestUtils.getField(coordinator, "futures");
+	}
+	
+	
+	/**
+	 * Records the clients which each coordinator starts to build, before the clients are handed out.
+	 */
+	static class BuildCoordinatorRecorder implements BeanPostProcessor {
+		
+		final Map<String, Set<Class<?>>> built = new ConcurrentHashMap<>();
+		
+		
+		@Override
+		public Object postProcessAfterInitialization(Object bean, String beanName) {
+			if (bean instanceof AwsClientV2BuildCoordinator) {
+				built.put(beanName, new HashSet<>(getFutures((AwsClientV2BuildCoordinator) bean).keySet()));
+			}
+			return bean;
+		}
+	}
+}
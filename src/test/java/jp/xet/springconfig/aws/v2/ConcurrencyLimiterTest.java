@@ -0,0 +1,117 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jp.xet.springconfig.aws.v2;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+
+import org.junit.Test;
+
+import jp.xet.springconfig.aws.v2.AwsClientV2Configuration.AwsBulkheadV2Properties;
+
+/**
+ * Test for {@link ConcurrencyLimiter}.
+ *
+ * @author miyamoto.daisuke
+ * @since #version#
+ */
+public class ConcurrencyLimiterTest {
+	
+	private final FakeTicker ticker = new FakeTicker();
+	
+	private final AwsBulkheadV2Properties properties = new AwsBulkheadV2Properties();
+	
+	
+	@Test
+	public void testFixedLimit() {
+		// setup
+		properties.setLimit(2);
+		ConcurrencyLimiter sut = new ConcurrencyLimiter(properties, ticker);
+		// exercise & verify
+		assertThat(sut.tryAcquire()).isEqualTo(1);
+		assertThat(sut.tryAcquire()).isEqualTo(2);
+		assertThat(sut.tryAcquire()).isEqualTo(-1);
+		assertThat(sut.getInFlight()).isEqualTo(2);
+		assertThat(sut.getRejected()).isEqualTo(1L);
+		sut.release(sut.now(), 1);
+		assertThat(sut.tryAcquire()).isEqualTo(2);
+		assertThat(sut.getLimit()).isEqualTo(2);
+	}
+	
+	@Test
+	public void testAdaptiveLimitGrowsWhileLatencyIsStable() {
+		// setup
+		properties.setAdaptive(true);
+		properties.setLimit(10);
+		ConcurrencyLimiter sut = new ConcurrencyLimiter(properties, ticker);
+		// exercise
+		sendRequests(sut, 100, 10, Duration.ofMillis(10));
+		// verify
+		assertThat(sut.getLimit()).isGreaterThan(10);
+	}
+	
+	@Test
+	public void testAdaptiveLimitShrinksWhenLatencyIncreases() {
+		// setup
+		properties.setAdaptive(true);
+		properties.setLimit(50);
+		ConcurrencyLimiter sut = new ConcurrencyLimiter(properties, ticker);
+		sendRequests(sut, 20, 50, Duration.ofMillis(10));
+		int limit = sut.getLimit();
+		// exercise
+		sendRequests(sut, 20, limit, Duration.ofMillis(100));
+		// verify
+		assertThat(sut.getLimit()).isLessThan(limit);
+	}
+	
+	@Test
+	public void testAdaptiveLimitIsBounded() {
+		// setup
+		properties.setAdaptive(true);
+		properties.setLimit(10);
+		properties.setMinLimit(5);
+		properties.setMaxLimit(12);
+		ConcurrencyLimiter sut = new ConcurrencyLimiter(properties, ticker);
+		// exercise & verify
+		sendRequests(sut, 100, 10, Duration.ofMillis(10));
+		assertThat(sut.getLimit()).isEqualTo(12);
+		sendRequests(sut, 100, 12, Duration.ofSeconds(10));
+		assertThat(sut.getLimit()).isEqualTo(5);
+	}
+	
+	@Test
+	public void testAdaptiveLimitIgnoresAppLimitedSamples() {
+		// setup
+		properties.setAdaptive(true);
+		properties.setLimit(10);
+		ConcurrencyLimiter sut = new ConcurrencyLimiter(properties, ticker);
+		// exercise
+		sendRequests(sut, 100, 1, Duration.ofMillis(10));
+		sendRequests(sut, 100, 1, Duration.ofSeconds(1));
+		// verify
+		assertThat(sut.getLimit()).isEqualTo(10);
+	}
+	
+	private void sendRequests(ConcurrencyLimiter sut, int count, int inFlight, Duration latency) {
+		for (int i = 0; i < count; i++) {
+			sut.tryAcquire();
+			long start = sut.now();
+			ticker.advance(latency);
+			sut.release(start, inFlight);
+		}
+	}
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jp.xet.springconfig.aws.v2;
+
+import java.time.Duration;
+import java.util.function.LongSupplier;
+
+/**
+ * Ticker for the tests, which advances only by {@link #advance(Duration)}.
+ *
+ * <p>Starts at a negative value, as {@link System#nanoTime()} may do.</p>
+ *
+ * @author miyamoto.daisuke
+ * @since #version#
+ */
+class FakeTicker implements LongSupplier {
+	
+	private long nanos = -Duration.ofDays(1).toNanos();
+	
+	
+	void advance(Duration duration) {
+		nanos += duration.toNanos();
+	}
+	
+	@Override
+	public long getAsLong() {
+		return nanos;
+	}
+}
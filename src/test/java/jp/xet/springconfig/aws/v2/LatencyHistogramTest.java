@@ -0,0 +1,76 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jp.xet.springconfig.aws.v2;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+
+import org.junit.Test;
+
+/**
+ * Test for {@link LatencyHistogram}.
+ *
+ * @author miyamoto.daisuke
+ * @since #version#
+ */
+public class LatencyHistogramTest {
+	
+	private final FakeTicker ticker = new FakeTicker();
+	
+	
+	@Test
+	public void testPercentile() {
+		// setup
+		LatencyHistogram sut = new LatencyHistogram(Duration.ofSeconds(30), 10, ticker);
+		for (int i = 1; i <= 100; i++) {
+			sut.record(Duration.ofMillis(i).toNanos());
+		}
+		// exercise
+		long actual = sut.getPercentile(95);
+		// verify
+		assertThat(actual).isBetween(Duration.ofMillis(95).toNanos(), Duration.ofMillis(114).toNanos());
+	}
+	
+	@Test
+	public void testNotEnoughSamples() {
+		// setup
+		LatencyHistogram sut = new LatencyHistogram(Duration.ofSeconds(30), 10, ticker);
+		for (int i = 1; i < 10; i++) {
+			sut.record(Duration.ofMillis(i).toNanos());
+		}
+		// exercise & verify
+		assertThat(sut.getPercentile(95)).isEqualTo(-1L);
+	}
+	
+	@Test
+	public void testOldSamplesExpire() {
+		// setup
+		LatencyHistogram sut = new LatencyHistogram(Duration.ofSeconds(30), 10, ticker);
+		for (int i = 0; i < 100; i++) {
+			sut.record(Duration.ofSeconds(1).toNanos());
+		}
+		// exercise & verify
+		ticker.advance(Duration.ofSeconds(30));
+		assertThat(sut.getPercentile(50)).isBetween(Duration.ofSeconds(1).toNanos(), Duration.ofMillis(1200).toNanos());
+		ticker.advance(Duration.ofSeconds(30));
+		assertThat(sut.getPercentile(50)).isEqualTo(-1L);
+		for (int i = 0; i < 100; i++) {
+			sut.record(Duration.ofMillis(10).toNanos());
+		}
+		assertThat(sut.getPercentile(50)).isBetween(Duration.ofMillis(10).toNanos(), Duration.ofMillis(12).toNanos());
+	}
+}